@@ -1,6 +1,8 @@
 package com.bechtle.cougar.graph.api.config;
 
 import com.bechtle.cougar.graph.domain.model.errors.*;
+import com.bechtle.cougar.graph.features.frames.domain.errors.InvalidFrame;
+import com.bechtle.cougar.graph.features.frames.domain.errors.UnknownFrame;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.rio.RDFParseException;
@@ -42,11 +44,33 @@ public class GlobalExceptionHandler extends DefaultErrorAttributes {
             errorAttributes.replace("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
             errorAttributes.remove("exception");
             errorAttributes.remove("trace");
+        } else if (error instanceof UnknownFrame) {
+            errorAttributes.replace("status", HttpStatus.NOT_FOUND.value());
+            errorAttributes.replace("error", HttpStatus.NOT_FOUND.getReasonPhrase());
+            errorAttributes.remove("exception");
+            errorAttributes.remove("trace");
+        } else if (error instanceof InvalidFrame) {
+            errorAttributes.replace("status", HttpStatus.BAD_REQUEST.value());
+            errorAttributes.replace("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+            errorAttributes.remove("exception");
+            errorAttributes.remove("trace");
         } else if (error instanceof MissingType) {
             errorAttributes.replace("status", HttpStatus.BAD_REQUEST.value());
             errorAttributes.replace("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
             errorAttributes.remove("exception");
             errorAttributes.remove("trace");
+        } else if (error instanceof SchemaViolations) {
+            errorAttributes.replace("status", HttpStatus.BAD_REQUEST.value());
+            errorAttributes.replace("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+            errorAttributes.put("violations", ((SchemaViolations) error).getViolations());
+            errorAttributes.remove("exception");
+            errorAttributes.remove("trace");
+        } else if (error instanceof RejectedEntities) {
+            errorAttributes.replace("status", HttpStatus.BAD_REQUEST.value());
+            errorAttributes.replace("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+            errorAttributes.put("rejected", ((RejectedEntities) error).getRejections());
+            errorAttributes.remove("exception");
+            errorAttributes.remove("trace");
         } else if (error instanceof InvalidEntityModel) {
             errorAttributes.replace("status", HttpStatus.CONFLICT.value());
             errorAttributes.replace("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
@@ -76,6 +100,16 @@ public class GlobalExceptionHandler extends DefaultErrorAttributes {
             errorAttributes.put("reason", ((MalformedQueryException) error).getMessage());
             errorAttributes.remove("exception");
             errorAttributes.remove("trace");
+        } else if (error instanceof HistoryNotSupported) {
+            errorAttributes.replace("status", HttpStatus.NOT_IMPLEMENTED.value());
+            errorAttributes.replace("error", HttpStatus.NOT_IMPLEMENTED.getReasonPhrase());
+            errorAttributes.remove("exception");
+            errorAttributes.remove("trace");
+        } else if (error instanceof HistoryNotRetained) {
+            errorAttributes.replace("status", HttpStatus.GONE.value());
+            errorAttributes.replace("error", HttpStatus.GONE.getReasonPhrase());
+            errorAttributes.remove("exception");
+            errorAttributes.remove("trace");
         } else if (error instanceof SecurityException) {
             errorAttributes.replace("status", HttpStatus.UNAUTHORIZED.value());
             errorAttributes.replace("error", HttpStatus.UNAUTHORIZED.getReasonPhrase());
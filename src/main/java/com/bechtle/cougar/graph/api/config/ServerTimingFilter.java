@@ -0,0 +1,34 @@
+package com.bechtle.cougar.graph.api.config;
+
+import com.bechtle.cougar.graph.domain.services.handler.StageTimings;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Adds the timings of the ingestion pipeline as 'Server-Timing' header to the response, if the client asks for it
+ * with the request header 'X-Server-Timing'.
+ */
+@Component
+public class ServerTimingFilter implements WebFilter {
+
+    public static final String REQUEST_HEADER = "X-Server-Timing";
+    public static final String RESPONSE_HEADER = "Server-Timing";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!exchange.getRequest().getHeaders().containsKey(REQUEST_HEADER)) return chain.filter(exchange);
+
+        StageTimings timings = new StageTimings();
+        long start = System.nanoTime();
+        exchange.getResponse().beforeCommit(() -> {
+            timings.add("total", System.nanoTime() - start);
+            exchange.getResponse().getHeaders().add(RESPONSE_HEADER, timings.asHeader());
+            return Mono.empty();
+        });
+
+        return chain.filter(exchange).contextWrite(context -> context.put(StageTimings.class, timings));
+    }
+}
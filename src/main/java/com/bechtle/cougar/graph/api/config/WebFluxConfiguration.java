@@ -5,6 +5,8 @@ import com.bechtle.cougar.graph.api.converter.encoder.BufferedStatementsEncoder;
 import com.bechtle.cougar.graph.api.converter.decoder.StatementsDecoder;
 import com.bechtle.cougar.graph.api.converter.encoder.StatementsEncoder;
 import com.bechtle.cougar.graph.api.converter.encoder.TupleQueryResultsEncoder;
+import com.bechtle.cougar.graph.features.frames.domain.ContextsService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.web.reactive.accept.RequestedContentTypeResolverBuilder;
@@ -13,6 +15,15 @@ import org.springframework.web.reactive.config.WebFluxConfigurer;
 @Configuration
 public class WebFluxConfiguration implements WebFluxConfigurer {
 
+    private final ContextsService contextsService;
+    private final boolean securityEnabled;
+
+    public WebFluxConfiguration(ContextsService contextsService,
+                                @Value("${application.security.enabled:true}") boolean securityEnabled) {
+        this.contextsService = contextsService;
+        this.securityEnabled = securityEnabled;
+    }
+
     public void configureContentTypeResolver(RequestedContentTypeResolverBuilder builder) {
         builder.headerResolver();
         builder.parameterResolver().parameterName("format");
@@ -28,7 +39,7 @@ public class WebFluxConfiguration implements WebFluxConfigurer {
         configurer.customCodecs().register(new TupleQueryResultsEncoder());
         configurer.customCodecs().register(new BindingSetEncoder());
 
-        configurer.customCodecs().register(new StatementsDecoder());
+        configurer.customCodecs().register(new StatementsDecoder(contextsService, securityEnabled));
 
         // configurer.customCodecs().register(new LinkedHashMapEncoder());
 
@@ -1,5 +1,6 @@
 package com.bechtle.cougar.graph.api.controller;
 
+import com.bechtle.cougar.graph.api.dto.Responses;
 import com.bechtle.cougar.graph.domain.services.AdminServices;
 import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
 import io.swagger.annotations.Api;
@@ -44,6 +45,27 @@ public class Admin extends AbstractController {
     }
 
 
+    @ApiOperation(value = "Rebuild the indexes of the entity repository", tags = {"v2"})
+    @PostMapping(value = "/reindex")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    Mono<Void> rebuildIndexes() {
+        return super.getAuthentication()
+                .flatMap(adminServices::rebuildIndexes)
+                .doOnSubscribe(s -> log.debug("(Request) Rebuilding the indexes of the entity repository"));
+    }
+
+
+    @ApiOperation(value = "Compact the storage of the entity repository", tags = {"v2"})
+    @PostMapping(value = "/compact", produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<Responses.CompactionResponse> compact() {
+        return super.getAuthentication()
+                .flatMap(adminServices::compact)
+                .map(result -> new Responses.CompactionResponse(result.repository(), result.statements(), result.replayed(),
+                        result.sizeBefore(), result.sizeAfter(), result.duration(), result.pause()))
+                .doOnSubscribe(s -> log.debug("(Request) Compacting the entity repository"));
+    }
+
+
     @ApiOperation(value = "Import RDF into entity repository", tags = {"v1"})
     @PostMapping(value = "/import/entities", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
     @ResponseStatus(HttpStatus.ACCEPTED)
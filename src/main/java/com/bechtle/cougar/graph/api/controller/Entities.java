@@ -1,21 +1,39 @@
 package com.bechtle.cougar.graph.api.controller;
 
+import com.bechtle.cougar.graph.api.dto.Responses;
 import com.bechtle.cougar.graph.domain.model.enums.RdfMimeTypes;
 import com.bechtle.cougar.graph.domain.model.extensions.GeneratedIdentifier;
 import com.bechtle.cougar.graph.domain.model.extensions.NamespaceAwareStatement;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
 import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
 import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
 import com.bechtle.cougar.graph.domain.services.EntityServices;
+import com.bechtle.cougar.graph.domain.services.handler.DryRun;
+import com.bechtle.cougar.graph.domain.services.history.EntityHistory;
+import com.bechtle.cougar.graph.features.frames.domain.FramesService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -24,26 +42,77 @@ import java.util.Map;
 @Slf4j(topic = "cougar.graph.api")
 public class Entities extends AbstractController {
 
+    private static final int MAX_MULTIGET = 1000;
+    private static final String ACCEPT_DATETIME = "Accept-Datetime";
+    private static final String MEMENTO_DATETIME = "Memento-Datetime";
+
     protected final ObjectMapper objectMapper;
     protected final EntityServices entityServices;
+    protected final FramesService framesService;
+
+    protected final EntityHistory entityHistory;
 
-    public Entities(ObjectMapper objectMapper, EntityServices graphService) {
+    public Entities(ObjectMapper objectMapper, EntityServices graphService, FramesService framesService, EntityHistory entityHistory) {
         this.objectMapper = objectMapper;
         this.entityServices = graphService;
+        this.framesService = framesService;
+        this.entityHistory = entityHistory;
     }
 
-    @ApiOperation(value = "Read entity")
+    @ApiOperation(value = "Read entity", notes = "With the parameter 'at' (ISO-8601) or the header 'Accept-Datetime' (RFC 1123), the entity is returned as it was at the given time.")
     @GetMapping(value = "/{id:[\\w|\\d|-|_]+}", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
     @ResponseStatus(HttpStatus.OK)
-    Flux<NamespaceAwareStatement> read(@PathVariable String id) {
+    Flux<NamespaceAwareStatement> read(@PathVariable String id,
+                                       @RequestParam(name = "at", required = false) String at,
+                                       @RequestHeader(name = ACCEPT_DATETIME, required = false) String acceptDatetime,
+                                       ServerHttpResponse response) {
         Assert.isTrue(id.length() == GeneratedIdentifier.LENGTH, "Incorrect length for identifier.");
 
+        response.getHeaders().add(HttpHeaders.VARY, ACCEPT_DATETIME);
+        if (StringUtils.hasLength(at) || StringUtils.hasLength(acceptDatetime)) {
+            Instant time = StringUtils.hasLength(at) ? parseInstant(at) : parseHttpDate(acceptDatetime);
+            response.getHeaders().add(MEMENTO_DATETIME, DateTimeFormatter.RFC_1123_DATE_TIME.format(time.atOffset(ZoneOffset.UTC)));
+
+            return super.getAuthentication()
+                    .flatMap(authentication -> entityHistory.readEntity(id, time, authentication))
+                    .flatMapIterable(AbstractModel::asStatements)
+                    .doOnSubscribe(s -> log.trace("(Request) Reading Entity with id '{}' at {}", id, time));
+        }
+
         return super.getAuthentication()
                 .flatMap(authentication -> entityServices.readEntity(id, authentication))
                 .flatMapIterable(AbstractModel::asStatements)
                 .doOnSubscribe(s -> log.trace("(Request) Reading Entity with id: {}", id));
     }
 
+    @ApiOperation(value = "Read multiple entities", notes = "Expects a list of entity identifiers, unknown entities are skipped.")
+    @PostMapping(value = "/_multiget",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.NQUADS_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    Flux<NamespaceAwareStatement> readMultiple(@RequestBody List<String> ids) {
+        Assert.notEmpty(ids, "No identifiers in request.");
+        Assert.isTrue(ids.size() <= MAX_MULTIGET, "Too many identifiers in request, the limit is " + MAX_MULTIGET + ".");
+
+        return super.getAuthentication()
+                .flatMap(authentication -> entityServices.readEntities(ids, authentication))
+                .flatMapIterable(AbstractModel::asStatements)
+                .doOnSubscribe(s -> log.trace("(Request) Reading {} entities", ids.size()));
+    }
+
+    @ApiOperation(value = "Read entity with named frame as presentation")
+    @GetMapping(value = "/{id:[\\w|\\d|-|_]+}", params = "presentation", produces = {RdfMimeTypes.JSONLD_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    Mono<String> read(@PathVariable String id, @RequestParam(name = "presentation") String presentation) {
+        Assert.isTrue(id.length() == GeneratedIdentifier.LENGTH, "Incorrect length for identifier.");
+        Assert.isTrue(StringUtils.hasLength(presentation), "Name of the frame is required for the presentation.");
+
+        return super.getAuthentication()
+                .flatMap(authentication -> entityServices.readEntity(id, authentication)
+                        .flatMap(entity -> framesService.frame(entity.getModel(), presentation, authentication)))
+                .doOnSubscribe(s -> log.trace("(Request) Reading Entity with id '{}' and presentation '{}'", id, presentation));
+    }
+
     @ApiOperation(value = "Create entity")
     @PostMapping(value = "",
             consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE},
@@ -61,6 +130,42 @@ public class Entities extends AbstractController {
                 });
     }
 
+    @ApiOperation(value = "Create entity (dry run)", notes = "Runs the validators and transformers and prepares the transaction without committing it. Returns the changes, the time spent in each stage and the lookups in the graph.")
+    @PostMapping(value = "",
+            params = "dryRun=true",
+            consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    Mono<Responses.DryRunResponse> createEntityDryRun(@RequestBody Incoming request) {
+        Assert.isTrue(request.getModel().size() > 0, "No statements in request detected.");
+
+        return super.getAuthentication()
+                .flatMap(authentication -> entityServices.createEntityDryRun(request, Map.of(), authentication))
+                .map(this::asResponse)
+                .doOnSubscribe(s -> {
+                    if (log.isDebugEnabled()) log.debug("(Request) Create a new Entity (dry run)");
+                });
+    }
+
+    @ApiOperation(value = "Create entities in batch", notes = "Every entity (connected subgraph) in the payload is created individually, the response lists the result for each entity.")
+    @PostMapping(value = "/batch",
+            consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.NQUADS_VALUE, RdfMimeTypes.TURTLE_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    Flux<Responses.BatchEntityResponse> createEntities(@RequestBody Flux<Incoming> request) {
+        return super.getAuthentication()
+                .flatMapMany(authentication -> entityServices.createEntities(request, Map.of(), authentication))
+                .map(result -> new Responses.BatchEntityResponse(
+                        result.index(),
+                        result.isFailed() ? "failed" : "created",
+                        result.entities(),
+                        result.transaction() != null ? result.transaction().getIdentifier().stringValue() : null,
+                        result.error()))
+                .doOnSubscribe(s -> {
+                    if (log.isDebugEnabled()) log.debug("(Request) Create new entities in batch");
+                });
+    }
+
 
     @ApiOperation(value = "Create value or relation")
     @PostMapping(value = "/{id:[\\w|\\d|-|_]+}/{prefixedKey:[\\w|\\d]+\\.[\\w|\\d]+}",
@@ -100,6 +205,44 @@ public class Entities extends AbstractController {
 
 
 
+    @ApiOperation(value = "Create value or relation (dry run)", notes = "Prepares the transaction without committing it.")
+    @PostMapping(value = "/{id:[\\w|\\d|-|_]+}/{prefixedKey:[\\w|\\d]+\\.[\\w|\\d]+}",
+            params = "dryRun=true",
+            consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    Mono<Responses.DryRunResponse> createEmbeddedDryRun(@PathVariable String id, @PathVariable String prefixedKey, @RequestBody Incoming value) {
+
+        String[] property = splitPrefixedIdentifier(prefixedKey);
+        return super.getAuthentication()
+                .flatMap(authentication -> entityServices.linkEntityToDryRun(id, property[0], property[1], value, authentication))
+                .map(this::asResponse)
+                .doOnSubscribe(s -> {
+                    if (log.isDebugEnabled()) log.debug("(Request) Add embedded entities as property '{}' to entity '{}' (dry run)", prefixedKey, id);
+                });
+    }
+
+    private Responses.DryRunResponse asResponse(DryRun dryRun) {
+        Model model = dryRun.transaction().getModel();
+        return new Responses.DryRunResponse(
+                dryRun.transaction().getIdentifier().stringValue(),
+                asNTriples(model.filter(null, null, null, Transactions.GRAPH_CREATED)),
+                asNTriples(model.filter(null, null, null, Transactions.GRAPH_DELETED)),
+                asNTriples(model.filter(null, null, null, Transactions.GRAPH_PROVENANCE)),
+                dryRun.timings().asMillis(),
+                dryRun.lookups().list().stream()
+                        .map(lookup -> new Responses.LookupResponse(lookup.stage(), lookup.lookup(), lookup.results(), lookup.duration() / 1_000_000.0))
+                        .toList());
+    }
+
+    private static List<String> asNTriples(Model model) {
+        return model.stream()
+                .map(statement -> NTriplesUtil.toNTriplesString(statement.getSubject()) + " " + NTriplesUtil.toNTriplesString(statement.getPredicate()) + " " + NTriplesUtil.toNTriplesString(statement.getObject()) + " .")
+                .toList();
+    }
+
+
+
     /*
     @ApiOperation(value = "Read entity with type coercion", tags = {"v4", "entity"})
     @GetMapping("/{prefixedType:[\\w|\\d]+\\.[\\w|\\d]+}/{id:[\\w|\\d|-]+}")
@@ -153,4 +296,20 @@ public class Entities extends AbstractController {
     Mono<ServerResponse> deleteValue(@PathVariable String id, @PathVariable String prefixedKey);
 
      */
+
+    private static Instant parseInstant(String value) {
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time '" + value + "', expected an ISO-8601 date time with offset (e.g. 2022-01-01T12:00:00Z).");
+        }
+    }
+
+    private static Instant parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid header '" + ACCEPT_DATETIME + "': '" + value + "', expected a HTTP date (e.g. Sat, 01 Jan 2022 12:00:00 GMT).");
+        }
+    }
 }
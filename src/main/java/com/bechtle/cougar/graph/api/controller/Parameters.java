@@ -7,6 +7,10 @@ public class Parameters {
 
     public static String PAGE = "page";
     public static String COUNT = "count";
+    public static String LIMIT = "limit";
+    public static String TYPE = "type";
+    public static String EXPAND = "expand";
     public static String FORCE_GENERATE_IDENTIFIER = "generate-identifier";
+    public static String PRESENTATION = "presentation";
 
 }
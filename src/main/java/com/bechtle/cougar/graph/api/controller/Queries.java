@@ -1,14 +1,21 @@
 package com.bechtle.cougar.graph.api.controller;
 
+import com.bechtle.cougar.graph.domain.model.enums.RdfMimeTypes;
 import com.bechtle.cougar.graph.domain.model.extensions.NamespaceAwareStatement;
+import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
 import com.bechtle.cougar.graph.domain.services.QueryServices;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -17,12 +24,37 @@ import reactor.core.publisher.Mono;
 @Api(tags = "Queries")
 @Slf4j(topic = "cougar.graph.api")
 public class Queries extends AbstractController{
+    private static final int MAX_LIMIT = 1000;
+
     protected final QueryServices queryServices;
 
     public Queries(QueryServices queryServices) {
         this.queryServices = queryServices;
     }
 
+    @ApiOperation(value = "List entities by type", tags = {"v2"}, notes = "The link to the next page is returned in the 'Link' header.")
+    @GetMapping(value = "", params = "type", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.NQUADS_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    Flux<NamespaceAwareStatement> listEntities(@RequestParam(name = "type") String type,
+                                               @RequestParam(name = "expand", defaultValue = "false") boolean expand,
+                                               @RequestParam(name = "limit", defaultValue = "20") int limit,
+                                               @RequestParam(name = "page", required = false) String page,
+                                               ServerHttpRequest request,
+                                               ServerHttpResponse response) {
+        Assert.isTrue(limit > 0 && limit <= MAX_LIMIT, "Limit has to be between 1 and " + MAX_LIMIT + ".");
+
+        return getAuthentication()
+                .flatMap(authentication -> queryServices.listEntities(type, expand, page, limit, authentication))
+                .doOnNext(result -> result.getNext().ifPresent(next -> {
+                    String link = UriComponentsBuilder.fromHttpRequest(request).replaceQueryParam(Parameters.PAGE, next).build().toUriString();
+                    response.getHeaders().add(HttpHeaders.LINK, "<" + link + ">; rel=\"next\"");
+                }))
+                .flatMapIterable(AbstractModel::asStatements)
+                .doOnSubscribe(s -> {
+                    if(log.isTraceEnabled()) log.trace("(Request) List entities of type '{}' with limit {}", type, limit);
+                });
+    }
+
     @ApiOperation(value = "Run a query", tags = {"v1"})
     @PostMapping(value = "/select", consumes = "text/plain", produces = {"text/csv", "application/sparql-results+json"})
     @ResponseStatus(HttpStatus.ACCEPTED)
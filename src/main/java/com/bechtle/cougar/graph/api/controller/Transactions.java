@@ -3,8 +3,7 @@ package com.bechtle.cougar.graph.api.controller;
 import com.bechtle.cougar.graph.domain.model.enums.RdfMimeTypes;
 import com.bechtle.cougar.graph.domain.model.extensions.GeneratedIdentifier;
 import com.bechtle.cougar.graph.domain.model.extensions.NamespaceAwareStatement;
-import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
-import com.bechtle.cougar.graph.domain.services.EntityServices;
+import com.bechtle.cougar.graph.domain.services.TransactionServices;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -24,24 +23,22 @@ import reactor.core.publisher.Flux;
 public class Transactions extends AbstractController {
 
     protected final ObjectMapper objectMapper;
-    protected final EntityServices graphService;
+    protected final TransactionServices transactionServices;
 
-    public Transactions(ObjectMapper objectMapper, EntityServices graphService) {
+    public Transactions(ObjectMapper objectMapper, TransactionServices transactionServices) {
         this.objectMapper = objectMapper;
-        this.graphService = graphService;
+        this.transactionServices = transactionServices;
     }
 
     @ApiOperation(value = "Read transaction", tags = {"v2"})
     @GetMapping(value = "/{id:[\\w|\\d|-|_]+}", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.NQUADS_VALUE, RdfMimeTypes.N3_VALUE})
     @ResponseStatus(HttpStatus.OK)
     Flux<NamespaceAwareStatement> read(@PathVariable String id) {
-        ;
         Assert.isTrue(id.length() == GeneratedIdentifier.LENGTH, "Incorrect length for identifier.");
 
-        // FIXME: marker to use transactions repository
         return super.getAuthentication()
-                .flatMap(authentication -> graphService.readEntity(id, authentication))
-                .flatMapIterable(AbstractModel::asStatements)
+                .flatMap(authentication -> transactionServices.readTransaction(id, authentication))
+                .flatMapIterable(model -> model.stream().map(statement -> NamespaceAwareStatement.wrap(statement, model.getNamespaces())).toList())
                 .doOnSubscribe(s -> {
                     if (log.isTraceEnabled()) log.trace("(Request) Reading transaction with id: {}", id);
                 });
@@ -1,18 +1,23 @@
 package com.bechtle.cougar.graph.api.converter;
 
+import com.bechtle.cougar.graph.domain.model.extensions.LabeledBlankNode;
 import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
 import org.eclipse.rdf4j.common.exception.RDF4JException;
+import org.eclipse.rdf4j.model.BNode;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.repository.util.AbstractRDFInserter;
 import org.eclipse.rdf4j.rio.*;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
 import org.springframework.http.MediaType;
 import org.springframework.util.MimeType;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -68,6 +73,8 @@ public class RdfUtils {
         public TriplesCollector() {
             super(SimpleValueFactory.getInstance());
             this.model = new Incoming();
+            // the blank nodes are created by the parser, see BlankNodeFactory
+            this.setPreserveBNodeIDs(true);
         }
 
 
@@ -87,6 +94,31 @@ public class RdfUtils {
         }
     }
 
+    /**
+     * Creates the blank nodes while parsing one payload: labeled blank nodes keep their label (see {@link LabeledBlankNode}),
+     * all of them get a fresh identifier. The parser has to preserve the labels ({@link BasicParserSettings#PRESERVE_BNODE_IDS}).
+     */
+    public static class BlankNodeFactory extends SimpleValueFactory {
+        private final Map<String, BNode> labeled = new HashMap<>();
+
+        @Override
+        public BNode createBNode() {
+            // anonymous in the payload (e.g. "[]" in Turtle), the parent would create it with a generated label
+            return SimpleValueFactory.getInstance().createBNode();
+        }
+
+        @Override
+        public BNode createBNode(String label) {
+            return this.labeled.computeIfAbsent(label, LabeledBlankNode::new);
+        }
+
+        public static RDFParser configure(RDFParser parser) {
+            parser.setValueFactory(new BlankNodeFactory());
+            parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+            return parser;
+        }
+    }
+
     public static MediaType getMediaType(RDFFormat format) {
         return MediaType.parseMediaType(format.getDefaultMIMEType());
     }
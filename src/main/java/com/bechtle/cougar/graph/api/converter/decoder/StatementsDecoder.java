@@ -3,25 +3,41 @@ package com.bechtle.cougar.graph.api.converter.decoder;
 import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
 import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
 import com.bechtle.cougar.graph.api.converter.RdfUtils;
+import com.bechtle.cougar.graph.api.converter.jsonld.JsonLdReader;
+import com.bechtle.cougar.graph.features.frames.domain.ContextsService;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFParser;
 import org.reactivestreams.Publisher;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.StringDecoder;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.util.MimeType;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 @Slf4j(topic = "cougar.graph.api.decoder")
 public class StatementsDecoder implements Decoder<Incoming> {
     private static final List<MimeType> mimeTypes;
+    private static final MimeType JSONLD = MimeType.valueOf(RDFFormat.JSONLD.getDefaultMIMEType());
+    private static final MimeType NDJSON = MimeType.valueOf(MediaType.APPLICATION_NDJSON_VALUE);
+    private static final StringDecoder lineDecoder = StringDecoder.allMimeTypes(List.of("\n"), true);
+    private final ContextsService contextsService;
+    private final boolean securityEnabled;
 
     static {
         mimeTypes = List.of(
@@ -30,10 +46,16 @@ public class StatementsDecoder implements Decoder<Incoming> {
                 MimeType.valueOf(RDFFormat.NTRIPLES.getDefaultMIMEType()),
                 MimeType.valueOf(RDFFormat.N3.getDefaultMIMEType()),
                 MimeType.valueOf(RDFFormat.TURTLE.getDefaultMIMEType()),
-                MimeType.valueOf(RDFFormat.NQUADS.getDefaultMIMEType())
+                MimeType.valueOf(RDFFormat.NQUADS.getDefaultMIMEType()),
+                NDJSON
         );
     }
 
+    public StatementsDecoder(ContextsService contextsService, boolean securityEnabled) {
+        this.contextsService = contextsService;
+        this.securityEnabled = securityEnabled;
+    }
+
     @Override
     public List<MimeType> getDecodableMimeTypes() {
         return mimeTypes;
@@ -46,11 +68,18 @@ public class StatementsDecoder implements Decoder<Incoming> {
 
     @Override
     public Flux<Incoming> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (NDJSON.equalsTypeAndSubtype(mimeType)) return this.parseNdJson(inputStream, hints);
         return Flux.from(this.parse(inputStream, mimeType));
     }
 
     @Override
     public Mono<Incoming> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        if (NDJSON.equalsTypeAndSubtype(mimeType)) {
+            return this.parseNdJson(inputStream, hints).reduce((first, second) -> {
+                first.getBuilder().add(second.getModel());
+                return first;
+            });
+        }
         return this.parse(inputStream, mimeType);
     }
 
@@ -58,12 +87,13 @@ public class StatementsDecoder implements Decoder<Incoming> {
 
 
     private Mono<Incoming> parse(Publisher<DataBuffer> publisher, MimeType mimeType) {
+        if (JSONLD.equalsTypeAndSubtype(mimeType)) return this.parseJsonLd(publisher, mimeType);
 
         return DataBufferUtils.join(publisher)
                 .flatMap(dataBuffer -> {
 
                     log.debug("(Decoder) Trying to parse payload of mimetype '{}'", mimeType.toString());
-                    RDFParser parser = RdfUtils.getParserFactory(mimeType).orElseThrow().getParser();
+                    RDFParser parser = RdfUtils.BlankNodeFactory.configure(RdfUtils.getParserFactory(mimeType).orElseThrow().getParser());
                     RdfUtils.TriplesCollector handler = RdfUtils.getTriplesCollector();
 
                     try (InputStream is = dataBuffer.asInputStream(false)) {
@@ -80,8 +110,53 @@ public class StatementsDecoder implements Decoder<Incoming> {
 
     }
 
+    /**
+     * Every line of the stream is a JSON-LD document, which is parsed once it has been received completely.
+     */
+    private Flux<Incoming> parseNdJson(Publisher<DataBuffer> publisher, Map<String, Object> hints) {
+        Flux<String> lines = lineDecoder.decode(publisher, ResolvableType.forClass(String.class), NDJSON, hints)
+                .filter(StringUtils::hasText);
+
+        return this.getAuthentication()
+                .flatMap(this.contextsService::getOptions)
+                .flatMapMany(options -> lines.map(line -> {
+                    log.trace("(Decoder) Trying to parse line of payload with mimetype '{}'", NDJSON);
+                    return new JsonLdReader(options).read(new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8)));
+                }))
+                .doOnError(e -> log.error("(Decoder) Failed to parse request of mimetype '{}'", NDJSON, e));
+    }
 
+    /**
+     * The contexts are scoped to the subscription, a request without authentication is rejected instead of being
+     * parsed with the contexts of another subscription.
+     */
+    private Mono<Authentication> getAuthentication() {
+        if (!this.securityEnabled) return Mono.just(new TestingAuthenticationToken("test", "test"));
 
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .switchIfEmpty(Mono.error(new SecurityException("No authentication found for parsing the JSON-LD payload")));
+    }
 
+    /**
+     * JSON-LD is parsed with the contexts registered for the current subscription (and with its cached contexts),
+     * remote contexts are not resolved while parsing.
+     */
+    private Mono<Incoming> parseJsonLd(Publisher<DataBuffer> publisher, MimeType mimeType) {
+        return this.getAuthentication()
+                .flatMap(this.contextsService::getOptions)
+                .zipWith(DataBufferUtils.join(publisher))
+                .flatMap(tuple -> {
+                    log.debug("(Decoder) Trying to parse payload of mimetype '{}'", mimeType.toString());
 
+                    try (InputStream is = tuple.getT2().asInputStream(true)) {
+                        Incoming incoming = new JsonLdReader(tuple.getT1()).read(is);
+                        log.trace("(Decoder) Parsing of payload with mimetype '{}' completed", mimeType.toString());
+                        return Mono.just(incoming);
+                    } catch (Exception e) {
+                        log.error("(Decoder) Failed to parse request of mimetype '{}'", mimeType.toString(), e);
+                        return Mono.error(e);
+                    }
+                });
+    }
 }
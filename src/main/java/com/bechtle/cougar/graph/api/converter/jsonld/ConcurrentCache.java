@@ -0,0 +1,31 @@
+package com.bechtle.cougar.graph.api.converter.jsonld;
+
+import com.apicatalog.jsonld.context.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Thread-safe cache for the JSON-LD processor (the LRU cache shipped with titanium cannot be shared between requests).
+ */
+public class ConcurrentCache<K, V> implements Cache<K, V> {
+
+    private final com.github.benmanes.caffeine.cache.Cache<K, V> cache;
+
+    public ConcurrentCache(long maximumSize) {
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return this.cache.getIfPresent(key) != null;
+    }
+
+    @Override
+    public V get(K key) {
+        return this.cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        this.cache.put(key, value);
+    }
+}
@@ -0,0 +1,157 @@
+package com.bechtle.cougar.graph.api.converter.jsonld;
+
+import com.apicatalog.jsonld.JsonLd;
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.JsonLdOptions;
+import com.apicatalog.jsonld.document.JsonDocument;
+import com.apicatalog.rdf.RdfDataset;
+import com.apicatalog.rdf.RdfLiteral;
+import com.apicatalog.rdf.RdfNQuad;
+import com.apicatalog.rdf.RdfResource;
+import com.apicatalog.rdf.RdfValue;
+import com.bechtle.cougar.graph.domain.model.extensions.LabeledBlankNode;
+import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
+import jakarta.json.JsonStructure;
+import jakarta.json.JsonValue;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFParseException;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads JSON-LD documents with the titanium processor (instead of the generic parser in RDF4J). All contexts are
+ * resolved through the document loader and caches in the given options, which are shared between requests.
+ */
+public class JsonLdReader {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    // the processor relabels blank nodes, labeled blank nodes are passed through it as IRIs in this namespace
+    private static final String LABELED_BLANK_NODE = "urn:x-blank-node:";
+
+    private final JsonLdOptions options;
+    private final Map<String, BNode> blankNodes;
+    private final Map<String, BNode> labeledBlankNodes;
+
+    public JsonLdReader(JsonLdOptions options) {
+        this.options = options;
+        this.blankNodes = new HashMap<>();
+        this.labeledBlankNodes = new HashMap<>();
+    }
+
+    public Incoming read(InputStream inputStream) throws RDFParseException {
+        try {
+            JsonDocument document = JsonDocument.of(inputStream);
+            JsonArray expanded = JsonLd.expand(document).options(this.options).get();
+            this.checkIdentifiers(expanded);
+
+            RdfDataset dataset = JsonLd.toRdf(JsonDocument.of((JsonArray) this.encodeBlankNodes(expanded))).options(this.options).get();
+
+            Incoming incoming = new Incoming();
+            document.getJsonContent().ifPresent(json -> this.registerNamespaces(json, incoming));
+
+            for (RdfNQuad quad : dataset.toList()) {
+                incoming.getBuilder().add(this.asResource(quad.getSubject()), this.asIRI(quad.getPredicate()), this.asValue(quad.getObject()));
+            }
+            return incoming;
+        } catch (JsonLdError e) {
+            throw new RDFParseException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The processor drops nodes with relative identifiers silently, we rather reject the document.
+     */
+    private void checkIdentifiers(JsonValue value) {
+        if (value instanceof JsonArray array) {
+            array.forEach(this::checkIdentifiers);
+        } else if (value instanceof JsonObject object) {
+            if (object.get("@id") instanceof JsonString id && !id.getString().startsWith("_:") && !URI.create(id.getString()).isAbsolute()) {
+                throw new RDFParseException("Relative identifier '" + id.getString() + "' without base in document.");
+            }
+            object.forEach((key, child) -> {
+                if (!"@value".equals(key)) this.checkIdentifiers(child);
+            });
+        }
+    }
+
+    /**
+     * Replaces the labels of blank nodes ("@id": "_:label") with IRIs, which are turned back into blank nodes keeping
+     * their label (see {@link #asResource(RdfResource)}).
+     */
+    private JsonValue encodeBlankNodes(JsonValue value) {
+        if (value instanceof JsonArray array) {
+            JsonArrayBuilder builder = Json.createArrayBuilder();
+            array.forEach(item -> builder.add(this.encodeBlankNodes(item)));
+            return builder.build();
+        } else if (value instanceof JsonObject object) {
+            JsonObjectBuilder builder = Json.createObjectBuilder();
+            object.forEach((key, child) -> {
+                if ("@id".equals(key) && child instanceof JsonString id && id.getString().startsWith("_:")) {
+                    builder.add(key, LABELED_BLANK_NODE + URLEncoder.encode(id.getString().substring(2), StandardCharsets.UTF_8));
+                } else if ("@value".equals(key)) {
+                    builder.add(key, child);
+                } else {
+                    builder.add(key, this.encodeBlankNodes(child));
+                }
+            });
+            return builder.build();
+        }
+        return value;
+    }
+
+    /**
+     * Prefixes defined in an inline context are used as namespaces of the model
+     */
+    private void registerNamespaces(JsonStructure json, Incoming incoming) {
+        if (!(json instanceof JsonObject object) || !(object.get("@context") instanceof JsonObject context)) return;
+
+        context.forEach((prefix, value) -> {
+            if (prefix.startsWith("@") || !(value instanceof JsonString namespace)) return;
+
+            String name = namespace.getString();
+            if (name.endsWith("#") || name.endsWith("/")) incoming.getBuilder().setNamespace(prefix, name);
+        });
+    }
+
+    private Resource asResource(RdfResource resource) {
+        if (resource.isBlankNode()) {
+            return this.blankNodes.computeIfAbsent(resource.getValue(), label -> vf.createBNode());
+        }
+        if (resource.getValue().startsWith(LABELED_BLANK_NODE)) {
+            String label = URLDecoder.decode(resource.getValue().substring(LABELED_BLANK_NODE.length()), StandardCharsets.UTF_8);
+            return this.labeledBlankNodes.computeIfAbsent(label, LabeledBlankNode::new);
+        }
+        return vf.createIRI(resource.getValue());
+    }
+
+    private IRI asIRI(RdfResource resource) {
+        return vf.createIRI(resource.getValue());
+    }
+
+    private Value asValue(RdfValue value) {
+        if (value.isLiteral()) {
+            RdfLiteral literal = value.asLiteral();
+            if (literal.getLanguage().isPresent()) return vf.createLiteral(literal.getValue(), literal.getLanguage().get());
+            return vf.createLiteral(literal.getValue(), vf.createIRI(literal.getDatatype()));
+        }
+        return this.asResource((RdfResource) value);
+    }
+}
@@ -0,0 +1,91 @@
+package com.bechtle.cougar.graph.api.converter.jsonld;
+
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.JsonLdErrorCode;
+import com.apicatalog.jsonld.document.Document;
+import com.apicatalog.jsonld.document.JsonDocument;
+import com.apicatalog.jsonld.loader.DocumentLoader;
+import com.apicatalog.jsonld.loader.DocumentLoaderOptions;
+import com.apicatalog.jsonld.loader.SchemeRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Document loader for the JSON-LD processor which only resolves documents (typically contexts) registered
+ * beforehand. Remote documents are not fetched (unless enabled with 'application.jsonld.remote-contexts'), a request
+ * for an unknown document fails immediately instead of blocking on the network.
+ *
+ * Contexts can be preloaded through the configuration, e.g.
+ * <pre>
+ * application.jsonld.contexts."[https://av360.io/contexts/default.json]": "classpath:contexts/default.json"
+ * </pre>
+ */
+@Component
+@ConfigurationProperties(prefix = "application.jsonld")
+@Slf4j(topic = "cougar.graph.jsonld.loader")
+public class LocalDocumentLoader implements DocumentLoader {
+
+    private final Map<URI, Document> documents;
+    private final ResourceLoader resourceLoader;
+    private boolean remoteContexts = false;
+
+    public LocalDocumentLoader() {
+        this.documents = new ConcurrentHashMap<>();
+        this.resourceLoader = new DefaultResourceLoader();
+    }
+
+    public void register(URI url, Document document) {
+        log.debug("(Loader) Registering local document for url '{}'", url);
+        this.documents.put(url, document);
+    }
+
+    public Optional<Document> get(URI url) {
+        return Optional.ofNullable(this.documents.get(url));
+    }
+
+    @Override
+    public Document loadDocument(URI url, DocumentLoaderOptions options) throws JsonLdError {
+        Document document = this.documents.get(url);
+        if (document != null) return document;
+
+        if (this.remoteContexts) {
+            log.info("(Loader) Fetching remote document '{}'", url);
+            document = SchemeRouter.defaultInstance().loadDocument(url, options);
+            this.register(url, document);
+            return document;
+        }
+
+        log.warn("(Loader) Request to load unknown document '{}', remote documents are not supported.", url);
+        throw new JsonLdError(JsonLdErrorCode.LOADING_DOCUMENT_FAILED, "Remote document '" + url + "' is not available locally.");
+    }
+
+    public void setContexts(Map<String, String> contexts) {
+        contexts.forEach((url, location) -> {
+            Resource resource = this.resourceLoader.getResource(location);
+            try (InputStream is = resource.getInputStream()) {
+                this.register(URI.create(url), JsonDocument.of(is));
+            } catch (IOException | JsonLdError e) {
+                log.error("(Loader) Failed to preload context '{}' from location '{}'", url, location, e);
+            }
+        });
+    }
+
+    public void setRemoteContexts(boolean remoteContexts) {
+        this.remoteContexts = remoteContexts;
+    }
+
+    public boolean isRemoteContexts() {
+        return remoteContexts;
+    }
+}
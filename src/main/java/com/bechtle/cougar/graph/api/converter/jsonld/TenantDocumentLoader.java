@@ -0,0 +1,30 @@
+package com.bechtle.cougar.graph.api.converter.jsonld;
+
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.document.Document;
+import com.apicatalog.jsonld.loader.DocumentLoader;
+import com.apicatalog.jsonld.loader.DocumentLoaderOptions;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Resolves the documents registered for one tenant first, and falls back to the globally registered documents.
+ */
+public class TenantDocumentLoader implements DocumentLoader {
+
+    private final Map<URI, Document> documents;
+    private final LocalDocumentLoader fallback;
+
+    public TenantDocumentLoader(Map<URI, Document> documents, LocalDocumentLoader fallback) {
+        this.documents = documents;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public Document loadDocument(URI url, DocumentLoaderOptions options) throws JsonLdError {
+        Document document = this.documents.get(url);
+        if (document != null) return document;
+        return this.fallback.loadDocument(url, options);
+    }
+}
@@ -0,0 +1,42 @@
+package com.bechtle.cougar.graph.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+public class Responses {
+
+    /**
+     * The result for one entity in a batch request, status is either 'created' or 'failed'
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record BatchEntityResponse(long index, String status, List<String> entities, String transaction, String error) {
+
+    }
+
+    /**
+     * The prepared (but not committed) transaction of a dry run: the statements which would be inserted and removed,
+     * the statements about the change, the time spent in each stage of the pipeline (in milliseconds) and the
+     * lookups performed in the graph
+     */
+    public record DryRunResponse(String transaction, List<String> inserted, List<String> removed, List<String> provenance,
+                                 Map<String, Double> stages, List<LookupResponse> lookups) {
+
+    }
+
+    /**
+     * One lookup of a dry run, with its number of results and duration (in milliseconds)
+     */
+    public record LookupResponse(String stage, String lookup, int results, double duration) {
+
+    }
+
+    /**
+     * The result of compacting the storage of the entity graph, sizes in bytes and durations in milliseconds
+     */
+    public record CompactionResponse(String repository, long statements, long replayed, long sizeBefore, long sizeAfter,
+                                     long duration, long pause) {
+
+    }
+}
@@ -1,6 +1,7 @@
 package com.bechtle.cougar.graph.api.security;
 
 import com.bechtle.cougar.graph.features.multitenancy.domain.model.ApiKey;
+import com.bechtle.cougar.graph.features.multitenancy.domain.model.Application;
 import lombok.Data;
 import org.apache.commons.lang.NotImplementedException;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
@@ -13,6 +14,23 @@ public class AdminAuthentication extends AbstractAuthenticationToken {
         super(AuthorityUtils.createAuthorityList(ADMIN_AUTHORITY));
     }
 
+    /**
+     * Acts as administrator within the given application (run-as semantics), e.g. for scheduled maintenance jobs
+     */
+    public static AdminAuthentication runAs(Application application) {
+        AdminAuthenticationDetails details = new AdminAuthenticationDetails();
+        details.setApplication(new ApiKey(application.iri(), "run-as", application.key(), true, null, application));
+
+        AdminAuthentication authentication = new AdminAuthentication();
+        authentication.initDetails(details);
+        authentication.setAuthenticated(true);
+        return authentication;
+    }
+
+    private void initDetails(AdminAuthenticationDetails details) {
+        super.setDetails(details);
+    }
+
 
     @Override
     public void setDetails(Object details) {
@@ -42,7 +42,7 @@ public class SecurityConfiguration {
 
         return http
                 .authorizeExchange()
-                    .matchers(EndpointRequest.to("info","env", "logfile", "loggers", "metrics", "scheduledTasks")).hasAuthority(AdminAuthentication.ADMIN_AUTHORITY)
+                    .matchers(EndpointRequest.to("info","env", "logfile", "loggers", "metrics", "scheduledTasks", "jobs")).hasAuthority(AdminAuthentication.ADMIN_AUTHORITY)
                     .matchers(EndpointRequest.to("health")).permitAll()
                     .pathMatchers("/api/admin/**").hasAuthority(AdminAuthentication.ADMIN_AUTHORITY)
                     .pathMatchers("/api/**").hasAnyAuthority(ApplicationAuthentication.USER_AUTHORITY, AdminAuthentication.ADMIN_AUTHORITY)
@@ -0,0 +1,43 @@
+package com.bechtle.cougar.graph.api.security;
+
+import com.bechtle.cougar.graph.features.multitenancy.domain.model.Application;
+import com.bechtle.cougar.graph.features.multitenancy.security.ApplicationAuthentication;
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Resolves the key of the tenant (the subscription) behind an authentication. Used to scope caches and metrics, the
+ * resolution of the repositories itself remains in the repository configuration.
+ */
+public final class Tenants {
+
+    public static final String DEFAULT = "default";
+    public static final String TEST = "test";
+
+    private Tenants() {
+    }
+
+    public static String keyOf(Authentication authentication) {
+        if (authentication == null) return DEFAULT;
+
+        if (authentication instanceof TestingAuthenticationToken) return TEST;
+
+        Application application = applicationOf(authentication);
+        return application != null ? application.key() : DEFAULT;
+    }
+
+    /**
+     * @return the application (subscription) behind the authentication, null for administrators without an application
+     */
+    @Nullable
+    public static Application applicationOf(Authentication authentication) {
+        if (authentication instanceof ApplicationAuthentication auth) return auth.getSubscription();
+
+        if (authentication instanceof AdminAuthentication auth && auth.getDetails() != null && auth.getDetails().getApplication() != null) {
+            return auth.getDetails().getApplication().subscription();
+        }
+
+        return null;
+    }
+}
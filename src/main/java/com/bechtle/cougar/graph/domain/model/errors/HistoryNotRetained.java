@@ -0,0 +1,21 @@
+package com.bechtle.cougar.graph.domain.model.errors;
+
+import java.time.Instant;
+
+/**
+ * The transactions of the requested time have already been deleted from the transaction log (see the retention)
+ */
+public class HistoryNotRetained extends RuntimeException {
+    private final Instant at;
+    private final Instant horizon;
+
+    public HistoryNotRetained(Instant at, Instant horizon) {
+        this.at = at;
+        this.horizon = horizon;
+    }
+
+    @Override
+    public String getMessage() {
+        return "The transactions at '" + this.at + "' are no longer retained, the history starts after '" + this.horizon + "'.";
+    }
+}
@@ -0,0 +1,17 @@
+package com.bechtle.cougar.graph.domain.model.errors;
+
+/**
+ * The configured transactions store does not keep the changes of previous transactions
+ */
+public class HistoryNotSupported extends RuntimeException {
+    private final String backend;
+
+    public HistoryNotSupported(String backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public String getMessage() {
+        return "The transactions backend '" + this.backend + "' does not keep the changes of previous transactions, reading entities at a previous time requires the transaction log (application.storage.transactions.backend=log).";
+    }
+}
@@ -0,0 +1,33 @@
+package com.bechtle.cougar.graph.domain.model.errors;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Multiple entities (connected components) of one request were rejected, each of them for its own reason.
+ */
+public class RejectedEntities extends RuntimeException {
+    private final List<Rejection> rejections;
+
+    public RejectedEntities(List<Rejection> rejections) {
+        this.rejections = rejections;
+    }
+
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    @Override
+    public String getMessage() {
+        return this.rejections.size() + " entities in request were rejected: " + this.rejections.stream()
+                .map(rejection -> rejection.entities() + " (" + rejection.reason() + ")")
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @param entities the subjects of the rejected component
+     * @param reason   the error message
+     */
+    public record Rejection(List<String> entities, String reason) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.bechtle.cougar.graph.domain.model.errors;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The entities in the request violate the shapes defined in the schema.
+ */
+public class SchemaViolations extends RuntimeException {
+    private final Map<String, List<String>> violations;
+
+    /**
+     * @param violations the violated constraints for each entity
+     */
+    public SchemaViolations(Map<String, List<String>> violations) {
+        this.violations = violations;
+    }
+
+    public Map<String, List<String>> getViolations() {
+        return violations;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Entities in request violate the schema: " + this.violations.entrySet().stream()
+                .map(entry -> "'" + entry.getKey() + "' (" + String.join("; ", entry.getValue()) + ")")
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,15 @@
+package com.bechtle.cougar.graph.domain.model.extensions;
+
+/**
+ * The outcome of compacting a persistent repository
+ *
+ * @param repository label of the repository
+ * @param statements number of statements copied from the snapshot
+ * @param replayed   number of changes committed during the copy, which were replayed on the compacted store
+ * @param sizeBefore size of the store on disk (in bytes) before the compaction
+ * @param sizeAfter  size of the store on disk (in bytes) after the compaction
+ * @param duration   duration of the compaction (in ms)
+ * @param pause      duration of the pause for writes (in ms), while the remaining changes were replayed and the stores swapped
+ */
+public record CompactionResult(String repository, long statements, long replayed, long sizeBefore, long sizeAfter, long duration, long pause) {
+}
@@ -0,0 +1,17 @@
+package com.bechtle.cougar.graph.domain.model.extensions;
+
+import org.eclipse.rdf4j.model.IRI;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Types and labels shared by more than one entity, found among the keys which changed since the last acknowledged
+ * watermark.
+ *
+ * @param duplicates  the entities for each shared type and label
+ * @param watermark   acknowledge it once the duplicates are merged, the keys are not reported again
+ * @param incremental false, if all keys had to be checked (e.g. after the index was rebuilt)
+ */
+public record DuplicateLabels(Map<TypedLabel, Set<IRI>> duplicates, long watermark, boolean incremental) {
+}
@@ -0,0 +1,17 @@
+package com.bechtle.cougar.graph.domain.model.extensions;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+
+import java.time.Instant;
+
+/**
+ * The statements of a subject as they were at a given time, kept with the transactions to bound the number of
+ * transactions to undo when reading the subject at a previous time.
+ *
+ * @param subject    the subject of the statements
+ * @param at         the statements include the changes of all transactions before this time (and none at or after it)
+ * @param statements the statements of the subject (without context)
+ */
+public record EntitySnapshot(IRI subject, Instant at, Model statements) {
+}
@@ -0,0 +1,16 @@
+package com.bechtle.cougar.graph.domain.model.extensions;
+
+import org.eclipse.rdf4j.model.Resource;
+
+import java.util.List;
+
+/**
+ * Typed subjects with identifiers outside of the local entity namespace (set externally), which still have to be
+ * replaced with generated identifiers.
+ *
+ * @param subjects    the subjects, in the order they were inserted
+ * @param watermark   acknowledge the replaced subjects with it, subjects inserted again later are reported again
+ * @param incremental false, if the subjects were collected by scanning the graph (e.g. after an import)
+ */
+public record ForeignIdentifiers(List<Resource> subjects, long watermark, boolean incremental) {
+}
@@ -0,0 +1,26 @@
+package com.bechtle.cougar.graph.domain.model.extensions;
+
+import org.eclipse.rdf4j.model.impl.SimpleBNode;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * A blank node with a label in the request payload (e.g. "_:person" in Turtle or JSON-LD). The identifier of the node
+ * is generated as for any other blank node (labels are only unique within one payload), the label itself is kept to
+ * map skolemized resources back to the payload.
+ */
+public class LabeledBlankNode extends SimpleBNode {
+
+    private final String label;
+
+    public LabeledBlankNode(String label) {
+        super(SimpleValueFactory.getInstance().createBNode().getID());
+        this.label = label;
+    }
+
+    /**
+     * @return the label in the payload, without the "_:" prefix
+     */
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,26 @@
+package com.bechtle.cougar.graph.domain.model.extensions;
+
+import org.eclipse.rdf4j.model.Value;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The type and (normalized) label of an entity. Entities with the same type and label are considered duplicates.
+ * <p>
+ * Labels are compared in Unicode normal form, case-insensitive and with collapsed whitespace.
+ */
+public record TypedLabel(String type, String label) {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static TypedLabel of(Value type, Value label) {
+        return new TypedLabel(type.stringValue(), normalize(label.stringValue()));
+    }
+
+    public static String normalize(String label) {
+        String normalized = Normalizer.normalize(label, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+}
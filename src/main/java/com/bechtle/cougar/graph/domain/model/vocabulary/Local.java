@@ -39,6 +39,12 @@ public class Local {
         public static Namespace NS = EntityNamespace.of(PREFIX, NAMESPACE);
     }
 
+    public static class Frames {
+        public static String NAMESPACE = "http://graphs.azurewebsites.net/api/frames/";
+        public static String PREFIX = "frame";
+        public static Namespace NS = EntityNamespace.of(PREFIX, NAMESPACE);
+    }
+
     public static class Subscriptions {
         public static String NAMESPACE = "http://graphs.azurewebsites.net/api/subscriptions/";
         public static String PREFIX = "subs";
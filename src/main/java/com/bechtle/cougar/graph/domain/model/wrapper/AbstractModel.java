@@ -64,15 +64,14 @@ public class AbstractModel implements NamespaceAware, Serializable {
      * within the model pointing to it
      */
     public Set<Resource> embeddedObjects() {
+        // for every object, the subject of the first statement (other than its type) pointing to it
         Set<Resource> result = new HashSet<>();
-        this.getModel().unmodifiable().objects().forEach(object -> {
-                    this.getModel().stream()
-                            .filter(statement -> statement.getObject().equals(object))
-                            .filter(statement -> ! statement.getPredicate().equals(RDF.TYPE))
-                            .findFirst()
-                            .ifPresent(statement -> result.add(statement.getSubject()));
-                }
-        );
+        Set<Value> objects = new HashSet<>();
+        for (Statement statement : this.getModel()) {
+            if (!statement.getPredicate().equals(RDF.TYPE) && objects.add(statement.getObject())) {
+                result.add(statement.getSubject());
+            }
+        }
         return result;
     }
 
@@ -0,0 +1,23 @@
+package com.bechtle.cougar.graph.domain.model.wrapper;
+
+import org.eclipse.rdf4j.model.Model;
+import org.springframework.lang.Nullable;
+
+import java.util.Optional;
+
+/**
+ * One page of entities in a listing, with the (opaque) cursor pointing to the next page if there is one.
+ */
+public class EntityPage extends AbstractModel {
+
+    private final String next;
+
+    public EntityPage(Model model, @Nullable String next) {
+        super(model);
+        this.next = next;
+    }
+
+    public Optional<String> getNext() {
+        return Optional.ofNullable(this.next);
+    }
+}
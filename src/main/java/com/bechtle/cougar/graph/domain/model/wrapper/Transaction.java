@@ -86,6 +86,16 @@ public class Transaction extends AbstractModel {
 
 
 
+    /**
+     * Statements about the change itself (e.g. the original identifiers of skolemized blank nodes), they are
+     * kept with the transaction and not inserted into the graph
+     */
+    public Transaction provenance(Collection<Statement> statements) {
+        super.getBuilder().add(statements, Transactions.GRAPH_PROVENANCE);
+        return this;
+    }
+
+
     public Transaction affected(AbstractModel wrappedModel) {
         return this.affected(wrappedModel.getModel());
     }
@@ -137,6 +147,18 @@ public class Transaction extends AbstractModel {
         return super.asStatements(Transactions.GRAPH_PROVENANCE, Transactions.GRAPH_AFFECTED);
     }
 
+    /**
+     * Replaces the requested changes with the changes applied to the repository: statements which already existed
+     * are not inserted, statements which didn't exist are not removed. The affected model is unchanged.
+     */
+    public void setApplied(Collection<Statement> inserted, Collection<Statement> removed) {
+        Model m = super.getBuilder().build();
+        m.remove(null, null, null, Transactions.GRAPH_CREATED);
+        m.remove(null, null, null, Transactions.GRAPH_DELETED);
+        inserted.forEach(statement -> m.add(statement.getSubject(), statement.getPredicate(), statement.getObject(), Transactions.GRAPH_CREATED));
+        removed.forEach(statement -> m.add(statement.getSubject(), statement.getPredicate(), statement.getObject(), Transactions.GRAPH_DELETED));
+    }
+
     public void setCompleted() {
         Model m = super.getBuilder().build();
         m.add(transactionIdentifier, Transactions.STATUS, Transactions.SUCCESS, Transactions.GRAPH_PROVENANCE);
@@ -147,7 +169,15 @@ public class Transaction extends AbstractModel {
         Model m = super.getBuilder().build();
         m.add(transactionIdentifier, Transactions.STATUS, Transactions.FAILURE, Transactions.GRAPH_PROVENANCE);
         m.remove(transactionIdentifier, Transactions.STATUS, Transactions.RUNNING, Transactions.GRAPH_PROVENANCE);
+        if (message != null) m.add(transactionIdentifier, Transactions.FAILURE_REASON, SimpleValueFactory.getInstance().createLiteral(message), Transactions.GRAPH_PROVENANCE);
+    }
+
+    public boolean isFailed() {
+        return super.hasStatement(transactionIdentifier, Transactions.STATUS, Transactions.FAILURE);
+    }
 
+    public Optional<String> getFailureReason() {
+        return super.streamValues(transactionIdentifier, Transactions.FAILURE_REASON).map(Value::stringValue).findFirst();
     }
 
     public Mono<Transaction> asMono() {
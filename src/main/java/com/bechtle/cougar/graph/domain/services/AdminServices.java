@@ -1,5 +1,6 @@
 package com.bechtle.cougar.graph.domain.services;
 
+import com.bechtle.cougar.graph.domain.model.extensions.CompactionResult;
 import com.bechtle.cougar.graph.repository.EntityStore;
 import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +11,7 @@ import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 
 @Service
@@ -27,6 +29,16 @@ public class AdminServices {
         return this.graph.reset(authentication, repositoryType).then();
     }
 
+    public Mono<Void> rebuildIndexes(Authentication authentication) {
+        log.trace("Rebuilding indexes of the entity store through admin services");
+        return this.graph.rebuildIndexes(authentication);
+    }
+
+    public Mono<CompactionResult> compact(Authentication authentication) {
+        log.trace("Compacting the entity store through admin services");
+        return this.graph.compact(authentication).subscribeOn(Schedulers.boundedElastic());
+    }
+
     public Mono<Void> importEntities(Publisher<DataBuffer> bytes, String mimetype, Authentication authentication) {
         log.trace("Importing statements of type '{}' through admin services", mimetype);
         return this.graph.importStatements(bytes, mimetype, authentication).then();
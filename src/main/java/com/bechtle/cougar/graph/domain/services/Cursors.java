@@ -0,0 +1,29 @@
+package com.bechtle.cougar.graph.domain.services;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursors for keyset pagination are the identifier of the last entity on a page, clients should treat them as opaque.
+ */
+class Cursors {
+
+    private Cursors() {
+    }
+
+    static String encode(IRI last) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(last.stringValue().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static IRI decode(String cursor) {
+        try {
+            String identifier = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return SimpleValueFactory.getInstance().createIRI(identifier);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor for page: " + cursor);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.bechtle.cougar.graph.domain.services;
 
-import com.bechtle.cougar.graph.domain.services.handler.DelegatingTransformer;
-import com.bechtle.cougar.graph.domain.services.handler.DelegatingValidator;
+import com.bechtle.cougar.graph.domain.services.batch.BatchResult;
+import com.bechtle.cougar.graph.domain.services.batch.EntityPartitioner;
+import com.bechtle.cougar.graph.domain.services.handler.DryRun;
+import com.bechtle.cougar.graph.domain.services.handler.GraphLookups;
+import com.bechtle.cougar.graph.domain.services.handler.IngestionPipeline;
+import com.bechtle.cougar.graph.domain.services.provenance.ProvenanceWriter;
 import com.bechtle.cougar.graph.repository.EntityStore;
 import com.bechtle.cougar.graph.repository.SchemaStore;
 import com.bechtle.cougar.graph.repository.TransactionsStore;
@@ -9,18 +13,26 @@ import com.bechtle.cougar.graph.domain.model.enums.Activity;
 import com.bechtle.cougar.graph.domain.model.errors.EntityNotFound;
 import com.bechtle.cougar.graph.domain.model.errors.UnknownPrefix;
 import com.bechtle.cougar.graph.domain.model.extensions.LocalIRI;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
 import com.bechtle.cougar.graph.domain.model.wrapper.Entity;
 import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
 import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.rdf4j.model.*;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.PROV;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Slf4j(topic = "cougar.graph.service.entity")
@@ -30,22 +42,34 @@ public class EntityServices {
     private final EntityStore entityStore;
     private final TransactionsStore trxStore;
     private final SchemaStore schema;
+    private final ProvenanceWriter provenance;
 
 
 
-    private DelegatingValidator validators;
-    private DelegatingTransformer transformers;
+    private IngestionPipeline pipeline;
 
 
 
     private QueryServices queryServices;
 
+    private final int batchParallelism;
+    private final int batchCommitSize;
+    private final int mergeChunkSize;
+
     public EntityServices(EntityStore graph,
                           TransactionsStore trxStore,
-                          SchemaStore schema) {
+                          SchemaStore schema,
+                          ProvenanceWriter provenance,
+                          @org.springframework.beans.factory.annotation.Value("${application.batch.parallelism:0}") int batchParallelism,
+                          @org.springframework.beans.factory.annotation.Value("${application.batch.commit-size:100}") int batchCommitSize,
+                          @org.springframework.beans.factory.annotation.Value("${application.duplicates.merge-chunk-size:10000}") int mergeChunkSize) {
         this.entityStore = graph;
         this.trxStore = trxStore;
         this.schema = schema;
+        this.provenance = provenance;
+        this.batchParallelism = batchParallelism > 0 ? batchParallelism : Runtime.getRuntime().availableProcessors();
+        this.batchCommitSize = Math.max(1, batchCommitSize);
+        this.mergeChunkSize = Math.max(1, mergeChunkSize);
     }
 
 
@@ -55,17 +79,66 @@ public class EntityServices {
                 .switchIfEmpty(Mono.error(new EntityNotFound(identifier)));
     }
 
+    /**
+     * Reads all entities with the given identifiers (either the local identifier or the full IRI) at once. Unknown
+     * entities are not part of the result.
+     */
+    public Mono<Entity> readEntities(Collection<String> identifiers, Authentication authentication) {
+        List<IRI> ids = identifiers.stream()
+                .distinct()
+                .map(identifier -> identifier.contains(":") ? SimpleValueFactory.getInstance().createIRI(identifier) : LocalIRI.withDefaultNamespace(identifier))
+                .toList();
+
+        return entityStore.getEntities(ids, authentication);
+    }
+
 
     public Mono<Transaction> deleteEntity(IRI identifier, Authentication authentication) {
         return this.entityStore.listStatements(identifier, null, null, authentication)
                 .flatMap(statements -> this.entityStore.removeStatements(statements, new Transaction()))
-                .flatMap(trx -> this.entityStore.commit(trx, authentication));
+                .flatMap(trx -> this.commit(trx, authentication));
     }
 
     public Mono<Transaction> createEntity(Incoming triples, Map<String, String> parameters, Authentication authentication) {
         return this.prepareEntity(triples, parameters, new Transaction(), authentication)
-                .flatMap(transaction -> entityStore.commit(transaction, authentication));
+                .flatMap(transaction -> this.commit(transaction, authentication));
+
+    }
+
+    /**
+     * Runs the payload through the pipeline and prepares the transaction like {@link #createEntity}, without
+     * committing it. Nothing is written to the graph.
+     */
+    public Mono<DryRun> createEntityDryRun(Incoming triples, Map<String, String> parameters, Authentication authentication) {
+        return DryRun.of(this.prepareEntity(triples, parameters, new Transaction(), authentication));
+    }
 
+    /**
+     * Creates all entities in the given payloads. Every payload is split into its entities (the connected components),
+     * which are validated and transformed in parallel and committed in batches. We report one result per entity, a
+     * rejected entity doesn't fail the others.
+     */
+    public Flux<BatchResult> createEntities(Flux<Incoming> payloads, Map<String, String> parameters, Authentication authentication) {
+        return payloads
+                .flatMapIterable(EntityPartitioner::partition)
+                .index()
+                .flatMapSequential(item -> this.prepareEntity(item.getT2(), parameters, new Transaction(), authentication)
+                                .map(transaction -> BatchResult.prepared(item.getT1(), transaction))
+                                .onErrorResume(error -> {
+                                    log.debug("(Service) Entity at position {} in batch was rejected, reason: {}", item.getT1(), error.getMessage());
+                                    return Mono.just(BatchResult.failed(item.getT1(), item.getT2(), error));
+                                })
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        this.batchParallelism)
+                .buffer(this.batchCommitSize)
+                .concatMap(batch -> {
+                    List<Transaction> prepared = batch.stream().filter(result -> !result.isFailed()).map(BatchResult::transaction).toList();
+                    if (log.isDebugEnabled()) log.debug("(Service) Committing batch with {} prepared entities ({} rejected)", prepared.size(), batch.size() - prepared.size());
+
+                    return this.commit(prepared, authentication)
+                            .thenMany(Flux.fromIterable(batch))
+                            .map(BatchResult::committed);
+                });
     }
 
 
@@ -107,7 +180,7 @@ public class EntityServices {
         return this.entityStore.getEntity(entityIdentifier, authentication)
                 .switchIfEmpty(Mono.error(new EntityNotFound(entityIdentifier.stringValue())))
                 .flatMap(entity -> this.entityStore.addStatement(entityIdentifier, predicate, value, transaction.affected(entity)))
-                .flatMap(trx -> this.entityStore.commit(trx, authentication));
+                .flatMap(trx -> this.commit(trx, authentication));
     }
 
 
@@ -123,6 +196,20 @@ public class EntityServices {
      * @return transaction model
      */
     public Mono<Transaction> linkEntityTo(String id, String predicatePrefix, String predicateKey, Incoming linkedEntities, Authentication authentication) {
+        return this.prepareLink(id, predicatePrefix, predicateKey, linkedEntities, authentication)
+                .flatMap(trx -> this.commit(trx, authentication));
+
+        // FIXME: we should separate by entities (and have them as individual transactions)
+    }
+
+    /**
+     * Prepares the transaction of {@link #linkEntityTo} without committing it. Nothing is written to the graph.
+     */
+    public Mono<DryRun> linkEntityToDryRun(String id, String predicatePrefix, String predicateKey, Incoming linkedEntities, Authentication authentication) {
+        return DryRun.of(this.prepareLink(id, predicatePrefix, predicateKey, linkedEntities, authentication));
+    }
+
+    private Mono<Transaction> prepareLink(String id, String predicatePrefix, String predicateKey, Incoming linkedEntities, Authentication authentication) {
 
         LocalIRI entityIdentifier = LocalIRI.withDefaultNamespace(id);
         String namespace = schema.getNamespaceFor(predicatePrefix).orElseThrow(() -> new UnknownPrefix(predicatePrefix)).getName();
@@ -135,7 +222,7 @@ public class EntityServices {
 
 
          */
-        return this.entityStore.getEntity(entityIdentifier, authentication)
+        return GraphLookups.trace("entity <" + entityIdentifier + ">", () -> this.entityStore.getEntity(entityIdentifier, authentication), entity -> entity.getModel().size())
                 .switchIfEmpty(Mono.error(new EntityNotFound(id)))
 
                 /* store the new entities */
@@ -152,11 +239,7 @@ public class EntityServices {
 
                     return transaction;
 
-                })
-                .flatMap(trx -> this.entityStore.commit(trx, authentication));
-
-
-        // FIXME: we should separate by entities (and have them as individual transactions)
+                });
     }
 
 
@@ -167,45 +250,102 @@ public class EntityServices {
         if (log.isDebugEnabled())
             log.debug("(Service) {} statements incoming for creating new entity. Parameters: {}", triples.streamStatements().count(), parameters.size() > 0 ? parameters : "none");
 
-        // TODO: perform validation via sha
-        // https://rdf4j.org/javadoc/3.2.0/org/eclipse/rdf4j/sail/shacl/ShaclSail.html
         return Mono.just(triples)
-                .flatMap(sts -> {
-                    /* validate */
-                    return validators.handle(this, sts, parameters);
-                })
+                /* validate and transform */
+                .flatMap(sts -> pipeline.run(sts, parameters, authentication))
 
                 .flatMap(sts -> {
-                    /* transform */
-                    return transformers.handle(sts, parameters, authentication);
-
-                    /* TODO: check if create of resource of given type is supported or is it delegated to connector */
-
-                })
-
-                .flatMap(sts -> entityStore.insert(sts.getModel(), transaction));
+                    /* transformers might have added statements about the change, they belong to the transaction */
+                    Model provenance = new LinkedHashModel(sts.getModel().filter(null, null, null, Transactions.GRAPH_PROVENANCE));
+                    if (!provenance.isEmpty()) {
+                        transaction.provenance(provenance);
+                        sts.getModel().remove(null, null, null, Transactions.GRAPH_PROVENANCE);
+                    }
+                    return entityStore.insert(sts.getModel(), transaction);
+                });
     }
 
     @Autowired
-    protected void setValidators( DelegatingValidator validators) {
-        this.validators = validators;
-    }
-    @Autowired
-    protected void setTransformers(DelegatingTransformer transformers) {
-        this.transformers = transformers;
-        this.transformers.registerEntityService(this);
+    protected void setPipeline(IngestionPipeline pipeline) {
+        this.pipeline = pipeline;
+        this.pipeline.registerEntityService(this);
     }
 
 
+    /**
+     * Merges the duplicates into the original: all statements pointing to one of the duplicates are rerouted to the
+     * original and the duplicates are removed (statements of the original pointing to a duplicate are dropped, they
+     * would become links of the original to itself). The statements are read from one snapshot and changed within one
+     * transaction, which records the merge in its provenance (duplicate prov:alternateOf original). Large merges are
+     * split into chunks of application.duplicates.merge-chunk-size statements, all chunks are committed atomically:
+     * the merge fails if they cannot be committed together.
+     */
+    public Flux<Transaction> mergeDuplicates(IRI original, Collection<IRI> duplicates, Authentication authentication) {
+        if (duplicates.isEmpty()) return Flux.empty();
+
+        return this.entityStore.listStatements(List.copyOf(duplicates), authentication)
+                .flatMapMany(statements -> {
+                    if (statements.isEmpty()) return Flux.empty();
+
+                    List<Transaction> transactions = new ArrayList<>();
+                    Transaction transaction = new Transaction();
+                    transaction.provenance(duplicates.stream()
+                            .map(duplicate -> SimpleValueFactory.getInstance().createStatement(duplicate, PROV.ALTERNATE_OF, original))
+                            .toList());
+                    transactions.add(transaction);
+
+                    int size = 0;
+                    for (Statement statement : statements) {
+                        if (size >= this.mergeChunkSize) {
+                            transaction = new Transaction();
+                            transactions.add(transaction);
+                            size = 0;
+                        }
+
+                        // statements of the duplicates are removed, statements pointing to them are rerouted
+                        transaction.remove(statement, Activity.REMOVED);
+                        if (!duplicates.contains(statement.getSubject()) && !original.equals(statement.getSubject())) {
+                            transaction.insert(statement.getSubject(), statement.getPredicate(), original, Activity.UPDATED);
+                        }
+                        size++;
+                    }
+
+                    log.debug("(Service) Merging {} duplicates into entity '{}', changing {} statements in {} transaction(s)", duplicates.size(), original, statements.size(), transactions.size());
+                    return this.commitAtomically(transactions, authentication);
+                });
+    }
+
     /**
      * Reroutes a statement of an entity, e.g. <entity> <hasProperty> <falseEntity> to <entity> <hasProperty> <rightEntity>
      */
     public Mono<Transaction> relinkEntityProperty(Resource subject, IRI predicate, Value oldObject, Value newObject, Authentication authentication) {
         return this.entityStore.removeStatement(subject, predicate, oldObject, new Transaction())
                 .flatMap(trx -> this.entityStore.addStatement(subject, predicate, newObject, trx))
-                .flatMap(trx -> this.entityStore.commit(trx, authentication));
+                .flatMap(trx -> this.commit(trx, authentication));
 
     }
 
+    /**
+     * Commits the transactions and hands the committed ones off to the provenance writer
+     */
+    private Flux<Transaction> commit(Collection<Transaction> transactions, Authentication authentication) {
+        return this.entityStore.commit(transactions, authentication)
+                .collectList()
+                .doOnNext(committed -> this.provenance.submit(committed, authentication))
+                .flatMapIterable(committed -> committed);
+    }
 
+    /**
+     * Commits the transactions together (all or none) and hands them off to the provenance writer
+     */
+    private Flux<Transaction> commitAtomically(Collection<Transaction> transactions, Authentication authentication) {
+        return this.entityStore.commitAtomically(transactions, authentication)
+                .collectList()
+                .doOnNext(committed -> this.provenance.submit(committed, authentication))
+                .flatMapIterable(committed -> committed);
+    }
+
+    private Mono<Transaction> commit(Transaction transaction, Authentication authentication) {
+        return this.commit(List.of(transaction), authentication).singleOrEmpty();
+    }
 }
@@ -1,13 +1,20 @@
 package com.bechtle.cougar.graph.domain.services;
 
-import com.bechtle.cougar.graph.domain.services.handler.DelegatingTransformer;
+import com.bechtle.cougar.graph.domain.model.wrapper.EntityPage;
+import com.bechtle.cougar.graph.domain.services.handler.IngestionPipeline;
 import com.bechtle.cougar.graph.repository.EntityStore;
+import com.bechtle.cougar.graph.repository.SchemaStore;
+import com.bechtle.cougar.graph.domain.model.extensions.DuplicateLabels;
 import com.bechtle.cougar.graph.domain.model.extensions.NamespaceAwareStatement;
+import com.bechtle.cougar.graph.domain.model.extensions.TypedLabel;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.units.qual.A;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
@@ -15,18 +22,66 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 
 @Service
 @Slf4j(topic = "cougar.graph.service.query")
 public class QueryServices {
 
     private final EntityStore entityStore;
+    private final SchemaStore schemaStore;
 
-    public QueryServices(EntityStore graph) {
+    public QueryServices(EntityStore graph, SchemaStore schemaStore) {
         this.entityStore = graph;
+        this.schemaStore = schemaStore;
+    }
+
+    /**
+     * Lists the entities of the given type (and of its subclasses, if expanded) ordered by their identifiers. The
+     * cursor is the identifier of the last entity on the previous page, the cost of a page doesn't depend on its depth.
+     *
+     * @param type   the type, either prefixed or fully qualified
+     * @param cursor the cursor returned with the previous page (or null for the first page)
+     */
+    public Mono<EntityPage> listEntities(String type, boolean expand, @Nullable String cursor, int limit, Authentication authentication) {
+        IRI typeIdentifier = this.schemaStore.resolvePrefixedName(type);
+        IRI after = cursor != null ? Cursors.decode(cursor) : null;
+
+        Mono<Set<IRI>> types = expand ? this.schemaStore.getSubClasses(typeIdentifier, authentication) : Mono.just(Set.of(typeIdentifier));
+
+        return types
+                // we request one more, to know if there is a next page
+                .flatMap(typeIdentifiers -> this.entityStore.listEntities(typeIdentifiers, after, limit + 1, authentication))
+                .flatMap(identifiers -> {
+                    List<IRI> page = identifiers.size() > limit ? identifiers.subList(0, limit) : identifiers;
+                    String next = identifiers.size() > limit ? Cursors.encode(page.get(page.size() - 1)) : null;
+
+                    if (page.isEmpty()) return Mono.just(new EntityPage(new LinkedHashModel(), null));
+                    return this.entityStore.getEntities(page, authentication).map(entities -> new EntityPage(entities.getModel(), next));
+                })
+                .doOnSubscribe(subscription -> log.trace("(Service) Listing entities of type <{}>{}", typeIdentifier, expand ? " (expanded)" : ""));
     }
 
 
+    /**
+     * Finds the entities with the given types and labels through the label index of the entity store
+     */
+    public Mono<Map<TypedLabel, Set<IRI>>> findByLabels(Collection<TypedLabel> keys, Authentication authentication) {
+        return this.entityStore.findByLabels(keys, authentication);
+    }
+
+    public Mono<DuplicateLabels> findChangedDuplicateLabels(Authentication authentication) {
+        return this.entityStore.findChangedDuplicateLabels(authentication);
+    }
+
+    public Mono<Void> acknowledgeDuplicateLabels(long watermark, Authentication authentication) {
+        return this.entityStore.acknowledgeDuplicateLabels(watermark, authentication);
+    }
+
     public Flux<BindingSet> queryValues(String query, Authentication authentication) {
         return this.entityStore.query(query, authentication)
                 .doOnSubscribe(subscription -> {
@@ -48,8 +103,8 @@ public class QueryServices {
 
 
     @Autowired
-    public void linkTransformers(DelegatingTransformer transformers) {
-        transformers.registerQueryService(this);
+    public void linkTransformers(IngestionPipeline pipeline) {
+        pipeline.registerQueryService(this);
     }
 
 
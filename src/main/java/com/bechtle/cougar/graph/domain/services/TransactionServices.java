@@ -0,0 +1,33 @@
+package com.bechtle.cougar.graph.domain.services;
+
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import com.bechtle.cougar.graph.repository.TransactionsStore;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+
+@Service
+@Slf4j(topic = "cougar.graph.service.transactions")
+public class TransactionServices {
+
+    private final TransactionsStore transactionsStore;
+
+    public TransactionServices(TransactionsStore transactionsStore) {
+        this.transactionsStore = transactionsStore;
+    }
+
+    /**
+     * Reads the provenance of a previous transaction, empty if it is unknown (or not yet written)
+     *
+     * @param id the local identifier of the transaction
+     */
+    public Mono<Model> readTransaction(String id, Authentication authentication) {
+        IRI identifier = SimpleValueFactory.getInstance().createIRI(Local.Transactions.NAMESPACE, id);
+        return this.transactionsStore.read(identifier, authentication);
+    }
+}
@@ -0,0 +1,42 @@
+package com.bechtle.cougar.graph.domain.services.batch;
+
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
+import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import org.eclipse.rdf4j.model.Value;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * The outcome for one entity of a batch: either the transaction which created it or the reason why it failed.
+ *
+ * @param index       position of the entity within the request
+ * @param entities    identifiers of the (created) resources in the entity
+ * @param transaction the transaction, if the entity could be prepared
+ * @param error       the reason, if the entity was rejected or the commit failed
+ */
+public record BatchResult(long index, List<String> entities, @Nullable Transaction transaction, @Nullable String error) {
+
+    public static BatchResult prepared(long index, Transaction transaction) {
+        List<String> entities = transaction.listModifiedResources(Activity.INSERTED).stream().map(Value::stringValue).distinct().toList();
+        return new BatchResult(index, entities, transaction, null);
+    }
+
+    public static BatchResult failed(long index, Incoming incoming, Throwable error) {
+        List<String> entities = incoming.getSubjects().stream().map(Value::stringValue).toList();
+        return new BatchResult(index, entities, null, error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+    }
+
+    /**
+     * Checks the state of the transaction once it has been committed
+     */
+    public BatchResult committed() {
+        if (this.transaction == null || !this.transaction.isFailed()) return this;
+        return new BatchResult(this.index, this.entities, this.transaction, this.transaction.getFailureReason().orElse("Failed to commit transaction."));
+    }
+
+    public boolean isFailed() {
+        return this.error != null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.bechtle.cougar.graph.domain.services.batch;
+
+import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the statements of a request into the individual entities, i.e. the connected components of the graph. Two
+ * subjects belong to the same entity if one of them is the object of a statement of the other one (embedded
+ * entities stay with their parent).
+ * <p>
+ * Every subject is mapped to an int once, the components are found with a union-find over these ids (union by size,
+ * path halving), which keeps splitting large payloads linear in the number of statements.
+ */
+public class EntityPartitioner {
+
+    private EntityPartitioner() {
+    }
+
+    public static List<Incoming> partition(Incoming incoming) {
+        Model model = incoming.getModel();
+
+        Map<Resource, Integer> ids = new HashMap<>();
+        for (Statement statement : model) ids.putIfAbsent(statement.getSubject(), ids.size());
+
+        UnionFind components = new UnionFind(ids.size());
+        for (Statement statement : model) {
+            if (statement.getObject() instanceof Resource object) {
+                Integer other = ids.get(object);
+                if (other != null) components.union(ids.get(statement.getSubject()), other);
+            }
+        }
+
+        // components are numbered in order of their first statement
+        int[] index = new int[ids.size()];
+        Arrays.fill(index, -1);
+        List<Incoming> result = new ArrayList<>();
+        for (Statement statement : model) {
+            int root = components.find(ids.get(statement.getSubject()));
+            if (index[root] < 0) {
+                index[root] = result.size();
+                Incoming component = new Incoming();
+                incoming.getNamespaces().forEach(component.getBuilder()::setNamespace);
+                result.add(component);
+            }
+
+            Incoming component = result.get(index[root]);
+            if (statement.getContext() != null) component.getModel().add(statement);
+            else component.getBuilder().add(statement.getSubject(), statement.getPredicate(), statement.getObject());
+        }
+
+        return result;
+    }
+
+    private static class UnionFind {
+        private final int[] parents;
+        private final int[] sizes;
+
+        UnionFind(int size) {
+            this.parents = new int[size];
+            this.sizes = new int[size];
+            for (int i = 0; i < size; i++) {
+                this.parents[i] = i;
+                this.sizes[i] = 1;
+            }
+        }
+
+        int find(int element) {
+            while (this.parents[element] != element) {
+                this.parents[element] = this.parents[this.parents[element]];
+                element = this.parents[element];
+            }
+            return element;
+        }
+
+        void union(int first, int second) {
+            int a = this.find(first);
+            int b = this.find(second);
+            if (a == b) return;
+
+            if (this.sizes[a] < this.sizes[b]) {
+                int swap = a;
+                a = b;
+                b = swap;
+            }
+            this.parents[b] = a;
+            this.sizes[a] += this.sizes[b];
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.bechtle.cougar.graph.domain.services.handler;
+
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import reactor.core.publisher.Mono;
+
+/**
+ * The outcome of a write which ran through the ingestion pipeline without being committed: the prepared transaction,
+ * the time spent in each stage and the lookups the stages performed in the graph.
+ */
+public record DryRun(Transaction transaction, StageTimings timings, GraphLookups lookups) {
+
+    /**
+     * Prepares the transaction and collects the timings and lookups of the pipeline. Timings requested for the
+     * Server-Timing header are reused.
+     */
+    public static Mono<DryRun> of(Mono<Transaction> preparation) {
+        return Mono.deferContextual(context -> {
+            StageTimings timings = context.getOrDefault(StageTimings.class, new StageTimings());
+            GraphLookups lookups = new GraphLookups();
+
+            return preparation
+                    .map(transaction -> new DryRun(transaction, timings, lookups))
+                    .contextWrite(ctx -> ctx.put(StageTimings.class, timings).put(GraphLookups.class, lookups));
+        });
+    }
+}
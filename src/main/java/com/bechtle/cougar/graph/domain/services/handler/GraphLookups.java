@@ -0,0 +1,76 @@
+package com.bechtle.cougar.graph.domain.services.handler;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * The lookups in the graph (or schema) performed by the stages of the ingestion pipeline during one request. Only
+ * collected if it was put into the subscriber context (e.g. for a dry run), stages report their lookups through
+ * {@link #trace(String, Supplier, ToIntFunction)}.
+ */
+public class GraphLookups {
+
+    /**
+     * Key of the current stage in the subscriber context, set by the pipeline
+     */
+    static final String STAGE = "graph.pipeline.stage.name";
+
+    /**
+     * @param stage    the stage which performed the lookup ('request' for lookups outside of the pipeline)
+     * @param lookup   description of the lookup
+     * @param results  number of results
+     * @param duration duration in nanoseconds
+     */
+    public record Lookup(String stage, String lookup, int results, long duration) {
+    }
+
+    private final List<Lookup> lookups = new ArrayList<>();
+
+    public synchronized void add(Lookup lookup) {
+        this.lookups.add(lookup);
+    }
+
+    public synchronized List<Lookup> list() {
+        return List.copyOf(this.lookups);
+    }
+
+    /**
+     * Runs the lookup and records it, if lookups are collected for the current request. The lookup is only
+     * created on subscription (the stores read eagerly), to include it in the measured duration.
+     */
+    public static <T> Mono<T> trace(String lookup, Supplier<Mono<T>> source, ToIntFunction<T> results) {
+        return Mono.deferContextual(context -> {
+            Optional<GraphLookups> lookups = context.getOrEmpty(GraphLookups.class);
+            if (lookups.isEmpty()) return Mono.defer(source);
+
+            String stage = context.getOrDefault(STAGE, "request");
+            long start = System.nanoTime();
+            return Mono.defer(source)
+                    .doOnSuccess(result -> lookups.get().add(new Lookup(stage, lookup, result != null ? results.applyAsInt(result) : 0, System.nanoTime() - start)));
+        });
+    }
+
+    /**
+     * Runs the lookup and records it with the number of emitted elements as results
+     */
+    public static <T> Flux<T> trace(String lookup, Supplier<Flux<T>> source) {
+        return Flux.deferContextual(context -> {
+            Optional<GraphLookups> lookups = context.getOrEmpty(GraphLookups.class);
+            if (lookups.isEmpty()) return Flux.defer(source);
+
+            String stage = context.getOrDefault(STAGE, "request");
+            long start = System.nanoTime();
+            AtomicInteger results = new AtomicInteger();
+            return Flux.defer(source)
+                    .doOnNext(element -> results.incrementAndGet())
+                    .doOnComplete(() -> lookups.get().add(new Lookup(stage, lookup, results.get(), System.nanoTime() - start)));
+        });
+    }
+}
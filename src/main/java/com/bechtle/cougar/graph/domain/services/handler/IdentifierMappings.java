@@ -0,0 +1,78 @@
+package com.bechtle.cougar.graph.domain.services.handler;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The identifiers to replace in a model, collected by one or more {@link IdentifierRewriter}s and applied in a single
+ * pass over the statements. Statements keep their context.
+ */
+public class IdentifierMappings {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    private final Map<Resource, Resource> replacements = new HashMap<>();
+    private final List<Statement> additions = new ArrayList<>();
+    private final Set<Namespace> namespaces = new HashSet<>();
+
+    public void replace(Resource identifier, Resource replacement) {
+        this.replacements.put(identifier, replacement);
+    }
+
+    /**
+     * Adds a statement once the identifiers have been replaced (it is not rewritten)
+     */
+    public void add(Resource subject, IRI predicate, Value object, Resource context) {
+        this.additions.add(vf.createStatement(subject, predicate, object, context));
+    }
+
+    public void add(Resource subject, IRI predicate, Value object) {
+        this.add(subject, predicate, object, null);
+    }
+
+    public void namespace(Namespace namespace) {
+        this.namespaces.add(namespace);
+    }
+
+    public boolean isEmpty() {
+        return this.replacements.isEmpty() && this.additions.isEmpty();
+    }
+
+    public int size() {
+        return this.replacements.size();
+    }
+
+    public void applyTo(Model model) {
+        if (this.isEmpty()) return;
+
+        List<Statement> replaced = new ArrayList<>();
+        List<Statement> rewritten = new ArrayList<>();
+        for (Statement st : model) {
+            Resource subject = this.replacements.getOrDefault(st.getSubject(), st.getSubject());
+            Value object = st.getObject() instanceof Resource resource ? this.replacements.getOrDefault(resource, resource) : st.getObject();
+
+            if (subject != st.getSubject() || object != st.getObject()) {
+                replaced.add(st);
+                rewritten.add(vf.createStatement(subject, st.getPredicate(), object, st.getContext()));
+            }
+        }
+
+        model.removeAll(replaced);
+        model.addAll(rewritten);
+        model.addAll(this.additions);
+        this.namespaces.forEach(model::setNamespace);
+    }
+}
@@ -0,0 +1,28 @@
+package com.bechtle.cougar.graph.domain.services.handler;
+
+import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
+import org.eclipse.rdf4j.model.Model;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * A transformer which only replaces identifiers (and adds statements about the replaced identifiers). The pipeline
+ * fuses consecutive rewriters: they all collect their replacements for the same model, which is then rewritten once.
+ */
+public interface IdentifierRewriter extends Transformer {
+
+    /**
+     * Registers the identifiers to replace in the given model, the model itself must not be modified.
+     */
+    void collect(Model model, Map<String, String> parameters, IdentifierMappings mappings);
+
+    @Override
+    default Mono<? extends AbstractModel> handle(AbstractModel model, Map<String, String> parameters, Authentication authentication) {
+        IdentifierMappings mappings = new IdentifierMappings();
+        this.collect(model.getModel(), parameters, mappings);
+        mappings.applyTo(model.getModel());
+        return Mono.just(model);
+    }
+}
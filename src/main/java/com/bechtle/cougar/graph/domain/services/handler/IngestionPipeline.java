@@ -0,0 +1,255 @@
+package com.bechtle.cougar.graph.domain.services.handler;
+
+import com.bechtle.cougar.graph.domain.model.errors.RejectedEntities;
+import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
+import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
+import com.bechtle.cougar.graph.domain.services.EntityServices;
+import com.bechtle.cougar.graph.domain.services.QueryServices;
+import com.bechtle.cougar.graph.domain.services.batch.EntityPartitioner;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the registered validators and transformers on an incoming model. The stages are ordered by their
+ * {@link org.springframework.core.annotation.Order} (validators first), all of them work on the same model.
+ * <p>
+ * Consecutive {@link IdentifierRewriter}s are fused into one stage, which rewrites the model only once. Consecutive
+ * partitionable stages form a segment: if the payload is large enough, it is split into its entities, which run
+ * through the segment in parallel on a bounded pool. A failing entity doesn't stop the others, the errors of all
+ * rejected entities are reported together.
+ * <p>
+ * Every stage is measured, see {@link StageInstrumentation}.
+ */
+@Component
+@Slf4j(topic = "cougar.graph.pipeline")
+public class IngestionPipeline {
+
+    private final List<Segment> segments;
+    private final List<Transformer> transformers;
+    private final int partitionThreshold;
+    private final int parallelism;
+    private final Scheduler scheduler;
+    private final StageInstrumentation instrumentation;
+
+    private EntityServices entityServices;
+
+    public IngestionPipeline(ObjectProvider<Validator> validators,
+                             ObjectProvider<Transformer> transformers,
+                             ObjectProvider<MeterRegistry> meterRegistry,
+                             ObjectProvider<Tracer> tracer,
+                             @org.springframework.beans.factory.annotation.Value("${application.pipeline.partition-threshold:1000}") int partitionThreshold,
+                             @org.springframework.beans.factory.annotation.Value("${application.pipeline.parallelism:0}") int parallelism) {
+        this.transformers = transformers.orderedStream().toList();
+        this.instrumentation = new StageInstrumentation(meterRegistry.getIfAvailable(), tracer.getIfAvailable());
+        this.partitionThreshold = partitionThreshold;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // stages might block (e.g. lookups in the repositories), they don't run on the shared parallel scheduler
+        this.scheduler = Schedulers.newBoundedElastic(this.parallelism, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "ingestion");
+
+        List<Stage> stages = new ArrayList<>();
+        validators.orderedStream().forEach(validator -> stages.add(new ValidatorStage(validator)));
+        for (Transformer transformer : this.transformers) {
+            if (transformer instanceof IdentifierRewriter rewriter && !stages.isEmpty() && stages.get(stages.size() - 1) instanceof RewriteStage fused) {
+                fused.rewriters().add(rewriter);
+            } else if (transformer instanceof IdentifierRewriter rewriter) {
+                stages.add(new RewriteStage(new ArrayList<>(List.of(rewriter))));
+            } else {
+                stages.add(new TransformerStage(transformer));
+            }
+        }
+
+        this.segments = new ArrayList<>();
+        for (Stage stage : stages) {
+            Segment last = this.segments.isEmpty() ? null : this.segments.get(this.segments.size() - 1);
+            if (last != null && last.partitionable() && stage.isPartitionable()) last.stages().add(stage);
+            else this.segments.add(new Segment(stage.isPartitionable(), new ArrayList<>(List.of(stage))));
+        }
+
+        log.info("(Pipeline) Ingestion pipeline with stages: {}", this.segments.stream().map(Segment::toString).collect(Collectors.joining(" -> ")));
+    }
+
+    public void registerEntityService(EntityServices entityServices) {
+        this.entityServices = entityServices;
+        this.transformers.forEach(transformer -> transformer.registerEntityService(entityServices));
+    }
+
+    public void registerQueryService(QueryServices queryServices) {
+        this.transformers.forEach(transformer -> transformer.registerQueryService(queryServices));
+    }
+
+    public Mono<AbstractModel> run(AbstractModel triples, Map<String, String> parameters, Authentication authentication) {
+        Mono<AbstractModel> result = Mono.just(triples);
+        for (Segment segment : this.segments) {
+            result = result.flatMap(model -> this.run(segment, model, parameters, authentication));
+        }
+        return result;
+    }
+
+    private Mono<AbstractModel> run(Segment segment, AbstractModel triples, Map<String, String> parameters, Authentication authentication) {
+        if (!segment.partitionable() || triples.getModel().size() < this.partitionThreshold) {
+            return this.runStages(segment.stages(), triples, parameters, authentication);
+        }
+
+        Incoming incoming = triples instanceof Incoming in ? in : this.asIncoming(triples);
+        List<Incoming> partitions = EntityPartitioner.partition(incoming);
+        if (partitions.size() < 2) {
+            return this.runStages(segment.stages(), triples, parameters, authentication);
+        }
+
+        log.debug("(Pipeline) Running {} partitions of a model with {} statements in parallel", partitions.size(), triples.getModel().size());
+        return Flux.fromIterable(partitions)
+                .flatMapSequential(partition -> this.runStages(segment.stages(), partition, parameters, authentication)
+                        .map(PartitionResult::completed)
+                        .onErrorResume(error -> Mono.just(PartitionResult.failed(partition, error)))
+                        .subscribeOn(this.scheduler), this.parallelism)
+                .collectList()
+                .flatMap(results -> {
+                    List<PartitionResult> failed = results.stream().filter(result -> result.error() != null).toList();
+                    if (failed.size() == 1) return Mono.error(failed.get(0).error());
+                    if (failed.size() > 1) {
+                        log.debug("(Pipeline) {} of {} partitions were rejected", failed.size(), results.size());
+                        return Mono.error(new RejectedEntities(failed.stream().map(PartitionResult::asRejection).toList()));
+                    }
+
+                    Model model = triples.getModel();
+                    model.clear();
+                    results.forEach(result -> {
+                        result.model().getNamespaces().forEach(model::setNamespace);
+                        model.addAll(result.model().getModel());
+                    });
+                    return Mono.just(triples);
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.dispose();
+    }
+
+    private Mono<AbstractModel> runStages(List<Stage> stages, AbstractModel triples, Map<String, String> parameters, Authentication authentication) {
+        Mono<AbstractModel> result = Mono.just(triples);
+        for (Stage stage : stages) {
+            result = result.flatMap(model -> this.instrumentation.record(stage.toString(), model, authentication, m -> stage.run(m, parameters, authentication)));
+        }
+        return result;
+    }
+
+    private Incoming asIncoming(AbstractModel triples) {
+        Incoming incoming = new Incoming();
+        triples.getNamespaces().forEach(incoming.getBuilder()::setNamespace);
+        incoming.getModel().addAll(triples.getModel());
+        return incoming;
+    }
+
+
+    private record PartitionResult(AbstractModel model, @Nullable Throwable error) {
+        static PartitionResult completed(AbstractModel model) {
+            return new PartitionResult(model, null);
+        }
+
+        static PartitionResult failed(AbstractModel model, Throwable error) {
+            return new PartitionResult(model, error);
+        }
+
+        RejectedEntities.Rejection asRejection() {
+            List<String> entities = this.model.getModel().subjects().stream().map(Value::stringValue).toList();
+            return new RejectedEntities.Rejection(entities, this.error.getMessage() != null ? this.error.getMessage() : this.error.getClass().getSimpleName());
+        }
+    }
+
+    private interface Stage {
+        Mono<AbstractModel> run(AbstractModel model, Map<String, String> parameters, Authentication authentication);
+
+        boolean isPartitionable();
+    }
+
+    private record Segment(boolean partitionable, List<Stage> stages) {
+        @Override
+        public String toString() {
+            String names = stages.stream().map(Object::toString).collect(Collectors.joining(", "));
+            return partitionable ? "[" + names + "] (partitioned)" : "[" + names + "]";
+        }
+    }
+
+    private class ValidatorStage implements Stage {
+        private final Validator validator;
+
+        ValidatorStage(Validator validator) {
+            this.validator = validator;
+        }
+
+        @Override
+        public Mono<AbstractModel> run(AbstractModel model, Map<String, String> parameters, Authentication authentication) {
+            return this.validator.handle(entityServices, model, parameters, authentication).cast(AbstractModel.class);
+        }
+
+        @Override
+        public boolean isPartitionable() {
+            return this.validator.isPartitionable();
+        }
+
+        @Override
+        public String toString() {
+            return this.validator.getClass().getSimpleName();
+        }
+    }
+
+    private record TransformerStage(Transformer transformer) implements Stage {
+        @Override
+        public Mono<AbstractModel> run(AbstractModel model, Map<String, String> parameters, Authentication authentication) {
+            return this.transformer.handle(model, parameters, authentication).cast(AbstractModel.class);
+        }
+
+        @Override
+        public boolean isPartitionable() {
+            return this.transformer.isPartitionable();
+        }
+
+        @Override
+        public String toString() {
+            return this.transformer.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * Fused identifier rewriters: all of them collect their mappings on the unchanged model, which is rewritten once
+     */
+    private record RewriteStage(List<IdentifierRewriter> rewriters) implements Stage {
+        @Override
+        public Mono<AbstractModel> run(AbstractModel model, Map<String, String> parameters, Authentication authentication) {
+            IdentifierMappings mappings = new IdentifierMappings();
+            this.rewriters.forEach(rewriter -> rewriter.collect(model.getModel(), parameters, mappings));
+            if (log.isTraceEnabled()) log.trace("(Pipeline) Rewriting {} identifiers in model with {} statements", mappings.size(), model.getModel().size());
+
+            mappings.applyTo(model.getModel());
+            return Mono.just(model);
+        }
+
+        @Override
+        public boolean isPartitionable() {
+            return this.rewriters.stream().allMatch(Transformer::isPartitionable);
+        }
+
+        @Override
+        public String toString() {
+            return this.rewriters.stream().map(rewriter -> rewriter.getClass().getSimpleName()).collect(Collectors.joining("+"));
+        }
+    }
+}
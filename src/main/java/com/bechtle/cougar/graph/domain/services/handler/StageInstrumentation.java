@@ -0,0 +1,112 @@
+package com.bechtle.cougar.graph.domain.services.handler;
+
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.TraceContext;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Measures the stages of the ingestion pipeline: a timer and the number of statements going in and out of a stage
+ * (tagged by stage and tenant), a span for each run of a stage and the timings for the Server-Timing header. The
+ * name of the running stage is kept in the subscriber context, lookups of the stage are attributed to it.
+ */
+class StageInstrumentation {
+
+    static final String TIMER = "graph.pipeline.stage";
+    static final String STATEMENTS = "graph.pipeline.stage.statements";
+
+    @Nullable
+    private final MeterRegistry registry;
+    @Nullable
+    private final Tracer tracer;
+
+    StageInstrumentation(@Nullable MeterRegistry registry, @Nullable Tracer tracer) {
+        this.registry = registry;
+        this.tracer = tracer;
+    }
+
+    Mono<AbstractModel> record(String stage, AbstractModel model, Authentication authentication, Function<AbstractModel, Mono<AbstractModel>> run) {
+        return Mono.deferContextual(context -> {
+            String tenant = Tenants.keyOf(authentication);
+            int statementsIn = model.getModel().size();
+            Span span = this.startSpan(context, stage, tenant);
+            long start = System.nanoTime();
+            AtomicBoolean finished = new AtomicBoolean();
+
+            // recorded before the result is passed on, the response (and its headers) might be written downstream
+            Consumer<Measurement> finish = measurement -> {
+                if (!finished.compareAndSet(false, true)) return;
+
+                long duration = System.nanoTime() - start;
+                context.getOrEmpty(StageTimings.class).ifPresent(timings -> ((StageTimings) timings).add(stage, duration));
+                this.recordMeters(stage, tenant, measurement.outcome(), duration, statementsIn, measurement.statementsOut());
+                if (span != null) {
+                    span.tag("statements.in", Integer.toString(statementsIn));
+                    if (measurement.statementsOut() >= 0) span.tag("statements.out", Integer.toString(measurement.statementsOut()));
+                    if (measurement.error() != null) span.error(measurement.error());
+                    span.end();
+                }
+            };
+
+            return run.apply(model)
+                    .doOnSuccess(result -> finish.accept(new Measurement("completed", result != null ? result.getModel().size() : -1, null)))
+                    .doOnError(error -> finish.accept(new Measurement("failed", -1, error)))
+                    .doOnCancel(() -> finish.accept(new Measurement("cancelled", -1, null)))
+                    .contextWrite(ctx -> ctx.put(GraphLookups.STAGE, stage));
+        });
+    }
+
+    @Nullable
+    private Span startSpan(ContextView context, String stage, String tenant) {
+        if (this.tracer == null) return null;
+
+        Span.Builder builder = this.tracer.spanBuilder().name("pipeline:" + stage).tag("stage", stage).tag("tenant", tenant);
+        // the trace context of the request is kept in the subscriber context, the current thread might not know it
+        TraceContext parent = context.getOrDefault(TraceContext.class, null);
+        Span current = this.tracer.currentSpan();
+        if (parent != null) builder.setParent(parent);
+        else if (current != null) builder.setParent(current.context());
+        return builder.start();
+    }
+
+    private void recordMeters(String stage, String tenant, String outcome, long duration, int statementsIn, int statementsOut) {
+        if (this.registry == null) return;
+
+        Timer.builder(TIMER)
+                .description("Time spent in a stage of the ingestion pipeline")
+                .tag("stage", stage)
+                .tag("tenant", tenant)
+                .tag("outcome", outcome)
+                .register(this.registry)
+                .record(duration, TimeUnit.NANOSECONDS);
+
+        this.statements(stage, tenant, "in").record(statementsIn);
+        if (statementsOut >= 0) this.statements(stage, tenant, "out").record(statementsOut);
+    }
+
+    private DistributionSummary statements(String stage, String tenant, String direction) {
+        return DistributionSummary.builder(STATEMENTS)
+                .description("Number of statements going in and out of a stage of the ingestion pipeline")
+                .baseUnit("statements")
+                .tag("stage", stage)
+                .tag("tenant", tenant)
+                .tag("direction", direction)
+                .register(this.registry);
+    }
+
+    private record Measurement(String outcome, int statementsOut, @Nullable Throwable error) {
+    }
+}
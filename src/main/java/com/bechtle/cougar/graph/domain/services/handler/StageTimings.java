@@ -0,0 +1,38 @@
+package com.bechtle.cougar.graph.domain.services.handler;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The time spent in each stage of the ingestion pipeline during one request, in the format of the Server-Timing
+ * header. Put into the subscriber context of the request if the client asked for it. Stages running for multiple
+ * partitions of a payload are summed up.
+ */
+public class StageTimings {
+
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+
+    public synchronized void add(String stage, long nanos) {
+        this.durations.merge(stage, nanos, Long::sum);
+    }
+
+    /**
+     * Returns the timings in milliseconds, in order of the stages
+     */
+    public synchronized Map<String, Double> asMillis() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        this.durations.forEach((stage, nanos) -> result.put(stage, nanos / 1_000_000.0));
+        return result;
+    }
+
+    /**
+     * Returns the timings as header value, e.g. 'CheckRequiredType;dur=0.52, MergeDuplicates;dur=12.10'
+     */
+    public synchronized String asHeader() {
+        return this.durations.entrySet().stream()
+                .map(entry -> String.format(Locale.ROOT, "%s;dur=%.2f", entry.getKey(), entry.getValue() / 1_000_000.0))
+                .collect(Collectors.joining(", "));
+    }
+}
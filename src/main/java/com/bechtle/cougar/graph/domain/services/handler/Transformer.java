@@ -13,6 +13,14 @@ public interface Transformer {
 
     Mono<? extends AbstractModel> handle(AbstractModel model, Map<String, String> parameters, Authentication authentication);
 
+    /**
+     * A partitionable transformer only looks at the statements of one entity (and its embedded entities) at a time,
+     * the pipeline may run it in parallel on the individual entities of a large payload.
+     */
+    default boolean isPartitionable() {
+        return false;
+    }
+
     default void registerEntityService(EntityServices entityServices) {}
 
     default void registerQueryService(QueryServices queryServices) {}
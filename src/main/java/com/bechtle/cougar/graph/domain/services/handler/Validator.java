@@ -3,11 +3,19 @@ package com.bechtle.cougar.graph.domain.services.handler;
 import com.bechtle.cougar.graph.domain.services.EntityServices;
 import com.bechtle.cougar.graph.repository.EntityStore;
 import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
+import org.springframework.security.core.Authentication;
 import reactor.core.publisher.Mono;
 
 import java.util.Map;
 
 public interface Validator {
 
-    Mono<? extends AbstractModel> handle(EntityServices entityServices, AbstractModel model, Map<String, String> parameters);
+    Mono<? extends AbstractModel> handle(EntityServices entityServices, AbstractModel model, Map<String, String> parameters, Authentication authentication);
+
+    /**
+     * A partitionable validator only looks at the statements of one entity (and its embedded entities) at a time
+     */
+    default boolean isPartitionable() {
+        return false;
+    }
 }
@@ -0,0 +1,190 @@
+package com.bechtle.cougar.graph.domain.services.history;
+
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.domain.model.errors.EntityNotFound;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
+import com.bechtle.cougar.graph.domain.model.extensions.LocalIRI;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Entity;
+import com.bechtle.cougar.graph.domain.services.provenance.ProvenanceWriter;
+import com.bechtle.cougar.graph.repository.EntityStore;
+import com.bechtle.cougar.graph.repository.TransactionsStore;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.util.Models;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads entities as they were at a given time (Memento-style time travel).
+ * <p>
+ * Every subject (the entity and its embedded entities at that time) is reconstructed on its own: starting from the
+ * earliest snapshot of the subject after the requested time (or its current state, if there is none), the changes of
+ * the transactions in between are undone, starting with the latest one. The transactions are found through the
+ * subjects they changed, the cost is bounded by the changes of the subject since the nearest snapshot. While undoing,
+ * a snapshot is written every application.history.snapshot-interval transactions, which bounds the cost of later
+ * reads.
+ * <p>
+ * Requires a transactions store keeping the changes of every transaction (the transaction log,
+ * application.storage.transactions.backend=log). Times whose transactions have already been deleted from the log
+ * fail with {@link com.bechtle.cougar.graph.domain.model.errors.HistoryNotRetained}.
+ */
+@Service
+@Slf4j(topic = "cougar.graph.service.history")
+public class EntityHistory {
+
+    private final EntityStore entityStore;
+    private final TransactionsStore transactionsStore;
+    private final ProvenanceWriter provenance;
+    private final Duration flushTimeout;
+    private final int snapshotInterval;
+
+    public EntityHistory(EntityStore entityStore,
+                         TransactionsStore transactionsStore,
+                         ProvenanceWriter provenance,
+                         @org.springframework.beans.factory.annotation.Value("${application.history.flush-timeout:1000}") long flushTimeout,
+                         @org.springframework.beans.factory.annotation.Value("${application.history.snapshot-interval:100}") int snapshotInterval) {
+        this.entityStore = entityStore;
+        this.transactionsStore = transactionsStore;
+        this.provenance = provenance;
+        this.flushTimeout = Duration.ofMillis(flushTimeout);
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Reconstructs the entity (with its embedded entities) as it was at the given time
+     *
+     * @param identifier the local identifier of the entity
+     */
+    public Mono<Entity> readEntity(String identifier, Instant at, Authentication authentication) {
+        IRI id = LocalIRI.withDefaultNamespace(identifier);
+
+        // the provenance is written asynchronously, the latest transactions of the tenant might still be queued
+        Instant requested = Instant.now();
+        return Mono.fromCallable(() -> this.provenance.await(Tenants.keyOf(authentication), requested, this.flushTimeout))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(written -> {
+                    if (!written) log.debug("(History) Not all transactions were written before reading entity '{}' at {}, no snapshots are taken", identifier, at);
+                })
+                .flatMap(written -> this.readSubject(id, at, written, authentication)
+                        .filter(entity -> !entity.isEmpty())
+                        .flatMap(entity -> Flux.fromIterable(embeddedOf(id, entity))
+                                .concatMap(embedded -> this.readSubject(embedded, at, written, authentication))
+                                .collect(() -> new LinkedHashModel(entity), Model::addAll)))
+                .map(Entity::new)
+                .switchIfEmpty(Mono.error(new EntityNotFound(identifier)))
+                .doOnSuccess(entity -> log.trace("(History) Reconstructed entity '{}' at {}", identifier, at));
+    }
+
+    /**
+     * Reconstructs the statements of the subject at the given time, from its nearest snapshot or its current state
+     *
+     * @param complete snapshots are only taken if all transactions were written
+     */
+    private Mono<Model> readSubject(IRI subject, Instant at, boolean complete, Authentication authentication) {
+        // the current state is read before the changes: undoing (effective) changes not yet applied leaves it unchanged
+        return this.transactionsStore.readSnapshot(subject, at, authentication)
+                .map(snapshot -> new Origin(snapshot.statements(), snapshot.at()))
+                .switchIfEmpty(Mono.defer(() -> this.entityStore.getEntities(List.of(subject), authentication)
+                        .map(current -> new Origin(current.getModel().filter(subject, null, null), null))
+                        .defaultIfEmpty(new Origin(new LinkedHashModel(), null))))
+                .flatMap(origin -> this.transactionsStore.readChanges(subject, at, origin.at(), authentication).collectList()
+                        .flatMap(transactions -> {
+                            List<EntitySnapshot> snapshots = new ArrayList<>();
+                            Model state = reconstruct(subject, origin.statements(), transactions, complete ? this.snapshotInterval : 0, snapshots::add);
+                            if (snapshots.isEmpty()) return Mono.just(state);
+
+                            log.trace("(History) Taking {} snapshots of subject '{}' after undoing {} transactions", snapshots.size(), subject, transactions.size());
+                            return this.transactionsStore.storeSnapshots(snapshots, authentication)
+                                    .onErrorResume(error -> {
+                                        log.warn("(History) Failed to store the snapshots of subject '{}', reason: {}", subject, error.getMessage());
+                                        return Mono.empty();
+                                    })
+                                    .thenReturn(state);
+                        }));
+    }
+
+    /**
+     * The resources the entity refers to, its embedded entities (level 1) as they are read from the store
+     */
+    static Set<IRI> embeddedOf(IRI id, Model entity) {
+        Set<IRI> embedded = new LinkedHashSet<>();
+        entity.filter(id, null, null).objects().stream()
+                .filter(Value::isIRI)
+                .map(IRI.class::cast)
+                .filter(object -> !object.equals(id))
+                .forEach(embedded::add);
+        return embedded;
+    }
+
+    /**
+     * Undoes the changes of the transactions on the statements of the subject. The transactions are undone by the time
+     * of their commit, not in the order of the log (the provenance writer appends spilled and retried transactions
+     * later).
+     *
+     * @param current          the statements of the subject after the transactions
+     * @param snapshotInterval a snapshot is taken after every n-th undone transaction (0: none)
+     * @param snapshots        receives the snapshots, taken only between transactions of different times
+     * @return the statements of the subject before the first transaction
+     */
+    static Model reconstruct(IRI subject, Model current, List<Model> transactions, int snapshotInterval, Consumer<EntitySnapshot> snapshots) {
+        Model state = new LinkedHashModel();
+        current.filter(subject, null, null).forEach(statement -> state.add(statement.getSubject(), statement.getPredicate(), statement.getObject()));
+
+        List<Model> committed = transactions.stream()
+                .filter(transaction -> !transaction.contains(null, Transactions.STATUS, Transactions.FAILURE))
+                .sorted(Comparator.comparingLong(EntityHistory::timestampOf))
+                .toList();
+        int undone = 0;
+        for (int i = committed.size() - 1; i >= 0; i--) {
+            Model transaction = committed.get(i);
+
+            // applied as inserts first and removals second, undone the other way round
+            for (Statement statement : transaction.filter(subject, null, null, Transactions.GRAPH_DELETED)) {
+                state.add(statement.getSubject(), statement.getPredicate(), statement.getObject());
+            }
+            for (Statement statement : transaction.filter(subject, null, null, Transactions.GRAPH_CREATED)) {
+                state.remove(statement.getSubject(), statement.getPredicate(), statement.getObject());
+            }
+
+            long timestamp = timestampOf(transaction);
+            if (snapshotInterval > 0 && ++undone >= snapshotInterval && timestamp != Long.MAX_VALUE
+                    && (i == 0 || timestampOf(committed.get(i - 1)) < timestamp)) {
+                snapshots.accept(new EntitySnapshot(subject, Instant.ofEpochMilli(timestamp), new LinkedHashModel(state)));
+                undone = 0;
+            }
+        }
+        return state;
+    }
+
+    static long timestampOf(Model transaction) {
+        return Models.objectLiteral(transaction.filter(null, Transactions.AT, null))
+                .map(literal -> literal.calendarValue().toGregorianCalendar().getTimeInMillis())
+                .orElse(Long.MAX_VALUE);
+    }
+
+    /**
+     * The statements to start the reconstruction from
+     *
+     * @param at the time of the snapshot, null for the current state
+     */
+    private record Origin(Model statements, @Nullable Instant at) {
+    }
+}
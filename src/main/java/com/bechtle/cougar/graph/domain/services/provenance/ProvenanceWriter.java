@@ -0,0 +1,500 @@
+package com.bechtle.cougar.graph.domain.services.provenance;
+
+import com.bechtle.cougar.graph.api.security.AdminAuthentication;
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.bechtle.cougar.graph.features.multitenancy.domain.model.Application;
+import com.bechtle.cougar.graph.repository.TransactionsStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the provenance of committed transactions into the transactions repository of the tenant, without adding
+ * latency to the writes: the transactions are handed off to a bounded queue (application.provenance.queue-size) and
+ * written by a background worker. The worker takes everything queued (up to application.provenance.batch-size) and
+ * stores it with one commit per tenant (group commit).
+ * <p>
+ * If the queue is full, the transactions are appended to a spill file (application.provenance.spill-path) and
+ * written once the queue is empty again. Batches which failed to be written, and the queue on shutdown, are spilled
+ * as well; the spill file is replayed after a restart. Provenance is written at least once, writing a transaction
+ * twice leaves the transactions repository unchanged.
+ * <p>
+ * Failures are isolated per tenant: a tenant whose commit failed is skipped for application.provenance.retry-delay
+ * (its transactions are spilled without an attempt), the other tenants are written meanwhile. A transaction failing
+ * application.provenance.max-attempts times is moved to the dead letter file (provenance.dead, same format as the
+ * spill file) and not retried anymore.
+ * <p>
+ * The transactions not yet written are counted per tenant and time of their hand-off, readers of the provenance only
+ * wait for the transactions of their tenant handed off before they started reading (see
+ * {@link #await(String, Instant, Duration)}).
+ * <p>
+ * The backpressure is published as metrics: graph.provenance.queued and graph.provenance.spill (gauges),
+ * graph.provenance.spilled, graph.provenance.written, graph.provenance.failed and graph.provenance.dead (counters),
+ * and graph.provenance.batches (timer).
+ */
+@Component
+@Slf4j(topic = "cougar.graph.service.provenance")
+public class ProvenanceWriter {
+
+    static final String QUEUED = "graph.provenance.queued";
+    static final String SPILL = "graph.provenance.spill";
+    static final String SPILLED = "graph.provenance.spilled";
+    static final String WRITTEN = "graph.provenance.written";
+    static final String FAILED = "graph.provenance.failed";
+    static final String BATCHES = "graph.provenance.batches";
+    static final String DEAD = "graph.provenance.dead";
+
+    private static final String SPILL_FILE = "provenance.spill";
+    private static final String DEAD_LETTER_FILE = "provenance.dead";
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private final TransactionsStore transactionsStore;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration retryDelay;
+    private final int maxAttempts;
+    private final Duration shutdownTimeout;
+
+    private final BlockingQueue<Entry> queue;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final Path deadLetterFile;
+    private final Object spillLock = new Object();
+    // tenants skipped after a failed commit, with the time of their next attempt
+    private final Map<String, Long> backoff = new ConcurrentHashMap<>();
+    private volatile long replayAfter;
+    // transactions queued, being written or spilled, per tenant and time of their hand-off
+    private final Map<String, ConcurrentSkipListMap<Long, Integer>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong spillEntries = new AtomicLong();
+    private final AtomicInteger writing = new AtomicInteger();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    @Nullable
+    private final Counter spilled;
+    @Nullable
+    private final Counter written;
+    @Nullable
+    private final Counter failed;
+    @Nullable
+    private final Counter dead;
+    @Nullable
+    private final Timer batches;
+
+    public ProvenanceWriter(TransactionsStore transactionsStore,
+                            ObjectProvider<MeterRegistry> meterRegistry,
+                            @org.springframework.beans.factory.annotation.Value("${application.provenance.enabled:true}") boolean enabled,
+                            @org.springframework.beans.factory.annotation.Value("${application.provenance.queue-size:10000}") int queueSize,
+                            @org.springframework.beans.factory.annotation.Value("${application.provenance.batch-size:500}") int batchSize,
+                            @org.springframework.beans.factory.annotation.Value("${application.provenance.retry-delay:5000}") long retryDelay,
+                            @org.springframework.beans.factory.annotation.Value("${application.provenance.max-attempts:10}") int maxAttempts,
+                            @org.springframework.beans.factory.annotation.Value("${application.provenance.shutdown-timeout:10000}") long shutdownTimeout,
+                            @org.springframework.beans.factory.annotation.Value("${application.provenance.spill-path:#{null}}") String spillPath,
+                            @org.springframework.beans.factory.annotation.Value("${application.storage.transactions.path:#{null}}") String transactionsPath) throws IOException {
+        this.transactionsStore = transactionsStore;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.retryDelay = Duration.ofMillis(retryDelay);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.shutdownTimeout = Duration.ofMillis(shutdownTimeout);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+
+        // the spill file is durable next to the transactions, otherwise it only relieves the memory
+        Path folder;
+        if (StringUtils.hasLength(spillPath)) folder = Files.createDirectories(Paths.get(spillPath));
+        else if (StringUtils.hasLength(transactionsPath)) folder = Files.createDirectories(Paths.get(transactionsPath));
+        else folder = Files.createTempDirectory("provenance");
+        this.spillFile = folder.resolve(SPILL_FILE);
+        this.replayFile = folder.resolve(SPILL_FILE + REPLAY_SUFFIX);
+        this.deadLetterFile = folder.resolve(DEAD_LETTER_FILE);
+        if (Files.exists(this.spillFile) || Files.exists(this.replayFile)) {
+            this.spillEntries.set(this.scan(this.replayFile) + this.scan(this.spillFile));
+            log.info("(Provenance) Found {} spilled transactions in '{}', they are written in the background", this.spillEntries.get(), folder);
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder(QUEUED, this.queue, Collection::size).register(registry);
+            Gauge.builder(SPILL, this.spillEntries, AtomicLong::get).register(registry);
+            this.spilled = registry.counter(SPILLED);
+            this.written = registry.counter(WRITTEN);
+            this.failed = registry.counter(FAILED);
+            this.dead = registry.counter(DEAD);
+            this.batches = registry.timer(BATCHES);
+        } else {
+            this.spilled = null;
+            this.written = null;
+            this.failed = null;
+            this.dead = null;
+            this.batches = null;
+        }
+
+        this.worker = new Thread(this::work, "provenance-writer");
+        this.worker.setDaemon(true);
+        if (this.enabled) this.worker.start();
+    }
+
+    /**
+     * Hands off the committed transactions, failed transactions are ignored. Blocks only if the queue is full, while
+     * the transactions are appended to the spill file.
+     */
+    public void submit(Collection<Transaction> transactions, Authentication authentication) {
+        if (!this.enabled || !this.running) return;
+
+        Application tenant = Tenants.applicationOf(authentication);
+        if (tenant == null && !(authentication instanceof TestingAuthenticationToken)) {
+            log.trace("(Provenance) No transactions repository for authentication of type '{}'", authentication.getClass().getSimpleName());
+            return;
+        }
+
+        List<Entry> overflow = new ArrayList<>();
+        long submitted = System.currentTimeMillis();
+        for (Transaction transaction : transactions) {
+            if (transaction.isFailed()) continue;
+
+            Entry entry = new Entry(tenant, new LinkedHashModel(transaction.getModel()), 0, submitted);
+            this.track(entry);
+            if (!this.queue.offer(entry)) overflow.add(entry);
+        }
+
+        if (!overflow.isEmpty()) {
+            log.debug("(Provenance) Queue is full, spilling {} transactions", overflow.size());
+            this.spill(overflow);
+            this.replayAfter = 0;
+        }
+    }
+
+    public void submit(Transaction transaction, Authentication authentication) {
+        this.submit(List.of(transaction), authentication);
+    }
+
+    /**
+     * Waits until all handed off transactions (including the spilled ones) were written
+     *
+     * @return false, if they were not written within the timeout
+     */
+    public boolean await(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!this.queue.isEmpty() || this.writing.get() > 0 || this.spillEntries.get() > 0) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the transactions of the tenant handed off up to the given time (including the spilled ones) were
+     * written or given up. Transactions of other tenants, or handed off later, are not waited for.
+     *
+     * @param tenant the key of the tenant (see {@link Tenants#keyOf(Authentication)})
+     * @return false, if they were not written within the timeout
+     */
+    public boolean await(String tenant, Instant before, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (this.isPending(tenant, before.toEpochMilli())) {
+            if (System.nanoTime() > deadline) return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        this.running = false;
+        if (!this.enabled) return;
+
+        this.worker.join(this.shutdownTimeout.toMillis());
+        if (this.worker.isAlive()) this.worker.interrupt();
+
+        // written with the next start
+        List<Entry> remaining = new ArrayList<>();
+        this.queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.info("(Provenance) Spilling {} queued transactions on shutdown", remaining.size());
+            this.spill(remaining);
+        }
+    }
+
+    private void work() {
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                Entry first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (this.spillEntries.get() > 0 && this.running && System.currentTimeMillis() >= this.replayAfter) this.replay();
+                    continue;
+                }
+
+                List<Entry> batch = new ArrayList<>(this.batchSize);
+                batch.add(first);
+                this.writing.incrementAndGet();
+                try {
+                    this.queue.drainTo(batch, this.batchSize - 1);
+                    this.write(batch);
+                } finally {
+                    this.writing.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("(Provenance) Unexpected error in the provenance writer", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the batch with one commit per tenant. The transactions of a failed commit are spilled (or moved to the dead
+     * letter file after the last attempt), the tenant is skipped until the retry delay passed.
+     */
+    private void write(List<Entry> batch) {
+        Map<String, List<Entry>> byTenant = new LinkedHashMap<>();
+        batch.forEach(entry -> byTenant.computeIfAbsent(keyOf(entry.tenant()), key -> new ArrayList<>()).add(entry));
+
+        for (Map.Entry<String, List<Entry>> tenant : byTenant.entrySet()) {
+            List<Entry> entries = tenant.getValue();
+            Long retryAt = this.backoff.get(tenant.getKey());
+            if (retryAt != null && retryAt > System.currentTimeMillis()) {
+                this.spill(entries);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                this.transactionsStore.append(entries.stream().map(Entry::model).toList(), authenticationOf(entries.get(0).tenant())).block();
+                this.backoff.remove(tenant.getKey());
+                this.release(entries);
+                if (this.batches != null) this.batches.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (this.written != null) this.written.increment(entries.size());
+            } catch (Exception e) {
+                log.warn("(Provenance) Failed to write {} transactions of tenant '{}', spilling them for a retry. Reason: {}", entries.size(), tenant.getKey(), e.getMessage());
+                if (this.failed != null) this.failed.increment(entries.size());
+                this.backoff.put(tenant.getKey(), System.currentTimeMillis() + this.retryDelay.toMillis());
+
+                List<Entry> retries = new ArrayList<>();
+                List<Entry> exhausted = new ArrayList<>();
+                entries.forEach(entry -> (entry.attempts() + 1 >= this.maxAttempts ? exhausted : retries).add(entry.attempted()));
+                if (!retries.isEmpty()) this.spill(retries);
+                if (!exhausted.isEmpty()) this.deadLetter(tenant.getKey(), exhausted);
+            }
+        }
+    }
+
+    /**
+     * Writes the spilled transactions, once the queue is empty. Transactions spilled in the meantime go into a new
+     * spill file.
+     */
+    private void replay() throws IOException {
+        synchronized (this.spillLock) {
+            // a replay file left over from an interrupted replay is completed first
+            if (!Files.exists(this.replayFile)) {
+                if (!Files.exists(this.spillFile)) {
+                    this.spillEntries.set(0);
+                    return;
+                }
+                Files.move(this.spillFile, this.replayFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+            // the spilled transactions count as being written until the replay is completed
+            this.writing.incrementAndGet();
+            this.spillEntries.set(0);
+        }
+
+        try {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.replayFile)))) {
+                List<Entry> batch = new ArrayList<>(this.batchSize);
+                Entry entry;
+                while ((entry = read(in)) != null) {
+                    batch.add(entry);
+                    if (batch.size() == this.batchSize) {
+                        this.write(batch);
+                        batch.clear();
+                    }
+                }
+                if (!batch.isEmpty()) this.write(batch);
+            }
+            Files.delete(this.replayFile);
+            log.debug("(Provenance) Replayed the spilled transactions");
+        } finally {
+            // transactions spilled again (failed or skipped tenants) are replayed after the retry delay
+            if (this.spillEntries.get() > 0) this.replayAfter = System.currentTimeMillis() + this.retryDelay.toMillis();
+            this.writing.decrementAndGet();
+        }
+    }
+
+    private void spill(List<Entry> entries) {
+        synchronized (this.spillLock) {
+            try (FileOutputStream file = new FileOutputStream(this.spillFile.toFile(), true);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                for (Entry entry : entries) write(entry, out);
+                out.flush();
+                file.getChannel().force(false);
+
+                this.spillEntries.addAndGet(entries.size());
+                if (this.spilled != null) this.spilled.increment(entries.size());
+            } catch (IOException e) {
+                log.error("(Provenance) Failed to spill {} transactions, their provenance is lost", entries.size(), e);
+                this.release(entries);
+            }
+        }
+    }
+
+    private void deadLetter(String tenant, List<Entry> entries) {
+        log.error("(Provenance) Giving up on {} transactions of tenant '{}' after {} attempts, moving them to '{}'", entries.size(), tenant, this.maxAttempts, this.deadLetterFile);
+        synchronized (this.spillLock) {
+            try (FileOutputStream file = new FileOutputStream(this.deadLetterFile.toFile(), true);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                for (Entry entry : entries) write(entry, out);
+                out.flush();
+                file.getChannel().force(false);
+                if (this.dead != null) this.dead.increment(entries.size());
+            } catch (IOException e) {
+                log.error("(Provenance) Failed to write {} transactions to the dead letter file, their provenance is lost", entries.size(), e);
+            }
+        }
+        this.release(entries);
+    }
+
+    private void track(Entry entry) {
+        this.pending.computeIfAbsent(keyOf(entry.tenant()), key -> new ConcurrentSkipListMap<>()).merge(entry.submitted(), 1, Integer::sum);
+    }
+
+    private void release(List<Entry> entries) {
+        for (Entry entry : entries) {
+            ConcurrentSkipListMap<Long, Integer> submitted = this.pending.get(keyOf(entry.tenant()));
+            if (submitted != null) submitted.computeIfPresent(entry.submitted(), (time, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private boolean isPending(String tenant, long before) {
+        ConcurrentSkipListMap<Long, Integer> submitted = this.pending.get(tenant);
+        if (submitted == null) return false;
+
+        Map.Entry<Long, Integer> first = submitted.firstEntry();
+        return first != null && first.getKey() <= before;
+    }
+
+    /**
+     * Counts the transactions in a spill file from a previous run as pending, without parsing their models
+     *
+     * @return the number of transactions in the file
+     */
+    private long scan(Path file) throws IOException {
+        if (!Files.exists(file)) return 0;
+
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                Application tenant = in.readBoolean() ? readTenant(in) : null;
+                int attempts = in.readInt();
+                long submitted = in.readLong();
+                in.skipNBytes(in.readInt());
+
+                this.track(new Entry(tenant, new LinkedHashModel(), attempts, submitted));
+                count++;
+            }
+        } catch (EOFException e) {
+            // an incomplete entry at the end is skipped, as by the replay
+            return count;
+        }
+    }
+
+    private static void write(Entry entry, DataOutputStream out) throws IOException {
+        out.writeBoolean(entry.tenant() != null);
+        if (entry.tenant() != null) {
+            out.writeUTF(entry.tenant().iri().stringValue());
+            out.writeUTF(entry.tenant().label());
+            out.writeUTF(entry.tenant().key());
+            out.writeBoolean(entry.tenant().persistent());
+        }
+        out.writeInt(entry.attempts());
+        out.writeLong(entry.submitted());
+
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        Rio.write(entry.model(), model, RDFFormat.BINARY);
+        out.writeInt(model.size());
+        model.writeTo(out);
+    }
+
+    /**
+     * @return the next entry, or null at the end of the file (an incomplete entry at the end is skipped)
+     */
+    @Nullable
+    private static Entry read(DataInputStream in) throws IOException {
+        try {
+            Application tenant = in.readBoolean() ? readTenant(in) : null;
+            int attempts = in.readInt();
+            long submitted = in.readLong();
+
+            byte[] model = new byte[in.readInt()];
+            in.readFully(model);
+            return new Entry(tenant, Rio.parse(new ByteArrayInputStream(model), RDFFormat.BINARY), attempts, submitted);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static Application readTenant(DataInputStream in) throws IOException {
+        return new Application(SimpleValueFactory.getInstance().createIRI(in.readUTF()), in.readUTF(), in.readUTF(), in.readBoolean());
+    }
+
+    private static String keyOf(@Nullable Application tenant) {
+        return tenant != null ? tenant.key() : Tenants.TEST;
+    }
+
+    private static Authentication authenticationOf(@Nullable Application tenant) {
+        return tenant != null ? AdminAuthentication.runAs(tenant) : new TestingAuthenticationToken("", "");
+    }
+
+    /**
+     * A committed transaction, with the tenant owning it (null for tests), the number of failed attempts and the time
+     * it was handed off
+     */
+    private record Entry(@Nullable Application tenant, Model model, int attempts, long submitted) {
+
+        Entry attempted() {
+            return new Entry(this.tenant, this.model, this.attempts + 1, this.submitted);
+        }
+    }
+}
@@ -1,37 +1,42 @@
 package com.bechtle.cougar.graph.domain.transformers.mergeDuplicates;
 
+import com.bechtle.cougar.graph.api.security.Tenants;
 import com.bechtle.cougar.graph.domain.model.extensions.GeneratedIdentifier;
+import com.bechtle.cougar.graph.domain.model.extensions.TypedLabel;
 import com.bechtle.cougar.graph.domain.model.errors.MissingType;
 import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
 import com.bechtle.cougar.graph.domain.services.EntityServices;
 import com.bechtle.cougar.graph.domain.services.QueryServices;
+import com.bechtle.cougar.graph.domain.services.handler.GraphLookups;
 import com.bechtle.cougar.graph.domain.services.handler.Transformer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.tuple.Triple;
-import org.checkerframework.common.util.report.qual.ReportOverride;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
-import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.RDFS;
-import org.eclipse.rdf4j.query.BindingSet;
-import org.eclipse.rdf4j.sparqlbuilder.core.SparqlBuilder;
-import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
-import org.eclipse.rdf4j.sparqlbuilder.core.query.Queries;
-import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
-import org.eclipse.rdf4j.sparqlbuilder.rdf.Rdf;
-import org.eclipse.rdf4j.sparqlbuilder.rdf.RdfObject;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.text.Normalizer;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.regex.Pattern;
 
 @Slf4j(topic = "cougar.graph.transformer.duplicates")
 @Component
@@ -40,10 +45,34 @@ import java.util.stream.Collectors;
  * scheduled job)
  */
 @ConditionalOnProperty(name = "application.features.transformers.mergeDuplicates", havingValue = "true")
+@Order(300)
 public class MergeDuplicates implements Transformer {
 
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    // the smallest identifier, to always pick the same entity if there are duplicates in the graph
+    private static final Comparator<Value> ORIGINAL = Comparator.comparing(Value::stringValue);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private QueryServices queryServices;
 
+    private final boolean useLabelIndex;
+    private final int lookupChunkSize;
+    @Nullable
+    private final Cache<Lookup, Resource> lookups;
+
+    /**
+     * @param useLabelIndex      resolve entities through the label index of the entity store (instead of queries)
+     * @param lookupChunkSize    maximum number of types and labels looked up with one query in the graph
+     * @param lookupCacheSeconds entities found in the graph are remembered for this time (0: disabled)
+     */
+    public MergeDuplicates(@org.springframework.beans.factory.annotation.Value("${application.duplicates.label-index:true}") boolean useLabelIndex,
+                           @org.springframework.beans.factory.annotation.Value("${application.duplicates.lookup-chunk-size:100}") int lookupChunkSize,
+                           @org.springframework.beans.factory.annotation.Value("${application.duplicates.lookup-cache-seconds:0}") int lookupCacheSeconds) {
+        this.useLabelIndex = useLabelIndex;
+        this.lookupChunkSize = Math.max(1, lookupChunkSize);
+        this.lookups = lookupCacheSeconds > 0 ? Caffeine.newBuilder().expireAfterWrite(lookupCacheSeconds, TimeUnit.SECONDS).maximumSize(10000).<Lookup, Resource>build() : null;
+    }
+
     @Override
     public void registerQueryService(QueryServices queryServices) {
         this.queryServices = queryServices;
@@ -69,6 +98,12 @@ public class MergeDuplicates implements Transformer {
     private record ResolvedDuplicate(LocalEntity duplicate, Value origin) {
     }
 
+    /**
+     * Key of an entity in the graph of a tenant, which was found by its type and (normalized) label
+     */
+    private record Lookup(String tenant, TypedLabel key) {
+    }
+
 
     @Override
     public Mono<? extends AbstractModel> handle(AbstractModel model, Map<String, String> parameters, Authentication authentication) {
@@ -120,76 +155,64 @@ public class MergeDuplicates implements Transformer {
      * <p>
      * Scenario: Request contains multiple entities, each with share embedded and anonymous entities
      * <p>
-     * If duplicates exist in the model, they are converged (the duplicate is removed)
+     * If duplicates exist in the model, they are converged (the duplicate is removed). The first entity with a given
+     * type and (normalized) label is kept, all duplicates are rerouted in one pass.
      *
      * @param triples
      */
     public Mono<AbstractModel> mergeDuplicatedWithinModel(AbstractModel triples) {
-        log.trace("(Transformer) Merging duplicates within the model with {} statements", triples.streamStatements().count());
-        Model unmodifiable = new LinkedHashModel(triples.getModel()).unmodifiable();
-
-        /*
-            if ?obj <> ?anon
-            and ?anon RDFS.label ?label
-            and ?anon RDF.type ?type
-            > 1
-
-         */
-
-        Set<Resource> anonymousObjects = unmodifiable.objects().stream()
-                .filter(Value::isResource)
-                .filter(this::isResourceAnonymous)
-                .map(value -> (Resource) value)
-                .collect(Collectors.toSet());
-
+        Model model = triples.getModel();
+        log.trace("(Transformer) Merging duplicates within the model with {} statements", model.size());
 
-        // stores triple: identifier, type, label
-        Set<Triple<Resource, Value, Value>> foundTypeAndLabel = new HashSet<>();
+        Map<TypedLabel, Resource> originals = new HashMap<>();
+        Map<Resource, Resource> duplicates = new HashMap<>();
 
-        for (Resource anonymous : anonymousObjects) {
-            Iterator<Statement> typeStatement = unmodifiable.getStatements(anonymous, RDF.TYPE, null).iterator();
-            if (!typeStatement.hasNext()) throw new MissingType(anonymous);
-            Value typeValue = typeStatement.next().getObject();
+        for (Value object : model.objects()) {
+            if (!object.isResource() || !this.isResourceAnonymous(object)) continue;
+            Resource anonymous = (Resource) object;
 
-            Iterator<Statement> labelStatement = unmodifiable.getStatements(anonymous, RDFS.LABEL, null).iterator();
-            if (!labelStatement.hasNext()) continue;
-            Value labelValue = labelStatement.next().getObject();
+            Value typeValue = Models.getProperty(model, anonymous, RDF.TYPE).orElseThrow(() -> new MissingType(anonymous));
+            Optional<Value> labelValue = Models.getProperty(model, anonymous, RDFS.LABEL);
+            if (labelValue.isEmpty()) continue;
 
-
-            Triple<Resource, Value, Value> possibleDuplicate = Triple.of(anonymous, typeValue, labelValue);
-            Optional<Triple<Resource, Value, Value>> original = foundTypeAndLabel.stream()
-                    .filter(triple -> triple.getMiddle().equals(possibleDuplicate.getMiddle()) && triple.getRight().equals(possibleDuplicate.getRight())).findAny();
-
-            if (original.isPresent()) {
+            Resource original = originals.putIfAbsent(TypedLabel.of(typeValue, labelValue.get()), anonymous);
+            if (original != null) {
                 log.debug("(Transformer/Unique) Duplicate '{}'  with shared type '{}' and label '{}' identified, removing it and rerouting all links to origin '{}' ",
-                        possibleDuplicate.getLeft(), possibleDuplicate.getMiddle().stringValue(), possibleDuplicate.getRight().stringValue(),
-                        original.get().getLeft());
-                this.reroute(triples, possibleDuplicate.getLeft(), original.get().getLeft());
-            } else {
-                foundTypeAndLabel.add(possibleDuplicate);
+                        anonymous, typeValue.stringValue(), labelValue.get().stringValue(), original);
+                duplicates.put(anonymous, original);
             }
-
         }
+
+        this.reroute(triples, duplicates);
         log.trace("(Transformer/Unique) Anonymous embedded entities merged");
         return Mono.just(triples);
 
     }
 
-    public void reroute(AbstractModel triples, Resource duplicateIdentifier, Resource originalIdentifier) {
-
-        Model unmodifiable = new LinkedHashModel(triples.getModel()).unmodifiable();
-
-        // remove all statement from the possibleDuplicate (since we keep the original)
-        unmodifiable.getStatements(duplicateIdentifier, null, null).forEach(statement -> triples.getModel().remove(statement));
-
-        // change link to from possibleDuplicate to original
-        unmodifiable.getStatements(null, null, duplicateIdentifier).forEach(statement -> {
-            triples.getModel().remove(statement);
-            triples.getModel().add(statement.getSubject(), statement.getPredicate(), originalIdentifier);
-        });
-
-        log.trace("{} statements in the model after rerouting", triples.streamStatements().count());
+    /**
+     * Removes all statements of the duplicates (since we keep the originals) and changes all links to a duplicate to
+     * its original, in one pass over the model.
+     *
+     * @param duplicates map of the duplicate identifiers to the identifiers of the originals
+     */
+    public void reroute(AbstractModel triples, Map<Resource, Resource> duplicates) {
+        if (duplicates.isEmpty()) return;
+
+        Model model = triples.getModel();
+        List<Statement> removed = new ArrayList<>();
+        List<Statement> rerouted = new ArrayList<>();
+        for (Statement statement : model) {
+            if (duplicates.containsKey(statement.getSubject())) {
+                removed.add(statement);
+            } else if (statement.getObject() instanceof Resource object && duplicates.containsKey(object)) {
+                removed.add(statement);
+                rerouted.add(vf.createStatement(statement.getSubject(), statement.getPredicate(), duplicates.get(object), statement.getContext()));
+            }
+        }
+        model.removeAll(removed);
+        model.addAll(rerouted);
 
+        log.trace("{} statements in the model after rerouting {} duplicates", model.size(), duplicates.size());
     }
 
     /**
@@ -201,58 +224,116 @@ public class MergeDuplicates implements Transformer {
      * @param model, the current model
      */
     public Mono<AbstractModel> mergeDuplicatesInEntityGraph(AbstractModel model, Authentication authentication) {
-        return Mono.just(model)
-                .doOnSubscribe(subscription -> log.trace("(Transformer/Unique) Check if anonymous embedded entities already exist in graph."))
-                .flatMapMany(triples -> {
-                    // collect types and labels of embedded objects
-                    return Flux.<LocalEntity>create(c -> {
-                        triples.embeddedObjects().forEach(resource -> {
-
-                            Value type = triples.streamStatements(resource, RDF.TYPE, null)
-                                    .findFirst()
-                                    .orElseThrow(() -> new MissingType(resource)).getObject();
-                            triples.streamStatements(resource, RDFS.LABEL, null)
-                                    .findFirst()
-                                    .ifPresent(statement -> c.next(new LocalEntity(type, statement.getObject(), resource)));
-                        });
-                        c.complete();
-                    });
-                })
-                .flatMap(localEntity -> {
-                    // build sparql query to check, if an entity with this type and label exists already
-                    Variable id = SparqlBuilder.var("id");
-                    RdfObject type = Rdf.object(localEntity.type());
-                    RdfObject label = Rdf.object(localEntity.label());
-                    SelectQuery all = Queries.SELECT(id).where(id.isA(type).andHas(RDFS.LABEL, label)).all();
-                    return Mono.zip(Mono.just(localEntity), queryServices.queryValues(all, authentication).collectList());
-                })
-                .doOnNext(pair -> {
-                    // if we found query results, relink local entity and remove duplicate from model
-                    LocalEntity localEntity = pair.getT1();
-                    List<BindingSet> queryResult = pair.getT2();
-                    if (queryResult.size() > 1) {
-                        log.trace("(Transformer) Linked entity exists already in graph, rerouting.");
-                        this.reroute(model, localEntity.localIdentifier(), (Resource) queryResult.get(0).getValue("id"));
-                    }
-                })
-                .then(Mono.just(model));
-
-
-
+        // collect types and labels of embedded objects (the entities linked from another entity in the model)
+        List<LocalEntity> localEntities = new ArrayList<>();
+        model.embeddedObjects().stream().filter(resource -> model.getModel().contains(null, null, resource)).forEach(resource -> {
+            Value type = Models.getProperty(model.getModel(), resource, RDF.TYPE).orElseThrow(() -> new MissingType(resource));
+            Models.getProperty(model.getModel(), resource, RDFS.LABEL).ifPresent(label -> localEntities.add(new LocalEntity(type, label, resource)));
+        });
+        if (localEntities.isEmpty()) return Mono.just(model);
+        if (this.useLabelIndex) return this.mergeDuplicatesWithLabelIndex(model, localEntities, authentication);
+
+        String tenant = Tenants.keyOf(authentication);
+        Map<Resource, Resource> duplicates = new HashMap<>();
+        // the same type and label might be used by multiple local entities
+        Map<TypedLabel, List<Resource>> unresolved = new LinkedHashMap<>();
+        Map<TypedLabel, LocalEntity> requested = new LinkedHashMap<>();
+        localEntities.forEach(localEntity -> {
+            TypedLabel key = TypedLabel.of(localEntity.type(), localEntity.label());
+            Resource existing = this.lookups != null ? this.lookups.getIfPresent(new Lookup(tenant, key)) : null;
+            if (existing != null) {
+                duplicates.put(localEntity.localIdentifier(), existing);
+            } else {
+                unresolved.computeIfAbsent(key, k -> new ArrayList<>()).add(localEntity.localIdentifier());
+                requested.putIfAbsent(key, localEntity);
+            }
+        });
 
+        Map<TypedLabel, Resource> originals = new HashMap<>();
+        return Flux.fromIterable(requested.values())
+                .doOnSubscribe(subscription -> log.trace("(Transformer/Unique) Check if {} anonymous embedded entities already exist in graph ({} cached).", unresolved.size(), duplicates.size()))
+                .buffer(this.lookupChunkSize)
+                .concatMap(chunk -> GraphLookups.trace("query for " + chunk.size() + " types and labels", () -> this.queryServices.queryValues(this.buildLookupQuery(chunk), authentication)))
+                .doOnNext(bindings -> {
+                    // the variants of a label might match other labels of the same type, they are compared as in the label index
+                    TypedLabel key = TypedLabel.of(bindings.getValue("type"), bindings.getValue("label"));
+                    if (unresolved.containsKey(key)) originals.merge(key, (Resource) bindings.getValue("id"), BinaryOperator.minBy(ORIGINAL));
+                })
+                .then(Mono.fromSupplier(() -> {
+                    // map back to the local identifiers
+                    originals.forEach((key, existing) -> {
+                        if (this.lookups != null) this.lookups.put(new Lookup(tenant, key), existing);
+                        unresolved.get(key).forEach(localIdentifier -> duplicates.put(localIdentifier, existing));
+                    });
 
-        /*  Find embedded entities in model
-            SELECT * WHERE
-                ?entity ?pred ?linkedEntity .
-                ?linkedEntity a ?type ;
-                       RDFS.label ?label
+                    // if we found query results, relink local entities and remove the duplicates from model
+                    if (!duplicates.isEmpty()) log.trace("(Transformer) {} linked entities exist already in graph, rerouting.", duplicates.size());
+                    this.reroute(model, duplicates);
+                    return model;
+                }));
+    }
 
-         */
+    /**
+     * Resolves the local entities through the (type, label) index of the entity store, without querying the graph
+     */
+    private Mono<AbstractModel> mergeDuplicatesWithLabelIndex(AbstractModel model, List<LocalEntity> localEntities, Authentication authentication) {
+        Map<TypedLabel, List<Resource>> keys = new LinkedHashMap<>();
+        localEntities.forEach(localEntity -> keys.computeIfAbsent(TypedLabel.of(localEntity.type(), localEntity.label()), key -> new ArrayList<>()).add(localEntity.localIdentifier()));
+
+        return GraphLookups.trace("label index for " + keys.size() + " types and labels", () -> this.queryServices.findByLabels(keys.keySet(), authentication), Map::size)
+                .map(existing -> {
+                    Map<Resource, Resource> duplicates = new HashMap<>();
+                    existing.forEach((key, entities) -> {
+                        Resource original = entities.stream().min(ORIGINAL).orElseThrow();
+                        keys.get(key).forEach(localIdentifier -> duplicates.put(localIdentifier, original));
+                    });
 
-        // for each embedded object
+                    if (!duplicates.isEmpty()) log.trace("(Transformer) {} linked entities exist already in graph, rerouting.", duplicates.size());
+                    this.reroute(model, duplicates);
+                    return model;
+                });
+    }
 
+    /**
+     * Finds the entities with the types and labels of the local entities with one query. The normalization of the
+     * label index (see {@link TypedLabel}) cannot be expressed in SPARQL without comparing every label of a type, every
+     * label is therefore bound with the spellings the index treats as equal (see {@link #labelVariants(Value)}):
+     * <pre>
+     *     SELECT ?type ?label ?id WHERE {
+     *         VALUES (?type ?label) { (&lt;type&gt; "label") ... }
+     *         ?id a ?type ; rdfs:label ?label .
+     *     }
+     * </pre>
+     */
+    private String buildLookupQuery(List<LocalEntity> localEntities) {
+        StringBuilder query = new StringBuilder("SELECT ?type ?label ?id WHERE {\n  VALUES (?type ?label) {\n");
+        localEntities.forEach(localEntity -> labelVariants(localEntity.label()).forEach(label -> query.append("    (")
+                .append(NTriplesUtil.toNTriplesString(localEntity.type())).append(" ")
+                .append(NTriplesUtil.toNTriplesString(label)).append(")\n")));
+        query.append("  }\n  ?id a ?type ; <").append(RDFS.LABEL).append("> ?label .\n}");
+        return query.toString();
     }
 
+    /**
+     * The label as given, trimmed with collapsed whitespace, and in lower, upper and capitalized case (as plain
+     * literals and with the language of the label). Other spellings with the same normalized label (e.g. in mixed
+     * case) are only found by the label index.
+     */
+    private static Set<Value> labelVariants(Value label) {
+        String collapsed = WHITESPACE.matcher(Normalizer.normalize(label.stringValue(), Normalizer.Form.NFKC).strip()).replaceAll(" ");
+        String lower = collapsed.toLowerCase(Locale.ROOT);
+        Set<String> spellings = new LinkedHashSet<>(List.of(label.stringValue(), collapsed, lower, collapsed.toUpperCase(Locale.ROOT),
+                lower.isEmpty() ? lower : lower.substring(0, 1).toUpperCase(Locale.ROOT) + lower.substring(1)));
+
+        Optional<String> language = label instanceof Literal literal ? literal.getLanguage() : Optional.empty();
+        Set<Value> variants = new LinkedHashSet<>();
+        variants.add(label);
+        spellings.forEach(spelling -> {
+            variants.add(vf.createLiteral(spelling));
+            language.ifPresent(tag -> variants.add(vf.createLiteral(spelling, tag)));
+        });
+        return variants;
+    }
 
     /**
      * Scenario: Request contains embedded entity
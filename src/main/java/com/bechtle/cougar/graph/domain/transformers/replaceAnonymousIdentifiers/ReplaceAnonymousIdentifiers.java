@@ -1,25 +1,22 @@
 package com.bechtle.cougar.graph.domain.transformers.replaceAnonymousIdentifiers;
 
 import com.bechtle.cougar.graph.domain.model.extensions.GeneratedIdentifier;
-import com.bechtle.cougar.graph.domain.model.extensions.NamespaceAwareStatement;
+import com.bechtle.cougar.graph.domain.model.extensions.LabeledBlankNode;
 import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
-import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
-import com.bechtle.cougar.graph.domain.services.EntityServices;
-import com.bechtle.cougar.graph.domain.services.QueryServices;
-import com.bechtle.cougar.graph.domain.services.handler.Transformer;
-import com.bechtle.cougar.graph.repository.EntityStore;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.services.handler.IdentifierMappings;
+import com.bechtle.cougar.graph.domain.services.handler.IdentifierRewriter;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.BNode;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
-import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.security.core.Authentication;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,41 +31,44 @@ import java.util.Map;
 @Slf4j(topic = "cougar.graph.transformer.identifiers")
 @Component
 @ConditionalOnProperty(name = "application.features.transformers.replaceAnonymousIdentifiers", havingValue = "true")
-public class ReplaceAnonymousIdentifiers implements Transformer {
+@Order(200)
+public class ReplaceAnonymousIdentifiers implements IdentifierRewriter {
 
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
 
-    @Override
-    public Mono<? extends AbstractModel> handle(AbstractModel triples, Map<String, String> parameters, Authentication authentication) {
-        log.trace("(Transformer) Skolemizing identifiers");
+    private final boolean recordProvenance;
 
-        for (Resource obj : new ArrayList<>(triples.getModel().subjects())) {
-            /* Handle Ids */
-            if (obj.isBNode()) {
-                // generate a new qualified identifier if it is an anonymous node
-                this.skolemize(obj, triples);
-            }
-        }
-        return Mono.just(triples);
+    public ReplaceAnonymousIdentifiers(@org.springframework.beans.factory.annotation.Value("${application.features.transformers.recordAnonymousIdentifiers:false}") boolean recordProvenance) {
+        this.recordProvenance = recordProvenance;
     }
 
-    public void skolemize(Resource subj, AbstractModel triples) {
-
-        IRI identifier = new GeneratedIdentifier(Local.Entities.NS);
-
-        List<NamespaceAwareStatement> copy = Collections.unmodifiableList(triples.streamNamespaceAwareStatements().toList());
-
-        triples.reset();
+    /**
+     * Every anonymous subject gets a fresh identifier. If enabled, the label of the blank node in the payload is added
+     * to the provenance of the transaction (blank nodes without label in the payload have nothing to record).
+     */
+    @Override
+    public void collect(Model model, Map<String, String> parameters, IdentifierMappings mappings) {
+        int count = 0;
+        for (Resource subject : model.subjects()) {
+            if (!(subject instanceof BNode node)) continue;
 
-        for (Statement st : copy) {
-            if (st.getSubject().equals(subj)) {
-                triples.getBuilder().add(identifier, st.getPredicate(), st.getObject());
-            } else if (st.getObject().equals(subj)) {
-                triples.getBuilder().add(st.getSubject(), st.getPredicate(), identifier);
-            } else {
-                triples.getBuilder().add(st.getSubject(), st.getPredicate(), st.getObject());
+            IRI identifier = new GeneratedIdentifier(Local.Entities.NS);
+            mappings.replace(node, identifier);
+            if (this.recordProvenance && node instanceof LabeledBlankNode labeled) {
+                mappings.add(identifier, Local.ORIGINAL_IDENTIFIER, vf.createLiteral("_:" + labeled.getLabel()), Transactions.GRAPH_PROVENANCE);
             }
+            count++;
+        }
+
+        if (count > 0) {
+            log.trace("(Transformer) Skolemizing {} anonymous identifiers", count);
+            mappings.namespace(Local.Entities.NS);
         }
     }
 
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
 
 }
@@ -1,28 +1,18 @@
 package com.bechtle.cougar.graph.domain.transformers.replaceGlobalIdentifiers;
 
 import com.bechtle.cougar.graph.domain.model.extensions.GeneratedIdentifier;
-import com.bechtle.cougar.graph.domain.model.extensions.NamespaceAwareStatement;
-import com.bechtle.cougar.graph.domain.model.extensions.NamespacedModelBuilder;
 import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
-import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
-import com.bechtle.cougar.graph.domain.services.EntityServices;
-import com.bechtle.cougar.graph.domain.services.QueryServices;
-import com.bechtle.cougar.graph.domain.services.handler.Transformer;
-import com.bechtle.cougar.graph.repository.EntityStore;
+import com.bechtle.cougar.graph.domain.services.handler.IdentifierMappings;
+import com.bechtle.cougar.graph.domain.services.handler.IdentifierRewriter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
-import org.eclipse.rdf4j.model.Statement;
-import org.eclipse.rdf4j.model.Value;
-import org.eclipse.rdf4j.model.vocabulary.DC;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.security.core.Authentication;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.Mono;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Will check any entity IRI in the model, if doesn't conform to the internal schema, a new identifier is generated (we keep the old one)
@@ -37,51 +27,27 @@ import java.util.stream.Collectors;
 @Slf4j(topic = "cougar.graph.transformer.identifiers")
 @Component
 @ConditionalOnProperty(name = "application.features.transformers.replaceGlobalIdentifiers", havingValue = "true")
-public class ReplaceGlobalIdentifiers implements Transformer {
+@Order(100)
+public class ReplaceGlobalIdentifiers implements IdentifierRewriter {
 
     @Override
-    public Mono<? extends AbstractModel> handle(AbstractModel triples, Map<String, String> parameters, Authentication authentication) {
-
-
+    public void collect(Model model, Map<String, String> parameters, IdentifierMappings mappings) {
         log.trace("(Transformer) Regenerating identifiers");
 
-        List<NamespaceAwareStatement> copy = Collections.unmodifiableList(triples.streamNamespaceAwareStatements().toList());
-
-        Map<Resource, GeneratedIdentifier> mappings = triples.getModel().subjects().stream()
-                .filter(Value::isIRI)
-                .filter(iri -> !GeneratedIdentifier.is((IRI) iri, Local.Entities.NAMESPACE))
-                .map(iri -> Pair.of(iri, new GeneratedIdentifier(Local.Entities.NAMESPACE, iri)))
-                .collect(Collectors.toMap(Pair::getKey, Pair::getValue));
-        triples.reset();
+        for (Resource subject : model.subjects()) {
+            if (!subject.isIRI() || GeneratedIdentifier.is((IRI) subject, Local.Entities.NAMESPACE)) continue;
 
-        NamespacedModelBuilder builder = triples.getBuilder();
+            GeneratedIdentifier identifier = new GeneratedIdentifier(Local.Entities.NAMESPACE, subject);
+            mappings.replace(subject, identifier);
 
-        for (Statement st : copy) {
-            if (mappings.containsKey(st.getSubject())) {
-                builder.add(mappings.get(st.getSubject()), st.getPredicate(), st.getObject());
-            } else if (st.getObject().isIRI() && mappings.containsKey((IRI) st.getObject())) {
-                builder.add(st.getSubject(), st.getPredicate(), mappings.get((IRI) st.getObject()));
-            } else {
-                builder.add(st.getSubject(), st.getPredicate(), st.getObject());
-            }
+            // preserve old ids
+            mappings.add(identifier, Local.ORIGINAL_IDENTIFIER, subject);
+            mappings.namespace(Local.Entities.NS);
         }
-
-        // preserve old ids
-        mappings.forEach((key, value) -> {
-            builder.add(value, Local.ORIGINAL_IDENTIFIER, key);
-        });
-
-        return Mono.just(triples);
-
     }
 
     @Override
-    public void registerEntityService(EntityServices entityServices) {
-
-    }
-
-    @Override
-    public void registerQueryService(QueryServices queryServices) {
-
+    public boolean isPartitionable() {
+        return true;
     }
 }
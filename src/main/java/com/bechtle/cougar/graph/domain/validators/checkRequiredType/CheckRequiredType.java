@@ -9,6 +9,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
@@ -17,10 +19,11 @@ import java.util.Map;
 @Slf4j(topic = "cougar.graph.validator.type")
 @Component
 @ConditionalOnProperty(name = "application.features.validators.checkRequiredType", havingValue = "true")
+@Order(100)
 public class CheckRequiredType implements Validator {
 
     @Override
-    public Mono<? extends AbstractModel> handle(EntityServices entityServices, AbstractModel model, Map<String, String> parameters) {
+    public Mono<? extends AbstractModel> handle(EntityServices entityServices, AbstractModel model, Map<String, String> parameters, Authentication authentication) {
         log.trace("(Validator) Checking if type is defined");
 
         for (Resource obj : model.getModel().subjects()) {
@@ -33,4 +36,9 @@ public class CheckRequiredType implements Validator {
         return Mono.just(model);
     }
 
+    @Override
+    public boolean isPartitionable() {
+        return true;
+    }
+
 }
@@ -0,0 +1,122 @@
+package com.bechtle.cougar.graph.domain.validators.shacl;
+
+import com.bechtle.cougar.graph.domain.model.errors.SchemaViolations;
+import com.bechtle.cougar.graph.domain.model.wrapper.AbstractModel;
+import com.bechtle.cougar.graph.domain.services.EntityServices;
+import com.bechtle.cougar.graph.domain.services.handler.GraphLookups;
+import com.bechtle.cougar.graph.domain.services.handler.Validator;
+import com.bechtle.cougar.graph.repository.EntityStore;
+import com.bechtle.cougar.graph.repository.SchemaStore;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validates the incoming entities against the SHACL shapes of the schema (see {@link SchemaStore#validate}).
+ * <p>
+ * Only the incoming statements are validated, together with the types of the stored entities they link to (for
+ * class constraints) and the class hierarchy of all types. The entities already in the graph are not validated again.
+ */
+@Slf4j(topic = "cougar.graph.validator.shacl")
+@Component
+@ConditionalOnProperty(name = "application.features.validators.shacl", havingValue = "true")
+@Order(200)
+public class ValidateShapes implements Validator {
+
+    private final SchemaStore schemaStore;
+    private final EntityStore entityStore;
+
+    public ValidateShapes(SchemaStore schemaStore, EntityStore entityStore) {
+        this.schemaStore = schemaStore;
+        this.entityStore = entityStore;
+    }
+
+    @Override
+    public Mono<? extends AbstractModel> handle(EntityServices entityServices, AbstractModel model, Map<String, String> parameters, Authentication authentication) {
+        log.trace("(Validator) Validating {} statements against the shapes of the schema", model.getModel().size());
+
+        return this.withLinkedTypes(model.getModel(), authentication)
+                .flatMap(statements -> this.withSuperClasses(statements, authentication))
+                .flatMap(statements -> GraphLookups.trace("shapes for " + statements.size() + " statements", () -> this.schemaStore.validate(statements, authentication), Map::size))
+                .flatMap(violations -> {
+                    if (violations.isEmpty()) return Mono.just(model);
+
+                    Map<String, List<String>> result = new LinkedHashMap<>();
+                    violations.forEach((focusNode, messages) -> result.put(focusNode.stringValue(), messages));
+                    log.debug("(Validator) {} entities in request violate the schema", result.size());
+                    return Mono.error(new SchemaViolations(result));
+                });
+    }
+
+    /**
+     * Adds the types of linked entities which are not part of the model itself
+     */
+    private Mono<Model> withLinkedTypes(Model model, Authentication authentication) {
+        Set<IRI> linked = model.stream()
+                .filter(statement -> !statement.getPredicate().equals(RDF.TYPE))
+                .map(Statement::getObject)
+                .filter(value -> value instanceof IRI iri && !model.contains(iri, null, null))
+                .map(IRI.class::cast)
+                .collect(Collectors.toSet());
+        if (linked.isEmpty()) return Mono.just(model);
+
+        return Flux.fromIterable(linked)
+                .flatMap(iri -> GraphLookups.trace("types of <" + iri + ">", () -> this.entityStore.listStatements(iri, RDF.TYPE, null, authentication), List::size))
+                .collectList()
+                .map(types -> {
+                    Model result = new LinkedHashModel(model);
+                    types.forEach(result::addAll);
+                    return result;
+                });
+    }
+
+    /**
+     * Adds the superclasses of all types in the model, shapes targeting a superclass apply to its instances as well
+     */
+    private Mono<Model> withSuperClasses(Model model, Authentication authentication) {
+        Set<IRI> types = model.filter(null, RDF.TYPE, null).objects().stream()
+                .filter(IRI.class::isInstance)
+                .map(IRI.class::cast)
+                .collect(Collectors.toSet());
+        if (types.isEmpty()) return Mono.just(model);
+
+        return Flux.fromIterable(types)
+                .flatMap(type -> GraphLookups.trace("superclasses of <" + type + ">", () -> this.schemaStore.getSuperClasses(type, authentication), Set::size)
+                        .map(superClasses -> superClasses.stream()
+                                .filter(superClass -> !superClass.equals(type))
+                                .map(superClass -> SimpleValueFactory.getInstance().createStatement(type, RDFS.SUBCLASSOF, superClass))
+                                .toList()))
+                .collectList()
+                .map(hierarchy -> {
+                    if (hierarchy.stream().allMatch(List::isEmpty)) return model;
+                    Model result = new LinkedHashModel(model);
+                    hierarchy.forEach(result::addAll);
+                    return result;
+                });
+    }
+
+    /**
+     * Runs on the complete payload: links between entities of the same request have to be resolved within it
+     */
+    @Override
+    public boolean isPartitionable() {
+        return false;
+    }
+}
@@ -0,0 +1,57 @@
+package com.bechtle.cougar.graph.features.frames.api;
+
+import com.bechtle.cougar.graph.api.controller.AbstractController;
+import com.bechtle.cougar.graph.domain.model.enums.RdfMimeTypes;
+import com.bechtle.cougar.graph.features.frames.api.dto.Responses;
+import com.bechtle.cougar.graph.features.frames.domain.ContextsService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Endpoints to register JSON-LD contexts, which can be referenced by url in requests and frames (remote contexts are not fetched)
+ */
+@RestController
+@RequestMapping(path = "/api/contexts")
+@Api(tags = "Frames")
+@Slf4j(topic = "cougar.graph.feature.frames")
+public class Contexts extends AbstractController {
+
+    private final ContextsService contextsService;
+
+    public Contexts(ContextsService contextsService) {
+        this.contextsService = contextsService;
+    }
+
+    @ApiOperation(value = "List registered contexts")
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    Flux<Responses.ContextResponse> listContexts() {
+        return super.getAuthentication()
+                .flatMapMany(this.contextsService::listContexts)
+                .map(context -> new Responses.ContextResponse(context.url().stringValue()))
+                .doOnSubscribe(s -> log.debug("(Request) List all registered contexts"));
+    }
+
+    @ApiOperation(value = "Register context for url")
+    @PostMapping(value = "",
+            consumes = {RdfMimeTypes.JSONLD_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    Mono<Responses.ContextResponse> registerContext(@RequestParam String url, @RequestBody String context) {
+        Assert.isTrue(StringUtils.hasLength(url), "Url is a required parameter");
+        Assert.isTrue(StringUtils.hasText(context), "No context in request detected.");
+
+        return super.getAuthentication()
+                .flatMap(authentication -> this.contextsService.registerContext(url, context, authentication))
+                .map(registered -> new Responses.ContextResponse(registered.url().stringValue()))
+                .doOnSubscribe(s -> log.debug("(Request) Register context for url '{}'", url));
+    }
+}
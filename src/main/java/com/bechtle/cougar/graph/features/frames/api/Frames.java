@@ -0,0 +1,80 @@
+package com.bechtle.cougar.graph.features.frames.api;
+
+import com.bechtle.cougar.graph.api.controller.AbstractController;
+import com.bechtle.cougar.graph.domain.model.enums.RdfMimeTypes;
+import com.bechtle.cougar.graph.features.frames.api.dto.Responses;
+import com.bechtle.cougar.graph.features.frames.domain.FramesService;
+import com.bechtle.cougar.graph.features.frames.domain.model.Frame;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Endpoints to manage the named templates (JSON-LD frames), see docs/api/Templates.md
+ */
+@RestController
+@RequestMapping(path = "/api/frames")
+@Api(tags = "Frames")
+@Slf4j(topic = "cougar.graph.feature.frames")
+public class Frames extends AbstractController {
+
+    private final FramesService framesService;
+
+    public Frames(FramesService framesService) {
+        this.framesService = framesService;
+    }
+
+    @ApiOperation(value = "List all named frames")
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    Flux<Responses.FrameResponse> listFrames(@RequestParam(name = "for", required = false) String forType) {
+        return super.getAuthentication()
+                .flatMapMany(authentication -> this.framesService.listFrames(forType, authentication))
+                .map(this::asResponse)
+                .doOnSubscribe(s -> log.debug("(Request) List all frames{}", StringUtils.hasLength(forType) ? " for type " + forType : ""));
+    }
+
+    @ApiOperation(value = "Read named frame")
+    @GetMapping(value = "/{name:[\\w|\\d|-|_]+}", produces = {RdfMimeTypes.JSONLD_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    Mono<String> readFrame(@PathVariable String name) {
+        return super.getAuthentication()
+                .flatMap(authentication -> this.framesService.getFrame(name, authentication))
+                .map(Frame::content)
+                .doOnSubscribe(s -> log.debug("(Request) Read frame with name '{}'", name));
+    }
+
+    @ApiOperation(value = "Create or replace named frame")
+    @PostMapping(value = "/{name:[\\w|\\d|-|_]+}",
+            consumes = {RdfMimeTypes.JSONLD_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    Mono<Responses.FrameResponse> createFrame(@PathVariable String name, @RequestBody String frame) {
+        Assert.isTrue(StringUtils.hasText(frame), "No frame in request detected.");
+
+        return super.getAuthentication()
+                .flatMap(authentication -> this.framesService.storeFrame(name, frame, authentication))
+                .map(this::asResponse)
+                .doOnSubscribe(s -> log.debug("(Request) Create frame with name '{}'", name));
+    }
+
+    @ApiOperation(value = "Delete named frame")
+    @DeleteMapping(value = "/{name:[\\w|\\d|-|_]+}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    Mono<Void> deleteFrame(@PathVariable String name) {
+        return super.getAuthentication()
+                .flatMap(authentication -> this.framesService.deleteFrame(name, authentication))
+                .doOnSubscribe(s -> log.debug("(Request) Delete frame with name '{}'", name));
+    }
+
+    private Responses.FrameResponse asResponse(Frame frame) {
+        return new Responses.FrameResponse(frame.name(), frame.target() != null ? frame.target().stringValue() : null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.bechtle.cougar.graph.features.frames.api.dto;
+
+public class Responses {
+
+    public record FrameResponse(String name, String target) {
+
+    }
+
+    public record ContextResponse(String url) {
+
+    }
+}
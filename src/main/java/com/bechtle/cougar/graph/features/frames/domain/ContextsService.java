@@ -0,0 +1,121 @@
+package com.bechtle.cougar.graph.features.frames.domain;
+
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.JsonLdOptions;
+import com.apicatalog.jsonld.document.Document;
+import com.apicatalog.jsonld.document.JsonDocument;
+import com.bechtle.cougar.graph.api.converter.jsonld.ConcurrentCache;
+import com.bechtle.cougar.graph.api.converter.jsonld.LocalDocumentLoader;
+import com.bechtle.cougar.graph.api.converter.jsonld.TenantDocumentLoader;
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.features.frames.domain.model.JsonLdContext;
+import com.bechtle.cougar.graph.repository.FramesStore;
+import com.bechtle.cougar.graph.repository.rdf4j.extensions.BindingsAccessor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.json.JsonValue;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.util.ModelBuilder;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.sparqlbuilder.core.SparqlBuilder;
+import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
+import org.eclipse.rdf4j.sparqlbuilder.core.query.Queries;
+import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the JSON-LD contexts registered for a subscription and provides the options for the JSON-LD processor.
+ * The contexts of a subscription are loaded once and shared (together with the processed contexts) by all requests
+ * of this subscription, documents referencing the same context don't load or parse it again.
+ */
+@Service
+@Slf4j(topic = "cougar.graph.feature.frames")
+public class ContextsService {
+
+    private final FramesStore framesStore;
+    private final LocalDocumentLoader documentLoader;
+    private final Cache<String, TenantContexts> tenants;
+
+    private record TenantContexts(TenantDocumentLoader loader, ConcurrentCache<String, JsonValue> contextCache, ConcurrentCache<String, Document> documentCache) {
+    }
+
+    public ContextsService(FramesStore framesStore, LocalDocumentLoader documentLoader) {
+        this.framesStore = framesStore;
+        this.documentLoader = documentLoader;
+        this.tenants = Caffeine.newBuilder().expireAfterAccess(60, TimeUnit.MINUTES).build();
+    }
+
+    /**
+     * Returns the options for the JSON-LD processor, with a document loader resolving only the registered contexts of the subscription
+     * and caches shared between all requests of the subscription.
+     */
+    public Mono<JsonLdOptions> getOptions(Authentication authentication) {
+        String key = Tenants.keyOf(authentication);
+        TenantContexts contexts = this.tenants.getIfPresent(key);
+        if (contexts != null) return Mono.just(this.buildOptions(contexts));
+
+        return this.listContexts(authentication)
+                .collectMap(context -> URI.create(context.url().stringValue()), this::parse)
+                .map(documents -> new TenantContexts(
+                        new TenantDocumentLoader(new ConcurrentHashMap<>(documents), this.documentLoader),
+                        new ConcurrentCache<>(256),
+                        new ConcurrentCache<>(256))
+                )
+                .doOnNext(loaded -> this.tenants.put(key, loaded))
+                .map(this::buildOptions);
+    }
+
+    public Mono<JsonLdContext> registerContext(String url, String content, Authentication authentication) {
+        log.debug("(Service) Registering context for url '{}'", url);
+        Assert.isTrue(URI.create(url).isAbsolute(), "The url of a context has to be absolute.");
+
+        JsonLdContext context = new JsonLdContext(Values.iri(url), content);
+        this.parse(context);
+
+        ModelBuilder modelBuilder = new ModelBuilder();
+        modelBuilder.subject(context.url());
+        modelBuilder.add(RDF.TYPE, JsonLdContext.TYPE);
+        modelBuilder.add(JsonLdContext.HAS_CONTENT, context.content());
+
+        return this.framesStore.replace(context.url(), modelBuilder.build(), authentication)
+                .then(Mono.fromRunnable(() -> this.tenants.invalidate(Tenants.keyOf(authentication))))
+                .then(Mono.just(context));
+    }
+
+    public Flux<JsonLdContext> listContexts(Authentication authentication) {
+        Variable node = SparqlBuilder.var("n");
+        Variable content = SparqlBuilder.var("c");
+
+        SelectQuery q = Queries.SELECT()
+                .where(node.isA(JsonLdContext.TYPE).andHas(JsonLdContext.HAS_CONTENT, content));
+
+        return this.framesStore.query(q, authentication)
+                .map(BindingsAccessor::new)
+                .map(ba -> new JsonLdContext(ba.asIRI(node), ba.asString(content)));
+    }
+
+    private JsonLdOptions buildOptions(TenantContexts contexts) {
+        JsonLdOptions options = new JsonLdOptions(contexts.loader());
+        options.setContextCache(contexts.contextCache());
+        options.setDocumentCache(contexts.documentCache());
+        return options;
+    }
+
+    private Document parse(JsonLdContext context) {
+        try {
+            return JsonDocument.of(new StringReader(context.content()));
+        } catch (JsonLdError e) {
+            throw new IllegalArgumentException("Invalid context for url " + context.url() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.bechtle.cougar.graph.features.frames.domain;
+
+import com.apicatalog.jsonld.JsonLd;
+import com.apicatalog.jsonld.JsonLdError;
+import com.apicatalog.jsonld.document.JsonDocument;
+import com.apicatalog.jsonld.JsonLdOptions;
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.domain.model.extensions.LocalIRI;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import com.bechtle.cougar.graph.features.frames.domain.errors.InvalidFrame;
+import com.bechtle.cougar.graph.features.frames.domain.errors.UnknownFrame;
+import com.bechtle.cougar.graph.features.frames.domain.model.Frame;
+import com.bechtle.cougar.graph.repository.FramesStore;
+import com.bechtle.cougar.graph.repository.SchemaStore;
+import com.bechtle.cougar.graph.repository.rdf4j.extensions.BindingsAccessor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonStructure;
+import jakarta.json.JsonValue;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.util.ModelBuilder;
+import org.eclipse.rdf4j.model.util.Values;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.sparqlbuilder.core.SparqlBuilder;
+import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
+import org.eclipse.rdf4j.sparqlbuilder.core.query.Queries;
+import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
+import org.eclipse.rdf4j.sparqlbuilder.constraint.Expressions;
+import org.eclipse.rdf4j.sparqlbuilder.graphpattern.GraphPattern;
+import org.eclipse.rdf4j.sparqlbuilder.graphpattern.GraphPatterns;
+import org.eclipse.rdf4j.sparqlbuilder.rdf.Rdf;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages the named frames of a subscription and applies them to entities. The frames are parsed (and validated)
+ * once when stored, the parsed documents are kept in a cache per subscription. Contexts referenced in the frames
+ * are only resolved through the contexts registered for the subscription (see {@link ContextsService}), we never
+ * fetch remote documents while framing.
+ */
+@Service
+@Slf4j(topic = "cougar.graph.feature.frames")
+public class FramesService {
+
+    private final FramesStore framesStore;
+    private final SchemaStore schemaStore;
+    private final ContextsService contextsService;
+    private final Cache<String, JsonDocument> compiledFrames;
+
+    public FramesService(FramesStore framesStore, SchemaStore schemaStore, ContextsService contextsService) {
+        this.framesStore = framesStore;
+        this.schemaStore = schemaStore;
+        this.contextsService = contextsService;
+        this.compiledFrames = Caffeine.newBuilder().expireAfterAccess(60, TimeUnit.MINUTES).maximumSize(1000).build();
+    }
+
+    public Mono<Frame> storeFrame(String name, String content, Authentication authentication) {
+        log.debug("(Service) Storing frame with name '{}'", name);
+
+        return this.contextsService.getOptions(authentication).flatMap(options -> {
+            JsonDocument document = this.compile(name, content, options);
+            Frame frame = new Frame(this.identifierFor(name), name, this.resolveTarget(name, document, options).orElse(null), content);
+
+            ModelBuilder modelBuilder = new ModelBuilder();
+            modelBuilder.subject(frame.iri());
+            modelBuilder.add(RDF.TYPE, Frame.TYPE);
+            modelBuilder.add(Frame.HAS_NAME, frame.name());
+            modelBuilder.add(Frame.HAS_CONTENT, frame.content());
+            if (frame.target() != null) modelBuilder.add(Frame.HAS_TARGET, frame.target());
+
+            return this.framesStore.replace(frame.iri(), modelBuilder.build(), authentication)
+                    .then(Mono.fromRunnable(() -> this.compiledFrames.put(this.cacheKey(name, authentication), document)))
+                    .then(Mono.just(frame));
+        });
+    }
+
+    public Mono<Frame> getFrame(String name, Authentication authentication) {
+        log.debug("(Service) Requesting frame with name '{}'", name);
+
+        IRI identifier = this.identifierFor(name);
+        return this.framesStore.listStatements(identifier, null, null, authentication)
+                .filter(statements -> !statements.isEmpty())
+                .map(statements -> this.asFrame(name, identifier, statements))
+                .switchIfEmpty(Mono.error(new UnknownFrame(name)));
+    }
+
+    public Flux<Frame> listFrames(@Nullable String forType, Authentication authentication) {
+        log.debug("(Service) Requesting all frames{}", StringUtils.hasLength(forType) ? " for type " + forType : "");
+
+        Variable node = SparqlBuilder.var("n");
+        Variable name = SparqlBuilder.var("a");
+        Variable content = SparqlBuilder.var("b");
+        Variable target = SparqlBuilder.var("c");
+
+        IRI filteredTarget = StringUtils.hasLength(forType) ? this.schemaStore.resolvePrefixedName(forType) : null;
+
+        GraphPattern targetPattern = filteredTarget != null
+                ? GraphPatterns.and(node.has(Frame.HAS_TARGET, target)).filter(Expressions.equals(target, Rdf.iri(filteredTarget)))
+                : GraphPatterns.optional(node.has(Frame.HAS_TARGET, target));
+
+        SelectQuery q = Queries.SELECT()
+                .where(node.isA(Frame.TYPE)
+                        .andHas(Frame.HAS_NAME, name)
+                        .andHas(Frame.HAS_CONTENT, content)
+                        .and(targetPattern)
+                );
+
+        return this.framesStore.query(q, authentication)
+                .map(BindingsAccessor::new)
+                .map(ba -> new Frame(
+                        ba.asIRI(node),
+                        ba.asString(name),
+                        ba.asOptionalIRI(target).orElse(null),
+                        ba.asString(content)
+                ));
+    }
+
+    public Mono<Void> deleteFrame(String name, Authentication authentication) {
+        log.debug("(Service) Removing frame with name '{}'", name);
+
+        return this.getFrame(name, authentication)
+                .flatMap(frame -> this.framesStore.remove(frame.iri(), authentication))
+                .then(Mono.fromRunnable(() -> this.compiledFrames.invalidate(this.cacheKey(name, authentication))));
+    }
+
+    /**
+     * Applies the named frame to the given model and returns the framed (and compacted, if the frame defines a context) JSON-LD document.
+     */
+    public Mono<String> frame(Model model, String name, Authentication authentication) {
+        return this.contextsService.getOptions(authentication)
+                .flatMap(options -> this.getCompiledFrame(name, options, authentication).map(frame -> Map.entry(frame, options)))
+                .flatMap(compiled -> {
+                    try {
+                        StringWriter writer = new StringWriter();
+                        Rio.write(model, writer, RDFFormat.JSONLD);
+
+                        JsonObject result = JsonLd.frame(JsonDocument.of(new StringReader(writer.toString())), compiled.getKey())
+                                .options(compiled.getValue())
+                                .get();
+
+                        return Mono.just(result.toString());
+                    } catch (JsonLdError e) {
+                        log.warn("(Service) Failed to apply frame '{}', reason: {}", name, e.getMessage());
+                        return Mono.error(new InvalidFrame(name, e.getMessage()));
+                    }
+                })
+                .doOnSubscribe(s -> log.trace("(Service) Applying frame '{}' to model with {} statements", name, model.size()));
+    }
+
+
+    private Mono<JsonDocument> getCompiledFrame(String name, JsonLdOptions options, Authentication authentication) {
+        String key = this.cacheKey(name, authentication);
+        JsonDocument cached = this.compiledFrames.getIfPresent(key);
+        if (cached != null) return Mono.just(cached);
+
+        return this.getFrame(name, authentication)
+                .map(frame -> this.compile(name, frame.content(), options))
+                .doOnNext(document -> this.compiledFrames.put(key, document));
+    }
+
+    /**
+     * Parses the frame and checks whether it can be applied (all referenced contexts are available).
+     */
+    private JsonDocument compile(String name, String content, JsonLdOptions options) {
+        try {
+            JsonDocument document = JsonDocument.of(new StringReader(content));
+            Optional<JsonStructure> json = document.getJsonContent();
+            if (json.isEmpty() || json.get().getValueType() != JsonValue.ValueType.OBJECT) {
+                throw new InvalidFrame(name, "A frame has to be a JSON object.");
+            }
+
+            JsonLd.frame(JsonDocument.of(JsonValue.EMPTY_JSON_ARRAY), document).options(options).get();
+            return document;
+        } catch (JsonLdError e) {
+            throw new InvalidFrame(name, e.getMessage());
+        }
+    }
+
+    /**
+     * The target of a frame is the type of its root node, expanded with the context of the frame.
+     */
+    private Optional<IRI> resolveTarget(String name, JsonDocument document, JsonLdOptions options) {
+        JsonObject frame = document.getJsonContent().orElseThrow().asJsonObject();
+        JsonValue type = frame.get("@type");
+        if (type instanceof JsonArray array && !array.isEmpty()) type = array.get(0);
+        if (!(type instanceof JsonString)) return Optional.empty();
+
+        try {
+            JsonObject probe = Json.createObjectBuilder()
+                    .add("@context", frame.getOrDefault("@context", JsonValue.EMPTY_JSON_OBJECT))
+                    .add("@type", type)
+                    .build();
+
+            JsonArray expanded = JsonLd.expand(JsonDocument.of(probe)).options(options).get();
+            if (expanded.isEmpty()) return Optional.empty();
+
+            JsonArray types = expanded.getJsonObject(0).getJsonArray("@type");
+            if (types == null || types.isEmpty()) return Optional.empty();
+
+            return Optional.of(Values.iri(types.getString(0)));
+        } catch (JsonLdError | IllegalArgumentException e) {
+            log.debug("(Service) Failed to resolve target type of frame '{}', reason: {}", name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Frame asFrame(String name, IRI identifier, List<Statement> statements) {
+        String content = null;
+        IRI target = null;
+        for (Statement st : statements) {
+            if (st.getPredicate().equals(Frame.HAS_CONTENT)) content = st.getObject().stringValue();
+            if (st.getPredicate().equals(Frame.HAS_TARGET) && st.getObject().isIRI()) target = (IRI) st.getObject();
+        }
+        return new Frame(identifier, name, target, content);
+    }
+
+    private IRI identifierFor(String name) {
+        return LocalIRI.withDefinedNamespace(Local.Frames.NAMESPACE, name);
+    }
+
+    private String cacheKey(String name, Authentication authentication) {
+        return Tenants.keyOf(authentication) + ":" + name;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bechtle.cougar.graph.features.frames.domain.errors;
+
+public class InvalidFrame extends RuntimeException {
+    private final String name;
+    private final String reason;
+
+    public InvalidFrame(String name, String reason) {
+        this.name = name;
+        this.reason = reason;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("The frame '%s' is invalid, reason: %s", name, reason);
+    }
+}
@@ -0,0 +1,14 @@
+package com.bechtle.cougar.graph.features.frames.domain.errors;
+
+public class UnknownFrame extends Exception {
+    private final String name;
+
+    public UnknownFrame(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getMessage() {
+        return String.format("No frame found with name '%s'", name);
+    }
+}
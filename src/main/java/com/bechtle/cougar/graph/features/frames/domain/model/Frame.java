@@ -0,0 +1,20 @@
+package com.bechtle.cougar.graph.features.frames.domain.model;
+
+import com.bechtle.cougar.graph.domain.model.extensions.LocalIRI;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.springframework.lang.Nullable;
+
+/**
+ * A named JSON-LD frame (template), the target is the expanded type of the root node in the frame (if any).
+ */
+public record Frame(IRI iri, String name, @Nullable IRI target, String content) {
+
+    public static final IRI TYPE = LocalIRI.from(Local.NAMESPACE, "Frame");
+
+    public static final IRI HAS_NAME = RDFS.LABEL;
+    public static final IRI HAS_TARGET = LocalIRI.from(Local.NAMESPACE, "targetType");
+    public static final IRI HAS_CONTENT = LocalIRI.from(Local.NAMESPACE, "frameContent");
+
+}
@@ -0,0 +1,16 @@
+package com.bechtle.cougar.graph.features.frames.domain.model;
+
+import com.bechtle.cougar.graph.domain.model.extensions.LocalIRI;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import org.eclipse.rdf4j.model.IRI;
+
+/**
+ * A JSON-LD context registered for a subscription, identified by the url used to reference it in documents.
+ */
+public record JsonLdContext(IRI url, String content) {
+
+    public static final IRI TYPE = LocalIRI.from(Local.NAMESPACE, "JsonLdContext");
+
+    public static final IRI HAS_CONTENT = LocalIRI.from(Local.NAMESPACE, "contextContent");
+
+}
@@ -194,8 +194,7 @@ public class ApplicationsService {
                         .andHas(Application.HAS_KEY, key)
                         .andHas(Application.HAS_LABEL, label)
                         .andHas(Application.IS_PERSISTENT, persistent)
-                )
-                .limit(100);
+                );
 
         return this.applicationsStore.query(q, authentication)
                 .map(BindingsAccessor::new)
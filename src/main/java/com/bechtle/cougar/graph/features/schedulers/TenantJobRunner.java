@@ -0,0 +1,203 @@
+package com.bechtle.cougar.graph.features.schedulers;
+
+import com.bechtle.cougar.graph.api.security.AdminAuthentication;
+import com.bechtle.cougar.graph.features.multitenancy.domain.ApplicationsService;
+import com.bechtle.cougar.graph.features.multitenancy.domain.model.Application;
+import com.bechtle.cougar.graph.features.schedulers.jobs.RequestLoad;
+import com.bechtle.cougar.graph.features.schedulers.leadership.JobLeadership;
+import com.bechtle.cougar.graph.repository.EntityStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Runs maintenance jobs (the schedulers) for every application, with an administrator acting within the application
+ * (run-as).
+ * <p>
+ * All jobs share a small pool (application.schedulers.concurrency), maintenance never competes with the request
+ * path for more threads. Every run for a tenant has a time budget (application.schedulers.tenant-budget), a run
+ * exceeding it is cancelled and repeated with the next pass. The tenants are served round-robin: every pass starts
+ * with the tenant following the first one of the previous pass.
+ * <p>
+ * Tenants whose entity graph didn't change since the last successful run of a job are skipped.
+ * <p>
+ * With multiple replicas, a job only runs in the replica leading it (see {@link JobLeadership}). The lease is renewed
+ * before every tenant, a replica losing the leadership during a pass stops with the next tenant.
+ * <p>
+ * A pass also stops once the request path is under load (see {@link RequestLoad}), the remaining tenants are
+ * handled by the next pass.
+ */
+@Component
+@Slf4j(topic = "cougar.graph.schedulers")
+public class TenantJobRunner {
+
+    static final String RUNS = "graph.schedulers.runs";
+
+    private final ApplicationsService applicationsService;
+    private final EntityStore entityStore;
+    private final JobLeadership leadership;
+    private final RequestLoad load;
+    @Nullable
+    private final MeterRegistry meterRegistry;
+    private final Duration budget;
+    private final int concurrency;
+    private final Scheduler scheduler;
+
+    // versions of the entity graphs at the last successful run, by job and tenant
+    private final Map<String, Map<String, Long>> versions = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public TenantJobRunner(ApplicationsService applicationsService,
+                           EntityStore entityStore,
+                           JobLeadership leadership,
+                           RequestLoad load,
+                           ObjectProvider<MeterRegistry> meterRegistry,
+                           @org.springframework.beans.factory.annotation.Value("${application.schedulers.concurrency:2}") int concurrency,
+                           @org.springframework.beans.factory.annotation.Value("${application.schedulers.tenant-budget:30000}") long budget) {
+        this.applicationsService = applicationsService;
+        this.entityStore = entityStore;
+        this.leadership = leadership;
+        this.load = load;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        this.concurrency = Math.max(1, concurrency);
+        this.budget = Duration.ofMillis(budget);
+        this.scheduler = Schedulers.newBoundedElastic(this.concurrency, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "maintenance");
+    }
+
+    /**
+     * Runs the job once for every tenant (which changed since the last run)
+     *
+     * @param job  name of the job, to track the runs per tenant
+     * @param task the job for one tenant, called with the authentication of the tenant
+     */
+    public Mono<Void> run(String job, Function<Authentication, Mono<?>> task) {
+        return this.run(job, this.budget, task);
+    }
+
+    /**
+     * Runs the job once for every tenant (which changed since the last run), with its own time budget per tenant
+     */
+    public Mono<Void> run(String job, Duration budget, Function<Authentication, Mono<?>> task) {
+        AdminAuthentication admin = new AdminAuthentication();
+        admin.setAuthenticated(true);
+
+        return this.isLeader(job)
+                .filter(leader -> leader)
+                .flatMapMany(leader -> this.applicationsService.getSubscriptions(admin))
+                .collectList()
+                .flatMapMany(applications -> Flux.fromIterable(this.rotate(job, applications)))
+                // the lease is renewed before each tenant, the pass stops once the leadership is lost or under load
+                .concatMap(application -> this.isLeader(job).map(leader -> leader && !this.isThrottled(job, application) ? Optional.of(application) : Optional.<Application>empty()), 1)
+                .takeWhile(Optional::isPresent)
+                .map(Optional::get)
+                .flatMap(application -> this.runForTenant(job, application, budget, task), this.concurrency)
+                .then();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.scheduler.dispose();
+    }
+
+    private Mono<Void> runForTenant(String job, Application application, Duration budget, Function<Authentication, Mono<?>> task) {
+        String key = job + ":" + application.key();
+        if (!this.running.add(key)) {
+            log.debug("(Scheduler) Job '{}' is still running for tenant '{}'", job, application.key());
+            return Mono.empty();
+        }
+
+        AdminAuthentication authentication = AdminAuthentication.runAs(application);
+        Map<String, Long> seen = this.versions.computeIfAbsent(job, name -> new ConcurrentHashMap<>());
+
+        return this.entityStore.getVersion(authentication)
+                .defaultIfEmpty(-1L)
+                .flatMap(version -> {
+                    if (version >= 0 && version.equals(seen.get(application.key()))) {
+                        log.trace("(Scheduler) Skipping job '{}' for tenant '{}', no changes since the last run", job, application.key());
+                        this.count(job, "skipped");
+                        return Mono.empty();
+                    }
+
+                    // taken before the run, changes while the job is running are handled in the next pass
+                    long start = System.nanoTime();
+                    return Mono.defer(() -> task.apply(authentication))
+                            .timeout(budget)
+                            .subscribeOn(this.scheduler)
+                            .doOnSuccess(result -> {
+                                if (version >= 0) seen.put(application.key(), version);
+                                log.debug("(Scheduler) Job '{}' completed for tenant '{}' in {} ms", job, application.key(), (System.nanoTime() - start) / 1_000_000);
+                                this.count(job, "completed");
+                            })
+                            .onErrorResume(error -> {
+                                seen.remove(application.key());
+                                if (error instanceof TimeoutException) {
+                                    log.warn("(Scheduler) Job '{}' for tenant '{}' exceeded its budget of {} ms", job, application.key(), budget.toMillis());
+                                    this.count(job, "timeout");
+                                } else {
+                                    log.warn("(Scheduler) Job '{}' failed for tenant '{}', reason: {}", job, application.key(), error.getMessage());
+                                    this.count(job, "failed");
+                                }
+                                return Mono.empty();
+                            });
+                })
+                .doFinally(signal -> this.running.remove(key))
+                .then();
+    }
+
+    private boolean isThrottled(String job, Application application) {
+        if (!this.load.isOverloaded()) return false;
+
+        log.debug("(Scheduler) Pausing job '{}' at tenant '{}', the application is under load", job, application.key());
+        this.count(job, "throttled");
+        return true;
+    }
+
+    private Mono<Boolean> isLeader(String job) {
+        return Mono.fromCallable(() -> this.leadership.acquire(job))
+                .subscribeOn(this.scheduler)
+                .doOnNext(leader -> {
+                    if (!leader) {
+                        log.trace("(Scheduler) Job '{}' is run by another replica", job);
+                        this.count(job, "standby");
+                    }
+                });
+    }
+
+    /**
+     * Orders the tenants for the next pass, starting one tenant later than the previous pass
+     */
+    private List<Application> rotate(String job, List<Application> applications) {
+        if (applications.size() < 2) return applications;
+
+        int offset = Math.floorMod(this.cursors.computeIfAbsent(job, name -> new AtomicInteger()).getAndIncrement(), applications.size());
+        List<Application> rotated = new ArrayList<>(applications);
+        Collections.rotate(rotated, -offset);
+        return rotated;
+    }
+
+    private void count(String job, String outcome) {
+        if (this.meterRegistry == null) return;
+        this.meterRegistry.counter(RUNS, "job", job, "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,51 @@
+package com.bechtle.cougar.graph.features.schedulers.compaction;
+
+import com.bechtle.cougar.graph.domain.model.extensions.CompactionResult;
+import com.bechtle.cougar.graph.features.schedulers.TenantJobRunner;
+import com.bechtle.cougar.graph.features.schedulers.jobs.MaintenanceJobs;
+import com.bechtle.cougar.graph.repository.EntityStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Compacts the persistent entity graphs regularly. Deleting statements (e.g. when merging duplicates or replacing
+ * identifiers) never shrinks the files of a store, the compaction copies the remaining statements into a fresh store
+ * while the graph stays available (see {@link EntityStore#compact(Authentication)}).
+ * <p>
+ * Tenants without changes since the last compaction are skipped, the compaction has its own time budget per tenant
+ * (application.compaction.budget).
+ */
+@Slf4j(topic = "cougar.graph.schedulers.compaction")
+@Component
+@ConditionalOnProperty(name = "application.features.schedulers.compaction", havingValue = "true")
+public class ScheduledCompaction {
+
+    static final String JOB = "compaction";
+
+    private final EntityStore entityStore;
+    private final MaintenanceJobs jobs;
+
+    public ScheduledCompaction(EntityStore entityStore, TenantJobRunner runner, MaintenanceJobs jobs,
+                               @org.springframework.beans.factory.annotation.Value("${application.compaction.budget:600000}") long budget) {
+        this.entityStore = entityStore;
+        this.jobs = jobs;
+        this.jobs.register(JOB, () -> runner.run(JOB, Duration.ofMillis(budget), this::compact));
+    }
+
+    @Scheduled(fixedDelayString = "${application.compaction.interval:86400000}", initialDelayString = "${application.compaction.interval:86400000}")
+    public void compactScheduled() {
+        this.jobs.schedule(JOB);
+    }
+
+    private Mono<CompactionResult> compact(Authentication authentication) {
+        return this.entityStore.compact(authentication)
+                .doOnNext(result -> log.debug("(Scheduled) Compacted repository '{}' from {} to {} bytes", result.repository(), result.sizeBefore(), result.sizeAfter()))
+                .doOnError(throwable -> log.error("(Scheduled) Compacting the entity graph failed. ", throwable));
+    }
+}
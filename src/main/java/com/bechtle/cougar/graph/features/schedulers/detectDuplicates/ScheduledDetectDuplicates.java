@@ -1,13 +1,15 @@
 package com.bechtle.cougar.graph.features.schedulers.detectDuplicates;
 
 
-import com.bechtle.cougar.graph.api.security.AdminAuthentication;
+import com.bechtle.cougar.graph.api.security.Tenants;
 import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
 import com.bechtle.cougar.graph.domain.services.EntityServices;
 import com.bechtle.cougar.graph.domain.services.QueryServices;
+import com.bechtle.cougar.graph.features.schedulers.TenantJobRunner;
+import com.bechtle.cougar.graph.features.schedulers.jobs.MaintenanceJobs;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.rdf4j.model.IRI;
-import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.RDFS;
@@ -16,16 +18,17 @@ import org.eclipse.rdf4j.sparqlbuilder.core.SparqlBuilder;
 import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.Queries;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
-import java.util.SortedSet;
+import java.util.Optional;
 import java.util.TreeSet;
 
 /**
@@ -55,6 +58,13 @@ import java.util.TreeSet;
  * - share the same label
  * - share the same original_identifier
  * <p>
+ * With the label index, only the types and labels changed since the last run are checked (the change log of the index),
+ * the watermark is acknowledged once all duplicates are merged. Without the index, the complete graph is queried.
+ * <p>
+ * The number of candidates found and duplicates merged are published as metrics (graph.duplicates.candidates and
+ * graph.duplicates.merged, tagged by tenant).
+ * <p>
+ * The check runs for every application (see {@link TenantJobRunner}), tenants without changes since the last run are skipped.
  * <p>
  *  TODO:
  *      For now we keep the duplicate but reroute all links to the original.
@@ -65,33 +75,65 @@ import java.util.TreeSet;
 public class ScheduledDetectDuplicates {
 
 
+    static final String JOB = "detectDuplicates";
+    static final String CANDIDATES = "graph.duplicates.candidates";
+    static final String MERGED = "graph.duplicates.merged";
+
     private final EntityServices entityServices;
     private final QueryServices queryServices;
+    private final MaintenanceJobs jobs;
     private final SimpleValueFactory valueFactory;
+    private final boolean useLabelIndex;
+    @Nullable
+    private final MeterRegistry meterRegistry;
 
-    public ScheduledDetectDuplicates(EntityServices service, QueryServices queryServices) {
+    public ScheduledDetectDuplicates(EntityServices service, QueryServices queryServices, TenantJobRunner runner, MaintenanceJobs jobs,
+                                     ObjectProvider<MeterRegistry> meterRegistry,
+                                     @org.springframework.beans.factory.annotation.Value("${application.duplicates.label-index:true}") boolean useLabelIndex) {
         this.entityServices = service;
         this.queryServices = queryServices;
+        this.jobs = jobs;
+        this.jobs.register(JOB, () -> runner.run(JOB, this::checkForDuplicates));
+        this.meterRegistry = meterRegistry.getIfAvailable();
         this.valueFactory = SimpleValueFactory.getInstance();
+        this.useLabelIndex = useLabelIndex;
     }
 
 
-    // https://github.com/spring-projects/spring-framework/issues/23533
-    private boolean labelCheckRunning = false;
-
-    @Scheduled(fixedRate = 10000)
+    @Scheduled(fixedDelayString = "${application.duplicates.interval:10000}")
     public void checkForDuplicatesScheduled() {
-        if (labelCheckRunning) return;
-
-        AdminAuthentication adminAuthentication = new AdminAuthentication();
-        adminAuthentication.setAuthenticated(true);
+        this.jobs.schedule(JOB);
+    }
 
-        // FIXME: do this with all applicatations (run-as semantics)
+    public Mono<Void> checkForDuplicates(Authentication authentication) {
+        if (!this.useLabelIndex) {
+            return this.findDuplicateGroups(authentication)
+                    .flatMap(duplicates -> this.mergeDuplicates(duplicates, authentication))
+                    .doOnSubscribe(sub -> log.trace("Checking duplicates sharing the same label"))
+                    .then();
+        }
 
-        this.checkForDuplicates(adminAuthentication).publishOn(Schedulers.single()).subscribe();
+        return this.queryServices.findChangedDuplicateLabels(authentication)
+                .flatMap(changes -> {
+                    if (changes.duplicates().isEmpty()) return this.queryServices.acknowledgeDuplicateLabels(changes.watermark(), authentication);
+
+                    log.debug("Found {} types and labels shared by multiple entities ({} check)", changes.duplicates().size(), changes.incremental() ? "incremental" : "full");
+                    return Flux.fromIterable(changes.duplicates().entrySet())
+                            .map(entry -> {
+                                log.trace("There are multiple entities with shared type '{}' and label '{}'", entry.getKey().type(), entry.getKey().label());
+                                return entry.getValue().stream().map(Duplicate::new).toList();
+                            })
+                            .concatMap(duplicates -> this.mergeDuplicates(duplicates, authentication))
+                            // only acknowledged if all duplicates were merged, otherwise they are checked again with the next run
+                            .then(this.queryServices.acknowledgeDuplicateLabels(changes.watermark(), authentication));
+                })
+                .doOnSubscribe(sub -> log.trace("Checking duplicates sharing the same label"));
     }
 
-    public Mono<Void> checkForDuplicates(Authentication authentication) {
+    /**
+     * Groups of entities sharing type and label through queries in the complete graph
+     */
+    private Flux<List<Duplicate>> findDuplicateGroups(Authentication authentication) {
         return this.findCandidates(RDFS.LABEL, authentication)
                 .map(candidate -> {
                     log.trace("There are multiple entities with shared type '{}' and label '{}'", candidate.type(), candidate.sharedValue());
@@ -100,17 +142,7 @@ public class ScheduledDetectDuplicates {
                 .flatMap(candidate ->
                         this.findDuplicates(candidate, authentication)
                                 .doOnNext(duplicate -> log.trace("Identified entity '{}' as potential duplicate.", duplicate.id()))
-                                .collectList()
-                                .flatMap(duplicates -> this.mergeDuplicates(duplicates, authentication)))
-                .doOnSubscribe(sub -> {
-                    log.trace("Checking duplicates sharing the same label");
-                    labelCheckRunning = true;
-
-                })
-                .doOnComplete(() -> {
-                    labelCheckRunning = false;
-                }).thenEmpty(Mono.empty());
-
+                                .collectList());
     }
 
 
@@ -146,10 +178,9 @@ public class ScheduledDetectDuplicates {
     /**
      * Method to merge the duplicates. We do the following steps
      *
-     * Take the head in list as original, the tail are the duplicates which are removed.
-     * For each duplicate in the tail:
-     * - find all statements pointing to the duplicate and reroute it to the original
-     * - remove the duplicate
+     * Take the head in list as original, the tail are the duplicates which are removed. All statements pointing to
+     * one of the duplicates are rerouted to the original and the duplicates are removed, for the whole group within
+     * one transaction (see {@link EntityServices#mergeDuplicates}).
      *
      * TODO: We remove all statements, no attempts are made to preserve additional statements in the duplicate. We should probably
      * a) keep the duplicate and mark it as deleted or
@@ -164,58 +195,30 @@ public class ScheduledDetectDuplicates {
 
         TreeSet<Duplicate> orderedDuplicates = new TreeSet<>(duplicates);
         Duplicate original = orderedDuplicates.first();
-        SortedSet<Duplicate> deletionCandidates = orderedDuplicates.tailSet(original, false);
+        List<IRI> deletionCandidates = orderedDuplicates.tailSet(original, false).stream().map(Duplicate::id).toList();
+        String tenant = Tenants.keyOf(authentication);
+        this.count(CANDIDATES, tenant, orderedDuplicates.size());
 
-
-        /* relink */
-        return Flux.fromIterable(deletionCandidates)
+        return this.entityServices.mergeDuplicates(original.id(), deletionCandidates, authentication)
                 .doOnSubscribe(subscription -> log.trace("Trying to merge all duplicates, keeping entity '{}' as original", original.id()))
-                .flatMap(duplicate ->
-                        this.findStatementsPointingToDuplicate(duplicate, authentication)
-                                .flatMap(mislinkedStatement -> this.relinkEntity(mislinkedStatement.subject(), mislinkedStatement.predicate(), mislinkedStatement.object(), original.id(), authentication))
-                                .doOnNext(trx -> log.info("Relinking completed in Transaction {}", trx.getIdentifier()))
-                                .map(transaction -> duplicate)
-                )
-                .flatMap(duplicate ->
-                        this.removeDuplicate(duplicate.id(), authentication)
-                                .doOnNext(trx -> log.info("Removed duplicate entity with identifier '{}' in transaction '{}'", duplicate.id(), trx.getIdentifier()))
-                )
-                .then();
-    }
-
-    private Mono<Transaction> removeDuplicate(IRI object, Authentication authentication) {
-        return this.entityServices.deleteEntity(object, authentication);
-    }
-
-    private Mono<Transaction> relinkEntity(Resource subject, IRI predicate, Value object, Value id, Authentication authentication) {
-        return this.entityServices.relinkEntityProperty(subject, predicate, object, id, authentication);
-    }
-
-
-    /**
-     * Runs the query:   SELECT * WHERE { ?sub ?pre <duplicate id> }. to find all entities pointing to the identified duplicate entity (with the goal to reroute those statements to the original)
-     *
-     * @param duplicate,      the identified duplicate
-     * @param authentication, auth info
-     * @return the statements pointing to the duplicate (as Flux)
-     */
-    private Flux<MislinkedStatement> findStatementsPointingToDuplicate(Duplicate duplicate, Authentication authentication) {
-        Variable subject = SparqlBuilder.var("s");
-        Variable predicate = SparqlBuilder.var("p");
-
-        SelectQuery query = Queries.SELECT(subject, predicate).where(subject.has(predicate, duplicate.id()));
-        return queryServices.queryValues(query, authentication)
-                .doOnSubscribe(subscription -> log.trace("Retrieving all statements pointing to duplicate with id '{}'", duplicate.id()))
-                .flatMap(binding -> {
-                    Value pVal = binding.getValue(predicate.getVarName());
-                    Value sVal = binding.getValue(subject.getVarName());
-
-                    if (pVal.isIRI() && sVal.isResource()) {
-                        log.trace("Statement with subject identifier {} pointing with  predicate {} to the duplicate", sVal.stringValue(), pVal.stringValue());
-                        return Mono.just(new MislinkedStatement((Resource) sVal, (IRI) pVal, duplicate.id()));
-                    } else return Mono.empty();
+                .collectList()
+                .flatMap(transactions -> {
+                    // the watermark is only acknowledged if the merge went through, failed merges are retried
+                    Optional<Transaction> failed = transactions.stream().filter(Transaction::isFailed).findFirst();
+                    if (failed.isPresent()) {
+                        return Mono.error(new IllegalStateException("Failed to merge duplicates into entity '" + original.id() + "', reason: " + failed.get().getFailureReason().orElse("unknown")));
+                    }
+
+                    // a large group is merged in several transactions, logged once for the whole group
+                    log.info("Merged {} duplicates into entity '{}' in transactions {}", deletionCandidates.size(), original.id(), transactions.stream().map(Transaction::getIdentifier).toList());
+                    this.count(MERGED, tenant, deletionCandidates.size());
+                    return Mono.empty();
                 });
+    }
 
+    private void count(String name, String tenant, int amount) {
+        if (this.meterRegistry == null) return;
+        this.meterRegistry.counter(name, "tenant", tenant).increment(amount);
     }
 
     private Flux<DuplicateCandidate> findCandidates(IRI sharedProperty, Authentication authentication) {
@@ -254,9 +257,6 @@ public class ScheduledDetectDuplicates {
     }
 
 
-    private record MislinkedStatement(Resource subject, IRI predicate, IRI object) {
-    }
-
     private record Duplicate(IRI id) implements Comparable<Duplicate> {
         @Override
         public int compareTo(Duplicate o) {
@@ -0,0 +1,24 @@
+package com.bechtle.cougar.graph.features.schedulers.jobs;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+
+/**
+ * One run of a maintenance job
+ *
+ * @param job      name of the job
+ * @param trigger  'scheduled' or 'manual' (through the actuator endpoint)
+ * @param started  start of the run
+ * @param duration duration of the run (in ms), null while it is running
+ * @param outcome  'running', 'completed', 'failed' or 'throttled' (not started, the application was under load)
+ * @param error    the reason of a failed run
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record JobRun(String job, String trigger, Instant started, @Nullable Long duration, String outcome, @Nullable String error) {
+
+    JobRun finish(String outcome, @Nullable String error) {
+        return new JobRun(this.job, this.trigger, this.started, Instant.now().toEpochMilli() - this.started.toEpochMilli(), outcome, error);
+    }
+}
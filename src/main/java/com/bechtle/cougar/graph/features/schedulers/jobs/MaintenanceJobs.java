@@ -0,0 +1,165 @@
+package com.bechtle.cougar.graph.features.schedulers.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The registry of the maintenance jobs (the schedulers). Every job runs single-flight: a trigger while the job is
+ * still running is ignored. The last runs of every job are kept (application.schedulers.history), their durations
+ * are published as metric (graph.schedulers.passes, tagged by job and outcome).
+ * <p>
+ * Scheduled runs are throttled: while the request path is under load (see {@link RequestLoad}), they are not
+ * started. Manual runs (through the actuator endpoint 'jobs') always start.
+ */
+@Component
+@Slf4j(topic = "cougar.graph.schedulers")
+public class MaintenanceJobs {
+
+    static final String PASSES = "graph.schedulers.passes";
+
+    static final String SCHEDULED = "scheduled";
+    static final String MANUAL = "manual";
+
+    private final RequestLoad load;
+    @Nullable
+    private final MeterRegistry meterRegistry;
+    private final int historySize;
+
+    private final Map<String, Job> jobs = new ConcurrentSkipListMap<>();
+
+    public MaintenanceJobs(RequestLoad load,
+                           ObjectProvider<MeterRegistry> meterRegistry,
+                           @org.springframework.beans.factory.annotation.Value("${application.schedulers.history:20}") int historySize) {
+        this.load = load;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+        this.historySize = Math.max(1, historySize);
+    }
+
+    /**
+     * Registers a job
+     *
+     * @param job  unique name of the job
+     * @param pass one pass of the job (e.g. over all tenants), called for every run
+     */
+    public void register(String job, Supplier<Mono<?>> pass) {
+        if (this.jobs.putIfAbsent(job, new Job(job, pass)) != null) throw new IllegalStateException("Job '" + job + "' is registered already");
+    }
+
+    /**
+     * Starts a scheduled run of the job, unless it is still running or the application is under load
+     *
+     * @return the started run, empty if it was not started
+     */
+    public Optional<JobRun> schedule(String job) {
+        Job registered = this.get(job);
+        if (this.load.isOverloaded()) {
+            log.debug("(Scheduler) Job '{}' is throttled, {} requests in flight with an average latency of {} ms", job, this.load.getInFlight(), Math.round(this.load.getAverageLatency()));
+            registered.record(new JobRun(job, SCHEDULED, Instant.now(), 0L, "throttled", null));
+            this.record(job, "throttled", Duration.ZERO);
+            return Optional.empty();
+        }
+        return this.start(registered, SCHEDULED);
+    }
+
+    /**
+     * Starts a manual run of the job, unless it is still running
+     *
+     * @return the started run, empty if it was not started
+     */
+    public Optional<JobRun> trigger(String job) {
+        return this.start(this.get(job), MANUAL);
+    }
+
+    public Collection<String> list() {
+        return this.jobs.keySet();
+    }
+
+    /**
+     * @return the current run of the job, if it is running
+     */
+    public Optional<JobRun> current(String job) {
+        return Optional.ofNullable(this.get(job).current.get());
+    }
+
+    /**
+     * @return the last runs of the job, the latest first
+     */
+    public List<JobRun> history(String job) {
+        return this.get(job).history();
+    }
+
+    private Optional<JobRun> start(Job job, String trigger) {
+        JobRun run = new JobRun(job.name, trigger, Instant.now(), null, "running", null);
+        if (!job.current.compareAndSet(null, run)) {
+            log.trace("(Scheduler) Job '{}' is still running, ignoring the {} trigger", job.name, trigger);
+            return Optional.empty();
+        }
+
+        Mono.defer(job.pass)
+                .then()
+                .subscribe(
+                        null,
+                        error -> this.finish(job, run.finish("failed", error.getMessage())),
+                        () -> this.finish(job, run.finish("completed", null)));
+        return Optional.of(run);
+    }
+
+    private void finish(Job job, JobRun run) {
+        job.record(run);
+        job.current.set(null);
+        this.record(job.name, run.outcome(), Duration.ofMillis(run.duration()));
+
+        if (run.error() != null) log.warn("(Scheduler) Job '{}' failed after {} ms, reason: {}", job.name, run.duration(), run.error());
+        else log.trace("(Scheduler) Job '{}' completed in {} ms", job.name, run.duration());
+    }
+
+    private Job get(String job) {
+        Job registered = this.jobs.get(job);
+        if (registered == null) throw new IllegalArgumentException("Unknown job '" + job + "'");
+        return registered;
+    }
+
+    private void record(String job, String outcome, Duration duration) {
+        if (this.meterRegistry == null) return;
+        Timer.builder(PASSES).tag("job", job).tag("outcome", outcome).register(this.meterRegistry).record(duration);
+    }
+
+    private class Job {
+        private final String name;
+        private final Supplier<Mono<?>> pass;
+        private final AtomicReference<JobRun> current = new AtomicReference<>();
+        private final Deque<JobRun> history = new ArrayDeque<>();
+
+        Job(String name, Supplier<Mono<?>> pass) {
+            this.name = name;
+            this.pass = pass;
+        }
+
+        synchronized void record(JobRun run) {
+            this.history.addFirst(run);
+            while (this.history.size() > historySize) this.history.removeLast();
+        }
+
+        synchronized List<JobRun> history() {
+            return new ArrayList<>(this.history);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.bechtle.cougar.graph.features.schedulers.jobs;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Actuator endpoint 'jobs' to inspect the maintenance jobs (GET /actuator/jobs, GET /actuator/jobs/{name}) and to
+ * start a run manually (POST /actuator/jobs/{name}).
+ */
+@Component
+@Endpoint(id = "jobs")
+public class MaintenanceJobsEndpoint {
+
+    private final MaintenanceJobs jobs;
+
+    public MaintenanceJobsEndpoint(MaintenanceJobs jobs) {
+        this.jobs = jobs;
+    }
+
+    @ReadOperation
+    public Map<String, JobState> jobs() {
+        return this.jobs.list().stream().collect(Collectors.toMap(name -> name, this::job, (first, second) -> first, TreeMap::new));
+    }
+
+    /**
+     * @return the state of the job, or null (not found) if there is no job with this name
+     */
+    @ReadOperation
+    @Nullable
+    public JobState job(@Selector String name) {
+        if (!this.jobs.list().contains(name)) return null;
+        return new JobState(this.jobs.current(name).orElse(null), this.jobs.history(name));
+    }
+
+    /**
+     * @return the started run, or null if the job is still running (or not found)
+     */
+    @WriteOperation
+    @Nullable
+    public JobRun trigger(@Selector String name) {
+        if (!this.jobs.list().contains(name)) return null;
+        return this.jobs.trigger(name).orElse(null);
+    }
+
+    /**
+     * @param running the current run, null if the job is idle
+     * @param history the last runs, the latest first
+     */
+    public record JobState(@Nullable JobRun running, List<JobRun> history) {
+    }
+}
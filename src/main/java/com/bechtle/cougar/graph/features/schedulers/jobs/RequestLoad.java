@@ -0,0 +1,87 @@
+package com.bechtle.cougar.graph.features.schedulers.jobs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Observes the load of the request path: the number of requests in flight and the (exponentially weighted) average
+ * latency of the recent requests. Maintenance jobs pause while one of them crosses its threshold
+ * (application.schedulers.throttle.*).
+ * <p>
+ * The average latency only counts while requests complete, an idle application is never considered under load.
+ */
+@Component
+public class RequestLoad implements WebFilter {
+
+    static final String IN_FLIGHT = "graph.requests.in-flight";
+    static final String LATENCY = "graph.requests.latency.average";
+
+    private static final double WEIGHT = 0.2;
+
+    private final long latencyThreshold;
+    private final int inFlightThreshold;
+    private final long window;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double averageLatency;
+    private volatile long lastCompleted;
+
+    public RequestLoad(ObjectProvider<MeterRegistry> meterRegistry,
+                       @org.springframework.beans.factory.annotation.Value("${application.schedulers.throttle.latency:1000}") long latencyThreshold,
+                       @org.springframework.beans.factory.annotation.Value("${application.schedulers.throttle.in-flight:100}") int inFlightThreshold,
+                       @org.springframework.beans.factory.annotation.Value("${application.schedulers.throttle.window:10000}") long window) {
+        this.latencyThreshold = latencyThreshold;
+        this.inFlightThreshold = inFlightThreshold;
+        this.window = window;
+
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder(IN_FLIGHT, this.inFlight, AtomicInteger::get).register(registry);
+            Gauge.builder(LATENCY, this, RequestLoad::getAverageLatency).baseUnit("milliseconds").register(registry);
+        });
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            this.inFlight.incrementAndGet();
+            return chain.filter(exchange).doFinally(signal -> this.completed(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * @return true, if the number of requests in flight or their average latency crossed the threshold (thresholds of 0 are disabled)
+     */
+    public boolean isOverloaded() {
+        if (this.inFlightThreshold > 0 && this.inFlight.get() >= this.inFlightThreshold) return true;
+        return this.latencyThreshold > 0 && this.getAverageLatency() >= this.latencyThreshold;
+    }
+
+    /**
+     * @return the average latency (in ms) of the requests completed within the window, 0 if none completed
+     */
+    public double getAverageLatency() {
+        return System.currentTimeMillis() - this.lastCompleted < this.window ? this.averageLatency : 0;
+    }
+
+    public int getInFlight() {
+        return this.inFlight.get();
+    }
+
+    private synchronized void completed(long nanos) {
+        this.inFlight.decrementAndGet();
+
+        double latency = nanos / 1_000_000.0;
+        // after an idle period, the average starts again with the next request
+        this.averageLatency = this.getAverageLatency() == 0 ? latency : this.averageLatency + WEIGHT * (latency - this.averageLatency);
+        this.lastCompleted = System.currentTimeMillis();
+    }
+}
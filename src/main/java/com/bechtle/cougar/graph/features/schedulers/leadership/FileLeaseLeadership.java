@@ -0,0 +1,105 @@
+package com.bechtle.cougar.graph.features.schedulers.leadership;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leases stored in files on the data path shared by all replicas (one file per job, with the owner and the expiry
+ * of the lease). The file is locked while it is read and written, a replica takes over the lease only if it has
+ * expired. The expiry is based on the wall clock, the lease duration has to be well above the clock skew between
+ * the replicas and above the duration of one run of a job.
+ */
+@Slf4j(topic = "cougar.graph.schedulers.leadership")
+public class FileLeaseLeadership implements JobLeadership {
+
+    private static final String SUFFIX = ".lease";
+
+    private final Path directory;
+    private final Duration lease;
+    private final String owner;
+    private final Set<String> owned = ConcurrentHashMap.newKeySet();
+
+    public FileLeaseLeadership(Path directory, Duration lease, String owner) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.lease = lease;
+        this.owner = owner;
+    }
+
+    @Override
+    public boolean acquire(String job) {
+        Path file = this.directory.resolve(job + SUFFIX);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            // another replica is reading or renewing the lease right now
+            if (lock == null) return false;
+
+            Lease current = this.read(channel);
+            long now = System.currentTimeMillis();
+            if (current != null && !current.owner().equals(this.owner) && current.expires() > now) {
+                if (this.owned.remove(job)) log.info("(Leadership) Lost leadership for job '{}' to '{}'", job, current.owner());
+                return false;
+            }
+
+            this.write(channel, new Lease(this.owner, now + this.lease.toMillis()));
+            if (this.owned.add(job)) log.info("(Leadership) Acquired leadership for job '{}' as '{}'", job, this.owner);
+            return true;
+        } catch (OverlappingFileLockException e) {
+            // the lease is renewed by another thread of this replica
+            return this.owned.contains(job);
+        } catch (IOException e) {
+            log.warn("(Leadership) Failed to acquire the lease for job '{}', reason: {}", job, e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void release() {
+        for (String job : Set.copyOf(this.owned)) {
+            Path file = this.directory.resolve(job + SUFFIX);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                Lease current = this.read(channel);
+                if (current != null && current.owner().equals(this.owner)) this.write(channel, new Lease(this.owner, 0));
+                this.owned.remove(job);
+                log.info("(Leadership) Released leadership for job '{}'", job);
+            } catch (IOException e) {
+                log.warn("(Leadership) Failed to release the lease for job '{}', reason: {}", job, e.getMessage());
+            }
+        }
+    }
+
+    private Lease read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 1024));
+        channel.read(buffer, 0);
+        String[] content = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).split("\n");
+        if (content.length < 2) return null;
+
+        try {
+            return new Lease(content[0], Long.parseLong(content[1].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void write(FileChannel channel, Lease lease) throws IOException {
+        byte[] content = (lease.owner() + "\n" + lease.expires() + "\n").getBytes(StandardCharsets.UTF_8);
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(content), 0);
+        channel.force(false);
+    }
+
+    private record Lease(String owner, long expires) {
+    }
+}
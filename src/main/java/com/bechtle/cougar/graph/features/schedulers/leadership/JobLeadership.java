@@ -0,0 +1,23 @@
+package com.bechtle.cougar.graph.features.schedulers.leadership;
+
+/**
+ * Decides which replica runs a scheduled job, if multiple replicas share the same storage. Only the leader of a job
+ * runs it, the leadership is a lease which has to be renewed with every run. If the leader stops renewing (e.g. it
+ * crashed), another replica takes over once the lease has expired.
+ * <p>
+ * Provide a bean of this type to replace the lease files on the shared data path (e.g. with a lease of the cluster).
+ */
+public interface JobLeadership {
+
+    /**
+     * Acquires or renews the lease for the job
+     *
+     * @return true, if this replica is the leader for the job (and should run it)
+     */
+    boolean acquire(String job);
+
+    /**
+     * Gives up the leadership for all jobs, another replica can take over immediately
+     */
+    void release();
+}
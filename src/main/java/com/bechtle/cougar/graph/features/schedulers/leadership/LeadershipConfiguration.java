@@ -0,0 +1,39 @@
+package com.bechtle.cougar.graph.features.schedulers.leadership;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Replicas sharing the data path elect a leader for each scheduled job through lease files in
+ * application.schedulers.leadership.path (by default the folder "leases" in the default storage path). Without a
+ * path, this replica is the leader for all jobs.
+ */
+@Configuration
+@Slf4j(topic = "cougar.graph.schedulers.leadership")
+public class LeadershipConfiguration {
+
+    @Bean(destroyMethod = "release")
+    @ConditionalOnMissingBean(JobLeadership.class)
+    public JobLeadership jobLeadership(@org.springframework.beans.factory.annotation.Value("${application.schedulers.leadership.path:#{null}}") String path,
+                                       @org.springframework.beans.factory.annotation.Value("${application.storage.default.path:#{null}}") String defaultPath,
+                                       @org.springframework.beans.factory.annotation.Value("${application.schedulers.leadership.lease:300000}") long lease) throws IOException {
+        Path directory = StringUtils.hasLength(path) ? Path.of(path) : StringUtils.hasLength(defaultPath) ? Path.of(defaultPath, "leases") : null;
+        if (directory == null) {
+            log.debug("(Leadership) No shared data path configured, running all jobs in this replica");
+            return new LocalLeadership();
+        }
+
+        String owner = InetAddress.getLocalHost().getHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        log.info("(Leadership) Electing leaders for scheduled jobs through lease files in '{}' as '{}'", directory, owner);
+        return new FileLeaseLeadership(directory, Duration.ofMillis(lease), owner);
+    }
+}
@@ -1,13 +1,14 @@
 package com.bechtle.cougar.graph.features.schedulers.replaceGlobalIdentifiers;
 
-import com.bechtle.cougar.graph.api.security.AdminAuthentication;
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
 import com.bechtle.cougar.graph.domain.model.extensions.GeneratedIdentifier;
 import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
 import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
 import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
-import com.bechtle.cougar.graph.domain.services.QueryServices;
+import com.bechtle.cougar.graph.domain.services.provenance.ProvenanceWriter;
+import com.bechtle.cougar.graph.features.schedulers.TenantJobRunner;
+import com.bechtle.cougar.graph.features.schedulers.jobs.MaintenanceJobs;
 import com.bechtle.cougar.graph.repository.EntityStore;
-import com.bechtle.cougar.graph.repository.TransactionsStore;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.units.qual.A;
 import org.eclipse.rdf4j.model.Resource;
@@ -23,53 +24,58 @@ import org.springframework.util.Assert;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * If we have any global identifiers (externally set) in the repo, we have to replace them with our internal identifiers.
  * Otherwise we cannot address the entities through our API.
  *
- * Periodically runs the following sparql queries, grabs the entity definition for it and regenerates the identifiers
- * <p>
- * SELECT ?a WHERE { ?a a ?c . }
- * FILTER NOT EXISTS {
- *    FILTER STRSTARTS(str(?a), "http://graphs.azurewebsites.net/api/entities/").
- * }
- * LIMIT 100
+ * The entity store captures the typed subjects outside of the local entity namespace with every commit (see
+ * {@link EntityStore#findForeignIdentifiers(Authentication)}), the graph is not queried to find them. The subjects are
+ * replaced in batches (application.identifiers.batch-size), each batch is loaded from one snapshot and rewritten
+ * within one transaction: statements between two replaced subjects are rewritten on both ends. Once committed, the
+ * subjects of the batch are acknowledged.
  */
 @Slf4j(topic = "cougar.graph.schedulers.identifiers")
 @Component
 @ConditionalOnProperty(name = "application.features.schedulers.replaceGlobalIdentifiers", havingValue = "true")
 public class ScheduledReplaceGlobalIdentifiers {
 
-    // FIXME: should not directly access the services
-    private final QueryServices queryServices;
-
+    static final String JOB = "replaceGlobalIdentifiers";
 
     private final EntityStore entityStore;
-    private final TransactionsStore trxStore;
+    private final ProvenanceWriter provenance;
+    private final MaintenanceJobs jobs;
+    private final int batchSize;
 
 
-    public ScheduledReplaceGlobalIdentifiers(QueryServices queryServices, EntityStore store, TransactionsStore trxStore) {
-        this.queryServices = queryServices;
+    public ScheduledReplaceGlobalIdentifiers(EntityStore store, ProvenanceWriter provenance, TenantJobRunner runner, MaintenanceJobs jobs,
+                                             @org.springframework.beans.factory.annotation.Value("${application.identifiers.batch-size:1000}") int batchSize) {
         this.entityStore = store;
-        this.trxStore = trxStore;
+        this.provenance = provenance;
+        this.jobs = jobs;
+        this.batchSize = Math.max(1, batchSize);
+        this.jobs.register(JOB, () -> runner.run(JOB, this::checkForGlobalIdentifiersAndReport));
     }
 
 
     @Scheduled(fixedDelay = 60000)
     public void checkForGlobalIdentifiersScheduled() {
-        AdminAuthentication authentication = new AdminAuthentication();
-        authentication.setAuthenticated(true);
+        this.jobs.schedule(JOB);
+    }
 
-        this.checkForGlobalIdentifiers(authentication)
+    private Mono<List<Transaction>> checkForGlobalIdentifiersAndReport(Authentication authentication) {
+        return this.checkForGlobalIdentifiers(authentication)
                 .collectList()
                 .doOnError(throwable -> log.error("(Scheduled) Checking for invalided identifiers failed. ", throwable))
                 .doOnSuccess(list -> {
                     Integer reduce = list.stream()
-                            .map(transaction -> transaction.listModifiedResources().size())
+                            .map(transaction -> transaction.listModifiedResources(Activity.INSERTED).size())
                             .reduce(0, Integer::sum);
                     if(reduce > 0) {
                         log.debug("(Scheduled) Checking for invalided identifiers completed, {} resources were updated.", reduce);
@@ -77,20 +83,18 @@ public class ScheduledReplaceGlobalIdentifiers {
                         log.debug("(Scheduled) No invalided identifiers found");
                     }
 
-                }).subscribe();
+                });
     }
 
 
     public Flux<Transaction> checkForGlobalIdentifiers(Authentication authentication) {
-        return findGlobalIdentifiers(authentication)
-                .flatMap(value -> this.getOldStatements(value, authentication))
-                .flatMap(this::storeNewStatements)
-                .flatMap(this::deleteOldStatements)
-                .buffer(50)
-                .flatMap(transactions -> this.commit(transactions, authentication))
-                .doOnNext(transaction -> {
-                    Assert.isTrue(transaction.hasStatement(null, Transactions.STATUS, Transactions.SUCCESS), "Failed transaction: \n"+transaction);
-                })
+        return this.entityStore.findForeignIdentifiers(authentication)
+                .flatMapMany(identifiers -> Flux.fromIterable(identifiers.subjects())
+                        .buffer(this.batchSize)
+                        // batches are replaced one after another, a subject can be linked from a subject of the next batch
+                        .concatMap(subjects -> this.replace(subjects, authentication)
+                                .doOnNext(transaction -> Assert.isTrue(transaction.hasStatement(null, Transactions.STATUS, Transactions.SUCCESS), "Failed transaction: \n" + transaction))
+                                .concatWith(this.entityStore.acknowledgeForeignIdentifiers(subjects, identifiers.watermark(), authentication).then(Mono.empty()))))
                 .buffer(50)
                 .flatMap(transactions -> this.storeTransactions(transactions, authentication))
                 .doOnError(throwable -> {
@@ -99,88 +103,44 @@ public class ScheduledReplaceGlobalIdentifiers {
                 ;
     }
 
-    private Flux<Transaction> commit(List<Transaction> transactions, Authentication authentication) {
-        // log.trace("Committing {} transactions", transactions.size());
-        return this.entityStore.commit(transactions, authentication);
-    }
-
-    private Flux<Transaction> storeTransactions(Collection<Transaction> transactions, Authentication authentication) {
-        //FIXME: through event
-        return this.trxStore.store(transactions, authentication);
-    }
-
-    private Mono<Transaction> deleteOldStatements(StatementsBag statementsBag) {
-        ArrayList<Statement> statements = new ArrayList<>(statementsBag.subjectStatements());
-        statements.addAll(statementsBag.objectStatements());
-
-        return entityStore.delete(statements, statementsBag.transaction());
-    }
-
-    private Mono<StatementsBag> storeNewStatements(StatementsBag statements) {
-        ModelBuilder builder = new ModelBuilder();
-
-        GeneratedIdentifier generatedIdentifier = new GeneratedIdentifier(Local.Entities.NAMESPACE, statements.globalIdentifier());
-
-        statements.subjectStatements().forEach(statement -> {
-            builder.add(generatedIdentifier, statement.getPredicate(), statement.getObject());
-        });
-
-        statements.objectStatements().forEach(statement -> {
-            builder.add(statement.getSubject(), statement.getPredicate(), generatedIdentifier);
-        });
-
-        builder.add(generatedIdentifier, DC.IDENTIFIER, statements.globalIdentifier());
-        return entityStore.insert(builder.build(), statements.transaction())
-                .map(transaction -> statements);
-    }
-
-
     /**
-     * find all statements where the culprit is either subject or object
-     * @param value
-     * @return
+     * Replaces the identifiers of the given subjects within one transaction
      */
-    private Mono<StatementsBag> getOldStatements(Value value, Authentication authentication) {
-
-        if (value.isResource()) {
-            return Mono.zip(
-                    this.entityStore.listStatements((Resource) value, null, null, authentication),
-                            //.map(statements -> statements.stream().filter(statement -> !statement.getPredicate().equals(RDF.TYPE)).toList()),
-                    this.entityStore.listStatements(null, null, value, authentication)
-            ).map(pair -> new StatementsBag(pair.getT1(), pair.getT2(), (Resource) value, new Transaction()));
-        }
-        return Mono.empty();
-    }
+    private Mono<Transaction> replace(List<Resource> subjects, Authentication authentication) {
+        return this.entityStore.listStatements(subjects, authentication)
+                .flatMap(statements -> {
+                    // subjects removed in the meantime have no statements anymore
+                    if (statements.isEmpty()) return Mono.empty();
+
+                    Map<Resource, Resource> replacements = new HashMap<>();
+                    for (Resource subject : subjects) {
+                        replacements.put(subject, new GeneratedIdentifier(Local.Entities.NAMESPACE, subject));
+                    }
+
+                    ModelBuilder builder = new ModelBuilder();
+                    Set<Resource> replaced = new HashSet<>();
+                    for (Statement statement : statements) {
+                        Resource subject = replacements.getOrDefault(statement.getSubject(), statement.getSubject());
+                        Value object = statement.getObject().isResource() ? replacements.getOrDefault((Resource) statement.getObject(), (Resource) statement.getObject()) : statement.getObject();
+                        builder.add(subject, statement.getPredicate(), object);
 
-    private Flux<Value> findGlobalIdentifiers(Authentication authentication) {
-                /*
-        Variable id = SparqlBuilder.var("id");
-        Variable type = SparqlBuilder.var("type")
-        ;
-        Having regex = SparqlBuilder.having(Expressions.regex(id, Local.Entities.NAMESPACE, "i")).
-        //RdfObject type = Rdf.object(localEntity.type());
-        SelectQuery all = Queries.SELECT(id).where(id.isA(type)
-                        .filterNotExists(id.))
-                .all();
-         */
-
-
-        String tpl = """
-                SELECT DISTINCT ?a WHERE {
-                  ?a a ?c .
-                  FILTER NOT EXISTS {
-                    FILTER STRSTARTS(str(?a), "%s").
+                        if (replacements.containsKey(statement.getSubject())) replaced.add(statement.getSubject());
+                        if (replacements.containsKey(statement.getObject())) replaced.add((Resource) statement.getObject());
                     }
-                  } LIMIT 5000
-                """;
-        String query = String.format(tpl, Local.Entities.NAMESPACE);
-        return queryServices.queryValues(query, authentication)
-                .map(bindings -> bindings.getValue("a"));
-    }
+                    replaced.forEach(subject -> builder.add(replacements.get(subject), DC.IDENTIFIER, subject));
 
+                    log.trace("(Scheduled) Replacing {} identifiers, rewriting {} statements", replaced.size(), statements.size());
+                    Transaction transaction = new Transaction();
+                    return this.entityStore.insert(builder.build(), transaction)
+                            .flatMap(trx -> this.entityStore.delete(statements, trx));
+                })
+                .flatMapMany(transaction -> this.entityStore.commit(List.of(transaction), authentication))
+                .next();
+    }
 
-    private record StatementsBag(List<Statement> subjectStatements, List<Statement> objectStatements,
-                                 Resource globalIdentifier, Transaction transaction) {
+    private Flux<Transaction> storeTransactions(Collection<Transaction> transactions, Authentication authentication) {
+        this.provenance.submit(transactions, authentication);
+        return Flux.fromIterable(transactions);
     }
 }
 
@@ -1,21 +1,81 @@
 package com.bechtle.cougar.graph.repository;
 
 import com.bechtle.cougar.graph.repository.behaviours.*;
+import com.bechtle.cougar.graph.domain.model.extensions.CompactionResult;
+import com.bechtle.cougar.graph.domain.model.extensions.DuplicateLabels;
+import com.bechtle.cougar.graph.domain.model.extensions.ForeignIdentifiers;
 import com.bechtle.cougar.graph.domain.model.extensions.NamespaceAwareStatement;
+import com.bechtle.cougar.graph.domain.model.extensions.TypedLabel;
 import com.bechtle.cougar.graph.domain.model.wrapper.Entity;
 import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
 import org.eclipse.rdf4j.model.*;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 public interface EntityStore extends Searchable, Resettable, ModelUpdates, Selectable, Statements {
 
     Mono<Entity> getEntity(IRI id, Authentication authentication);
 
+    Mono<Entity> getEntities(Collection<IRI> ids, Authentication authentication);
+
+    /**
+     * Lists the identifiers of the entities with one of the given types, ordered by identifier and starting after the given entity (keyset pagination).
+     */
+    Mono<List<IRI>> listEntities(Collection<IRI> types, @Nullable IRI after, int limit, Authentication authentication);
+
+    /**
+     * Finds the entities with the given types and (normalized) labels, keys without entities are not in the result.
+     */
+    Mono<Map<TypedLabel, Set<IRI>>> findByLabels(Collection<TypedLabel> keys, Authentication authentication);
+
+    /**
+     * Lists the types and labels shared by more than one entity, among the ones changed since the last acknowledged watermark
+     */
+    Mono<DuplicateLabels> findChangedDuplicateLabels(Authentication authentication);
+
+    /**
+     * Confirms that all changes up to the watermark were handled, they are not reported again
+     */
+    Mono<Void> acknowledgeDuplicateLabels(long watermark, Authentication authentication);
+
+    /**
+     * Lists the typed subjects with identifiers outside of the local entity namespace, without scanning the graph
+     */
+    Mono<ForeignIdentifiers> findForeignIdentifiers(Authentication authentication);
+
+    /**
+     * Confirms that the subjects were replaced, they are not reported again (unless inserted after the watermark)
+     */
+    Mono<Void> acknowledgeForeignIdentifiers(Collection<Resource> subjects, long watermark, Authentication authentication);
+
+    /**
+     * Lists all statements with one of the given resources as subject or object, read from one snapshot
+     */
+    Mono<List<Statement>> listStatements(Collection<Resource> resources, Authentication authentication);
+
+    /**
+     * Returns a counter of the changes in the entity graph, empty if changes cannot be observed
+     */
+    Mono<Long> getVersion(Authentication authentication);
+
+    /**
+     * Rebuilds the secondary indexes (e.g. after manual changes in the storage)
+     */
+    Mono<Void> rebuildIndexes(Authentication authentication);
+
+    /**
+     * Compacts the storage of the entity graph while it remains available, empty if the graph is not persistent
+     */
+    Mono<CompactionResult> compact(Authentication authentication);
+
 
 
 
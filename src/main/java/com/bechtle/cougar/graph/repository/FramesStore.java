@@ -0,0 +1,22 @@
+package com.bechtle.cougar.graph.repository;
+
+import com.bechtle.cougar.graph.repository.behaviours.ModelUpdates;
+import com.bechtle.cougar.graph.repository.behaviours.Searchable;
+import com.bechtle.cougar.graph.repository.behaviours.Statements;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+
+public interface FramesStore extends Searchable, ModelUpdates, Statements {
+
+    /**
+     * Replaces all statements of the given subject with the statements in the model (without transaction context)
+     */
+    Mono<Void> replace(Resource subject, Model model, Authentication authentication);
+
+    /**
+     * Removes all statements of the given subject (without transaction context)
+     */
+    Mono<Void> remove(Resource subject, Authentication authentication);
+}
@@ -1,9 +1,65 @@
 package com.bechtle.cougar.graph.repository;
 
+import com.bechtle.cougar.graph.domain.model.errors.UnknownPrefix;
+import com.bechtle.cougar.graph.domain.model.extensions.LocalIRI;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.util.Values;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface SchemaStore {
     Optional<Namespace> getNamespaceFor(String prefix);
+
+    /**
+     * Returns the given type and all its (transitive) subclasses
+     */
+    Mono<Set<IRI>> getSubClasses(IRI type, Authentication authentication);
+
+    /**
+     * Returns the given type and all its (transitive) superclasses
+     */
+    Mono<Set<IRI>> getSuperClasses(IRI type, Authentication authentication);
+
+    /**
+     * Checks whether the given type is (transitively) a subclass of the other type, or the same type
+     */
+    Mono<Boolean> isSubClassOf(IRI type, IRI superType, Authentication authentication);
+
+    /**
+     * Returns the given property and all its (transitive) subproperties
+     */
+    Mono<Set<IRI>> getSubProperties(IRI property, Authentication authentication);
+
+    /**
+     * Returns the given property and all its (transitive) superproperties
+     */
+    Mono<Set<IRI>> getSuperProperties(IRI property, Authentication authentication);
+
+    /**
+     * Validates the given statements (and only these) against the SHACL shapes of the schema
+     *
+     * @return the violations for each focus node, empty if the statements conform
+     */
+    Mono<Map<Resource, List<String>>> validate(Model statements, Authentication authentication);
+
+    /**
+     * Resolves a name given either with prefix (e.g. sdo:VideoObject) or fully qualified
+     */
+    default IRI resolvePrefixedName(String name) {
+        if (name.contains("://")) return Values.iri(name);
+
+        String[] parts = name.split(":", 2);
+        if (parts.length != 2) throw new IllegalArgumentException("Name must be either prefixed or fully qualified: " + name);
+
+        String namespace = this.getNamespaceFor(parts[0]).orElseThrow(() -> new UnknownPrefix(parts[0])).getName();
+        return LocalIRI.withDefinedNamespace(namespace, parts[1]);
+    }
 }
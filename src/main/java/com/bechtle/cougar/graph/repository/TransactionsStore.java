@@ -1,10 +1,17 @@
 package com.bechtle.cougar.graph.repository;
 
+import com.bechtle.cougar.graph.domain.model.errors.HistoryNotRetained;
+import com.bechtle.cougar.graph.domain.model.errors.HistoryNotSupported;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
 import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.Collection;
 
 public interface TransactionsStore {
@@ -12,4 +19,39 @@ public interface TransactionsStore {
     Mono<Transaction> store(Transaction transaction, Authentication authentication);
 
     Flux<Transaction> store(Collection<Transaction> transaction, Authentication authentication);
+
+    /**
+     * Stores the models of committed transactions within one transaction of the repository (group commit)
+     */
+    Mono<Void> append(Collection<Model> transactions, Authentication authentication);
+
+    /**
+     * Reads the statements of the transaction with the given identifier, empty if it is unknown
+     */
+    Mono<Model> read(IRI identifier, Authentication authentication);
+
+    /**
+     * Reads the complete models (including the changes) of all transactions at or after the given time, in the order
+     * they were stored (which is not necessarily the order of their commit). Fails with {@link HistoryNotSupported}, if
+     * the store cannot separate the changes of the transactions, and with {@link HistoryNotRetained}, if transactions of
+     * this time have already been deleted.
+     */
+    Flux<Model> readSince(Instant since, Authentication authentication);
+
+    /**
+     * Reads the complete models of the transactions which changed statements of the subject, at or after the given
+     * time and before the end (all later ones if null), in the order of their commit. Fails as {@link #readSince}.
+     */
+    Flux<Model> readChanges(IRI subject, Instant since, @Nullable Instant until, Authentication authentication);
+
+    /**
+     * Reads the earliest snapshot of the subject at or after the given time, empty if there is none. Fails with
+     * {@link HistoryNotSupported}, if the store cannot keep snapshots.
+     */
+    Mono<EntitySnapshot> readSnapshot(IRI subject, Instant at, Authentication authentication);
+
+    /**
+     * Stores the snapshots, snapshots already stored are skipped
+     */
+    Mono<Void> storeSnapshots(Collection<EntitySnapshot> snapshots, Authentication authentication);
 }
@@ -75,6 +75,12 @@ public interface RepositoryBehaviour {
 
     Flux<Transaction> commit(Collection<Transaction> transactions, Authentication authentication);
 
+    /**
+     * Commits all given transactions within one transaction of the repository, either all of them are applied or
+     * none. Fails (with all transactions marked as failed), if the combined transaction cannot be committed.
+     */
+    Flux<Transaction> commitAtomically(Collection<Transaction> transactions, Authentication authentication);
+
     default Mono<Transaction> commit(Transaction transaction, Authentication authentication) {
         return this.commit(List.of(transaction), authentication).singleOrEmpty();
     }
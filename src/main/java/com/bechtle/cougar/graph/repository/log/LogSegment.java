@@ -0,0 +1,309 @@
+package com.bechtle.cougar.graph.repository.log;
+
+import com.google.common.hash.Hashing;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * One file of the transaction log. Records are appended to the active segment through a memory-mapped buffer of the
+ * segment size; once full, the segment is sealed and only read through its channel.
+ * <p>
+ * A record is encoded as: length (int, of the following fields without the checksum), timestamp (long, ms), kind
+ * (byte, a transaction or a snapshot of a subject), identifier (short length and UTF-8 bytes), the subjects it changed
+ * (int count and 64-bit hashes), the statements (binary RDF) and the CRC32 checksum of these fields. A length of 0
+ * marks the end of the segment. A record with an invalid checksum (e.g. after a crash while writing)
+ * also ends the segment, it is overwritten with the next append.
+ */
+class LogSegment {
+
+    static final String SUFFIX = ".log";
+
+    static final byte TRANSACTION = 0;
+    static final byte SNAPSHOT = 1;
+
+    private static final int HEADER = Integer.BYTES;
+    private static final int CHECKSUM = Integer.BYTES;
+
+    private final long number;
+    private final Path file;
+    private final FileChannel channel;
+    private final int indexInterval;
+
+    @Nullable
+    private MappedByteBuffer mapped;
+    private int position;
+    private int records;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    // sparse: the highest timestamp of the records before every n-th record, with its offset. The timestamps never
+    // decrease with the offset, for equal timestamps the latest offset is kept
+    private final TreeMap<Long, Integer> timestamps = new TreeMap<>();
+
+    // identifiers (as 64-bit hashes) of the records, a map while active and sorted arrays once sealed
+    @Nullable
+    private Map<Long, Integer> activeIdentifiers = new HashMap<>();
+    private long[] identifierHashes = new long[0];
+    private int[] identifierOffsets = new int[0];
+
+    // offsets of the transactions per changed subject (hash), in the order they were appended
+    private final Map<Long, List<Integer>> changes = new HashMap<>();
+    // offsets of the snapshots per subject (hash), by their timestamp
+    private final Map<Long, TreeMap<Long, Integer>> snapshots = new HashMap<>();
+
+    private LogSegment(long number, Path file, FileChannel channel, int indexInterval) {
+        this.number = number;
+        this.file = file;
+        this.channel = channel;
+        this.indexInterval = Math.max(1, indexInterval);
+    }
+
+    /**
+     * Opens an existing segment and indexes its records
+     */
+    static LogSegment open(Path file, int indexInterval) throws IOException {
+        String name = file.getFileName().toString();
+        long number = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+
+        LogSegment segment = new LogSegment(number, file, FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE), indexInterval);
+        segment.scan();
+        return segment;
+    }
+
+    static LogSegment create(Path folder, long number, int size, int indexInterval) throws IOException {
+        Path file = folder.resolve(String.format("%020d%s", number, SUFFIX));
+        LogSegment segment = new LogSegment(number, file, FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE), indexInterval);
+        segment.activate(size);
+        return segment;
+    }
+
+    /**
+     * Maps the segment for appending, starting after the last valid record
+     */
+    void activate(int size) throws IOException {
+        this.mapped = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, this.channel.size()));
+        if (this.activeIdentifiers == null) {
+            this.activeIdentifiers = new HashMap<>();
+            for (int i = 0; i < this.identifierHashes.length; i++) this.activeIdentifiers.put(this.identifierHashes[i], this.identifierOffsets[i]);
+        }
+    }
+
+    /**
+     * @return false, if the record doesn't fit into the remaining space
+     */
+    boolean append(String identifier, long timestamp, byte kind, long[] subjects, byte[] statements) {
+        byte[] id = identifier.getBytes(StandardCharsets.UTF_8);
+        int length = Long.BYTES + Byte.BYTES + Short.BYTES + id.length + Integer.BYTES + subjects.length * Long.BYTES + statements.length;
+        if (this.mapped == null || this.position + HEADER + length + CHECKSUM + HEADER > this.mapped.capacity()) return false;
+
+        int offset = this.position;
+        ByteBuffer record = this.mapped.duplicate().position(offset);
+        record.putInt(length);
+        int start = record.position();
+        record.putLong(timestamp).put(kind).putShort((short) id.length).put(id).putInt(subjects.length);
+        for (long subject : subjects) record.putLong(subject);
+        record.put(statements);
+
+        CRC32 crc = new CRC32();
+        crc.update(this.mapped.duplicate().position(start).limit(start + length));
+        record.putInt((int) crc.getValue());
+        // end marker, a record left over from an interrupted append is never read
+        record.putInt(0);
+
+        this.position = offset + HEADER + length + CHECKSUM;
+        this.index(offset, identifier, timestamp, kind, subjects);
+        return true;
+    }
+
+    /**
+     * Writes the appended records to disk
+     */
+    void force() {
+        if (this.mapped != null) this.mapped.force();
+    }
+
+    /**
+     * Stops appending, the identifiers are kept in sorted arrays from now on
+     */
+    void seal() {
+        this.force();
+        this.mapped = null;
+
+        Map<Long, Integer> identifiers = this.activeIdentifiers;
+        this.activeIdentifiers = null;
+        if (identifiers == null) return;
+
+        long[] hashes = identifiers.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        int[] offsets = new int[hashes.length];
+        for (int i = 0; i < hashes.length; i++) offsets[i] = identifiers.get(hashes[i]);
+        this.identifierHashes = hashes;
+        this.identifierOffsets = offsets;
+    }
+
+    /**
+     * @return the offset of the record with the given identifier (hash), or -1
+     */
+    int find(long identifierHash) {
+        if (this.activeIdentifiers != null) return this.activeIdentifiers.getOrDefault(identifierHash, -1);
+
+        int index = Arrays.binarySearch(this.identifierHashes, identifierHash);
+        return index >= 0 ? this.identifierOffsets[index] : -1;
+    }
+
+    /**
+     * @return the offsets of the transactions which changed the subject (hash), in the order they were appended
+     */
+    List<Integer> findChanges(long subjectHash) {
+        return this.changes.getOrDefault(subjectHash, List.of());
+    }
+
+    /**
+     * @return the offsets of the snapshots of the subject (hash) at or after the timestamp, by their timestamp
+     */
+    NavigableMap<Long, Integer> findSnapshots(long subjectHash, long timestamp) {
+        TreeMap<Long, Integer> snapshots = this.snapshots.get(subjectHash);
+        return snapshots != null ? snapshots.tailMap(timestamp, true) : Collections.emptyNavigableMap();
+    }
+
+    /**
+     * @return the offset from which all records at or after the timestamp are found
+     */
+    int seek(long timestamp) {
+        // the last index entry with only earlier records before it
+        Map.Entry<Long, Integer> entry = this.timestamps.lowerEntry(timestamp);
+        return entry != null ? entry.getValue() : 0;
+    }
+
+    @Nullable
+    LogRecord read(int offset) throws IOException {
+        if (offset + HEADER > this.position) return null;
+
+        ByteBuffer header = this.read(offset, HEADER);
+        int length = header.getInt();
+        if (length <= 0 || offset + HEADER + length + CHECKSUM > this.position) return null;
+
+        ByteBuffer body = this.read(offset + HEADER, length + CHECKSUM);
+        long timestamp = body.getLong();
+        byte kind = body.get();
+        byte[] id = new byte[body.getShort()];
+        body.get(id);
+        int subjects = body.getInt();
+        body.position(body.position() + subjects * Long.BYTES);
+        byte[] statements = new byte[length - body.position()];
+        body.get(statements);
+        return new LogRecord(new String(id, StandardCharsets.UTF_8), timestamp, kind, statements, offset + HEADER + length + CHECKSUM);
+    }
+
+    long getNumber() {
+        return this.number;
+    }
+
+    long getMaxTimestamp() {
+        return this.maxTimestamp;
+    }
+
+    int getRecords() {
+        return this.records;
+    }
+
+    boolean isEmpty() {
+        return this.records == 0;
+    }
+
+    void close() throws IOException {
+        this.force();
+        this.channel.close();
+    }
+
+    void delete() throws IOException {
+        this.channel.close();
+        Files.deleteIfExists(this.file);
+    }
+
+    private void index(int offset, String identifier, long timestamp, byte kind, long[] subjects) {
+        if (this.records % this.indexInterval == 0) this.timestamps.put(this.maxTimestamp, offset);
+        if (kind == SNAPSHOT) {
+            for (long subject : subjects) this.snapshots.computeIfAbsent(subject, key -> new TreeMap<>()).put(timestamp, offset);
+        } else {
+            if (this.activeIdentifiers != null) this.activeIdentifiers.put(hash(identifier), offset);
+            for (long subject : subjects) this.changes.computeIfAbsent(subject, key -> new ArrayList<>()).add(offset);
+        }
+        this.maxTimestamp = Math.max(this.maxTimestamp, timestamp);
+        this.records++;
+    }
+
+    /**
+     * Reads and indexes the valid records, the segment is sealed afterwards
+     */
+    private void scan() throws IOException {
+        long size = this.channel.size();
+        int offset = 0;
+        CRC32 crc = new CRC32();
+        while (offset + HEADER <= size) {
+            int length = this.channelRead(offset, HEADER).getInt();
+            if (length <= 0 || offset + HEADER + length + CHECKSUM > size) break;
+
+            ByteBuffer body = this.channelRead(offset + HEADER, length + CHECKSUM);
+            crc.reset();
+            crc.update(body.duplicate().limit(length));
+            if ((int) crc.getValue() != body.getInt(length)) break;
+
+            long timestamp = body.getLong();
+            byte kind = body.get();
+            byte[] id = new byte[body.getShort()];
+            body.get(id);
+            long[] subjects = new long[body.getInt()];
+            for (int i = 0; i < subjects.length; i++) subjects[i] = body.getLong();
+            this.index(offset, new String(id, StandardCharsets.UTF_8), timestamp, kind, subjects);
+            offset += HEADER + length + CHECKSUM;
+        }
+        this.position = offset;
+        this.seal();
+    }
+
+    private ByteBuffer read(int offset, int length) throws IOException {
+        if (this.mapped != null) return this.mapped.slice(offset, length);
+        return this.channelRead(offset, length);
+    }
+
+    private ByteBuffer channelRead(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, offset + buffer.position()) < 0) break;
+        }
+        return buffer.flip();
+    }
+
+    static long hash(String identifier) {
+        return Hashing.murmur3_128().hashString(identifier, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * A record read from the log
+     *
+     * @param identifier the transaction, or the subject of a snapshot
+     * @param next       the offset of the following record
+     */
+    record LogRecord(String identifier, long timestamp, byte kind, byte[] statements, int next) {
+
+        boolean isSnapshot() {
+            return this.kind == SNAPSHOT;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.bechtle.cougar.graph.repository.log;
+
+import com.bechtle.cougar.graph.domain.model.errors.HistoryNotRetained;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.springframework.lang.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The append-only log of the transactions of one tenant, as an alternative to storing them as quads in a repository
+ * (which costs several index writes per statement, while the transactions are rarely read).
+ * <p>
+ * The log consists of segments of a fixed size (see {@link LogSegment}), a new segment is started once the active
+ * one is full. Every record holds the complete model of one transaction in binary RDF, keyed by the identifier and
+ * the time of the transaction. Transactions are found by identifier through a hash index per segment, by time
+ * through a sparse index per segment, and by the subjects they changed through an index per segment. Snapshots of
+ * single subjects (see {@link EntitySnapshot}) are appended as records of their own and indexed by subject and time. Sealed segments whose transactions are all older than the retention are
+ * deleted, the time of the newest deleted transaction is kept as horizon: the log cannot answer reads at or before it.
+ */
+@Slf4j(topic = "cougar.graph.repository.log")
+public class TransactionLog implements AutoCloseable {
+
+    private static final String HORIZON = "horizon";
+
+    private final Path folder;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final Duration retention;
+
+    private final List<LogSegment> segments = new ArrayList<>();
+    private LogSegment active;
+    private long horizon;
+
+    /**
+     * @param segmentSize   size (in bytes) of a segment
+     * @param indexInterval number of records between two entries of the sparse time index
+     * @param retention     segments with only older transactions are deleted, zero keeps all segments
+     */
+    public TransactionLog(Path folder, int segmentSize, int indexInterval, Duration retention) throws IOException {
+        this.folder = Files.createDirectories(folder);
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+        this.retention = retention;
+        this.horizon = this.readHorizon();
+
+        try (Stream<Path> files = Files.list(this.folder)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(LogSegment.SUFFIX)).sorted().toList()) {
+                this.segments.add(LogSegment.open(file, indexInterval));
+            }
+        }
+
+        if (this.segments.isEmpty()) {
+            this.active = LogSegment.create(this.folder, 1, this.segmentSize, this.indexInterval);
+            this.segments.add(this.active);
+        } else {
+            this.active = this.segments.get(this.segments.size() - 1);
+            this.active.activate(this.segmentSize);
+        }
+        log.debug("(Store) Opened transaction log in '{}' with {} segments", this.folder, this.segments.size());
+        this.retain();
+    }
+
+    /**
+     * Appends the models of the transactions and writes them to disk (once for all). Transactions already in the log
+     * (e.g. replayed after a failed write) are skipped.
+     */
+    public synchronized void append(Collection<Model> transactions) throws IOException {
+        for (Model transaction : transactions) {
+            IRI identifier = identifierOf(transaction);
+            if (identifier == null) {
+                log.warn("(Store) Skipping model without transaction in log '{}'", this.folder);
+                continue;
+            }
+            if (this.find(identifier) != null) {
+                log.trace("(Store) Skipping transaction '{}' already in log '{}'", identifier, this.folder);
+                continue;
+            }
+
+            this.append(identifier.stringValue(), timestampOf(transaction, identifier), LogSegment.TRANSACTION, subjectsOf(transaction), transaction);
+        }
+        this.active.force();
+    }
+
+    /**
+     * Appends the snapshots and writes them to disk. Snapshots already in the log, or of times before the horizon,
+     * are skipped.
+     */
+    public synchronized void appendSnapshots(Collection<EntitySnapshot> snapshots) throws IOException {
+        for (EntitySnapshot snapshot : snapshots) {
+            long timestamp = snapshot.at().toEpochMilli();
+            if (timestamp <= this.horizon) continue;
+            if (this.readSnapshot(snapshot.subject(), snapshot.at()).filter(existing -> existing.at().equals(snapshot.at())).isPresent()) continue;
+
+            Model statements = new LinkedHashModel();
+            snapshot.statements().forEach(statement -> statements.add(statement.getSubject(), statement.getPredicate(), statement.getObject()));
+            this.append(snapshot.subject().stringValue(), timestamp, LogSegment.SNAPSHOT, new long[]{LogSegment.hash(snapshot.subject().stringValue())}, statements);
+        }
+        this.active.force();
+    }
+
+    /**
+     * @return the model of the transaction with the given identifier
+     */
+    public synchronized Optional<Model> read(IRI identifier) throws IOException {
+        LogSegment.LogRecord record = this.find(identifier);
+        return record != null ? Optional.of(parse(record)) : Optional.empty();
+    }
+
+    /**
+     * @return the models of all transactions at or after the given time, in the order they were appended
+     * @throws HistoryNotRetained if transactions at or after the given time have already been deleted
+     */
+    public synchronized List<Model> readSince(Instant since) throws IOException {
+        long timestamp = since.toEpochMilli();
+        if (timestamp <= this.horizon) throw new HistoryNotRetained(since, Instant.ofEpochMilli(this.horizon));
+
+        List<Model> result = new ArrayList<>();
+        for (LogSegment segment : this.segments) {
+            if (segment.isEmpty() || segment.getMaxTimestamp() < timestamp) continue;
+
+            LogSegment.LogRecord record = segment.read(segment.seek(timestamp));
+            while (record != null) {
+                if (record.timestamp() >= timestamp && !record.isSnapshot()) result.add(parse(record));
+                record = segment.read(record.next());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param until the end of the period (exclusive), null for all later transactions
+     * @return the models of the transactions which changed statements of the subject, at or after the given time and
+     * before the end, in the order of their time
+     * @throws HistoryNotRetained if transactions at or after the given time have already been deleted
+     */
+    public synchronized List<Model> readChanges(IRI subject, Instant since, @Nullable Instant until) throws IOException {
+        long start = since.toEpochMilli();
+        long end = until != null ? until.toEpochMilli() : Long.MAX_VALUE;
+        if (start >= end) return List.of();
+        if (start <= this.horizon) throw new HistoryNotRetained(since, Instant.ofEpochMilli(this.horizon));
+
+        long hash = LogSegment.hash(subject.stringValue());
+        List<LogSegment.LogRecord> records = new ArrayList<>();
+        for (LogSegment segment : this.segments) {
+            if (segment.isEmpty() || segment.getMaxTimestamp() < start) continue;
+
+            for (int offset : segment.findChanges(hash)) {
+                LogSegment.LogRecord record = segment.read(offset);
+                if (record != null && record.timestamp() >= start && record.timestamp() < end) records.add(record);
+            }
+        }
+        records.sort(Comparator.comparingLong(LogSegment.LogRecord::timestamp));
+
+        List<Model> result = new ArrayList<>(records.size());
+        for (LogSegment.LogRecord record : records) {
+            Model transaction = parse(record);
+            // the subjects are indexed by their hash
+            if (transaction.contains(subject, null, null, Transactions.GRAPH_CREATED) || transaction.contains(subject, null, null, Transactions.GRAPH_DELETED)) {
+                result.add(transaction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the earliest snapshot of the subject at or after the given time
+     */
+    public synchronized Optional<EntitySnapshot> readSnapshot(IRI subject, Instant at) throws IOException {
+        long hash = LogSegment.hash(subject.stringValue());
+        LogSegment.LogRecord earliest = null;
+        for (LogSegment segment : this.segments) {
+            for (Map.Entry<Long, Integer> snapshot : segment.findSnapshots(hash, at.toEpochMilli()).entrySet()) {
+                if (earliest != null && snapshot.getKey() >= earliest.timestamp()) break;
+
+                // the subjects are indexed by their hash
+                LogSegment.LogRecord record = segment.read(snapshot.getValue());
+                if (record != null && record.identifier().equals(subject.stringValue())) {
+                    earliest = record;
+                    break;
+                }
+            }
+        }
+        return earliest != null ? Optional.of(new EntitySnapshot(subject, Instant.ofEpochMilli(earliest.timestamp()), parse(earliest))) : Optional.empty();
+    }
+
+    /**
+     * Deletes the sealed segments with only transactions older than the retention
+     */
+    public synchronized void retain() throws IOException {
+        if (this.retention.isZero() || this.retention.isNegative()) return;
+
+        long threshold = Instant.now().minus(this.retention).toEpochMilli();
+        List<LogSegment> expired = this.segments.stream()
+                .filter(segment -> segment != this.active && segment.getMaxTimestamp() < threshold)
+                .toList();
+        if (expired.isEmpty()) return;
+
+        // the horizon is written first, a crash in between leaves segments which are no longer read
+        this.writeHorizon(expired.stream().mapToLong(LogSegment::getMaxTimestamp).max().orElseThrow());
+        for (LogSegment segment : expired) {
+            segment.delete();
+            this.segments.remove(segment);
+        }
+        log.debug("(Store) Deleted {} expired segments of transaction log '{}', the history starts after {}", expired.size(), this.folder, Instant.ofEpochMilli(this.horizon));
+    }
+
+    /**
+     * @return the time of the newest deleted transaction, if any
+     */
+    public synchronized Optional<Instant> getHorizon() {
+        return this.horizon >= 0 ? Optional.of(Instant.ofEpochMilli(this.horizon)) : Optional.empty();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (LogSegment segment : this.segments) segment.close();
+    }
+
+    @Nullable
+    private LogSegment.LogRecord find(IRI identifier) throws IOException {
+        long hash = LogSegment.hash(identifier.stringValue());
+        for (int i = this.segments.size() - 1; i >= 0; i--) {
+            LogSegment segment = this.segments.get(i);
+            int offset = segment.find(hash);
+            if (offset < 0) continue;
+
+            LogSegment.LogRecord record = segment.read(offset);
+            if (record != null && record.identifier().equals(identifier.stringValue())) return record;
+        }
+        return null;
+    }
+
+    private void append(String identifier, long timestamp, byte kind, long[] subjects, Model statements) throws IOException {
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        Rio.write(statements, serialized, RDFFormat.BINARY);
+
+        if (!this.active.append(identifier, timestamp, kind, subjects, serialized.toByteArray())) {
+            this.roll(serialized.size() + subjects.length * Long.BYTES);
+            if (!this.active.append(identifier, timestamp, kind, subjects, serialized.toByteArray())) {
+                throw new IOException("Record '" + identifier + "' exceeds the size of a new segment");
+            }
+        }
+    }
+
+    private long readHorizon() throws IOException {
+        Path file = this.folder.resolve(HORIZON);
+        return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : -1;
+    }
+
+    private void writeHorizon(long timestamp) throws IOException {
+        this.horizon = Math.max(this.horizon, timestamp);
+        Path temp = this.folder.resolve(HORIZON + ".tmp");
+        Files.writeString(temp, Long.toString(this.horizon));
+        Files.move(temp, this.folder.resolve(HORIZON), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void roll(int required) throws IOException {
+        this.active.seal();
+        // a transaction larger than a segment gets a segment of its own
+        this.active = LogSegment.create(this.folder, this.active.getNumber() + 1, Math.max(this.segmentSize, required + 1024), this.indexInterval);
+        this.segments.add(this.active);
+        log.debug("(Store) Started segment {} of transaction log '{}'", this.active.getNumber(), this.folder);
+        this.retain();
+    }
+
+    private static Model parse(LogSegment.LogRecord record) throws IOException {
+        return Rio.parse(new ByteArrayInputStream(record.statements()), RDFFormat.BINARY);
+    }
+
+    /**
+     * @return the hashes of the subjects with created or deleted statements
+     */
+    private static long[] subjectsOf(Model transaction) {
+        return Stream.concat(transaction.filter(null, null, null, Transactions.GRAPH_CREATED).subjects().stream(),
+                        transaction.filter(null, null, null, Transactions.GRAPH_DELETED).subjects().stream())
+                .filter(Resource::isIRI)
+                .map(Resource::stringValue)
+                .distinct()
+                .mapToLong(LogSegment::hash)
+                .toArray();
+    }
+
+    @Nullable
+    private static IRI identifierOf(Model transaction) {
+        return transaction.filter(null, RDF.TYPE, Transactions.TRANSACTION).stream()
+                .map(Statement::getSubject)
+                .filter(Resource::isIRI)
+                .map(IRI.class::cast)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static long timestampOf(Model transaction, IRI identifier) {
+        return transaction.filter(identifier, Transactions.AT, null).stream()
+                .map(Statement::getObject)
+                .filter(Literal.class::isInstance)
+                .map(value -> {
+                    try {
+                        return ((Literal) value).calendarValue().toGregorianCalendar().getTimeInMillis();
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElseGet(System::currentTimeMillis);
+    }
+}
@@ -0,0 +1,148 @@
+package com.bechtle.cougar.graph.repository.log;
+
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.bechtle.cougar.graph.repository.TransactionsStore;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the transactions in an append-only log per tenant (see {@link TransactionLog}), enabled with
+ * application.storage.transactions.backend=log. The logs are kept in the transactions storage path (or a temporary
+ * folder, if none is configured). The statements of a transaction are only parsed again when it is read.
+ */
+@Slf4j(topic = "cougar.graph.repository.log")
+@Component
+@ConditionalOnProperty(name = "application.storage.transactions.backend", havingValue = "log")
+public class TransactionLogStore implements TransactionsStore {
+
+    private final Path basePath;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final Duration retention;
+    private final Map<String, TransactionLog> logs = new ConcurrentHashMap<>();
+
+    public TransactionLogStore(@org.springframework.beans.factory.annotation.Value("${application.storage.transactions.path:#{null}}") String transactionsPath,
+                               @org.springframework.beans.factory.annotation.Value("${application.storage.transactions.log.segment-size:67108864}") int segmentSize,
+                               @org.springframework.beans.factory.annotation.Value("${application.storage.transactions.log.index-interval:64}") int indexInterval,
+                               @org.springframework.beans.factory.annotation.Value("${application.storage.transactions.log.retention-days:0}") int retentionDays) throws IOException {
+        if (StringUtils.hasLength(transactionsPath)) {
+            this.basePath = Paths.get(transactionsPath);
+        } else {
+            this.basePath = Files.createTempDirectory("transactions");
+            log.warn("(Store) No path configured for the transaction logs, using the temporary folder '{}'", this.basePath);
+        }
+        this.segmentSize = segmentSize;
+        this.indexInterval = indexInterval;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    @Override
+    public Mono<Transaction> store(Transaction transaction, Authentication authentication) {
+        return this.store(List.of(transaction), authentication).singleOrEmpty();
+    }
+
+    @Override
+    public Flux<Transaction> store(Collection<Transaction> transactions, Authentication authentication) {
+        return this.append(transactions.stream().map(Transaction::getModel).toList(), authentication)
+                .thenMany(Flux.fromIterable(transactions));
+    }
+
+    @Override
+    public Mono<Void> append(Collection<Model> transactions, Authentication authentication) {
+        return Mono.fromCallable(() -> {
+            this.getLog(authentication).append(transactions);
+            return transactions.size();
+        }).then();
+    }
+
+    @Override
+    public Mono<Model> read(IRI identifier, Authentication authentication) {
+        return Mono.fromCallable(() -> this.getLog(authentication).read(identifier).orElse(null));
+    }
+
+    @Override
+    public Flux<Model> readSince(Instant since, Authentication authentication) {
+        return Mono.fromCallable(() -> this.getLog(authentication).readSince(since))
+                .flatMapIterable(models -> models);
+    }
+
+    @Override
+    public Flux<Model> readChanges(IRI subject, Instant since, @Nullable Instant until, Authentication authentication) {
+        return Mono.fromCallable(() -> this.getLog(authentication).readChanges(subject, since, until))
+                .flatMapIterable(models -> models);
+    }
+
+    @Override
+    public Mono<EntitySnapshot> readSnapshot(IRI subject, Instant at, Authentication authentication) {
+        return Mono.fromCallable(() -> this.getLog(authentication).readSnapshot(subject, at).orElse(null));
+    }
+
+    @Override
+    public Mono<Void> storeSnapshots(Collection<EntitySnapshot> snapshots, Authentication authentication) {
+        return Mono.fromCallable(() -> {
+            this.getLog(authentication).appendSnapshots(snapshots);
+            return snapshots.size();
+        }).then();
+    }
+
+    /**
+     * Deletes the expired segments of all logs
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void retain() {
+        this.logs.forEach((tenant, transactionLog) -> {
+            try {
+                transactionLog.retain();
+            } catch (IOException e) {
+                log.warn("(Store) Failed to delete the expired segments of the transaction log of tenant '{}', reason: {}", tenant, e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        this.logs.forEach((tenant, transactionLog) -> {
+            try {
+                transactionLog.close();
+            } catch (IOException e) {
+                log.warn("(Store) Failed to close the transaction log of tenant '{}', reason: {}", tenant, e.getMessage());
+            }
+        });
+        this.logs.clear();
+    }
+
+    private TransactionLog getLog(Authentication authentication) {
+        String tenant = Tenants.keyOf(authentication);
+        return this.logs.computeIfAbsent(tenant, key -> {
+            try {
+                return new TransactionLog(this.basePath.resolve(key).resolve("transactions").resolve("log"), this.segmentSize, this.indexInterval, this.retention);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
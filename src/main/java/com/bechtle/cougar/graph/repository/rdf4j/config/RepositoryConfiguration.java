@@ -55,7 +55,8 @@ public class RepositoryConfiguration {
         ENTITIES,
         SCHEMA,
         TRANSACTIONS,
-        APPLICATION
+        APPLICATION,
+        FRAMES
     }
 
     public RepositoryConfiguration(@Value("${application.storage.entities.path:#{null}}") String entitiesPath,
@@ -108,6 +109,7 @@ public class RepositoryConfiguration {
             case ENTITIES ->  this.getEntityRepository(authentication.getSubscription());
             case TRANSACTIONS -> this.getTransactionsRepository(authentication.getSubscription());
             case SCHEMA ->  this.getSchemaRepository(authentication.getSubscription());
+            case FRAMES -> this.getFramesRepository(authentication.getSubscription());
             default -> throw new IOException(String.format("Invalid Repository Type '%s' for subscription context", repositoryType));
         };
     }
@@ -123,6 +125,7 @@ public class RepositoryConfiguration {
                 case TRANSACTIONS -> this.getTransactionsRepository(subscription);
                 case APPLICATION -> this.getApplicationRepository(subscription);
                 case SCHEMA -> this.getSchemaRepository(subscription);
+                case FRAMES -> this.getFramesRepository(subscription);
             };
 
         } else {
@@ -190,6 +193,14 @@ public class RepositoryConfiguration {
         return this.cache.get(key, s -> new LabeledRepository(key, this.buildApplicationsRepository(subscription, "transactions", this.transactionsPath)));
     }
 
+    /**
+     * Frames (named JSON-LD templates) are stored next to the entities of the subscription.
+     */
+    public Repository getFramesRepository(Application subscription) throws IOException {
+        String key = "frames:" + subscription.key();
+        return this.cache.get(key, s -> new LabeledRepository(key, this.buildApplicationsRepository(subscription, "frames", this.entitiesPath)));
+    }
+
 
     public Repository buildDefaultRepository(Application subscription, String basePath, String label)  {
         if(!StringUtils.hasLength(basePath)) {
@@ -5,6 +5,8 @@ import org.eclipse.rdf4j.model.util.Literals;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
 
+import java.util.Optional;
+
 public class BindingsAccessor {
     private final BindingSet bindings;
 
@@ -16,6 +18,10 @@ public class BindingsAccessor {
         return (IRI) this.bindings.getValue(var.getVarName());
     }
 
+    public Optional<IRI> asOptionalIRI(Variable var) {
+        return Optional.ofNullable((IRI) this.bindings.getValue(var.getVarName()));
+    }
+
     public String asString(Variable var) {
         return this.bindings.getValue(var.getVarName()).stringValue();
     }
@@ -3,22 +3,63 @@ package com.bechtle.cougar.graph.repository.rdf4j.repository;
 import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
 import com.bechtle.cougar.graph.domain.model.wrapper.Entity;
 import com.bechtle.cougar.graph.repository.EntityStore;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
 import com.bechtle.cougar.graph.repository.rdf4j.repository.util.AbstractRepository;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.ForeignSubjects;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.LabelIndex;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.LabeledRepository;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.RepositoryCompaction;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.RepositoryVersions;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.SubjectsByTypeIndex;
+import com.bechtle.cougar.graph.domain.model.extensions.CompactionResult;
+import com.bechtle.cougar.graph.domain.model.extensions.DuplicateLabels;
+import com.bechtle.cougar.graph.domain.model.extensions.ForeignIdentifiers;
+import com.bechtle.cougar.graph.domain.model.extensions.TypedLabel;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.common.transaction.IsolationLevels;
 import org.eclipse.rdf4j.model.*;
+import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+
 @Slf4j
 @Component
 public class EntityRepository extends AbstractRepository implements EntityStore {
 
+    private final SubjectsByTypeIndex typeIndex;
+    private final LabelIndex labelIndex;
+    private final RepositoryVersions versions;
+    private final ForeignSubjects foreignSubjects;
+    private final RepositoryCompaction compaction;
 
-    public EntityRepository() {
+    public EntityRepository(@org.springframework.beans.factory.annotation.Value("${application.compaction.drain-timeout:10000}") long drainTimeout,
+                            @org.springframework.beans.factory.annotation.Value("${application.compaction.commit-timeout:1000}") long commitTimeout,
+                            @org.springframework.beans.factory.annotation.Value("${application.compaction.batch-size:10000}") int batchSize) {
         super(RepositoryConfiguration.RepositoryType.ENTITIES);
+        this.typeIndex = new SubjectsByTypeIndex();
+        this.labelIndex = new LabelIndex();
+        this.versions = new RepositoryVersions();
+        this.foreignSubjects = new ForeignSubjects();
+        this.compaction = new RepositoryCompaction(drainTimeout, commitTimeout, batchSize);
     }
 
 
@@ -53,6 +94,240 @@ public class EntityRepository extends AbstractRepository implements EntityStore
             }
     }
 
+    /**
+     * Loads all entities (with their embedded entities on level 1) through one connection and from one snapshot.
+     * Embedded entities shared between the requested entities are only loaded once, unknown identifiers are skipped.
+     */
+    @Override
+    public Mono<Entity> getEntities(Collection<IRI> ids, Authentication authentication) {
+        try (RepositoryConnection connection = getConnection(authentication)) {
+            log.trace("(Store) Loading {} entities from repository {}", ids.size(), connection.getRepository().toString());
+
+            Entity entities = new Entity();
+            Set<Resource> loaded = new HashSet<>();
+
+            connection.begin(IsolationLevels.SNAPSHOT_READ);
+            try {
+                for (IRI id : ids) {
+                    if (!loaded.contains(id) && !this.load(id, connection, entities, loaded)) {
+                        if (log.isDebugEnabled()) log.debug("(Store) Found no statements for IRI: <{}>.", id);
+                        continue;
+                    }
+
+                    // embedded level 1
+                    for (Value object : entities.getModel().filter(id, null, null).objects()) {
+                        if (object.isIRI() && !loaded.contains(object)) this.load((IRI) object, connection, entities, loaded);
+                    }
+                }
+            } finally {
+                connection.commit();
+            }
+
+            if (log.isDebugEnabled())
+                log.debug("(Store) Loaded {} statements for {} requested entities.", entities.getModel().size(), ids.size());
+            return Mono.just(entities);
+
+        } catch (Exception e) {
+            log.error("Unknown error while running query", e);
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<List<IRI>> listEntities(Collection<IRI> types, @Nullable IRI after, int limit, Authentication authentication) {
+        try {
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            return Mono.just(this.typeIndex.list(repository, types, after != null ? after.stringValue() : null, limit));
+        } catch (Exception e) {
+            log.error("Unknown error while listing entities", e);
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<Map<TypedLabel, Set<IRI>>> findByLabels(Collection<TypedLabel> keys, Authentication authentication) {
+        try {
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            return Mono.just(this.labelIndex.find(repository, keys));
+        } catch (Exception e) {
+            log.error("Unknown error while looking up labels", e);
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<DuplicateLabels> findChangedDuplicateLabels(Authentication authentication) {
+        try {
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            return Mono.just(this.labelIndex.changedDuplicates(repository));
+        } catch (Exception e) {
+            log.error("Unknown error while looking up duplicate labels", e);
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<Void> acknowledgeDuplicateLabels(long watermark, Authentication authentication) {
+        return Mono.fromRunnable(() -> this.withRepository(authentication, repository -> this.labelIndex.acknowledge(repository, watermark)));
+    }
+
+    @Override
+    public Mono<ForeignIdentifiers> findForeignIdentifiers(Authentication authentication) {
+        try {
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            return Mono.just(this.foreignSubjects.list(repository));
+        } catch (Exception e) {
+            log.error("Unknown error while looking up foreign identifiers", e);
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<Void> acknowledgeForeignIdentifiers(Collection<Resource> subjects, long watermark, Authentication authentication) {
+        return Mono.fromRunnable(() -> this.withRepository(authentication, repository -> this.foreignSubjects.acknowledge(repository, subjects, watermark)));
+    }
+
+    @Override
+    public Mono<List<Statement>> listStatements(Collection<Resource> resources, Authentication authentication) {
+        try (RepositoryConnection connection = getConnection(authentication)) {
+            log.trace("(Store) Listing all statements of {} resources from repository {}", resources.size(), connection.getRepository().toString());
+
+            // statements between two of the resources are listed only once
+            Set<Statement> statements = new LinkedHashSet<>();
+            connection.begin(IsolationLevels.SNAPSHOT_READ);
+            try {
+                for (Resource resource : resources) {
+                    try (RepositoryResult<Statement> outgoing = connection.getStatements(resource, null, null)) {
+                        outgoing.forEach(statements::add);
+                    }
+                    try (RepositoryResult<Statement> incoming = connection.getStatements(null, null, resource)) {
+                        incoming.forEach(statements::add);
+                    }
+                }
+            } finally {
+                connection.commit();
+            }
+            return Mono.just(List.copyOf(statements));
+        } catch (Exception e) {
+            log.error("Unknown error while listing statements", e);
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<Long> getVersion(Authentication authentication) {
+        try {
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            OptionalLong version = this.versions.get(repository);
+            return version.isPresent() ? Mono.just(version.getAsLong()) : Mono.empty();
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<Void> rebuildIndexes(Authentication authentication) {
+        return Mono.fromRunnable(() -> this.withRepository(authentication, repository -> {
+            this.typeIndex.invalidate(repository);
+            this.foreignSubjects.invalidate(repository);
+            this.labelIndex.rebuild(repository);
+        }));
+    }
+
+    @Override
+    public Mono<CompactionResult> compact(Authentication authentication) {
+        return Mono.fromCallable(() -> {
+            // the labeled repository stays the same object, the indexes remain valid
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            return repository instanceof LabeledRepository labeled ? this.compaction.compact(labeled) : null;
+        });
+    }
+
+    @Override
+    public Flux<Transaction> commit(Collection<Transaction> transactions, Authentication authentication) {
+        return this.updateIndexes(super.commit(transactions, authentication), authentication);
+    }
+
+    @Override
+    public Flux<Transaction> commitAtomically(Collection<Transaction> transactions, Authentication authentication) {
+        return this.updateIndexes(super.commitAtomically(transactions, authentication), authentication);
+    }
+
+    private Flux<Transaction> updateIndexes(Flux<Transaction> committed, Authentication authentication) {
+        return Flux.defer(() -> {
+            // the persisted indexes are outdated with the commit, also if it cannot be applied to the indexes
+            this.withRepository(authentication, repository -> {
+                this.typeIndex.prepare(repository);
+                this.labelIndex.prepare(repository);
+            });
+            return committed
+                    .doOnNext(transaction -> {
+                        if (!transaction.isFailed()) this.withRepository(authentication, repository -> {
+                            this.typeIndex.update(repository, transaction);
+                            this.labelIndex.update(repository, transaction);
+                            this.foreignSubjects.update(repository, transaction);
+                        });
+                    })
+                    .doFinally(signal -> this.withRepository(authentication, repository -> {
+                        this.typeIndex.complete(repository);
+                        this.labelIndex.complete(repository);
+                    }));
+        });
+    }
+
+    @Override
+    public Mono<Void> insert(Model model, Authentication authentication) {
+        Mono<Void> result = super.insert(model, authentication);
+        this.withRepository(authentication, this::invalidateIndexes);
+        return result;
+    }
+
+    @Override
+    public Mono<Void> importStatements(Publisher<DataBuffer> bytesPublisher, String mimetype, Authentication authentication) {
+        return super.importStatements(bytesPublisher, mimetype, authentication)
+                .doFinally(signal -> this.withRepository(authentication, this::invalidateIndexes));
+    }
+
+    @Override
+    public Mono<Void> reset(Authentication authentication, RepositoryConfiguration.RepositoryType repositoryType) {
+        Mono<Void> result = super.reset(authentication, repositoryType);
+        this.withRepository(authentication, this::invalidateIndexes);
+        return result;
+    }
+
+    /**
+     * The type and label indexes of persistent repositories are written to disk regularly and on shutdown
+     */
+    @Scheduled(fixedDelayString = "${application.indexes.flush-interval:60000}")
+    @PreDestroy
+    public void flushIndexes() {
+        this.typeIndex.flush();
+        this.labelIndex.flush();
+    }
+
+    private void invalidateIndexes(Repository repository) {
+        this.typeIndex.invalidate(repository);
+        this.labelIndex.invalidate(repository);
+        this.foreignSubjects.invalidate(repository);
+    }
+
+    private void withRepository(Authentication authentication, Consumer<Repository> consumer) {
+        try {
+            consumer.accept(getConfiguration().getRepository(getRepositoryType(), authentication));
+        } catch (IOException e) {
+            log.warn("(Store) Failed to resolve repository for updating the indexes, reason: {}", e.getMessage());
+        }
+    }
+
+    private boolean load(IRI id, RepositoryConnection connection, Entity entities, Set<Resource> loaded) {
+        loaded.add(id);
+        try (RepositoryResult<Statement> statements = connection.getStatements(id, null, null)) {
+            if (!statements.hasNext()) return false;
+            statements.forEach(statement -> entities.getBuilder().add(statement.getSubject(), statement.getPredicate(), statement.getObject()));
+            return true;
+        }
+    }
+
 
 
 
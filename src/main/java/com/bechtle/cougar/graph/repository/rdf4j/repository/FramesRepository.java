@@ -0,0 +1,59 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository;
+
+import com.bechtle.cougar.graph.repository.FramesStore;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.AbstractRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Slf4j(topic = "cougar.graph.repository.frames")
+@Component
+public class FramesRepository extends AbstractRepository implements FramesStore {
+
+    public FramesRepository() {
+        super(RepositoryConfiguration.RepositoryType.FRAMES);
+    }
+
+    @Override
+    public Mono<Void> replace(Resource subject, Model model, Authentication authentication) {
+        try (RepositoryConnection connection = this.getConnection(authentication)) {
+            try {
+                connection.begin();
+                connection.remove(subject, null, null);
+                connection.add(model);
+                connection.commit();
+
+                if (log.isTraceEnabled())
+                    log.trace("(Store) Replaced {} statements of subject '{}' in repository '{}'", model.size(), subject, connection.getRepository());
+                return Mono.empty();
+            } catch (Exception e) {
+                connection.rollback();
+                return Mono.error(e);
+            }
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Mono<Void> remove(Resource subject, Authentication authentication) {
+        try (RepositoryConnection connection = this.getConnection(authentication)) {
+            try {
+                connection.begin();
+                connection.remove(subject, null, null);
+                connection.commit();
+                return Mono.empty();
+            } catch (Exception e) {
+                connection.rollback();
+                return Mono.error(e);
+            }
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+}
@@ -6,14 +6,30 @@ import com.bechtle.cougar.graph.domain.model.vocabulary.SDO;
 import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
 import com.bechtle.cougar.graph.repository.SchemaStore;
 import com.bechtle.cougar.graph.repository.rdf4j.repository.util.AbstractRepository;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.ChangeAwareCache;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.CompiledShapes;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.Hierarchy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.util.Namespaces;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 
+@Slf4j(topic = "cougar.graph.repository.schema")
 @Component
 public class SchemaRepository extends AbstractRepository implements SchemaStore {
 
@@ -29,8 +45,13 @@ public class SchemaRepository extends AbstractRepository implements SchemaStore
     }
 
 
+    private final CompiledShapes shapes;
+    private final ChangeAwareCache<Hierarchies> hierarchies;
+
     public SchemaRepository() {
         super(RepositoryConfiguration.RepositoryType.SCHEMA);
+        this.shapes = new CompiledShapes();
+        this.hierarchies = new ChangeAwareCache<>(SchemaRepository::loadHierarchies, null);
     }
 
 
@@ -39,4 +60,59 @@ public class SchemaRepository extends AbstractRepository implements SchemaStore
         return namespaces.stream().filter(ns -> ns.getPrefix().equalsIgnoreCase(prefix)).findFirst();
     }
 
+    @Override
+    public Mono<Set<IRI>> getSubClasses(IRI type, Authentication authentication) {
+        return this.withHierarchies(authentication, hierarchies -> hierarchies.classes().descendants(type));
+    }
+
+    @Override
+    public Mono<Set<IRI>> getSuperClasses(IRI type, Authentication authentication) {
+        return this.withHierarchies(authentication, hierarchies -> hierarchies.classes().ancestors(type));
+    }
+
+    @Override
+    public Mono<Boolean> isSubClassOf(IRI type, IRI superType, Authentication authentication) {
+        return this.withHierarchies(authentication, hierarchies -> hierarchies.classes().isDescendant(type, superType));
+    }
+
+    @Override
+    public Mono<Set<IRI>> getSubProperties(IRI property, Authentication authentication) {
+        return this.withHierarchies(authentication, hierarchies -> hierarchies.properties().descendants(property));
+    }
+
+    @Override
+    public Mono<Set<IRI>> getSuperProperties(IRI property, Authentication authentication) {
+        return this.withHierarchies(authentication, hierarchies -> hierarchies.properties().ancestors(property));
+    }
+
+    @Override
+    public Mono<Map<Resource, List<String>>> validate(Model statements, Authentication authentication) {
+        try {
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            return Mono.just(this.shapes.validate(repository, statements));
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    private <T> Mono<T> withHierarchies(Authentication authentication, Function<Hierarchies, T> action) {
+        try {
+            Repository repository = getConfiguration().getRepository(getRepositoryType(), authentication);
+            return Mono.just(this.hierarchies.apply(repository, action));
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    private static Hierarchies loadHierarchies(Repository repository) {
+        try (RepositoryConnection connection = repository.getConnection()) {
+            Hierarchies hierarchies = new Hierarchies(Hierarchy.load(connection, RDFS.SUBCLASSOF), Hierarchy.load(connection, RDFS.SUBPROPERTYOF));
+            log.debug("(Store) Loaded hierarchies of {} classes and {} properties from repository '{}'", hierarchies.classes().size(), hierarchies.properties().size(), repository);
+            return hierarchies;
+        }
+    }
+
+    private record Hierarchies(Hierarchy classes, Hierarchy properties) {
+    }
+
 }
@@ -1,23 +1,36 @@
 package com.bechtle.cougar.graph.repository.rdf4j.repository;
 
 import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.domain.model.errors.HistoryNotSupported;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
 import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
 import com.bechtle.cougar.graph.repository.TransactionsStore;
 import com.bechtle.cougar.graph.repository.rdf4j.repository.util.AbstractRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Stores the transactions as quads in the transactions repository of the tenant (the default backend). The
+ * statements of all transactions share the named graphs, only the provenance of a transaction can be read again.
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "application.storage.transactions.backend", havingValue = "rdf", matchIfMissing = true)
 public class TransactionsRepository extends AbstractRepository implements TransactionsStore {
 
 
@@ -70,4 +83,55 @@ public class TransactionsRepository extends AbstractRepository implements Transa
             });
 
     }
+
+    @Override
+    public Mono<Void> append(Collection<Model> transactions, Authentication authentication) {
+        return Mono.fromRunnable(() -> {
+            try (RepositoryConnection connection = getConnection(authentication)) {
+                try {
+                    connection.begin();
+                    transactions.forEach(model -> connection.add(model));
+                    connection.commit();
+                    log.trace("(Store) Appended {} transactions to repository '{}'", transactions.size(), connection.getRepository());
+                } catch (RepositoryException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            } catch (IOException e) {
+                throw new RepositoryException("Failed to resolve the transactions repository", e);
+            }
+        });
+    }
+
+    @Override
+    public Mono<Model> read(IRI identifier, Authentication authentication) {
+        try (RepositoryConnection connection = getConnection(authentication)) {
+            Model model = new LinkedHashModel();
+            connection.getStatements(identifier, null, null).forEach(model::add);
+            return model.isEmpty() ? Mono.empty() : Mono.just(model);
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    public Flux<Model> readSince(Instant since, Authentication authentication) {
+        // the changes of all transactions share the same named graphs
+        return Flux.error(new HistoryNotSupported("rdf"));
+    }
+
+    @Override
+    public Flux<Model> readChanges(IRI subject, Instant since, @Nullable Instant until, Authentication authentication) {
+        return Flux.error(new HistoryNotSupported("rdf"));
+    }
+
+    @Override
+    public Mono<EntitySnapshot> readSnapshot(IRI subject, Instant at, Authentication authentication) {
+        return Mono.error(new HistoryNotSupported("rdf"));
+    }
+
+    @Override
+    public Mono<Void> storeSnapshots(Collection<EntitySnapshot> snapshots, Authentication authentication) {
+        return Mono.error(new HistoryNotSupported("rdf"));
+    }
 }
@@ -27,6 +27,7 @@ import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -138,39 +139,48 @@ public class AbstractRepository implements RepositoryBehaviour, Statements, Mode
         }
     }
 
+    /**
+     * Commits all given transactions within one transaction of the repository. If the combined transaction fails, we
+     * fall back to committing them one by one, a single failing transaction should not fail the others.
+     */
     @Override
     public Flux<Transaction> commit(Collection<Transaction> transactions, Authentication authentication) {
         return Flux.create(c -> {
             try (RepositoryConnection connection = this.getConnection(authentication)) {
 
 
-                log.trace("(Store) Committing transaction to repository '{}'", connection.getRepository().toString());
+                log.trace("(Store) Committing {} transaction(s) to repository '{}'", transactions.size(), connection.getRepository().toString());
 
-                transactions.forEach(trx -> {
-                    // FIXME: the approach based on the context works only as long as the statements in the graph are all within the global context only
-                    // with this approach, we cannot insert a statement to a context (since it is already in GRAPH_CREATED), every st can only be in one context
-                    Model insertModel = trx.getModel().filter(null, null, null, Transactions.GRAPH_CREATED);
-                    Model removeModel = trx.getModel().filter(null, null, null, Transactions.GRAPH_DELETED);
+                if (transactions.size() > 1) {
+                    try {
+                        connection.begin();
+                        List<Changes> changes = transactions.stream().map(trx -> this.apply(trx, connection)).toList();
+                        connection.commit();
 
-                    // we have to get rid of the context
-                    SimpleValueFactory vf = SimpleValueFactory.getInstance();
-                    List<Statement> insertStatements = insertModel.stream().map(s -> vf.createStatement(s.getSubject(), s.getPredicate(), s.getObject())).toList();
-                    List<Statement> removeStatements = removeModel.stream().map(s -> vf.createStatement(s.getSubject(), s.getPredicate(), s.getObject())).toList();
+                        changes.forEach(Changes::record);
+                        transactions.forEach(Transaction::setCompleted);
+                        log.trace("(Store) Batch of {} transactions completed in repository '{}'.", transactions.size(), connection.getRepository());
+                        transactions.forEach(c::next);
+                        c.complete();
+                        return;
+                    } catch (Exception e) {
+                        log.warn("(Store) Failed to commit batch of {} transactions in repository '{}', committing them individually. Reason: {}", transactions.size(), connection.getRepository(), e.getMessage());
+                        connection.rollback();
+                    }
+                }
 
+                transactions.forEach(trx -> {
                     try {
                         connection.begin();
-                        connection.add(insertStatements);
-                        connection.remove(removeStatements);
+                        Changes changes = this.apply(trx, connection);
                         connection.commit();
 
+                        changes.record();
                         trx.setCompleted();
-
-                        log.trace("(Store) Transaction completed with {} inserted statements and {} removed statements in repository '{}'.", insertModel.size(), removeModel.size(), connection.getRepository());
                         c.next(trx);
                     } catch (Exception e) {
                         log.error("(Store) Failed to complete transaction for repository '{}'.", connection.getRepository(), e);
-                        log.trace("(Store) Insert Statements in this transaction: \n {}", insertModel);
-                        log.trace("(Store) Remove Statements in this transaction: \n {}", removeModel);
+                        log.trace("(Store) Statements in this transaction: \n {}", trx.getModel());
 
                         connection.rollback();
                         trx.setFailed(e.getMessage());
@@ -188,6 +198,71 @@ public class AbstractRepository implements RepositoryBehaviour, Statements, Mode
         });
     }
 
+    @Override
+    public Flux<Transaction> commitAtomically(Collection<Transaction> transactions, Authentication authentication) {
+        return Flux.defer(() -> {
+            try (RepositoryConnection connection = this.getConnection(authentication)) {
+                log.trace("(Store) Committing {} transaction(s) atomically to repository '{}'", transactions.size(), connection.getRepository().toString());
+
+                List<Changes> changes;
+                try {
+                    connection.begin();
+                    changes = transactions.stream().map(trx -> this.apply(trx, connection)).toList();
+                    connection.commit();
+                } catch (Exception e) {
+                    log.warn("(Store) Failed to commit {} transaction(s) atomically in repository '{}', none was applied. Reason: {}", transactions.size(), connection.getRepository(), e.getMessage());
+                    connection.rollback();
+                    transactions.forEach(trx -> trx.setFailed(e.getMessage()));
+                    return Flux.error(e);
+                }
+
+                changes.forEach(Changes::record);
+                transactions.forEach(Transaction::setCompleted);
+                return Flux.fromIterable(transactions);
+            } catch (Exception e) {
+                log.error("Failed to initialize repository connection");
+                return Flux.error(e);
+            }
+        });
+    }
+
+    /**
+     * Applies the changes of the transaction. The returned changes are the statements which actually changed the
+     * repository, they are recorded with the transaction once the commit succeeded (a rolled back transaction might be
+     * applied again, against another state).
+     */
+    private Changes apply(Transaction trx, RepositoryConnection connection) {
+        // FIXME: the approach based on the context works only as long as the statements in the graph are all within the global context only
+        // with this approach, we cannot insert a statement to a context (since it is already in GRAPH_CREATED), every st can only be in one context
+        Model insertModel = trx.getModel().filter(null, null, null, Transactions.GRAPH_CREATED);
+        Model removeModel = trx.getModel().filter(null, null, null, Transactions.GRAPH_DELETED);
+
+        // we have to get rid of the context
+        SimpleValueFactory vf = SimpleValueFactory.getInstance();
+        List<Statement> insertStatements = insertModel.stream().map(s -> vf.createStatement(s.getSubject(), s.getPredicate(), s.getObject())).toList();
+        List<Statement> removeStatements = removeModel.stream().map(s -> vf.createStatement(s.getSubject(), s.getPredicate(), s.getObject())).toList();
+
+        // the connection reads the changes of the previous transactions in the same commit
+        Set<Statement> inserted = insertStatements.stream().filter(statement -> !connection.hasStatement(statement, false)).collect(Collectors.toCollection(LinkedHashSet::new));
+        connection.add(insertStatements);
+        Set<Statement> removed = removeStatements.stream().filter(statement -> connection.hasStatement(statement, false)).collect(Collectors.toCollection(LinkedHashSet::new));
+        connection.remove(removeStatements);
+
+        // inserted and removed again within the transaction, the statement remains absent
+        Set<Statement> reverted = inserted.stream().filter(removed::contains).collect(Collectors.toSet());
+        inserted.removeAll(reverted);
+        removed.removeAll(reverted);
+
+        log.trace("(Store) Transaction with {} inserted statements and {} removed statements applied in repository '{}'.", inserted.size(), removed.size(), connection.getRepository());
+        return new Changes(trx, inserted, removed);
+    }
+
+    private record Changes(Transaction transaction, Set<Statement> inserted, Set<Statement> removed) {
+        void record() {
+            this.transaction.setApplied(this.inserted, this.removed);
+        }
+    }
+
 
     @Override
     public Mono<Void> insert(Model model, Authentication authentication) {
@@ -0,0 +1,76 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.repository.Repository;
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Caches a value derived from the statements of a repository (e.g. compiled shapes of the schema) until the
+ * repository changes. Values for repositories, whose changes cannot be observed, are loaded for every use.
+ *
+ * @param <V> the derived value
+ */
+@Slf4j(topic = "cougar.graph.repository")
+public class ChangeAwareCache<V> {
+
+    private final Cache<Repository, V> values;
+    private final Set<Repository> observed;
+    private final Function<Repository, V> loader;
+    @Nullable
+    private final Consumer<V> release;
+
+    /**
+     * @param loader  derives the value from the repository
+     * @param release frees the resources of a value, once it is not used anymore (optional)
+     */
+    public ChangeAwareCache(Function<Repository, V> loader, @Nullable Consumer<V> release) {
+        this.loader = loader;
+        this.release = release;
+        this.values = Caffeine.newBuilder()
+                .weakKeys()
+                .removalListener((Repository repository, V value, RemovalCause cause) -> {
+                    if (value != null && release != null) release.accept(value);
+                })
+                .build();
+        this.observed = Collections.newSetFromMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Runs the action with the current value for the given repository
+     */
+    public <T> T apply(Repository repository, Function<V, T> action) {
+        boolean cached = this.observe(repository);
+        V value = cached ? this.values.get(repository, this.loader) : this.loader.apply(repository);
+        try {
+            return action.apply(value);
+        } finally {
+            if (!cached && this.release != null) this.release.accept(value);
+        }
+    }
+
+    public void invalidate(Repository repository) {
+        log.trace("(Store) Repository '{}' has changed, invalidating derived values", repository);
+        this.values.invalidate(repository);
+    }
+
+    /**
+     * Registers for the changes of the given repository once, returns false if they cannot be observed
+     */
+    private boolean observe(Repository repository) {
+        synchronized (this.observed) {
+            if (this.observed.contains(repository)) return true;
+            if (!RepositoryChanges.onChange(repository, () -> this.invalidate(repository))) return false;
+            this.observed.add(repository);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF4J;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.eclipse.rdf4j.sail.shacl.ShaclSail;
+import org.eclipse.rdf4j.sail.shacl.ShaclSailValidationException;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SHACL shapes of a schema repository (all statements in the graph {@link RDF4J#SHACL_SHAPE_GRAPH}), compiled
+ * into a {@link ShaclSail} over an empty store.
+ * <p>
+ * The statements to validate are added to this store within a transaction, which is rolled back after validation.
+ * The shapes are therefore only evaluated for the given statements, never for the entities already stored in the
+ * graph. The compiled shapes are kept until the schema repository changes.
+ */
+@Slf4j(topic = "cougar.graph.repository.shapes")
+public class CompiledShapes {
+
+    private final ChangeAwareCache<Shapes> shapes;
+
+    public CompiledShapes() {
+        this.shapes = new ChangeAwareCache<>(this::compile, Shapes::shutDown);
+    }
+
+    /**
+     * Validates the given statements against the shapes of the schema repository.
+     *
+     * @return the violations for each focus node, empty if the statements conform (or there are no shapes)
+     */
+    public Map<Resource, List<String>> validate(Repository schema, Model statements) {
+        if (statements.isEmpty()) return Map.of();
+
+        return this.shapes.apply(schema, compiled -> compiled.sail() != null ? this.validate(compiled.sail(), statements) : Map.of());
+    }
+
+    private Map<Resource, List<String>> validate(ShaclSail sail, Model statements) {
+        try (SailConnection connection = sail.getConnection()) {
+            connection.begin();
+            try {
+                statements.forEach(statement -> connection.addStatement(statement.getSubject(), statement.getPredicate(), statement.getObject()));
+                connection.prepare();
+                return Map.of();
+            } catch (SailException e) {
+                if (e instanceof ShaclSailValidationException violation) return asViolations(violation.validationReportAsModel());
+                if (e.getCause() instanceof ShaclSailValidationException violation) return asViolations(violation.validationReportAsModel());
+                throw e;
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    private Shapes compile(Repository schema) {
+        List<Statement> definitions;
+        try (RepositoryConnection connection = schema.getConnection();
+             RepositoryResult<Statement> statements = connection.getStatements(null, null, null, RDF4J.SHACL_SHAPE_GRAPH)) {
+            definitions = statements.stream().toList();
+        }
+        if (definitions.isEmpty()) return new Shapes(null);
+
+        ShaclSail sail = new ShaclSail(new MemoryStore());
+        // nothing is ever committed to the store, concurrent validations don't have to be serialized
+        sail.setSerializableValidation(false);
+        sail.init();
+
+        try (SailConnection connection = sail.getConnection()) {
+            connection.begin();
+            definitions.forEach(statement -> connection.addStatement(statement.getSubject(), statement.getPredicate(), statement.getObject(), RDF4J.SHACL_SHAPE_GRAPH));
+            connection.commit();
+        } catch (SailException e) {
+            sail.shutDown();
+            throw e;
+        }
+
+        log.debug("(Store) Compiled shapes with {} statements from repository '{}'", definitions.size(), schema);
+        return new Shapes(sail);
+    }
+
+    private static Map<Resource, List<String>> asViolations(Model report) {
+        Map<Resource, List<String>> result = new LinkedHashMap<>();
+        for (Value node : report.filter(null, SHACL.RESULT, null).objects()) {
+            if (!(node instanceof Resource validationResult)) continue;
+
+            Resource focusNode = Models.objectResource(report.filter(validationResult, SHACL.FOCUS_NODE, null)).orElse(validationResult);
+            result.computeIfAbsent(focusNode, key -> new ArrayList<>()).add(describe(report, validationResult));
+        }
+        return result;
+    }
+
+    private static String describe(Model report, Resource validationResult) {
+        StringBuilder description = new StringBuilder();
+        Models.objectIRI(report.filter(validationResult, SHACL.SOURCE_CONSTRAINT_COMPONENT, null))
+                .ifPresentOrElse(component -> description.append(component.getLocalName()), () -> description.append("Violation"));
+        Models.object(report.filter(validationResult, SHACL.RESULT_PATH, null))
+                .ifPresent(path -> description.append(" for property <").append(path instanceof IRI iri ? iri.stringValue() : path.toString()).append(">"));
+        Models.object(report.filter(validationResult, SHACL.VALUE, null))
+                .ifPresent(value -> description.append(" with value '").append(value.stringValue()).append("'"));
+        Models.objectLiteral(report.filter(validationResult, SHACL.RESULT_MESSAGE, null))
+                .ifPresent(message -> description.append(": ").append(message.getLabel()));
+        return description.toString();
+    }
+
+
+    private record Shapes(@Nullable ShaclSail sail) {
+        void shutDown() {
+            if (this.sail != null) this.sail.shutDown();
+        }
+    }
+}
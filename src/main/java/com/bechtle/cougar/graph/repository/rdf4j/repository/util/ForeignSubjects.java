@@ -0,0 +1,105 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import com.bechtle.cougar.graph.domain.model.extensions.ForeignIdentifiers;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The typed subjects of a repository with identifiers outside of the local entity namespace, waiting to be replaced
+ * with generated identifiers.
+ * <p>
+ * The subjects are captured from the rdf:type statements of the committed transactions (with a sequence number), the
+ * graph is only scanned once when requested for the first time or after the log was invalidated by writes bypassing
+ * transactions (imports, resets). Subjects are removed once they are acknowledged up to the watermark of the listing.
+ */
+@Slf4j(topic = "cougar.graph.repository.index")
+public class ForeignSubjects {
+
+    private final Cache<Repository, Pending> pending;
+
+    public ForeignSubjects() {
+        this.pending = Caffeine.newBuilder().weakKeys().build();
+    }
+
+    /**
+     * Lists the subjects still waiting for their replacement
+     */
+    public ForeignIdentifiers list(Repository repository) {
+        Pending state = this.pending.get(repository, this::scan);
+        long watermark = state.sequence().get();
+        boolean incremental = !state.scanned().compareAndSet(true, false);
+
+        List<Resource> subjects = state.subjects().entrySet().stream()
+                .filter(entry -> entry.getValue() <= watermark)
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .toList();
+        return new ForeignIdentifiers(subjects, watermark, incremental);
+    }
+
+    /**
+     * Removes the replaced subjects, unless they were inserted again after the watermark
+     */
+    public void acknowledge(Repository repository, Collection<Resource> subjects, long watermark) {
+        Pending state = this.pending.getIfPresent(repository);
+        if (state == null) return;
+
+        subjects.forEach(subject -> state.subjects().computeIfPresent(subject, (key, sequence) -> sequence <= watermark ? null : sequence));
+    }
+
+    public void update(Repository repository, Transaction transaction) {
+        Pending state = this.pending.getIfPresent(repository);
+        if (state == null) return;
+
+        transaction.getModel().getStatements(null, RDF.TYPE, null, Transactions.GRAPH_CREATED).forEach(statement -> {
+            if (isForeign(statement.getSubject())) state.subjects().put(statement.getSubject(), state.sequence().incrementAndGet());
+        });
+    }
+
+    public void invalidate(Repository repository) {
+        if (this.pending.getIfPresent(repository) != null) {
+            log.trace("(Store) Invalidating foreign subjects of repository '{}'", repository);
+            this.pending.invalidate(repository);
+        }
+    }
+
+    private Pending scan(Repository repository) {
+        Pending state = new Pending(new ConcurrentHashMap<>(), new AtomicLong(), new AtomicBoolean(true));
+        try (RepositoryConnection connection = repository.getConnection();
+             RepositoryResult<Statement> statements = connection.getStatements(null, RDF.TYPE, null)) {
+            statements.forEach(statement -> {
+                if (isForeign(statement.getSubject())) state.subjects().putIfAbsent(statement.getSubject(), state.sequence().incrementAndGet());
+            });
+        }
+        log.debug("(Store) Found {} subjects with foreign identifiers in repository '{}'", state.subjects().size(), repository);
+        return state;
+    }
+
+    private static boolean isForeign(Resource subject) {
+        return !subject.isTriple() && !subject.stringValue().startsWith(Local.Entities.NAMESPACE);
+    }
+
+    /**
+     * @param subjects the subjects with the sequence number of their (last) insert
+     * @param scanned  true until the first listing after the subjects were collected by scanning the graph
+     */
+    private record Pending(Map<Resource, Long> subjects, AtomicLong sequence, AtomicBoolean scanned) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The transitive closure of a hierarchy in the schema (rdfs:subClassOf or rdfs:subPropertyOf). Every term is
+ * mapped to an int, the descendants and ancestors of a term are bitsets over these ids.
+ * <p>
+ * The closure is reflexive: a term is always its own descendant and ancestor, even if it is not part of the schema.
+ */
+public class Hierarchy {
+
+    private final Map<IRI, Integer> ids;
+    private final IRI[] terms;
+    private final BitSet[] descendants;
+    private final BitSet[] ancestors;
+
+    private Hierarchy(Map<IRI, Integer> ids, IRI[] terms, BitSet[] descendants, BitSet[] ancestors) {
+        this.ids = ids;
+        this.terms = terms;
+        this.descendants = descendants;
+        this.ancestors = ancestors;
+    }
+
+    /**
+     * Builds the closure from all statements with the given predicate (e.g. rdfs:subClassOf) in the repository
+     */
+    public static Hierarchy load(RepositoryConnection connection, IRI predicate) {
+        Map<IRI, Integer> ids = new HashMap<>();
+        List<IRI> terms = new ArrayList<>();
+        List<int[]> edges = new ArrayList<>();
+
+        try (RepositoryResult<Statement> statements = connection.getStatements(null, predicate, null)) {
+            statements.forEach(statement -> {
+                if (statement.getSubject() instanceof IRI child && statement.getObject() instanceof IRI parent) {
+                    int c = ids.computeIfAbsent(child, key -> { terms.add(key); return terms.size() - 1; });
+                    int p = ids.computeIfAbsent(parent, key -> { terms.add(key); return terms.size() - 1; });
+                    edges.add(new int[]{p, c});
+                }
+            });
+        }
+
+        int size = terms.size();
+        List<List<Integer>> children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) children.add(new ArrayList<>());
+        edges.forEach(edge -> children.get(edge[0]).add(edge[1]));
+
+        // a traversal from every term, cycles (e.g. equivalent classes) are cut by the visited bits
+        BitSet[] descendants = new BitSet[size];
+        BitSet[] ancestors = new BitSet[size];
+        for (int i = 0; i < size; i++) ancestors[i] = new BitSet(size);
+        int[] open = new int[size];
+        for (int root = 0; root < size; root++) {
+            BitSet visited = new BitSet(size);
+            visited.set(root);
+            int top = 0;
+            open[top++] = root;
+            while (top > 0) {
+                for (int child : children.get(open[--top])) {
+                    if (!visited.get(child)) {
+                        visited.set(child);
+                        open[top++] = child;
+                    }
+                }
+            }
+            descendants[root] = visited;
+            for (int d = visited.nextSetBit(0); d >= 0; d = visited.nextSetBit(d + 1)) ancestors[d].set(root);
+        }
+
+        return new Hierarchy(ids, terms.toArray(new IRI[0]), descendants, ancestors);
+    }
+
+    /**
+     * Returns the given term and all terms below it
+     */
+    public Set<IRI> descendants(IRI term) {
+        Integer id = this.ids.get(term);
+        return id != null ? this.asTerms(this.descendants[id]) : Set.of(term);
+    }
+
+    /**
+     * Returns the given term and all terms above it
+     */
+    public Set<IRI> ancestors(IRI term) {
+        Integer id = this.ids.get(term);
+        return id != null ? this.asTerms(this.ancestors[id]) : Set.of(term);
+    }
+
+    public boolean isDescendant(IRI term, IRI ancestor) {
+        if (term.equals(ancestor)) return true;
+        Integer id = this.ids.get(term);
+        Integer other = this.ids.get(ancestor);
+        return id != null && other != null && this.descendants[other].get(id);
+    }
+
+    public int size() {
+        return this.terms.length;
+    }
+
+    private Set<IRI> asTerms(BitSet bits) {
+        Set<IRI> result = new LinkedHashSet<>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) result.add(this.terms[i]);
+        return result;
+    }
+}
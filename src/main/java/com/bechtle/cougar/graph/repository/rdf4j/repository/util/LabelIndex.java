@@ -0,0 +1,410 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import com.bechtle.cougar.graph.domain.model.extensions.DuplicateLabels;
+import com.bechtle.cougar.graph.domain.model.extensions.TypedLabel;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Index of the entities by their type and (normalized) label, to find duplicates without scanning the graph.
+ * <p>
+ * The index of a repository is built when requested for the first time and kept up to date with the committed
+ * transactions: the types and labels of all subjects touched by a transaction are read again. Writes bypassing
+ * transactions (imports, resets) have to invalidate the index.
+ * <p>
+ * Keys gaining an entity are recorded in a change log (with a sequence number), duplicates are searched among the
+ * changed keys only. The log is trimmed up to the watermark acknowledged by the consumer. If the log is incomplete
+ * (the index was rebuilt or the log overflowed), all keys are checked once.
+ * <p>
+ * For persistent repositories, the index (with its change log) is stored next to the LMDB folder and reloaded on
+ * startup. The file itself is the version marker: it is deleted before every commit (see {@link #prepare(Repository)})
+ * and only written again while no commit is pending, a file on disk always matches the committed state.
+ */
+@Slf4j(topic = "cougar.graph.repository.index")
+public class LabelIndex {
+
+    private static final int VERSION = 3;
+    private static final String FILE_NAME = "label-index.bin";
+    private static final int MAX_CHANGES = 100000;
+
+    private final Cache<Repository, Index> indexes;
+    private final Cache<Repository, Commits> commits;
+
+    public LabelIndex() {
+        this.indexes = Caffeine.newBuilder().weakKeys().build();
+        this.commits = Caffeine.newBuilder().weakKeys().build();
+    }
+
+    /**
+     * Returns the entities for each of the given keys (keys without entities are not in the result)
+     */
+    public Map<TypedLabel, Set<IRI>> find(Repository repository, Collection<TypedLabel> keys) {
+        Index index = this.getIndex(repository);
+        Map<TypedLabel, Set<IRI>> result = new HashMap<>();
+        for (TypedLabel key : keys) {
+            Set<String> entities = index.entities().get(key);
+            if (entities != null && !entities.isEmpty()) result.put(key, asIRIs(entities));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys shared by more than one entity, among the keys changed since the last acknowledged watermark
+     */
+    public DuplicateLabels changedDuplicates(Repository repository) {
+        Index index = this.getIndex(repository);
+        // read before the keys, changes in between are reported again with the next call
+        long watermark = index.sequence().get();
+        boolean incremental = index.gap() < 0;
+
+        Collection<TypedLabel> keys = incremental ? index.changes().keySet() : index.entities().keySet();
+        Map<TypedLabel, Set<IRI>> duplicates = new HashMap<>();
+        for (TypedLabel key : keys) {
+            Set<String> entities = index.entities().get(key);
+            if (entities != null && entities.size() > 1) duplicates.put(key, asIRIs(entities));
+        }
+        return new DuplicateLabels(duplicates, watermark, incremental);
+    }
+
+    /**
+     * Removes all changes up to the given watermark from the change log
+     */
+    public void acknowledge(Repository repository, long watermark) {
+        Index index = this.indexes.getIfPresent(repository);
+        if (index != null) index.acknowledge(watermark);
+    }
+
+    /**
+     * Has to be called before a transaction is committed: the persisted index becomes outdated with the commit (even
+     * if the index is not loaded and the commit cannot be applied), it is deleted and not written until the commit
+     * completed.
+     */
+    public void prepare(Repository repository) {
+        Commits commits = this.commits.get(repository, key -> new Commits());
+        synchronized (commits) {
+            commits.pending++;
+            this.delete(repository);
+        }
+    }
+
+    /**
+     * Has to be called once the commit prepared before completed (or failed)
+     */
+    public void complete(Repository repository) {
+        Commits commits = this.commits.getIfPresent(repository);
+        if (commits == null) return;
+        synchronized (commits) {
+            commits.pending = Math.max(0, commits.pending - 1);
+        }
+    }
+
+    public void update(Repository repository, Transaction transaction) {
+        Index index = this.indexes.getIfPresent(repository);
+        // the persisted index was deleted when the commit was prepared, it is rebuilt once requested
+        if (index == null) return;
+
+        Set<Resource> subjects = new HashSet<>();
+        for (Resource context : new Resource[]{Transactions.GRAPH_CREATED, Transactions.GRAPH_DELETED}) {
+            transaction.getModel().getStatements(null, RDF.TYPE, null, context).forEach(statement -> subjects.add(statement.getSubject()));
+            transaction.getModel().getStatements(null, RDFS.LABEL, null, context).forEach(statement -> subjects.add(statement.getSubject()));
+        }
+        if (subjects.isEmpty()) return;
+
+        try (RepositoryConnection connection = repository.getConnection()) {
+            for (Resource subject : subjects) {
+                if (subject.isIRI()) index.put(subject.stringValue(), this.read(connection, subject));
+            }
+        }
+    }
+
+    public void rebuild(Repository repository) {
+        this.invalidate(repository);
+        this.getIndex(repository);
+    }
+
+    public void invalidate(Repository repository) {
+        Index index = this.indexes.getIfPresent(repository);
+        if (index != null) {
+            log.trace("(Store) Invalidating label index of repository '{}'", repository);
+            this.indexes.invalidate(repository);
+        }
+        this.delete(repository);
+    }
+
+    /**
+     * Writes the modified indexes of persistent repositories to disk
+     */
+    public void flush() {
+        this.indexes.asMap().forEach((repository, index) -> {
+            Path file = fileFor(repository);
+            if (file == null || !index.dirty()) return;
+
+            Commits commits = this.commits.get(repository, key -> new Commits());
+            synchronized (commits) {
+                // the index might not contain the pending commits yet, it is written with the next flush
+                if (commits.pending > 0) return;
+                try {
+                    this.write(repository, index, file);
+                } catch (IOException e) {
+                    log.warn("(Store) Failed to persist label index of repository '{}', reason: {}", repository, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void delete(Repository repository) {
+        Path file = fileFor(repository);
+        if (file == null) return;
+        try {
+            if (Files.deleteIfExists(file)) log.trace("(Store) Deleted persisted label index of repository '{}'", repository);
+        } catch (IOException e) {
+            log.warn("(Store) Failed to delete label index '{}', reason: {}", file, e.getMessage());
+        }
+    }
+
+    private Index getIndex(Repository repository) {
+        return this.indexes.get(repository, this::load);
+    }
+
+    private Index load(Repository repository) {
+        Path file = fileFor(repository);
+        if (file != null && Files.exists(file)) {
+            try {
+                Index index = this.read(repository, file);
+                if (index != null) {
+                    log.debug("(Store) Loaded label index with {} keys for repository '{}'", index.entities().size(), repository);
+                    return index;
+                }
+            } catch (IOException e) {
+                log.warn("(Store) Failed to load label index of repository '{}', rebuilding it. Reason: {}", repository, e.getMessage());
+            }
+        }
+        return this.build(repository);
+    }
+
+    private Index build(Repository repository) {
+        Index index = new Index();
+        try (RepositoryConnection connection = repository.getConnection();
+             RepositoryResult<Statement> labels = connection.getStatements(null, RDFS.LABEL, null)) {
+            Map<String, Set<Value>> labelsBySubject = new HashMap<>();
+            labels.forEach(statement -> {
+                if (statement.getSubject().isIRI()) labelsBySubject.computeIfAbsent(statement.getSubject().stringValue(), key -> new HashSet<>()).add(statement.getObject());
+            });
+
+            labelsBySubject.forEach((subject, values) -> {
+                Set<TypedLabel> keys = new HashSet<>();
+                try (RepositoryResult<Statement> types = connection.getStatements(SimpleValueFactory.getInstance().createIRI(subject), RDF.TYPE, null)) {
+                    types.forEach(type -> values.forEach(label -> keys.add(TypedLabel.of(type.getObject(), label))));
+                }
+                index.put(subject, keys);
+            });
+        }
+        index.incomplete();
+        log.debug("(Store) Built label index with {} keys for repository '{}'", index.entities().size(), repository);
+        return index;
+    }
+
+    private Set<TypedLabel> read(RepositoryConnection connection, Resource subject) {
+        Set<Value> types = new HashSet<>();
+        Set<Value> labels = new HashSet<>();
+        try (RepositoryResult<Statement> statements = connection.getStatements(subject, null, null)) {
+            statements.forEach(statement -> {
+                if (statement.getPredicate().equals(RDF.TYPE)) types.add(statement.getObject());
+                else if (statement.getPredicate().equals(RDFS.LABEL)) labels.add(statement.getObject());
+            });
+        }
+
+        Set<TypedLabel> keys = new HashSet<>();
+        types.forEach(type -> labels.forEach(label -> keys.add(TypedLabel.of(type, label))));
+        return keys;
+    }
+
+    private void write(Repository repository, Index index, Path file) throws IOException {
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        index.clean();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(index.keys().size());
+            for (Map.Entry<String, Set<TypedLabel>> entry : index.keys().entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (TypedLabel key : entry.getValue()) {
+                    out.writeUTF(key.type());
+                    out.writeUTF(key.label());
+                }
+            }
+
+            Map<TypedLabel, Long> changes = Map.copyOf(index.changes());
+            out.writeLong(index.sequence().get());
+            out.writeLong(index.gap());
+            out.writeInt(changes.size());
+            for (Map.Entry<TypedLabel, Long> change : changes.entrySet()) {
+                out.writeUTF(change.getKey().type());
+                out.writeUTF(change.getKey().label());
+                out.writeLong(change.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("(Store) Persisted label index of repository '{}' in '{}'", repository, file);
+    }
+
+    @Nullable
+    private Index read(Repository repository, Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                log.debug("(Store) Label index of repository '{}' has an outdated format", repository);
+                return null;
+            }
+
+            Index index = new Index();
+            int subjects = in.readInt();
+            for (int i = 0; i < subjects; i++) {
+                String subject = in.readUTF();
+                int count = in.readInt();
+                Set<TypedLabel> keys = new HashSet<>(count);
+                for (int k = 0; k < count; k++) keys.add(new TypedLabel(in.readUTF(), in.readUTF()));
+                index.put(subject, keys);
+            }
+
+            index.changes().clear();
+            index.sequence().set(in.readLong());
+            index.setGap(in.readLong());
+            int changes = in.readInt();
+            for (int i = 0; i < changes; i++) index.changes().put(new TypedLabel(in.readUTF(), in.readUTF()), in.readLong());
+            index.clean();
+            return index;
+        }
+    }
+
+    /**
+     * The index is persisted for repositories with a data directory (the LMDB folder) only
+     */
+    @Nullable
+    private static Path fileFor(Repository repository) {
+        File dataDir = repository.getDataDir();
+        if (dataDir == null || dataDir.getParentFile() == null) return null;
+        return dataDir.getParentFile().toPath().resolve(FILE_NAME);
+    }
+
+    private static Set<IRI> asIRIs(Set<String> entities) {
+        return entities.stream().map(SimpleValueFactory.getInstance()::createIRI).collect(Collectors.toSet());
+    }
+
+
+    /**
+     * Commits prepared but not yet completed for a repository
+     */
+    private static class Commits {
+        private int pending;
+    }
+
+    private static class Index {
+        private final Map<TypedLabel, Set<String>> entities = new ConcurrentHashMap<>();
+        private final Map<String, Set<TypedLabel>> keys = new ConcurrentHashMap<>();
+        // the change log: sequence number of the last change for each key
+        private final Map<TypedLabel, Long> changes = new ConcurrentHashMap<>();
+        private final AtomicLong sequence = new AtomicLong();
+        // sequence number from which on the change log is complete, -1 if it is complete
+        private volatile long gap = -1;
+        private volatile boolean dirty;
+
+        Map<TypedLabel, Set<String>> entities() {
+            return entities;
+        }
+
+        Map<String, Set<TypedLabel>> keys() {
+            return keys;
+        }
+
+        Map<TypedLabel, Long> changes() {
+            return changes;
+        }
+
+        AtomicLong sequence() {
+            return sequence;
+        }
+
+        long gap() {
+            return gap;
+        }
+
+        void setGap(long gap) {
+            this.gap = gap;
+        }
+
+        boolean dirty() {
+            return dirty;
+        }
+
+        void clean() {
+            this.dirty = false;
+        }
+
+        /**
+         * Replaces the keys of the given subject
+         */
+        synchronized void put(String subject, Set<TypedLabel> current) {
+            Set<TypedLabel> previous = current.isEmpty() ? this.keys.remove(subject) : this.keys.put(subject, current);
+            if (previous != null) {
+                previous.stream().filter(key -> !current.contains(key)).forEach(key ->
+                        this.entities.computeIfPresent(key, (k, subjects) -> {
+                            subjects.remove(subject);
+                            return subjects.isEmpty() ? null : subjects;
+                        }));
+            }
+            current.forEach(key -> {
+                if (this.entities.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subject)) {
+                    this.changes.put(key, this.sequence.incrementAndGet());
+                }
+            });
+            if (this.changes.size() > MAX_CHANGES) this.incomplete();
+            this.dirty = true;
+        }
+
+        /**
+         * Drops the change log, all keys have to be checked once
+         */
+        synchronized void incomplete() {
+            this.changes.clear();
+            this.gap = this.sequence.get();
+        }
+
+        synchronized void acknowledge(long watermark) {
+            this.changes.values().removeIf(sequence -> sequence <= watermark);
+            if (this.gap >= 0 && this.gap <= watermark) this.gap = -1;
+            this.dirty = true;
+        }
+    }
+}
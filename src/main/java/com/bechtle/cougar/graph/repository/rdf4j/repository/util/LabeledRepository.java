@@ -1,21 +1,45 @@
 package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
 
-import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
 import org.eclipse.rdf4j.repository.base.RepositoryWrapper;
+import org.eclipse.rdf4j.sail.SailChangedListener;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
 
 /**
  * Required to override the toString() Method, to find out in the logs which repository has been used (to differentiate between the different applications)
+ * <p>
+ * The wrapper is the stable handle of a repository: the underlying store can be replaced while the application runs
+ * (see {@link RepositoryCompaction}). For this, it keeps track of the open connections, records the committed changes
+ * in a journal while the store is copied, and can briefly pause commits. Opening connections and reading is never
+ * blocked: connections opened before the store was replaced keep reading from the previous store, their commits are
+ * redirected to the current store.
  */
 public class LabeledRepository extends RepositoryWrapper {
 
     private final String label;
 
+    private final List<SailChangedListener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<LabeledConnection> connections = ConcurrentHashMap.newKeySet();
+    private final Object gate = new Object();
+    private boolean paused;
+    private long commitTimeout;
+    private int committing;
+    private int generation;
+    private volatile Journal journal;
+
     public LabeledRepository(String label, Repository repository) {
         super(repository);
         this.label = label;
@@ -28,6 +52,260 @@ public class LabeledRepository extends RepositoryWrapper {
 
     @Override
     public RepositoryConnection getConnection() throws RepositoryException {
-        return new RepositoryConnectionWrapper(this, super.getConnection());
+        synchronized (this.gate) {
+            LabeledConnection connection = new LabeledConnection(this, super.getConnection(), this.journal, this.generation);
+            this.connections.add(connection);
+            return connection;
+        }
+    }
+
+    /**
+     * Registers the listener with the current store, and again with every store replacing it
+     *
+     * @return false, if changes of the store cannot be observed
+     */
+    boolean addSailChangedListener(SailChangedListener listener) {
+        if (!RepositoryChanges.register(getDelegate(), listener)) return false;
+        this.listeners.add(listener);
+        return true;
+    }
+
+    /**
+     * Starts recording the committed changes. Connections opened before (which are not recorded) have to be closed
+     * within the timeout.
+     *
+     * @return the journal, or null if the connections were not closed in time
+     */
+    Journal startJournal(long timeout) {
+        Journal journal = new Journal();
+        this.journal = journal;
+        if (!this.await(() -> this.connections.stream().anyMatch(connection -> connection.journal != journal), timeout)) {
+            this.journal = null;
+            return null;
+        }
+        return journal;
+    }
+
+    void stopJournal() {
+        this.journal = null;
+    }
+
+    /**
+     * Pauses the commits and waits for the running commits to complete. Reads are not affected, commits wait for at
+     * most the commit timeout and fail afterwards.
+     *
+     * @return false, if the running commits did not complete within the timeout (the repository is not paused then)
+     */
+    boolean pause(long timeout, long commitTimeout) {
+        synchronized (this.gate) {
+            this.paused = true;
+            this.commitTimeout = commitTimeout;
+        }
+        if (this.await(() -> this.committing > 0, timeout)) return true;
+
+        this.resume();
+        return false;
+    }
+
+    void resume() {
+        synchronized (this.gate) {
+            this.paused = false;
+            this.gate.notifyAll();
+        }
+    }
+
+    /**
+     * Replaces the store, only while the repository is paused. Connections opened before keep using the previous
+     * store, which has to be shut down once they are closed (see {@link #awaitReplaced(long)}).
+     *
+     * @return the previous store
+     */
+    Repository replace(Repository repository) {
+        synchronized (this.gate) {
+            Repository previous = getDelegate();
+            setDelegate(repository);
+            this.generation++;
+            this.listeners.forEach(listener -> RepositoryChanges.register(repository, listener));
+            return previous;
+        }
+    }
+
+    /**
+     * Waits for the connections opened before the store was replaced to be closed
+     *
+     * @return false, if they were not closed within the timeout
+     */
+    boolean awaitReplaced(long timeout) {
+        return this.await(() -> this.connections.stream().anyMatch(connection -> connection.generation != this.generation), timeout);
+    }
+
+    private boolean await(BooleanSupplier waiting, long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (this.gate) {
+            while (waiting.getAsBoolean()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                try {
+                    this.gate.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Waits (for at most the commit timeout) while the repository is paused
+     *
+     * @return true, if the store was replaced since the connection has been opened
+     */
+    private boolean beginCommit(LabeledConnection connection) {
+        synchronized (this.gate) {
+            long deadline = System.currentTimeMillis() + this.commitTimeout;
+            while (this.paused) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) throw new RepositoryException("Repository " + this.label + " is being compacted, the commit was not applied");
+                try {
+                    this.gate.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RepositoryException("Interrupted while waiting for repository " + this.label, e);
+                }
+            }
+            this.committing++;
+            return connection.generation != this.generation;
+        }
+    }
+
+    private void endCommit() {
+        synchronized (this.gate) {
+            this.committing--;
+            this.gate.notifyAll();
+        }
+    }
+
+    /**
+     * Applies the changes of a connection opened before the store was replaced to the current store
+     */
+    private void redirect(List<Change> changes) {
+        try (RepositoryConnection connection = getDelegate().getConnection()) {
+            connection.begin();
+            for (Change change : changes) {
+                if (change.added()) connection.add(change.subject(), change.predicate(), change.object(), change.contexts());
+                else connection.remove(change.subject(), change.predicate(), change.object(), change.contexts());
+            }
+            connection.commit();
+        }
+    }
+
+    private void closed(LabeledConnection connection) {
+        synchronized (this.gate) {
+            this.connections.remove(connection);
+            this.gate.notifyAll();
+        }
+    }
+
+    /**
+     * A change committed to the repository
+     */
+    record Change(boolean added, Resource subject, IRI predicate, Value object, Resource[] contexts) {
+    }
+
+    /**
+     * The changes committed while the journal is active, in the order of their commits
+     */
+    static class Journal {
+        private final List<Change> changes = new ArrayList<>();
+
+        synchronized List<Change> drain() {
+            List<Change> result = List.copyOf(this.changes);
+            this.changes.clear();
+            return result;
+        }
+
+        private synchronized void append(List<Change> changes) {
+            this.changes.addAll(changes);
+        }
+    }
+
+    private static class LabeledConnection extends RepositoryConnectionWrapper {
+        private final LabeledRepository repository;
+        private final Journal journal;
+        private final int generation;
+        private final List<Change> pending = new ArrayList<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        LabeledConnection(LabeledRepository repository, RepositoryConnection delegate, Journal journal, int generation) {
+            super(repository, delegate);
+            this.repository = repository;
+            this.journal = journal;
+            this.generation = generation;
+        }
+
+        @Override
+        protected boolean isDelegatingAdd() {
+            return this.journal == null;
+        }
+
+        @Override
+        protected boolean isDelegatingRemove() {
+            return this.journal == null;
+        }
+
+        @Override
+        protected void addWithoutCommit(Resource subject, IRI predicate, Value object, Resource... contexts) throws RepositoryException {
+            super.addWithoutCommit(subject, predicate, object, contexts);
+            this.pending.add(new Change(true, subject, predicate, object, contexts));
+        }
+
+        @Override
+        protected void removeWithoutCommit(Resource subject, IRI predicate, Value object, Resource... contexts) throws RepositoryException {
+            super.removeWithoutCommit(subject, predicate, object, contexts);
+            this.pending.add(new Change(false, subject, predicate, object, contexts));
+        }
+
+        @Override
+        public void commit() throws RepositoryException {
+            // without a journal, the store cannot be paused or replaced before the connection is closed
+            if (this.journal == null) {
+                super.commit();
+                return;
+            }
+
+            boolean replaced = this.repository.beginCommit(this);
+            try {
+                if (replaced) {
+                    // the previous store is discarded, the recorded changes are applied to the current one
+                    super.rollback();
+                    this.repository.redirect(this.pending);
+                } else {
+                    // commits are appended in the order they were applied to the store
+                    synchronized (this.journal) {
+                        super.commit();
+                        this.journal.append(this.pending);
+                    }
+                }
+            } finally {
+                this.repository.endCommit();
+            }
+            this.pending.clear();
+        }
+
+        @Override
+        public void rollback() throws RepositoryException {
+            this.pending.clear();
+            super.rollback();
+        }
+
+        @Override
+        public void close() throws RepositoryException {
+            try {
+                super.close();
+            } finally {
+                if (this.closed.compareAndSet(false, true)) this.repository.closed(this);
+            }
+        }
     }
 }
@@ -0,0 +1,49 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.base.RepositoryWrapper;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.NotifyingSail;
+import org.eclipse.rdf4j.sail.SailChangedListener;
+
+/**
+ * Notifies about committed changes of the statements in a repository, as far as the underlying sail supports it
+ * (the memory and LMDB stores do).
+ */
+@Slf4j(topic = "cougar.graph.repository")
+public final class RepositoryChanges {
+
+    private RepositoryChanges() {
+    }
+
+    /**
+     * Registers the listener with the sail of the given repository.
+     *
+     * @return false, if changes of this repository cannot be observed
+     */
+    public static boolean onChange(Repository repository, Runnable listener) {
+        SailChangedListener sailListener = event -> {
+            if (event.statementsAdded() || event.statementsRemoved()) listener.run();
+        };
+
+        // the store of a labeled repository can be replaced, it registers the listener with the new store again
+        boolean registered = repository instanceof LabeledRepository labeled
+                ? labeled.addSailChangedListener(sailListener)
+                : register(repository, sailListener);
+
+        if (!registered) log.warn("(Store) Changes of repository '{}' cannot be observed", repository);
+        return registered;
+    }
+
+    static boolean register(Repository repository, SailChangedListener listener) {
+        Repository current = repository;
+        while (current instanceof RepositoryWrapper wrapper) current = wrapper.getDelegate();
+
+        if (current instanceof SailRepository sailRepository && sailRepository.getSail() instanceof NotifyingSail sail) {
+            sail.addSailChangedListener(listener);
+            return true;
+        }
+        return false;
+    }
+}
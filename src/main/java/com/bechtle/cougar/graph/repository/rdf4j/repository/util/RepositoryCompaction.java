@@ -0,0 +1,211 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import com.bechtle.cougar.graph.domain.model.extensions.CompactionResult;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.common.transaction.IsolationLevels;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.lmdb.LmdbStore;
+import org.eclipse.rdf4j.sail.lmdb.config.LmdbStoreConfig;
+import org.springframework.lang.Nullable;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Compacts a persistent (LMDB) repository while the application keeps running. LMDB never returns freed pages to the
+ * file system, the files of stores with many deletions (merged duplicates, replaced identifiers) stay at their
+ * largest size.
+ * <p>
+ * All statements are copied from a read snapshot into a fresh store next to the current one. Changes committed during
+ * the copy are recorded in a journal of the repository and replayed on the fresh store. Finally, commits are paused
+ * briefly (reads are never blocked), the remaining changes are replayed, and the folders of the stores are swapped.
+ * The previous store keeps serving the connections opened before (its files are only renamed) and is shut down once
+ * they are closed. The labeled repository stays the same object (only its store is replaced), the indexes of the
+ * repository remain valid.
+ */
+@Slf4j(topic = "cougar.graph.repository.compaction")
+public class RepositoryCompaction {
+
+    private static final int MAX_REPLAY_ROUNDS = 5;
+
+    private final long drainTimeout;
+    private final long commitTimeout;
+    private final int batchSize;
+    private final Set<Repository> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param drainTimeout  maximum time (in ms) to wait for open connections, before a compaction is given up
+     * @param commitTimeout maximum time (in ms) a commit waits while the stores are swapped, before it fails
+     * @param batchSize     number of statements copied within one transaction
+     */
+    public RepositoryCompaction(long drainTimeout, long commitTimeout, int batchSize) {
+        this.drainTimeout = drainTimeout;
+        this.commitTimeout = commitTimeout;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return the result, or null if the repository is not persistent
+     * @throws IOException if the compaction failed, the repository is unchanged then
+     */
+    @Nullable
+    public CompactionResult compact(LabeledRepository repository) throws IOException {
+        LmdbStore current = storeOf(repository);
+        if (current == null) return null;
+        if (!this.running.add(repository)) throw new IOException("Repository '" + repository + "' is already being compacted");
+        try {
+            return this.compact(repository, current);
+        } finally {
+            this.running.remove(repository);
+        }
+    }
+
+    private CompactionResult compact(LabeledRepository repository, LmdbStore current) throws IOException {
+        long start = System.currentTimeMillis();
+        Path folder = current.getDataDir().toPath();
+        Path compactFolder = folder.resolveSibling(folder.getFileName() + ".compact");
+        Path previousFolder = folder.resolveSibling(folder.getFileName() + ".previous");
+        FileSystemUtils.deleteRecursively(compactFolder);
+        FileSystemUtils.deleteRecursively(previousFolder);
+        long sizeBefore = sizeOf(folder);
+
+        LabeledRepository.Journal journal = repository.startJournal(this.drainTimeout);
+        if (journal == null) throw new IOException("Open connections of repository '" + repository + "' were not closed in time");
+
+        SailRepository compacted = open(compactFolder);
+        try {
+            log.debug("(Store) Compacting repository '{}' into '{}'", repository, compactFolder);
+            long statements = this.copy(repository, compacted);
+
+            // catch up with the changes committed during the copy, to keep the pause short
+            long replayed = 0;
+            for (int round = 0; round < MAX_REPLAY_ROUNDS; round++) {
+                long changes = this.replay(journal.drain(), compacted);
+                replayed += changes;
+                if (changes < this.batchSize) break;
+            }
+
+            long pauseStart = System.currentTimeMillis();
+            if (!repository.pause(this.drainTimeout, this.commitTimeout)) throw new IOException("Running commits of repository '" + repository + "' did not complete in time");
+            Repository previous;
+            try {
+                replayed += this.replay(journal.drain(), compacted);
+                compacted.shutDown();
+                previous = this.swap(repository, folder, compactFolder, previousFolder);
+            } finally {
+                repository.resume();
+            }
+            long pause = System.currentTimeMillis() - pauseStart;
+
+            // connections opened before the swap still read from the previous store
+            if (!repository.awaitReplaced(this.drainTimeout)) {
+                log.warn("(Store) Connections to the previous store of repository '{}' were not closed in time, shutting it down", repository);
+            }
+            previous.shutDown();
+            FileSystemUtils.deleteRecursively(previousFolder);
+            CompactionResult result = new CompactionResult(repository.toString(), statements, replayed, sizeBefore, sizeOf(folder), System.currentTimeMillis() - start, pause);
+            log.info("(Store) Compacted repository '{}' from {} to {} bytes ({} statements, {} replayed changes, paused for {} ms)",
+                    repository, result.sizeBefore(), result.sizeAfter(), result.statements(), result.replayed(), result.pause());
+            return result;
+        } finally {
+            repository.stopJournal();
+            if (compacted.isInitialized()) compacted.shutDown();
+            FileSystemUtils.deleteRecursively(compactFolder);
+        }
+    }
+
+    private long copy(Repository source, Repository target) {
+        long count = 0;
+        try (RepositoryConnection from = source.getConnection();
+             RepositoryConnection to = target.getConnection()) {
+            from.begin(IsolationLevels.SNAPSHOT_READ);
+            try {
+                to.begin();
+                try (RepositoryResult<Namespace> namespaces = from.getNamespaces()) {
+                    namespaces.forEach(namespace -> to.setNamespace(namespace.getPrefix(), namespace.getName()));
+                }
+                try (RepositoryResult<Statement> statements = from.getStatements(null, null, null, false)) {
+                    for (Statement statement : statements) {
+                        to.add(statement);
+                        if (++count % this.batchSize == 0) {
+                            to.commit();
+                            to.begin();
+                        }
+                    }
+                }
+                to.commit();
+            } finally {
+                from.commit();
+            }
+        }
+        return count;
+    }
+
+    private long replay(List<LabeledRepository.Change> changes, Repository target) {
+        if (changes.isEmpty()) return 0;
+
+        try (RepositoryConnection connection = target.getConnection()) {
+            connection.begin();
+            for (LabeledRepository.Change change : changes) {
+                if (change.added()) connection.add(change.subject(), change.predicate(), change.object(), change.contexts());
+                else connection.remove(change.subject(), change.predicate(), change.object(), change.contexts());
+            }
+            connection.commit();
+        }
+        return changes.size();
+    }
+
+    /**
+     * Replaces the folder of the current store with the compacted one, while the commits are paused. The current store
+     * remains open (its folder is renamed only), if the swap fails it remains in place.
+     *
+     * @return the previous store
+     */
+    private Repository swap(LabeledRepository repository, Path folder, Path compactFolder, Path previousFolder) throws IOException {
+        Files.move(folder, previousFolder, StandardCopyOption.ATOMIC_MOVE);
+        try {
+            Files.move(compactFolder, folder, StandardCopyOption.ATOMIC_MOVE);
+            return repository.replace(open(folder));
+        } catch (IOException | RuntimeException e) {
+            log.error("(Store) Failed to swap the compacted store of repository '{}', keeping the current store", repository, e);
+            if (Files.exists(folder)) FileSystemUtils.deleteRecursively(folder);
+            Files.move(previousFolder, folder, StandardCopyOption.ATOMIC_MOVE);
+            throw e;
+        }
+    }
+
+    private static SailRepository open(Path folder) {
+        // same configuration as the stores initialized by the repository configuration
+        SailRepository repository = new SailRepository(new LmdbStore(folder.toFile(), new LmdbStoreConfig()));
+        repository.init();
+        return repository;
+    }
+
+    @Nullable
+    private static LmdbStore storeOf(Repository repository) {
+        Repository current = repository;
+        while (current instanceof org.eclipse.rdf4j.repository.base.RepositoryWrapper wrapper) current = wrapper.getDelegate();
+        if (current instanceof SailRepository sailRepository && sailRepository.getSail() instanceof LmdbStore store && store.getDataDir() != null) return store;
+        return null;
+    }
+
+    private static long sizeOf(Path folder) throws IOException {
+        if (!Files.exists(folder)) return 0;
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import org.eclipse.rdf4j.repository.Repository;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the changes of the statements in a repository, starting with the first request for its version. Consumers
+ * compare versions to find out whether a repository changed in between (e.g. to skip maintenance jobs).
+ */
+public class RepositoryVersions {
+
+    private final Map<Repository, AtomicLong> versions = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Returns the current version of the repository, empty if its changes cannot be observed
+     */
+    public OptionalLong get(Repository repository) {
+        AtomicLong version = this.versions.computeIfAbsent(repository, key -> {
+            AtomicLong counter = new AtomicLong();
+            return RepositoryChanges.onChange(key, counter::incrementAndGet) ? counter : null;
+        });
+        return version != null ? OptionalLong.of(version.get()) : OptionalLong.empty();
+    }
+}
@@ -0,0 +1,278 @@
+package com.bechtle.cougar.graph.repository.rdf4j.repository.util;
+
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Sorted index of the subjects of each type (ordered by their IRI) for keyset pagination: a page starts right after
+ * the last subject of the previous page, independent of how deep the page is.
+ *
+ * The index of a type is built from the rdf:type statements in the repository when requested for the first time and
+ * kept up to date with the committed transactions. Writes bypassing transactions (imports, resets) have to invalidate
+ * the index of the repository.
+ * <p>
+ * For persistent repositories, the indexed types are stored next to the LMDB folder and reloaded on startup, a type
+ * is scanned once and not again after every restart. As for the {@link LabelIndex}, the file is deleted before every
+ * commit (see {@link #prepare(Repository)}) and only written again while no commit is pending.
+ */
+@Slf4j(topic = "cougar.graph.repository.index")
+public class SubjectsByTypeIndex {
+
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "type-index.bin";
+
+    private final Cache<Repository, Index> indexes;
+    private final Cache<Repository, Commits> commits;
+
+    public SubjectsByTypeIndex() {
+        this.indexes = Caffeine.newBuilder().weakKeys().build();
+        this.commits = Caffeine.newBuilder().weakKeys().build();
+    }
+
+    /**
+     * Lists the subjects with one of the given types, ordered by their IRI and starting after the given subject.
+     */
+    public List<IRI> list(Repository repository, Collection<IRI> types, @Nullable String after, int limit) {
+        PriorityQueue<Head> heads = new PriorityQueue<>();
+        for (IRI type : types) {
+            NavigableSet<String> subjects = this.getIndex(repository, type);
+            Iterator<String> iterator = after != null ? subjects.tailSet(after, false).iterator() : subjects.iterator();
+            if (iterator.hasNext()) heads.add(new Head(iterator.next(), iterator));
+        }
+
+        List<IRI> result = new ArrayList<>(limit);
+        String last = null;
+        while (result.size() < limit && !heads.isEmpty()) {
+            Head head = heads.poll();
+            // an entity with multiple of the requested types should appear only once
+            if (!head.value().equals(last)) {
+                result.add(SimpleValueFactory.getInstance().createIRI(head.value()));
+                last = head.value();
+            }
+            if (head.remaining().hasNext()) heads.add(new Head(head.remaining().next(), head.remaining()));
+        }
+        return result;
+    }
+
+    /**
+     * Has to be called before a transaction is committed: the persisted index becomes outdated with the commit, it is
+     * deleted and not written until the commit completed.
+     */
+    public void prepare(Repository repository) {
+        Commits commits = this.commits.get(repository, key -> new Commits());
+        synchronized (commits) {
+            commits.pending++;
+            this.delete(repository);
+        }
+    }
+
+    /**
+     * Has to be called once the commit prepared before completed (or failed)
+     */
+    public void complete(Repository repository) {
+        Commits commits = this.commits.getIfPresent(repository);
+        if (commits == null) return;
+        synchronized (commits) {
+            commits.pending = Math.max(0, commits.pending - 1);
+        }
+    }
+
+    public void update(Repository repository, Transaction transaction) {
+        Index index = this.indexes.getIfPresent(repository);
+        // the persisted index was deleted when the commit was prepared, the types are scanned again once requested
+        if (index == null) return;
+
+        transaction.getModel().getStatements(null, RDF.TYPE, null, Transactions.GRAPH_CREATED).forEach(statement ->
+                this.ifIndexed(index, statement, subjects -> subjects.add(statement.getSubject().stringValue())));
+        transaction.getModel().getStatements(null, RDF.TYPE, null, Transactions.GRAPH_DELETED).forEach(statement ->
+                this.ifIndexed(index, statement, subjects -> subjects.remove(statement.getSubject().stringValue())));
+    }
+
+    public void invalidate(Repository repository) {
+        if (this.indexes.getIfPresent(repository) != null) {
+            log.trace("(Store) Invalidating type index of repository '{}'", repository);
+            this.indexes.invalidate(repository);
+        }
+        this.delete(repository);
+    }
+
+    /**
+     * Writes the modified indexes of persistent repositories to disk
+     */
+    public void flush() {
+        this.indexes.asMap().forEach((repository, index) -> {
+            Path file = fileFor(repository);
+            if (file == null || !index.dirty) return;
+
+            Commits commits = this.commits.get(repository, key -> new Commits());
+            synchronized (commits) {
+                // the index might not contain the pending commits yet, it is written with the next flush
+                if (commits.pending > 0) return;
+                try {
+                    this.write(repository, index, file);
+                } catch (IOException e) {
+                    log.warn("(Store) Failed to persist type index of repository '{}', reason: {}", repository, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void ifIndexed(Index index, Statement statement, Consumer<NavigableSet<String>> action) {
+        if (!statement.getSubject().isIRI() || !(statement.getObject() instanceof IRI type)) return;
+
+        // computing on the map synchronizes with a concurrent build of the index for this type
+        index.types.computeIfPresent(type, (key, subjects) -> {
+            action.accept(subjects);
+            index.dirty = true;
+            return subjects;
+        });
+    }
+
+    private NavigableSet<String> getIndex(Repository repository, IRI type) {
+        Index index = this.indexes.get(repository, this::load);
+        return index.types.computeIfAbsent(type, key -> {
+            index.dirty = true;
+            return this.build(repository, key);
+        });
+    }
+
+    private Index load(Repository repository) {
+        Path file = fileFor(repository);
+        if (file != null && Files.exists(file)) {
+            try {
+                Index index = this.read(repository, file);
+                if (index != null) {
+                    log.debug("(Store) Loaded type index with {} types for repository '{}'", index.types.size(), repository);
+                    return index;
+                }
+            } catch (IOException e) {
+                log.warn("(Store) Failed to load type index of repository '{}', scanning the types again. Reason: {}", repository, e.getMessage());
+            }
+        }
+        return new Index();
+    }
+
+    private void delete(Repository repository) {
+        Path file = fileFor(repository);
+        if (file == null) return;
+        try {
+            if (Files.deleteIfExists(file)) log.trace("(Store) Deleted persisted type index of repository '{}'", repository);
+        } catch (IOException e) {
+            log.warn("(Store) Failed to delete type index '{}', reason: {}", file, e.getMessage());
+        }
+    }
+
+    private NavigableSet<String> build(Repository repository, IRI type) {
+        NavigableSet<String> subjects = new ConcurrentSkipListSet<>();
+        try (RepositoryConnection connection = repository.getConnection();
+             RepositoryResult<Statement> statements = connection.getStatements(null, RDF.TYPE, type)) {
+            statements.forEach(statement -> {
+                if (statement.getSubject().isIRI()) subjects.add(statement.getSubject().stringValue());
+            });
+        }
+        log.debug("(Store) Built type index for type <{}> with {} subjects in repository '{}'", type, subjects.size(), repository);
+        return subjects;
+    }
+
+    private void write(Repository repository, Index index, Path file) throws IOException {
+        Path temp = file.resolveSibling(FILE_NAME + ".tmp");
+        index.dirty = false;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            Map<IRI, NavigableSet<String>> types = Map.copyOf(index.types);
+            out.writeInt(types.size());
+            for (Map.Entry<IRI, NavigableSet<String>> type : types.entrySet()) {
+                List<String> subjects = List.copyOf(type.getValue());
+                out.writeUTF(type.getKey().stringValue());
+                out.writeInt(subjects.size());
+                for (String subject : subjects) out.writeUTF(subject);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("(Store) Persisted type index of repository '{}' in '{}'", repository, file);
+    }
+
+    @Nullable
+    private Index read(Repository repository, Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                log.debug("(Store) Type index of repository '{}' has an outdated format", repository);
+                return null;
+            }
+
+            Index index = new Index();
+            int types = in.readInt();
+            for (int i = 0; i < types; i++) {
+                IRI type = SimpleValueFactory.getInstance().createIRI(in.readUTF());
+                int count = in.readInt();
+                NavigableSet<String> subjects = new ConcurrentSkipListSet<>();
+                for (int k = 0; k < count; k++) subjects.add(in.readUTF());
+                index.types.put(type, subjects);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * The index is persisted for repositories with a data directory (the LMDB folder) only
+     */
+    @Nullable
+    private static Path fileFor(Repository repository) {
+        File dataDir = repository.getDataDir();
+        if (dataDir == null || dataDir.getParentFile() == null) return null;
+        return dataDir.getParentFile().toPath().resolve(FILE_NAME);
+    }
+
+    /**
+     * Commits prepared but not yet completed for a repository
+     */
+    private static class Commits {
+        private int pending;
+    }
+
+    /**
+     * The subjects of the types requested so far
+     */
+    private static class Index {
+        private final Map<IRI, NavigableSet<String>> types = new ConcurrentHashMap<>();
+        private volatile boolean dirty;
+    }
+
+    private record Head(String value, Iterator<String> remaining) implements Comparable<Head> {
+        @Override
+        public int compareTo(Head other) {
+            return this.value.compareTo(other.value);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.bechtle.cougar.graph.api.converter;
+
+import com.apicatalog.jsonld.JsonLdOptions;
+import com.bechtle.cougar.graph.api.converter.jsonld.JsonLdReader;
+import com.bechtle.cougar.graph.domain.model.extensions.LabeledBlankNode;
+import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.MimeType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BlankNodeLabelsTest {
+
+    @Test
+    void keepLabelsOfTurtle() throws IOException {
+        RDFParser parser = RdfUtils.BlankNodeFactory.configure(RdfUtils.getParserFactory(MimeType.valueOf(RDFFormat.TURTLE.getDefaultMIMEType())).orElseThrow().getParser());
+        RdfUtils.TriplesCollector handler = RdfUtils.getTriplesCollector();
+        parser.setRDFHandler(handler);
+        parser.parse(new ByteArrayInputStream("""
+                _:person <http://example.org/name> "Alice" ; <http://example.org/knows> _:friend .
+                _:friend <http://example.org/name> "Bob" .
+                [] <http://example.org/name> "Anonymous" .
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, handler.getModel().getSubjects().size());
+        assertEquals(Set.of("person", "friend"), labels(handler.getModel()));
+    }
+
+    @Test
+    void keepLabelsOfJsonLd() {
+        Incoming incoming = new JsonLdReader(new JsonLdOptions()).read(new ByteArrayInputStream("""
+                [
+                  {"@id": "_:person", "http://example.org/name": "Alice", "http://example.org/knows": {"@id": "_:friend"}},
+                  {"@id": "_:friend", "http://example.org/name": "Bob"},
+                  {"http://example.org/name": "Anonymous"}
+                ]
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, incoming.getSubjects().size());
+        assertEquals(Set.of("person", "friend"), labels(incoming));
+    }
+
+    private static Set<String> labels(Incoming incoming) {
+        return incoming.getSubjects().stream()
+                .filter(LabeledBlankNode.class::isInstance)
+                .map(node -> ((LabeledBlankNode) node).getLabel())
+                .collect(Collectors.toSet());
+    }
+}
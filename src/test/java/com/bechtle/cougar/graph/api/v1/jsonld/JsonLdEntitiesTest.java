@@ -1,8 +1,10 @@
 package com.bechtle.cougar.graph.api.v1.jsonld;
 
 import com.bechtle.cougar.graph.api.v1.EntitiesTest;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
 import com.bechtle.cougar.graph.tests.config.TestConfigurations;
 import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -131,6 +133,48 @@ public class JsonLdEntitiesTest extends TestsBase implements EntitiesTest {
                 .expectStatus().isBadRequest();
     }
 
+    @Test
+    public void createEntityWithPreloadedContext() {
+        Resource file = new ClassPathResource("data/v1/requests/create-valid-preloadedContext.jsonld");
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("application/ld+json"))
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted();
+    }
+
+    @Test
+    public void createEntityWithRemoteContext() {
+        Resource file = new ClassPathResource("data/v1/requests/create-invalid-remoteContext.jsonld");
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("application/ld+json"))
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void createEntityWithRegisteredContext() {
+        webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/api/contexts")
+                        .queryParam("url", "https://example.org/contexts/video.json")
+                        .build())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue("{ \"@context\": { \"@vocab\": \"https://schema.org/\" } }"))
+                .exchange()
+                .expectStatus().isCreated();
+
+        Resource file = new ClassPathResource("data/v1/requests/create-valid-registeredContext.jsonld");
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("application/ld+json"))
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted();
+    }
+
     @Override
     public void createMultipleEntitiesWithMixedIds() {
 
@@ -160,4 +204,10 @@ public class JsonLdEntitiesTest extends TestsBase implements EntitiesTest {
     public void createEdgeWithInvalidDestinationId() {
 
     }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository(RepositoryConfiguration.RepositoryType.ENTITIES.name());
+        super.resetRepository(RepositoryConfiguration.RepositoryType.FRAMES.name());
+    }
 }
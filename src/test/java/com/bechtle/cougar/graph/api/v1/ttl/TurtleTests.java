@@ -166,6 +166,20 @@ public class TurtleTests extends TestsBase implements EntitiesTest {
                 .expectStatus().isBadRequest();
     }
 
+    @Test
+    public void createMultipleEntitiesWithSomeNoType() {
+        Resource file = new ClassPathResource("data/v1/requests/create-invalid_multipleTwoNoType.ttl");
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.rejected.size()").isEqualTo(2)
+                .jsonPath("$.rejected[0].entities.size()").isEqualTo(1);
+    }
+
     @Override
     public void createMultipleEntitiesWithMixedIds() {
         Assertions.assertTrue(true);
@@ -0,0 +1,19 @@
+package com.bechtle.cougar.graph.api.v2;
+
+/**
+ * Scope:
+ * - Create multiple entities in one request
+ * - Partial failures
+ * - Streamed payloads (NDJSON)
+ * - Read multiple entities in one request
+ */
+public interface BatchTest {
+
+    void createEntitiesInBatch();
+
+    void createEntitiesWithPartialFailure();
+
+    void createEntitiesFromStream();
+
+    void readMultipleEntities();
+}
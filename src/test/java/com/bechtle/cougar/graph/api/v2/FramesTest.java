@@ -3,4 +3,8 @@ package com.bechtle.cougar.graph.api.v2;
 public interface FramesTest {
 
     void readEntityWithNamedTemplate();
+
+    void listTemplatesForType();
+
+    void readEntityWithUnknownTemplate();
 }
@@ -8,4 +8,16 @@ public interface MergeDuplicatesScheduler {
 
     @Test
     void createEmbeddedEntitiesWithSharedItemsInSeparateRequests() throws InterruptedException;
+
+    @Test
+    void createEmbeddedEntityExistingInGraph();
+
+    @Test
+    void createEmbeddedEntityExistingInGraphAfterReindex();
+
+    @Test
+    void mergeOnlyChangedDuplicates();
+
+    @Test
+    void mergeDropsLinksToDuplicates();
 }
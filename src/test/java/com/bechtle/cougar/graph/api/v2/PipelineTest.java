@@ -0,0 +1,18 @@
+package com.bechtle.cougar.graph.api.v2;
+
+/**
+ * Scope:
+ * - Timings of the ingestion pipeline in the Server-Timing header
+ * - Metrics for each stage of the pipeline
+ * - Dry runs, which report the changes, timings and lookups without committing
+ */
+public interface PipelineTest {
+
+    void createEntityWithServerTiming();
+
+    void createEntityWithoutServerTiming();
+
+    void recordStageMetrics();
+
+    void createEntityDryRun();
+}
@@ -0,0 +1,25 @@
+package com.bechtle.cougar.graph.api.v2;
+
+import java.io.IOException;
+
+/**
+ * Scope:
+ * - List entities by type
+ * - Paging support (keyset cursors)
+ *
+ * @version 2
+ */
+public interface QueriesTest {
+
+    /**
+     * <pre>GET /api/query?type=...&limit=...&page=...</pre>
+     */
+    void listEntitiesByTypeWithPaging();
+
+    /**
+     * <pre>GET /api/query?type=...&expand=true</pre>
+     */
+    void listEntitiesOfSubclasses() throws IOException;
+
+    void listEntitiesWithInvalidCursor();
+}
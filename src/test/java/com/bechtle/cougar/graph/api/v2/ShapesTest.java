@@ -0,0 +1,16 @@
+package com.bechtle.cougar.graph.api.v2;
+
+/**
+ * Scope:
+ * - Validation of incoming entities against the SHACL shapes in the schema
+ * - Violations reported per entity
+ * - Shapes of superclasses
+ */
+public interface ShapesTest {
+
+    void createEntityConformingToShapes();
+
+    void createEntitiesViolatingShapes();
+
+    void createEntityViolatingShapesOfSuperClass();
+}
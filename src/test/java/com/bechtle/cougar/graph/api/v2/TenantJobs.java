@@ -0,0 +1,11 @@
+package com.bechtle.cougar.graph.api.v2;
+
+import org.junit.jupiter.api.Test;
+
+public interface TenantJobs {
+    @Test
+    void runForAllTenants();
+
+    @Test
+    void skipUnchangedTenants();
+}
@@ -0,0 +1,132 @@
+package com.bechtle.cougar.graph.api.v2.impl;
+
+import com.bechtle.cougar.graph.api.converter.RdfUtils;
+import com.bechtle.cougar.graph.api.dto.Responses;
+import com.bechtle.cougar.graph.api.v2.BatchTest;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.tests.config.TestConfigurations;
+import com.bechtle.cougar.graph.tests.utils.RdfConsumer;
+import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestConfigurations.class)
+@RecordApplicationEvents
+@ActiveProfiles("test")
+class BatchTests extends TestsBase implements BatchTest {
+
+    @Override
+    @Test
+    public void createEntitiesInBatch() {
+        Resource file = new ClassPathResource("data/v2/batch/videos.nq");
+
+        webClient.post()
+                .uri("/api/entities/batch")
+                .contentType(MediaType.parseMediaType("application/n-quads"))
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(3)
+                .jsonPath("$[0].status").isEqualTo("created")
+                .jsonPath("$[0].entities.size()").isEqualTo(2)
+                .jsonPath("$[1].status").isEqualTo("created")
+                .jsonPath("$[2].status").isEqualTo("created");
+    }
+
+    @Override
+    @Test
+    public void createEntitiesWithPartialFailure() {
+        Resource file = new ClassPathResource("data/v2/batch/videos-oneNoType.nq");
+
+        webClient.post()
+                .uri("/api/entities/batch")
+                .contentType(MediaType.parseMediaType("application/n-quads"))
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(2)
+                .jsonPath("$[0].status").isEqualTo("created")
+                .jsonPath("$[0].transaction").exists()
+                .jsonPath("$[1].status").isEqualTo("failed")
+                .jsonPath("$[1].error").exists();
+    }
+
+    @Override
+    @Test
+    public void createEntitiesFromStream() {
+        Resource file = new ClassPathResource("data/v2/batch/videos.ndjson");
+
+        webClient.post()
+                .uri("/api/entities/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(2)
+                .jsonPath("$[0].status").isEqualTo("created")
+                .jsonPath("$[1].status").isEqualTo("created");
+    }
+
+    @Override
+    @Test
+    public void readMultipleEntities() {
+        Resource file = new ClassPathResource("data/v2/batch/videos.nq");
+
+        List<Responses.BatchEntityResponse> created = webClient.post()
+                .uri("/api/entities/batch")
+                .contentType(MediaType.parseMediaType("application/n-quads"))
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBodyList(Responses.BatchEntityResponse.class)
+                .returnResult().getResponseBody();
+
+        Assertions.assertNotNull(created);
+        List<String> ids = new ArrayList<>();
+        created.forEach(result -> ids.addAll(result.entities()));
+        ids.add("unknownId123");
+
+        RdfConsumer rdfConsumer = new RdfConsumer(RDFFormat.TURTLE);
+        webClient.post()
+                .uri("/api/entities/_multiget")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .body(BodyInserters.fromValue(ids))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .consumeWith(rdfConsumer);
+
+        Model result = rdfConsumer.asModel();
+        Assertions.assertEquals(3, result.filter(null, RDF.TYPE, vf.createIRI("http://schema.org/", "video")).size());
+        Assertions.assertEquals(1, result.filter(null, RDF.TYPE, vf.createIRI("http://schema.org/", "Person")).size());
+    }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository(RepositoryConfiguration.RepositoryType.ENTITIES.name());
+    }
+}
@@ -0,0 +1,122 @@
+package com.bechtle.cougar.graph.api.v2.impl;
+
+import com.bechtle.cougar.graph.api.converter.RdfUtils;
+import com.bechtle.cougar.graph.api.v2.FramesTest;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.tests.config.TestConfigurations;
+import com.bechtle.cougar.graph.tests.utils.RdfConsumer;
+import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.web.reactive.function.BodyInserters;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestConfigurations.class)
+@RecordApplicationEvents
+@ActiveProfiles("test")
+class FramesTests extends TestsBase implements FramesTest {
+
+    @Override
+    @Test
+    public void readEntityWithNamedTemplate() {
+        this.createFrame("videoTitle");
+        String id = this.createEntity();
+
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/{id}")
+                        .queryParam("presentation", "videoTitle")
+                        .build(id))
+                .accept(RdfUtils.getMediaType(RDFFormat.JSONLD))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.title").isEqualTo("Video 1")
+                .jsonPath("$.identifier").doesNotExist();
+    }
+
+    @Override
+    @Test
+    public void listTemplatesForType() {
+        this.createFrame("videoTitle");
+
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/frames")
+                        .queryParam("for", "http://schema.org/video")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(1)
+                .jsonPath("$[0].name").isEqualTo("videoTitle");
+
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/frames")
+                        .queryParam("for", "http://schema.org/audio")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(0);
+    }
+
+    @Override
+    @Test
+    public void readEntityWithUnknownTemplate() {
+        String id = this.createEntity();
+
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/{id}")
+                        .queryParam("presentation", "unknown")
+                        .build(id))
+                .accept(RdfUtils.getMediaType(RDFFormat.JSONLD))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private void createFrame(String name) {
+        Resource frame = new ClassPathResource("data/v2/frames/video-title.jsonld");
+
+        webClient.post()
+                .uri("/api/frames/{name}", name)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromResource(frame))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.target").isEqualTo("http://schema.org/video");
+    }
+
+    private String createEntity() {
+        Resource file = new ClassPathResource("data/v1/requests/create-valid.ttl");
+        RdfConsumer rdfConsumer = new RdfConsumer(RDFFormat.TURTLE);
+
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .accept(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .consumeWith(rdfConsumer);
+
+        Statement video = rdfConsumer.asModel().getStatements(null, RDF.TYPE, vf.createIRI("http://schema.org/", "video")).iterator().next();
+        return vf.createIRI(video.getSubject().stringValue()).getLocalName();
+    }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository(RepositoryConfiguration.RepositoryType.ENTITIES.name());
+        super.resetRepository(RepositoryConfiguration.RepositoryType.FRAMES.name());
+    }
+}
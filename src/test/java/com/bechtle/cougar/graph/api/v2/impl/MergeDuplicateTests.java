@@ -2,18 +2,27 @@ package com.bechtle.cougar.graph.api.v2.impl;
 
 import com.bechtle.cougar.graph.api.security.AdminAuthentication;
 import com.bechtle.cougar.graph.api.v2.MergeDuplicatesScheduler;
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.bechtle.cougar.graph.domain.services.EntityServices;
+import com.bechtle.cougar.graph.domain.services.QueryServices;
 import com.bechtle.cougar.graph.features.schedulers.detectDuplicates.ScheduledDetectDuplicates;
+import com.bechtle.cougar.graph.repository.EntityStore;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
 import com.bechtle.cougar.graph.tests.config.TestConfigurations;
 import com.bechtle.cougar.graph.tests.utils.CsvConsumer;
 import com.bechtle.cougar.graph.tests.utils.RdfConsumer;
 import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.SKOS;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.sparqlbuilder.core.SparqlBuilder;
 import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
@@ -50,6 +59,18 @@ public class MergeDuplicateTests extends TestsBase implements MergeDuplicatesSch
     @Autowired
     private ScheduledDetectDuplicates scheduledDetectDuplicates;
 
+    @Autowired
+    private EntityStore entityStore;
+
+    @Autowired
+    private QueryServices queryServices;
+
+    @Autowired
+    private EntityServices entityServices;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
 
     /** Verify that embedded items in one request are merged */
     @Override
@@ -141,7 +162,123 @@ public class MergeDuplicateTests extends TestsBase implements MergeDuplicatesSch
 
     }
 
+    /** Verify that embedded items which already exist in the graph are linked instead of created again */
+    @Override
+    @Test
+    public void createEmbeddedEntityExistingInGraph() {
+        this.createEntities("data/v1/requests/create-valid_withEmbedded.ttl");
+        this.createEntities("data/v1/requests/create-valid_withEmbedded_second.ttl");
 
+        // without running the scheduler
+        Assertions.assertEquals(1, this.countTerms("Term 1"));
+    }
 
+    /** Verify that the index used for finding existing items can be rebuilt */
+    @Override
+    @Test
+    public void createEmbeddedEntityExistingInGraphAfterReindex() {
+        this.createEntities("data/v1/requests/create-valid_withEmbedded.ttl");
 
+        webClient.post()
+                .uri("/api/admin/bulk/reindex")
+                .exchange()
+                .expectStatus().isAccepted();
+
+        this.createEntities("data/v1/requests/create-valid_withEmbedded_second.ttl");
+        Assertions.assertEquals(1, this.countTerms("Term 1"));
+    }
+
+    /** Verify that only the types and labels changed since the last check are searched for duplicates */
+    @Override
+    @Test
+    public void mergeOnlyChangedDuplicates() {
+        TestingAuthenticationToken authentication = new TestingAuthenticationToken("", "");
+        // the first check covers the complete index
+        StepVerifier.create(this.scheduledDetectDuplicates.checkForDuplicates(authentication)).verifyComplete();
+
+        // bypasses the transformers, which would merge the terms while creating them
+        for (String id : List.of("term-a", "term-b")) {
+            IRI term = vf.createIRI("http://example.org/terms#", id);
+            Transaction transaction = new Transaction().insert(List.of(
+                    vf.createStatement(term, RDF.TYPE, vf.createIRI("http://schema.org/DefinedTerm")),
+                    vf.createStatement(term, RDFS.LABEL, vf.createLiteral("Term 2"))), Activity.INSERTED);
+            StepVerifier.create(this.entityStore.commit(transaction, authentication)).expectNextCount(1).verifyComplete();
+        }
+
+        StepVerifier.create(this.queryServices.findChangedDuplicateLabels(authentication))
+                .assertNext(changes -> {
+                    Assertions.assertTrue(changes.incremental());
+                    Assertions.assertEquals(1, changes.duplicates().size());
+                })
+                .verifyComplete();
+
+        double merged = this.meterRegistry.counter("graph.duplicates.merged", "tenant", "test").count();
+        StepVerifier.create(this.scheduledDetectDuplicates.checkForDuplicates(authentication)).verifyComplete();
+        Assertions.assertEquals(1, this.countTerms("Term 2"));
+        Assertions.assertEquals(merged + 1, this.meterRegistry.counter("graph.duplicates.merged", "tenant", "test").count());
+
+        // acknowledged, nothing changed since
+        StepVerifier.create(this.queryServices.findChangedDuplicateLabels(authentication))
+                .assertNext(changes -> Assertions.assertTrue(changes.incremental() && changes.duplicates().isEmpty()))
+                .verifyComplete();
+    }
+
+    /** Verify that links of the original to a duplicate are dropped, instead of becoming links to itself */
+    @Override
+    @Test
+    public void mergeDropsLinksToDuplicates() {
+        TestingAuthenticationToken authentication = new TestingAuthenticationToken("", "");
+        IRI original = vf.createIRI("http://example.org/terms#original");
+        IRI duplicate = vf.createIRI("http://example.org/terms#duplicate");
+        IRI other = vf.createIRI("http://example.org/terms#other");
+
+        Transaction transaction = new Transaction().insert(List.of(
+                vf.createStatement(original, RDFS.LABEL, vf.createLiteral("Term 3")),
+                vf.createStatement(original, SKOS.RELATED, duplicate),
+                vf.createStatement(duplicate, RDFS.LABEL, vf.createLiteral("Term 3")),
+                vf.createStatement(other, SKOS.RELATED, duplicate)), Activity.INSERTED);
+        StepVerifier.create(this.entityStore.commit(transaction, authentication)).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(this.entityServices.mergeDuplicates(original, List.of(duplicate), authentication).collectList())
+                .assertNext(transactions -> Assertions.assertTrue(transactions.stream().noneMatch(Transaction::isFailed)))
+                .verifyComplete();
+
+        StepVerifier.create(this.entityStore.listStatements(List.<org.eclipse.rdf4j.model.Resource>of(original), authentication))
+                .assertNext(statements -> {
+                    Assertions.assertTrue(statements.stream().noneMatch(statement -> statement.getSubject().equals(original) && statement.getObject().equals(original)));
+                    Assertions.assertTrue(statements.stream().anyMatch(statement -> statement.getSubject().equals(other) && statement.getObject().equals(original)));
+                })
+                .verifyComplete();
+        Assertions.assertEquals(1, this.countTerms("Term 3"));
+    }
+
+    private void createEntities(String path) {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource(path)))
+                .exchange()
+                .expectStatus().isAccepted();
+    }
+
+    private int countTerms(String label) {
+        CsvConsumer csvConsumer = new CsvConsumer();
+        Variable term = SparqlBuilder.var("term");
+        SelectQuery all = Queries.SELECT(term).where(term.has(RDFS.LABEL, label)).all();
+        webClient.post()
+                .uri("/api/query/select")
+                .contentType(MediaType.parseMediaType("text/plain"))
+                .accept(MediaType.parseMediaType("text/csv"))
+                .body(BodyInserters.fromValue(all.getQueryString()))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .consumeWith(csvConsumer);
+        return csvConsumer.getRows().size();
+    }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository(RepositoryConfiguration.RepositoryType.ENTITIES.name());
+    }
 }
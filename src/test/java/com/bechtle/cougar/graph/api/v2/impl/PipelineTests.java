@@ -0,0 +1,123 @@
+package com.bechtle.cougar.graph.api.v2.impl;
+
+import com.bechtle.cougar.graph.api.v2.PipelineTest;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.tests.config.TestConfigurations;
+import com.bechtle.cougar.graph.tests.utils.CsvConsumer;
+import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.web.reactive.function.BodyInserters;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestConfigurations.class)
+@RecordApplicationEvents
+@ActiveProfiles("test")
+class PipelineTests extends TestsBase implements PipelineTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    @Test
+    public void createEntityWithServerTiming() {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .header("X-Server-Timing", "true")
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v1/requests/create-valid.ttl")))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().value("Server-Timing", Matchers.allOf(
+                        Matchers.containsString("CheckRequiredType;dur="),
+                        Matchers.containsString("MergeDuplicates;dur="),
+                        Matchers.containsString("total;dur=")));
+    }
+
+    @Override
+    @Test
+    public void createEntityWithoutServerTiming() {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v1/requests/create-valid.ttl")))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().doesNotExist("Server-Timing");
+    }
+
+    @Override
+    @Test
+    public void recordStageMetrics() {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v1/requests/create-valid.ttl")))
+                .exchange()
+                .expectStatus().isAccepted();
+
+        Timer timer = meterRegistry.find("graph.pipeline.stage").tag("stage", "CheckRequiredType").tag("outcome", "completed").timer();
+        Assertions.assertNotNull(timer);
+        Assertions.assertTrue(timer.count() > 0);
+        Assertions.assertNotNull(meterRegistry.find("graph.pipeline.stage.statements").tag("stage", "MergeDuplicates").tag("direction", "out").summary());
+    }
+
+    @Override
+    @Test
+    public void createEntityDryRun() {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v1/requests/create-valid_withEmbedded.ttl")))
+                .exchange()
+                .expectStatus().isAccepted();
+
+        webClient.post()
+                .uri("/api/entities?dryRun=true")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .accept(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v1/requests/create-valid_withEmbedded_second.ttl")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.transaction").isNotEmpty()
+                .jsonPath("$.inserted").isNotEmpty()
+                .jsonPath("$.stages.CheckRequiredType").isNumber()
+                .jsonPath("$.stages.MergeDuplicates").isNumber()
+                // the embedded term exists already in the graph
+                .jsonPath("$.lookups[?(@.stage == 'MergeDuplicates')].results").isEqualTo(1);
+
+        // nothing was committed
+        Assertions.assertEquals(2, this.countVideos());
+    }
+
+    private int countVideos() {
+        CsvConsumer csvConsumer = new CsvConsumer();
+        webClient.post()
+                .uri("/api/query/select")
+                .contentType(MediaType.parseMediaType("text/plain"))
+                .accept(MediaType.parseMediaType("text/csv"))
+                .body(BodyInserters.fromValue("SELECT ?video WHERE { ?video a <http://schema.org/VideoObject> }"))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .consumeWith(csvConsumer);
+        return csvConsumer.getRows().size();
+    }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository(RepositoryConfiguration.RepositoryType.ENTITIES.name());
+    }
+}
@@ -0,0 +1,152 @@
+package com.bechtle.cougar.graph.api.v2.impl;
+
+import com.bechtle.cougar.graph.api.converter.RdfUtils;
+import com.bechtle.cougar.graph.api.v2.QueriesTest;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.tests.config.TestConfigurations;
+import com.bechtle.cougar.graph.tests.utils.RdfConsumer;
+import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestConfigurations.class)
+@RecordApplicationEvents
+@ActiveProfiles("test")
+class QueriesTests extends TestsBase implements QueriesTest {
+
+    private static final IRI VIDEO = vf.createIRI("http://schema.org/", "video");
+    private static final IRI CREATIVE_WORK = vf.createIRI("http://schema.org/", "CreativeWork");
+
+    @Autowired
+    private RepositoryConfiguration repositoryConfiguration;
+
+    @BeforeEach
+    public void createEntities() {
+        webClient.post()
+                .uri("/api/entities/batch")
+                .contentType(MediaType.parseMediaType("application/n-quads"))
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v2/batch/videos.nq")))
+                .exchange()
+                .expectStatus().isAccepted();
+    }
+
+    @Override
+    @Test
+    public void listEntitiesByTypeWithPaging() {
+        RdfConsumer firstPage = new RdfConsumer(RDFFormat.TURTLE);
+        EntityExchangeResult<byte[]> first = webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/query")
+                        .queryParam("type", VIDEO.stringValue())
+                        .queryParam("limit", 2)
+                        .build())
+                .accept(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.LINK)
+                .expectBody()
+                .consumeWith(firstPage)
+                .returnResult();
+
+        Set<String> videos = this.subjectsOfType(firstPage.asModel(), VIDEO);
+        Assertions.assertEquals(2, videos.size());
+
+        String link = first.getResponseHeaders().getFirst(HttpHeaders.LINK);
+        Assertions.assertNotNull(link);
+        URI next = URI.create(link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+
+        RdfConsumer secondPage = new RdfConsumer(RDFFormat.TURTLE);
+        webClient.get()
+                .uri(next.getPath() + "?" + next.getRawQuery())
+                .accept(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBody()
+                .consumeWith(secondPage);
+
+        Set<String> remaining = this.subjectsOfType(secondPage.asModel(), VIDEO);
+        Assertions.assertEquals(1, remaining.size());
+        Assertions.assertFalse(videos.containsAll(remaining));
+    }
+
+    @Override
+    @Test
+    public void listEntitiesOfSubclasses() throws IOException {
+        try (RepositoryConnection connection = repositoryConfiguration.getRepository(RepositoryConfiguration.RepositoryType.SCHEMA, new TestingAuthenticationToken("", "")).getConnection()) {
+            connection.add(VIDEO, RDFS.SUBCLASSOF, CREATIVE_WORK);
+        }
+
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/query")
+                        .queryParam("type", CREATIVE_WORK.stringValue())
+                        .build())
+                .accept(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().isEmpty();
+
+        RdfConsumer rdfConsumer = new RdfConsumer(RDFFormat.TURTLE);
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/query")
+                        .queryParam("type", CREATIVE_WORK.stringValue())
+                        .queryParam("expand", true)
+                        .build())
+                .accept(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .consumeWith(rdfConsumer);
+
+        Assertions.assertEquals(3, this.subjectsOfType(rdfConsumer.asModel(), VIDEO).size());
+    }
+
+    @Override
+    @Test
+    public void listEntitiesWithInvalidCursor() {
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/query")
+                        .queryParam("type", VIDEO.stringValue())
+                        .queryParam("page", "%%%")
+                        .build())
+                .accept(RdfUtils.getMediaType(RDFFormat.TURTLE))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private Set<String> subjectsOfType(Model model, IRI type) {
+        Set<String> result = new HashSet<>();
+        model.filter(null, RDF.TYPE, type).subjects().forEach(subject -> result.add(subject.stringValue()));
+        return result;
+    }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository(RepositoryConfiguration.RepositoryType.ENTITIES.name());
+        super.resetRepository(RepositoryConfiguration.RepositoryType.SCHEMA.name());
+    }
+}
@@ -0,0 +1,114 @@
+package com.bechtle.cougar.graph.api.v2.impl;
+
+import com.bechtle.cougar.graph.api.v2.ShapesTest;
+import com.bechtle.cougar.graph.domain.model.vocabulary.SDO;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.tests.config.TestConfigurations;
+import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF4J;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestConfigurations.class)
+@RecordApplicationEvents
+@ActiveProfiles("test")
+class ShapesTests extends TestsBase implements ShapesTest {
+
+    @Autowired
+    private RepositoryConfiguration repositoryConfiguration;
+
+    private static final SimpleValueFactory vf = SimpleValueFactory.getInstance();
+    private static final IRI CREATIVE_WORK = vf.createIRI("http://schema.org/", "CreativeWork");
+
+    @BeforeEach
+    public void loadShapes() {
+        this.addShapes("data/v2/shapes/videos.shapes.ttl");
+    }
+
+    @Override
+    @Test
+    public void createEntityConformingToShapes() {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v2/shapes/videos-valid.ttl")))
+                .exchange()
+                .expectStatus().isAccepted();
+    }
+
+    @Override
+    @Test
+    public void createEntitiesViolatingShapes() {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v2/shapes/videos-invalid.ttl")))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.violations.size()").isEqualTo(1)
+                .jsonPath("$.violations['http://example.org/videos/missingTitle'][0]").value(Matchers.containsString("MinCountConstraintComponent"));
+    }
+
+    @Override
+    @Test
+    public void createEntityViolatingShapesOfSuperClass() {
+        this.addShapes("data/v2/shapes/creativeworks.shapes.ttl");
+        try (RepositoryConnection connection = this.getSchemaConnection()) {
+            connection.add(SDO.VIDEO_OBJECT, RDFS.SUBCLASSOF, CREATIVE_WORK);
+        }
+
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource("data/v2/shapes/videos-valid.ttl")))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.violations.size()").isEqualTo(1);
+    }
+
+    private void addShapes(String path) {
+        try (RepositoryConnection connection = this.getSchemaConnection();
+             InputStream shapes = new ClassPathResource(path).getInputStream()) {
+            connection.add(shapes, RDFFormat.TURTLE, RDF4J.SHACL_SHAPE_GRAPH);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RepositoryConnection getSchemaConnection() {
+        try {
+            return repositoryConfiguration.getRepository(RepositoryConfiguration.RepositoryType.SCHEMA, new TestingAuthenticationToken("", "")).getConnection();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository(RepositoryConfiguration.RepositoryType.ENTITIES.name());
+        super.resetRepository(RepositoryConfiguration.RepositoryType.SCHEMA.name());
+    }
+}
@@ -0,0 +1,82 @@
+package com.bechtle.cougar.graph.api.v2.impl;
+
+import com.bechtle.cougar.graph.api.security.AdminAuthentication;
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.api.v2.TenantJobs;
+import com.bechtle.cougar.graph.features.multitenancy.domain.ApplicationsService;
+import com.bechtle.cougar.graph.features.schedulers.TenantJobRunner;
+import com.bechtle.cougar.graph.tests.config.TestConfigurations;
+import com.bechtle.cougar.graph.tests.utils.TestsBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestConfigurations.class)
+@RecordApplicationEvents
+@ActiveProfiles("test")
+class TenantJobsTests extends TestsBase implements TenantJobs {
+
+    @Autowired
+    private TenantJobRunner runner;
+
+    @Autowired
+    private ApplicationsService applicationsService;
+
+    @Override
+    @Test
+    public void runForAllTenants() {
+        Set<String> keys = this.createSubscriptions("a", "b");
+
+        Set<String> tenants = ConcurrentHashMap.newKeySet();
+        StepVerifier.create(this.runner.run("runForAllTenants", authentication -> Mono.fromRunnable(() -> tenants.add(Tenants.keyOf(authentication)))))
+                .verifyComplete();
+
+        Assertions.assertTrue(tenants.containsAll(keys));
+    }
+
+    @Override
+    @Test
+    public void skipUnchangedTenants() {
+        Set<String> keys = this.createSubscriptions("a", "b");
+
+        Set<String> tenants = ConcurrentHashMap.newKeySet();
+        StepVerifier.create(this.runner.run("skipUnchangedTenants", authentication -> Mono.fromRunnable(() -> tenants.add(Tenants.keyOf(authentication)))))
+                .verifyComplete();
+        Assertions.assertTrue(tenants.containsAll(keys));
+
+        // nothing changed in the entity graphs in between
+        tenants.clear();
+        StepVerifier.create(this.runner.run("skipUnchangedTenants", authentication -> Mono.fromRunnable(() -> tenants.add(Tenants.keyOf(authentication)))))
+                .verifyComplete();
+        Assertions.assertTrue(tenants.stream().noneMatch(keys::contains));
+    }
+
+    private Set<String> createSubscriptions(String... labels) {
+        AdminAuthentication admin = new AdminAuthentication();
+        admin.setAuthenticated(true);
+
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        for (String label : labels) {
+            StepVerifier.create(this.applicationsService.createSubscription(label, false, admin))
+                    .assertNext(application -> keys.add(application.key()))
+                    .verifyComplete();
+        }
+        return keys;
+    }
+
+    @AfterEach
+    public void reset() {
+        super.resetRepository("application");
+    }
+}
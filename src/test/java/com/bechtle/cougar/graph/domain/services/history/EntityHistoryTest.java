@@ -0,0 +1,158 @@
+package com.bechtle.cougar.graph.domain.services.history;
+
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.FOAF;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntityHistoryTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    private final IRI entity = vf.createIRI(Local.Entities.NAMESPACE, "entity");
+    private final IRI first = vf.createIRI(Local.Entities.NAMESPACE, "first");
+    private final IRI second = vf.createIRI(Local.Entities.NAMESPACE, "second");
+
+    @Test
+    void undoesChangedValues() {
+        Model current = this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("changed")));
+
+        Transaction update = new Transaction()
+                .remove(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("original")), Activity.REMOVED)
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("changed")), Activity.INSERTED);
+
+        Model before = this.reconstruct(this.entity, current, update);
+        assertEquals(1, before.size());
+        assertTrue(before.contains(this.entity, RDFS.LABEL, vf.createLiteral("original")));
+
+        assertEquals(current, this.reconstruct(this.entity, current));
+    }
+
+    @Test
+    void restoresDeletedEntities() {
+        Transaction create = new Transaction()
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label")), Activity.INSERTED);
+        Transaction delete = new Transaction()
+                .remove(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label")), Activity.REMOVED);
+
+        // between creation and deletion
+        Model between = this.reconstruct(this.entity, new LinkedHashModel(), delete);
+        assertTrue(between.contains(this.entity, RDFS.LABEL, vf.createLiteral("label")));
+
+        // before the creation
+        assertTrue(this.reconstruct(this.entity, new LinkedHashModel(), create, delete).isEmpty());
+    }
+
+    @Test
+    void restoresFormerEmbeddedEntities() {
+        Model current = this.model(
+                vf.createStatement(this.entity, FOAF.KNOWS, this.second),
+                vf.createStatement(this.second, RDFS.LABEL, vf.createLiteral("second")),
+                vf.createStatement(this.first, RDFS.LABEL, vf.createLiteral("first")));
+
+        Transaction replace = new Transaction()
+                .remove(vf.createStatement(this.entity, FOAF.KNOWS, this.first), Activity.REMOVED)
+                .insert(vf.createStatement(this.entity, FOAF.KNOWS, this.second), Activity.INSERTED);
+
+        Model before = this.reconstruct(this.entity, current, replace);
+        assertEquals(this.model(vf.createStatement(this.entity, FOAF.KNOWS, this.first)), before);
+        assertEquals(Set.of(this.first), EntityHistory.embeddedOf(this.entity, before));
+        assertEquals(this.model(vf.createStatement(this.first, RDFS.LABEL, vf.createLiteral("first"))), this.reconstruct(this.first, current, replace));
+    }
+
+    @Test
+    void undoesInOrderOfCommit() {
+        Model current = this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("third")));
+
+        Transaction second = this.at(Instant.parse("2022-01-02T00:00:00Z"), new Transaction()
+                .remove(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("first")), Activity.REMOVED)
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("second")), Activity.INSERTED));
+        Transaction third = this.at(Instant.parse("2022-01-03T00:00:00Z"), new Transaction()
+                .remove(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("second")), Activity.REMOVED)
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("third")), Activity.INSERTED));
+
+        // the second transaction was retried and appended to the log after the third one
+        Model before = this.reconstruct(this.entity, current, third, second);
+        assertEquals(this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("first"))), before);
+    }
+
+    @Test
+    void ignoresFailedTransactions() {
+        Model current = this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label")));
+
+        Transaction failed = new Transaction()
+                .remove(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("other")), Activity.REMOVED)
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label")), Activity.INSERTED);
+        failed.setFailed("rejected");
+
+        assertEquals(current, this.reconstruct(this.entity, current, failed));
+    }
+
+    @Test
+    void takesSnapshotsBetweenTimes() {
+        Instant start = Instant.parse("2022-01-01T00:00:00Z");
+        List<Model> transactions = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            // the fourth and fifth transaction were committed at the same time
+            Instant at = start.plusSeconds(i == 5 ? 4 : i);
+            transactions.add(this.at(at, new Transaction()
+                    .remove(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label " + (i - 1))), Activity.REMOVED)
+                    .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label " + i)), Activity.INSERTED)).getModel());
+        }
+        Model current = this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label 6")));
+
+        List<EntitySnapshot> snapshots = new ArrayList<>();
+        Model before = EntityHistory.reconstruct(this.entity, current, transactions, 2, snapshots::add);
+        assertEquals(this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label 0"))), before);
+
+        // not between the fifth and fourth transaction, but after undoing both of them
+        assertEquals(List.of(start.plusSeconds(4), start.plusSeconds(2)), snapshots.stream().map(EntitySnapshot::at).toList());
+        assertEquals(this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label 3"))), snapshots.get(0).statements());
+
+        // starting from a snapshot gives the same state as starting from the current one
+        Model fromSnapshot = EntityHistory.reconstruct(this.entity, snapshots.get(0).statements(), transactions.subList(1, 3), 0, snapshot -> {
+        });
+        Model fromCurrent = EntityHistory.reconstruct(this.entity, current, transactions.subList(1, 6), 0, snapshot -> {
+        });
+        assertEquals(this.model(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label 1"))), fromSnapshot);
+        assertEquals(fromCurrent, fromSnapshot);
+    }
+
+    private Model reconstruct(IRI subject, Model current, Transaction... transactions) {
+        List<Model> models = List.of(transactions).stream().map(Transaction::getModel).toList();
+        return EntityHistory.reconstruct(subject, current, models, 0, snapshot -> {
+            throw new AssertionError("no snapshots expected");
+        });
+    }
+
+    private Transaction at(Instant at, Transaction transaction) {
+        transaction.getModel().remove(transaction.getIdentifier(), Transactions.AT, null);
+        transaction.getModel().add(transaction.getIdentifier(), Transactions.AT, vf.createLiteral(Date.from(at)), Transactions.GRAPH_PROVENANCE);
+        return transaction;
+    }
+
+    private Model model(Statement... statements) {
+        Model model = new LinkedHashModel();
+        model.addAll(List.of(statements));
+        return model;
+    }
+}
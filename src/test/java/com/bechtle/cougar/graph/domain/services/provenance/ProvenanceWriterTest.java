@@ -0,0 +1,252 @@
+package com.bechtle.cougar.graph.domain.services.provenance;
+
+import com.bechtle.cougar.graph.api.security.AdminAuthentication;
+import com.bechtle.cougar.graph.api.security.Tenants;
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.bechtle.cougar.graph.features.multitenancy.domain.model.Application;
+import com.bechtle.cougar.graph.repository.TransactionsStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProvenanceWriterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider = new StaticListableBeanFactory(Map.of("meterRegistry", this.meterRegistry)).getBeanProvider(MeterRegistry.class);
+    private final Authentication authentication = new TestingAuthenticationToken("", "");
+
+    @TempDir
+    Path spill;
+
+    @Test
+    void writeCommittedTransactions() throws IOException, InterruptedException {
+        RecordingStore store = new RecordingStore();
+        ProvenanceWriter writer = this.writer(store, 100);
+
+        List<Transaction> transactions = this.transactions(10);
+        transactions.get(0).setFailed("rejected");
+        writer.submit(transactions, this.authentication);
+
+        assertTrue(writer.await(Duration.ofSeconds(5)));
+        assertEquals(9, store.models.size());
+        assertEquals(9, this.meterRegistry.get(ProvenanceWriter.WRITTEN).counter().count());
+        writer.shutdown();
+    }
+
+    @Test
+    void spillWhenQueueIsFull() throws IOException, InterruptedException {
+        RecordingStore store = new RecordingStore();
+        store.blocked = new CountDownLatch(1);
+        ProvenanceWriter writer = this.writer(store, 2);
+
+        for (Transaction transaction : this.transactions(20)) writer.submit(transaction, this.authentication);
+        assertTrue(this.meterRegistry.get(ProvenanceWriter.SPILLED).counter().count() > 0);
+
+        store.blocked.countDown();
+        assertTrue(writer.await(Duration.ofSeconds(5)));
+        assertEquals(20, store.models.size());
+        writer.shutdown();
+    }
+
+    @Test
+    void writeSpilledTransactionsAfterRestart() throws IOException, InterruptedException {
+        RecordingStore failing = new RecordingStore();
+        failing.failing = true;
+        ProvenanceWriter writer = this.writer(failing, 100, 1000);
+        writer.submit(this.transactions(5), this.authentication);
+        Thread.sleep(300);
+        writer.shutdown();
+        assertEquals(0, failing.models.size());
+
+        RecordingStore store = new RecordingStore();
+        ProvenanceWriter restarted = this.writer(store, 100);
+        assertTrue(restarted.await(Duration.ofSeconds(5)));
+        assertEquals(5, store.models.size());
+        restarted.shutdown();
+    }
+
+    @Test
+    void deadLetterAfterMaxAttempts() throws IOException, InterruptedException {
+        RecordingStore failing = new RecordingStore();
+        failing.failing = true;
+        ProvenanceWriter writer = this.writer(failing, 100, 3);
+        writer.submit(this.transactions(5), this.authentication);
+
+        assertTrue(writer.await(Duration.ofSeconds(5)));
+        assertEquals(5, this.meterRegistry.get(ProvenanceWriter.DEAD).counter().count());
+        assertEquals(15, this.meterRegistry.get(ProvenanceWriter.FAILED).counter().count());
+        assertTrue(Files.size(this.spill.resolve("provenance.dead")) > 0);
+        writer.shutdown();
+
+        // dead letters are not replayed after a restart
+        RecordingStore store = new RecordingStore();
+        ProvenanceWriter restarted = this.writer(store, 100, 3);
+        assertTrue(restarted.await(Duration.ofSeconds(5)));
+        assertEquals(0, store.models.size());
+        restarted.shutdown();
+    }
+
+    @Test
+    void failingTenantDoesNotStallOthers() throws IOException, InterruptedException {
+        RecordingStore store = new RecordingStore();
+        store.failingTenant = "broken";
+        ProvenanceWriter writer = new ProvenanceWriter(store, this.meterRegistryProvider, true, 100, 50, 60000, 10, 1000, this.spill.toString(), null);
+
+        Authentication broken = AdminAuthentication.runAs(new Application(SimpleValueFactory.getInstance().createIRI("http://example.org/applications/broken"), "broken", "broken", false));
+        writer.submit(this.transactions(5), broken);
+        Thread.sleep(200);
+
+        // the broken tenant is backed off for a minute, the transactions of the other tenant are written right away
+        writer.submit(this.transactions(5), this.authentication);
+        long start = System.currentTimeMillis();
+        while (store.models.size() < 5 && System.currentTimeMillis() - start < 2000) Thread.sleep(10);
+
+        assertEquals(5, store.models.size());
+        // depending on the batches, only the first transactions of the broken tenant were attempted
+        double failed = this.meterRegistry.get(ProvenanceWriter.FAILED).counter().count();
+        assertTrue(failed > 0 && failed <= 5);
+        writer.shutdown();
+    }
+
+    @Test
+    void awaitOnlyTransactionsOfTenantHandedOffBefore() throws IOException, InterruptedException {
+        RecordingStore store = new RecordingStore();
+        store.failingTenant = "broken";
+        ProvenanceWriter writer = new ProvenanceWriter(store, this.meterRegistryProvider, true, 100, 50, 60000, 10, 1000, this.spill.toString(), null);
+
+        Authentication broken = AdminAuthentication.runAs(new Application(SimpleValueFactory.getInstance().createIRI("http://example.org/applications/broken"), "broken", "broken", false));
+        Instant before = Instant.now().minusSeconds(1);
+        writer.submit(this.transactions(5), broken);
+        writer.submit(this.transactions(5), this.authentication);
+
+        // the transactions of the broken tenant are spilled and pending for a minute
+        assertFalse(writer.await("broken", Instant.now(), Duration.ofMillis(200)));
+        assertTrue(writer.await("broken", before, Duration.ZERO));
+        assertTrue(writer.await(Tenants.TEST, Instant.now(), Duration.ofSeconds(5)));
+        assertEquals(5, store.models.size());
+        writer.shutdown();
+    }
+
+    @Test
+    void awaitSpilledTransactionsAfterRestart() throws IOException, InterruptedException {
+        RecordingStore failing = new RecordingStore();
+        failing.failing = true;
+        ProvenanceWriter writer = this.writer(failing, 100, 1000);
+        writer.submit(this.transactions(5), this.authentication);
+        Thread.sleep(300);
+        writer.shutdown();
+
+        RecordingStore store = new RecordingStore();
+        store.blocked = new CountDownLatch(1);
+        ProvenanceWriter restarted = this.writer(store, 100);
+        assertFalse(restarted.await(Tenants.TEST, Instant.now(), Duration.ofMillis(200)));
+
+        store.blocked.countDown();
+        assertTrue(restarted.await(Tenants.TEST, Instant.now(), Duration.ofSeconds(5)));
+        assertEquals(5, store.models.size());
+        restarted.shutdown();
+    }
+
+    private ProvenanceWriter writer(TransactionsStore store, int queueSize) throws IOException {
+        return this.writer(store, queueSize, 10);
+    }
+
+    private ProvenanceWriter writer(TransactionsStore store, int queueSize, int maxAttempts) throws IOException {
+        return new ProvenanceWriter(store, this.meterRegistryProvider, true, queueSize, 50, 10, maxAttempts, 1000, this.spill.toString(), null);
+    }
+
+    private List<Transaction> transactions(int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction();
+            transaction.insert(SimpleValueFactory.getInstance().createStatement(
+                    SimpleValueFactory.getInstance().createIRI("http://example.org/entities/" + i), RDFS.LABEL, SimpleValueFactory.getInstance().createLiteral("label")), Activity.INSERTED);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    private static class RecordingStore implements TransactionsStore {
+        private final List<Model> models = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+        private volatile boolean failing;
+        private volatile String failingTenant;
+
+        @Override
+        public Mono<Transaction> store(Transaction transaction, Authentication authentication) {
+            return Mono.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Flux<Transaction> store(Collection<Transaction> transaction, Authentication authentication) {
+            return Flux.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Mono<Void> append(Collection<Model> transactions, Authentication authentication) {
+            return Mono.fromRunnable(() -> {
+                try {
+                    this.blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (this.failing || Tenants.keyOf(authentication).equals(this.failingTenant)) throw new IllegalStateException("unavailable");
+                this.models.addAll(transactions);
+            });
+        }
+
+        @Override
+        public Mono<Model> read(IRI identifier, Authentication authentication) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Flux<Model> readSince(Instant since, Authentication authentication) {
+            return Flux.empty();
+        }
+
+        @Override
+        public Flux<Model> readChanges(IRI subject, Instant since, Instant until, Authentication authentication) {
+            return Flux.empty();
+        }
+
+        @Override
+        public Mono<EntitySnapshot> readSnapshot(IRI subject, Instant at, Authentication authentication) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Void> storeSnapshots(Collection<EntitySnapshot> snapshots, Authentication authentication) {
+            return Mono.empty();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.bechtle.cougar.graph.domain.services.scheduler;
 
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
 import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
 import com.bechtle.cougar.graph.domain.services.AdminServices;
 import com.bechtle.cougar.graph.domain.services.QueryServices;
@@ -9,6 +10,8 @@ import com.bechtle.cougar.graph.repository.TransactionsStore;
 import com.bechtle.cougar.graph.tests.config.TestConfigurations;
 import com.bechtle.cougar.graph.tests.utils.TestsBase;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -29,6 +32,8 @@ import reactor.test.StepVerifier;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
 
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -37,9 +42,18 @@ import java.time.temporal.ChronoUnit;
 @ActiveProfiles("test")
 @Slf4j
 class CheckGlobalIdentifiersTest extends TestsBase {
+
+    private static final List<Value> GLOBAL_IDENTIFIERS = Stream.of(
+            "http://data.europa.eu/esco/skill/1a4cc54f-1e53-442b-a6d2-1682dc8ef8f9",
+            "http://data.europa.eu/esco/node-literal/7d44a65e-ca7d-4631-a5ce-b33223f383ed",
+            "http://data.europa.eu/esco/node-literal/059327cb-5ded-4a22-89c5-f0950a69d9d0",
+            "http://data.europa.eu/esco/skill/7e5147d1-60b1-4a68-804b-1f5cb0396b91"
+    ).map(iri -> (Value) SimpleValueFactory.getInstance().createIRI(iri)).toList();
+
     @Autowired
     private WebTestClient webClient;
 
+    @Autowired
     private ScheduledReplaceGlobalIdentifiers scheduled;
 
     @Autowired
@@ -58,7 +72,6 @@ class CheckGlobalIdentifiersTest extends TestsBase {
     void checkForGlobalIdentifiers() {
 
         createEntities();
-        scheduled = new ScheduledReplaceGlobalIdentifiers(queryServices, entityStore, transactionsStore);
 
         Flux<Transaction> action = scheduled.checkForGlobalIdentifiers(new TestingAuthenticationToken("", "")).doOnNext(transaction -> {
             log.trace("Completed transaction");
@@ -66,22 +79,19 @@ class CheckGlobalIdentifiersTest extends TestsBase {
 
         Duration duration = StepVerifier.create(action)
                 .thenAwait(Duration.of(2, ChronoUnit.SECONDS))
+                // all four subjects with global identifiers are replaced within one transaction
                 .assertNext(transaction -> {
                     Assert.notNull(transaction, "transaction is null");
-                })
-                .assertNext(transaction -> {
-                    Assert.notNull(transaction, "transaction is null");
-                })
-                .assertNext(transaction -> {
-                    Assert.notNull(transaction, "transaction is null");
-                })
-                .assertNext(transaction -> {
-                    Assert.notNull(transaction, "transaction is null");
+                    Assert.isTrue(transaction.listModifiedResources(Activity.REMOVED).containsAll(GLOBAL_IDENTIFIERS), "not all resources were replaced");
                 })
                 .verifyComplete();
 
         Assert.isTrue(duration.getNano() > 0, "no transaction time");
 
+        // the replaced subjects were acknowledged, nothing left to do
+        StepVerifier.create(scheduled.checkForGlobalIdentifiers(new TestingAuthenticationToken("", "")))
+                .verifyComplete();
+
 
     }
 
@@ -0,0 +1,56 @@
+package com.bechtle.cougar.graph.domain.services.scheduler;
+
+import com.bechtle.cougar.graph.features.schedulers.leadership.FileLeaseLeadership;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobLeadershipTest {
+
+    @TempDir
+    Path shared;
+
+    @Test
+    void onlyOneReplicaLeadsAJob() throws IOException {
+        FileLeaseLeadership first = new FileLeaseLeadership(this.shared, Duration.ofMinutes(5), "first");
+        FileLeaseLeadership second = new FileLeaseLeadership(this.shared, Duration.ofMinutes(5), "second");
+
+        assertTrue(first.acquire("detectDuplicates"));
+        assertFalse(second.acquire("detectDuplicates"));
+        // renewed by the leader
+        assertTrue(first.acquire("detectDuplicates"));
+
+        // leadership is per job
+        assertTrue(second.acquire("replaceGlobalIdentifiers"));
+        assertFalse(first.acquire("replaceGlobalIdentifiers"));
+    }
+
+    @Test
+    void takeOverExpiredLease() throws IOException, InterruptedException {
+        FileLeaseLeadership first = new FileLeaseLeadership(this.shared, Duration.ofMillis(50), "first");
+        FileLeaseLeadership second = new FileLeaseLeadership(this.shared, Duration.ofMillis(50), "second");
+
+        assertTrue(first.acquire("detectDuplicates"));
+        assertFalse(second.acquire("detectDuplicates"));
+
+        Thread.sleep(100);
+        assertTrue(second.acquire("detectDuplicates"));
+        assertFalse(first.acquire("detectDuplicates"));
+    }
+
+    @Test
+    void takeOverReleasedLease() throws IOException {
+        FileLeaseLeadership first = new FileLeaseLeadership(this.shared, Duration.ofMinutes(5), "first");
+        FileLeaseLeadership second = new FileLeaseLeadership(this.shared, Duration.ofMinutes(5), "second");
+
+        assertTrue(first.acquire("detectDuplicates"));
+        first.release();
+        assertTrue(second.acquire("detectDuplicates"));
+    }
+}
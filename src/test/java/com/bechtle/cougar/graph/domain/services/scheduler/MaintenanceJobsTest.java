@@ -0,0 +1,88 @@
+package com.bechtle.cougar.graph.domain.services.scheduler;
+
+import com.bechtle.cougar.graph.features.schedulers.jobs.JobRun;
+import com.bechtle.cougar.graph.features.schedulers.jobs.MaintenanceJobs;
+import com.bechtle.cougar.graph.features.schedulers.jobs.RequestLoad;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MaintenanceJobsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider = new StaticListableBeanFactory(Map.of("meterRegistry", this.meterRegistry)).getBeanProvider(MeterRegistry.class);
+
+    @Test
+    void runSingleFlight() {
+        MaintenanceJobs jobs = new MaintenanceJobs(this.load(100), this.meterRegistryProvider, 10);
+        Sinks.Empty<Void> pass = Sinks.empty();
+        jobs.register("job", pass::asMono);
+
+        assertTrue(jobs.schedule("job").isPresent());
+        // still running
+        assertFalse(jobs.schedule("job").isPresent());
+        assertFalse(jobs.trigger("job").isPresent());
+        assertTrue(jobs.current("job").isPresent());
+
+        pass.tryEmitEmpty();
+        assertTrue(jobs.current("job").isEmpty());
+
+        List<JobRun> history = jobs.history("job");
+        assertEquals(1, history.size());
+        assertEquals("completed", history.get(0).outcome());
+        assertEquals(1, this.meterRegistry.get("graph.schedulers.passes").tag("job", "job").tag("outcome", "completed").timer().count());
+    }
+
+    @Test
+    void keepHistoryOfFailedRuns() {
+        MaintenanceJobs jobs = new MaintenanceJobs(this.load(100), this.meterRegistryProvider, 2);
+        jobs.register("job", () -> Mono.error(new IllegalStateException("broken")));
+
+        for (int i = 0; i < 3; i++) jobs.trigger("job");
+
+        List<JobRun> history = jobs.history("job");
+        assertEquals(2, history.size());
+        assertEquals("failed", history.get(0).outcome());
+        assertEquals("broken", history.get(0).error());
+        assertEquals("manual", history.get(0).trigger());
+    }
+
+    @Test
+    void throttleScheduledRunsUnderLoad() {
+        RequestLoad load = this.load(1);
+        MaintenanceJobs jobs = new MaintenanceJobs(load, this.meterRegistryProvider, 10);
+        jobs.register("job", Mono::empty);
+
+        // a request in flight
+        Disposable request = load.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/entities")), exchange -> Mono.never()).subscribe();
+        assertTrue(load.isOverloaded());
+
+        assertEquals(Optional.empty(), jobs.schedule("job"));
+        assertEquals("throttled", jobs.history("job").get(0).outcome());
+        // manual runs are not throttled
+        assertTrue(jobs.trigger("job").isPresent());
+
+        request.dispose();
+        assertFalse(load.isOverloaded());
+        assertTrue(jobs.schedule("job").isPresent());
+    }
+
+    private RequestLoad load(int inFlight) {
+        return new RequestLoad(this.meterRegistryProvider, 0, inFlight, 10000);
+    }
+}
@@ -0,0 +1,121 @@
+package com.bechtle.cougar.graph.domain.transformers;
+
+import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
+import com.bechtle.cougar.graph.domain.services.QueryServices;
+import com.bechtle.cougar.graph.domain.transformers.mergeDuplicates.MergeDuplicates;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MergeDuplicatesTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    private final IRI type = vf.createIRI("http://example.org/Person");
+
+    /**
+     * Without the label index, the labels are matched as in the index: normalized, and the smallest identifier wins
+     */
+    @Test
+    void queryMatchesNormalizedLabels() {
+        SailRepository repository = new SailRepository(new MemoryStore());
+        repository.init();
+        try (RepositoryConnection connection = repository.getConnection()) {
+            connection.add(vf.createIRI("http://example.org/x"), RDF.TYPE, this.type);
+            connection.add(vf.createIRI("http://example.org/x"), RDFS.LABEL, vf.createLiteral("Alice"));
+            connection.add(vf.createIRI("http://example.org/w"), RDF.TYPE, this.type);
+            connection.add(vf.createIRI("http://example.org/w"), RDFS.LABEL, vf.createLiteral("alice"));
+        }
+
+        MergeDuplicates mergeDuplicates = new MergeDuplicates(false, 100, 0);
+        mergeDuplicates.registerQueryService(this.queryServices(repository, new ArrayList<>(), new ArrayList<>()));
+
+        IRI entity = vf.createIRI("http://example.org/entity");
+        BNode embedded = vf.createBNode();
+        Incoming incoming = new Incoming();
+        incoming.getBuilder()
+                .add(entity, RDF.TYPE, vf.createIRI("http://example.org/Team"))
+                .add(entity, vf.createIRI("http://example.org/member"), embedded)
+                .add(embedded, RDF.TYPE, this.type)
+                .add(embedded, RDFS.LABEL, vf.createLiteral("  ALICE "));
+
+        mergeDuplicates.mergeDuplicatesInEntityGraph(incoming, new TestingAuthenticationToken("", "")).block();
+
+        assertTrue(incoming.getModel().contains(entity, vf.createIRI("http://example.org/member"), vf.createIRI("http://example.org/w")));
+        assertTrue(incoming.getModel().filter(embedded, null, null).isEmpty());
+        repository.shutDown();
+    }
+
+    /**
+     * The types and labels are looked up in pairs, in chunks of the configured size, other entities of the type are not read
+     */
+    @Test
+    void queryLooksUpPairsInChunks() {
+        SailRepository repository = new SailRepository(new MemoryStore());
+        repository.init();
+        try (RepositoryConnection connection = repository.getConnection()) {
+            for (int i = 0; i < 50; i++) {
+                connection.add(vf.createIRI("http://example.org/p" + i), RDF.TYPE, this.type);
+                connection.add(vf.createIRI("http://example.org/p" + i), RDFS.LABEL, vf.createLiteral("Person " + i));
+            }
+        }
+
+        List<String> queries = new ArrayList<>();
+        List<BindingSet> results = new ArrayList<>();
+        MergeDuplicates mergeDuplicates = new MergeDuplicates(false, 2, 0);
+        mergeDuplicates.registerQueryService(this.queryServices(repository, queries, results));
+
+        IRI entity = vf.createIRI("http://example.org/entity");
+        Incoming incoming = new Incoming();
+        incoming.getBuilder().add(entity, RDF.TYPE, vf.createIRI("http://example.org/Team"));
+        for (String label : List.of("person 1", "PERSON 2", "Person  3", "Unknown")) {
+            BNode embedded = vf.createBNode();
+            incoming.getBuilder()
+                    .add(entity, vf.createIRI("http://example.org/member"), embedded)
+                    .add(embedded, RDF.TYPE, this.type)
+                    .add(embedded, RDFS.LABEL, vf.createLiteral(label));
+        }
+
+        mergeDuplicates.mergeDuplicatesInEntityGraph(incoming, new TestingAuthenticationToken("", "")).block();
+
+        assertEquals(2, queries.size());
+        assertTrue(queries.stream().allMatch(query -> query.contains("VALUES (?type ?label)")));
+        assertEquals(3, results.size());
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(incoming.getModel().contains(entity, vf.createIRI("http://example.org/member"), vf.createIRI("http://example.org/p" + i)));
+        }
+        repository.shutDown();
+    }
+
+    private QueryServices queryServices(SailRepository repository, List<String> queries, List<BindingSet> results) {
+        return new QueryServices(null, null) {
+            @Override
+            public Flux<BindingSet> queryValues(String query, Authentication authentication) {
+                queries.add(query);
+                try (RepositoryConnection connection = repository.getConnection()) {
+                    List<BindingSet> bindings = QueryResults.asList(connection.prepareTupleQuery(query).evaluate());
+                    results.addAll(bindings);
+                    return Flux.fromIterable(bindings);
+                }
+            }
+        };
+    }
+}
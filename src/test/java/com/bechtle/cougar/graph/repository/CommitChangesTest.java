@@ -0,0 +1,93 @@
+package com.bechtle.cougar.graph.repository;
+
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.bechtle.cougar.graph.repository.rdf4j.config.RepositoryConfiguration;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.AbstractRepository;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommitChangesTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    private final IRI entity = vf.createIRI("http://example.org/entity");
+    private final Authentication authentication = new TestingAuthenticationToken("", "");
+
+    private SailRepository repository;
+    private AbstractRepository store;
+
+    @BeforeEach
+    void setUp() {
+        this.repository = new SailRepository(new MemoryStore());
+        this.repository.init();
+        this.store = new AbstractRepository(RepositoryConfiguration.RepositoryType.ENTITIES) {
+            @Override
+            public RepositoryConnection getConnection(Authentication authentication) {
+                return repository.getConnection();
+            }
+        };
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.add(this.label("existing"));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.repository.shutDown();
+    }
+
+    @Test
+    void recordOnlyAppliedChanges() {
+        Transaction transaction = new Transaction()
+                .insert(List.of(this.label("existing"), this.label("new"), this.label("reverted")), Activity.INSERTED)
+                .remove(List.of(this.label("absent"), this.label("reverted")), Activity.REMOVED);
+
+        this.store.commit(List.of(transaction), this.authentication).blockLast();
+
+        assertEquals(Set.of(this.label("new")), this.changes(transaction, Transactions.GRAPH_CREATED));
+        assertTrue(this.changes(transaction, Transactions.GRAPH_DELETED).isEmpty());
+        // the response still contains the requested statements
+        assertEquals(3, transaction.getModel().filter(null, null, null, Transactions.GRAPH_AFFECTED).size());
+    }
+
+    @Test
+    void recordChangesWithinBatchInOrder() {
+        Transaction insert = new Transaction().insert(this.label("batch"), Activity.INSERTED);
+        Transaction remove = new Transaction().remove(List.of(this.label("batch"), this.label("existing")), Activity.REMOVED);
+
+        this.store.commit(List.of(insert, remove), this.authentication).blockLast();
+
+        assertEquals(Set.of(this.label("batch")), this.changes(insert, Transactions.GRAPH_CREATED));
+        assertEquals(Set.of(this.label("batch"), this.label("existing")), this.changes(remove, Transactions.GRAPH_DELETED));
+    }
+
+    private Set<Statement> changes(Transaction transaction, IRI graph) {
+        Model changes = transaction.getModel().filter(null, null, null, graph);
+        return changes.stream().map(statement -> vf.createStatement(statement.getSubject(), statement.getPredicate(), statement.getObject())).collect(Collectors.toSet());
+    }
+
+    private Statement label(String label) {
+        return vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral(label));
+    }
+}
@@ -0,0 +1,126 @@
+package com.bechtle.cougar.graph.repository;
+
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
+import com.bechtle.cougar.graph.domain.model.extensions.TypedLabel;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.LabelIndex;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.lmdb.LmdbStore;
+import org.eclipse.rdf4j.sail.lmdb.config.LmdbStoreConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LabelIndexTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    private final IRI type = vf.createIRI("http://example.org/Person");
+    private final IRI entity = vf.createIRI("http://example.org/entity");
+
+    @TempDir
+    Path storage;
+
+    private SailRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        this.repository = new SailRepository(new LmdbStore(this.storage.resolve("lmdb").toFile(), new LmdbStoreConfig()));
+        this.repository.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.repository.shutDown();
+    }
+
+    @Test
+    void rebuildAfterCommitWhileNotLoaded() {
+        this.commit(new LabelIndex(), new Transaction()
+                .insert(vf.createStatement(this.entity, RDF.TYPE, this.type), Activity.INSERTED)
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("old")), Activity.INSERTED));
+
+        LabelIndex index = new LabelIndex();
+        assertEquals(Set.of(this.entity), this.find(index, "old"));
+        index.flush();
+        assertTrue(Files.exists(this.file()));
+
+        // a restart, the label is renamed before the index is loaded again (the number of statements remains the same)
+        LabelIndex restarted = new LabelIndex();
+        this.commit(restarted, new Transaction()
+                .remove(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("old")), Activity.REMOVED)
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("new")), Activity.INSERTED));
+
+        assertFalse(Files.exists(this.file()));
+        assertTrue(this.find(restarted, "old").isEmpty());
+        assertEquals(Set.of(this.entity), this.find(restarted, "new"));
+    }
+
+    @Test
+    void writeOnlyWithoutPendingCommits() {
+        LabelIndex index = new LabelIndex();
+        Transaction transaction = new Transaction()
+                .insert(vf.createStatement(this.entity, RDF.TYPE, this.type), Activity.INSERTED)
+                .insert(vf.createStatement(this.entity, RDFS.LABEL, vf.createLiteral("label")), Activity.INSERTED);
+        this.find(index, "label");
+
+        index.prepare(this.repository);
+        this.apply(transaction);
+        index.flush();
+        assertFalse(Files.exists(this.file()));
+
+        index.update(this.repository, transaction);
+        index.complete(this.repository);
+        index.flush();
+        assertTrue(Files.exists(this.file()));
+
+        assertEquals(Set.of(this.entity), this.find(new LabelIndex(), "label"));
+    }
+
+    private Set<IRI> find(LabelIndex index, String label) {
+        TypedLabel key = TypedLabel.of(this.type, vf.createLiteral(label));
+        return index.find(this.repository, List.of(key)).getOrDefault(key, Set.of());
+    }
+
+    private void commit(LabelIndex index, Transaction transaction) {
+        index.prepare(this.repository);
+        try {
+            this.apply(transaction);
+            index.update(this.repository, transaction);
+        } finally {
+            index.complete(this.repository);
+        }
+    }
+
+    private void apply(Transaction transaction) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.begin();
+            transaction.getModel().filter(null, null, null, Transactions.GRAPH_CREATED)
+                    .forEach(statement -> connection.add(statement.getSubject(), statement.getPredicate(), statement.getObject()));
+            transaction.getModel().filter(null, null, null, Transactions.GRAPH_DELETED)
+                    .forEach(statement -> connection.remove(statement.getSubject(), statement.getPredicate(), statement.getObject()));
+            connection.commit();
+        }
+    }
+
+    private Path file() {
+        return this.storage.resolve("label-index.bin");
+    }
+}
@@ -0,0 +1,162 @@
+package com.bechtle.cougar.graph.repository;
+
+import com.bechtle.cougar.graph.domain.model.extensions.CompactionResult;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.LabeledRepository;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.RepositoryChanges;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.RepositoryCompaction;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.lmdb.LmdbStore;
+import org.eclipse.rdf4j.sail.lmdb.config.LmdbStoreConfig;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepositoryCompactionTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    @TempDir
+    Path storage;
+
+    private LabeledRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        SailRepository store = new SailRepository(new LmdbStore(this.storage.resolve("lmdb").toFile(), new LmdbStoreConfig()));
+        store.init();
+        this.repository = new LabeledRepository("test:entities", store);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.repository.shutDown();
+    }
+
+    @Test
+    void keepContentAfterCompaction() throws IOException {
+        this.insert(0, 1000);
+        this.remove(0, 900);
+
+        CompactionResult result = new RepositoryCompaction(5000, 1000, 10).compact(this.repository);
+
+        assertNotNull(result);
+        assertEquals(100, result.statements());
+        assertEquals(100, this.size());
+
+        // the repository remains usable
+        this.insert(1000, 1010);
+        assertEquals(110, this.size());
+    }
+
+    @Test
+    void replayChangesCommittedDuringCompaction() throws IOException {
+        this.insert(0, 2000);
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 2000; i < 2200; i++) this.insert(i, i + 1);
+            this.remove(0, 100);
+        });
+        new RepositoryCompaction(5000, 1000, 50).compact(this.repository);
+        writer.join();
+
+        assertEquals(2100, this.size());
+    }
+
+    @Test
+    void keepReadingAndWritingDuringCompaction() throws IOException {
+        this.insert(0, 2000);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        // long-lived connections, some of them are opened before the swap and committed after it
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 2000; i < 2040; i++) {
+                try (RepositoryConnection connection = this.repository.getConnection()) {
+                    connection.begin();
+                    connection.add(this.subject(i), RDFS.LABEL, vf.createLiteral("label " + i));
+                    Thread.sleep(10);
+                    connection.commit();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        CompletableFuture<Long> reader = CompletableFuture.supplyAsync(() -> {
+            long reads = 0;
+            while (running.get()) {
+                assertTrue(this.size() >= 2000);
+                reads++;
+            }
+            return reads;
+        });
+
+        new RepositoryCompaction(5000, 1000, 100).compact(this.repository);
+        writer.join();
+        running.set(false);
+
+        assertTrue(reader.join() > 0);
+        assertEquals(2040, this.size());
+    }
+
+    @Test
+    void notifyListenersOfCompactedStore() throws IOException {
+        AtomicInteger changes = new AtomicInteger();
+        assertTrue(RepositoryChanges.onChange(this.repository, changes::incrementAndGet));
+
+        this.insert(0, 10);
+        new RepositoryCompaction(5000, 1000, 100).compact(this.repository);
+        int before = changes.get();
+
+        this.insert(10, 20);
+        assertTrue(changes.get() > before);
+    }
+
+    @Test
+    void skipVolatileRepositories() throws IOException {
+        LabeledRepository memory = new LabeledRepository("test:memory", new SailRepository(new MemoryStore()));
+        assertNull(new RepositoryCompaction(5000, 1000, 100).compact(memory));
+    }
+
+    private void insert(int from, int to) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.begin();
+            for (int i = from; i < to; i++) connection.add(this.subject(i), RDFS.LABEL, vf.createLiteral("label " + i));
+            connection.commit();
+        }
+    }
+
+    private void remove(int from, int to) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.begin();
+            for (int i = from; i < to; i++) connection.remove(this.subject(i), null, null);
+            connection.commit();
+        }
+    }
+
+    private long size() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            return connection.size();
+        }
+    }
+
+    private IRI subject(int index) {
+        return vf.createIRI("http://example.org/entities/" + index);
+    }
+}
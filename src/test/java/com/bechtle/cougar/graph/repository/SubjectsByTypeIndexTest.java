@@ -0,0 +1,116 @@
+package com.bechtle.cougar.graph.repository;
+
+import com.bechtle.cougar.graph.domain.model.enums.Activity;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.domain.model.wrapper.Transaction;
+import com.bechtle.cougar.graph.repository.rdf4j.repository.util.SubjectsByTypeIndex;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.lmdb.LmdbStore;
+import org.eclipse.rdf4j.sail.lmdb.config.LmdbStoreConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubjectsByTypeIndexTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    private final IRI type = vf.createIRI("http://example.org/Person");
+    private final IRI first = vf.createIRI("http://example.org/a");
+    private final IRI second = vf.createIRI("http://example.org/b");
+
+    @TempDir
+    Path storage;
+
+    private SailRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        this.repository = new SailRepository(new LmdbStore(this.storage.resolve("lmdb").toFile(), new LmdbStoreConfig()));
+        this.repository.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.repository.shutDown();
+    }
+
+    @Test
+    void reloadPersistedIndexAfterRestart() {
+        SubjectsByTypeIndex index = new SubjectsByTypeIndex();
+        this.commit(index, new Transaction().insert(vf.createStatement(this.first, RDF.TYPE, this.type), Activity.INSERTED));
+        assertEquals(List.of(this.first), this.list(index));
+        index.flush();
+        assertTrue(Files.exists(this.file()));
+
+        // written without a transaction, a restarted index doesn't see it since the type is not scanned again
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.add(this.second, RDF.TYPE, this.type);
+        }
+        assertEquals(List.of(this.first), this.list(new SubjectsByTypeIndex()));
+    }
+
+    @Test
+    void deletePersistedIndexBeforeCommit() {
+        SubjectsByTypeIndex index = new SubjectsByTypeIndex();
+        this.list(index);
+        index.flush();
+        assertTrue(Files.exists(this.file()));
+
+        // a restart, the commit happens before the index is loaded again
+        SubjectsByTypeIndex restarted = new SubjectsByTypeIndex();
+        Transaction transaction = new Transaction().insert(vf.createStatement(this.second, RDF.TYPE, this.type), Activity.INSERTED);
+        restarted.prepare(this.repository);
+        assertFalse(Files.exists(this.file()));
+        this.apply(transaction);
+        restarted.flush();
+        assertFalse(Files.exists(this.file()));
+        restarted.update(this.repository, transaction);
+        restarted.complete(this.repository);
+
+        assertEquals(List.of(this.second), this.list(restarted));
+        restarted.flush();
+        assertEquals(List.of(this.second), this.list(new SubjectsByTypeIndex()));
+    }
+
+    private List<IRI> list(SubjectsByTypeIndex index) {
+        return index.list(this.repository, List.of(this.type), null, 10);
+    }
+
+    private void commit(SubjectsByTypeIndex index, Transaction transaction) {
+        index.prepare(this.repository);
+        try {
+            this.apply(transaction);
+            index.update(this.repository, transaction);
+        } finally {
+            index.complete(this.repository);
+        }
+    }
+
+    private void apply(Transaction transaction) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.begin();
+            transaction.getModel().filter(null, null, null, Transactions.GRAPH_CREATED)
+                    .forEach(statement -> connection.add(statement.getSubject(), statement.getPredicate(), statement.getObject()));
+            connection.commit();
+        }
+    }
+
+    private Path file() {
+        return this.storage.resolve("type-index.bin");
+    }
+}
@@ -0,0 +1,244 @@
+package com.bechtle.cougar.graph.repository;
+
+import com.bechtle.cougar.graph.domain.model.errors.HistoryNotRetained;
+import com.bechtle.cougar.graph.domain.model.extensions.EntitySnapshot;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Transactions;
+import com.bechtle.cougar.graph.repository.log.TransactionLog;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionLogTest {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void readsTransactionsById() throws IOException {
+        List<Model> transactions = this.transactions(10, Instant.now());
+        try (TransactionLog log = new TransactionLog(this.folder, 1 << 20, 4, Duration.ZERO)) {
+            log.append(transactions);
+
+            Optional<Model> read = log.read(this.identifier(3));
+            assertTrue(read.isPresent());
+            assertEquals(transactions.get(3), read.get());
+            assertFalse(log.read(vf.createIRI(Local.Transactions.NAMESPACE, "unknown")).isPresent());
+        }
+
+        // the indexes are rebuilt when the log is opened again
+        try (TransactionLog log = new TransactionLog(this.folder, 1 << 20, 4, Duration.ZERO)) {
+            assertEquals(transactions.get(7), log.read(this.identifier(7)).orElseThrow());
+            log.append(List.of(this.transaction(10, Instant.now())));
+            assertTrue(log.read(this.identifier(10)).isPresent());
+        }
+    }
+
+    @Test
+    void rollsSegments() throws IOException {
+        List<Model> transactions = this.transactions(200, Instant.now());
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            log.append(transactions);
+            assertTrue(this.segments() > 1);
+
+            for (int i = 0; i < transactions.size(); i++) {
+                assertEquals(transactions.get(i), log.read(this.identifier(i)).orElseThrow());
+            }
+        }
+    }
+
+    @Test
+    void readsTransactionsSince() throws IOException {
+        Instant start = Instant.parse("2022-01-01T00:00:00Z");
+        List<Model> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            transactions.add(this.transaction(i, start.plusSeconds(i)));
+        }
+
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            log.append(transactions);
+
+            List<Model> since = log.readSince(start.plusSeconds(57));
+            assertEquals(transactions.subList(57, 100), since);
+            assertEquals(100, log.readSince(start).size());
+            assertTrue(log.readSince(start.plusSeconds(1000)).isEmpty());
+        }
+    }
+
+    @Test
+    void skipsTransactionsAlreadyInLog() throws IOException {
+        Model first = this.transaction(1, Instant.parse("2022-01-01T00:00:00Z"));
+        try (TransactionLog log = new TransactionLog(this.folder, 1024, 2, Duration.ZERO)) {
+            log.append(List.of(first, this.transaction(2, Instant.parse("2022-01-02T00:00:00Z"))));
+            // replayed after a failed write
+            log.append(List.of(first, this.transaction(3, Instant.parse("2022-01-03T00:00:00Z"))));
+        }
+
+        try (TransactionLog log = new TransactionLog(this.folder, 1024, 2, Duration.ZERO)) {
+            log.append(List.of(first));
+            assertEquals(3, log.readSince(Instant.parse("2021-12-31T00:00:00Z")).size());
+        }
+    }
+
+    @Test
+    void deletesExpiredSegments() throws IOException {
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            log.append(this.transactions(100, Instant.now().minus(Duration.ofDays(2))));
+            assertTrue(this.segments() > 1);
+        }
+
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ofDays(1))) {
+            // only the active segment remains
+            assertEquals(1, this.segments());
+            assertTrue(log.read(this.identifier(99)).isPresent());
+            assertFalse(log.read(this.identifier(0)).isPresent());
+
+            log.append(List.of(this.transaction(100, Instant.now())));
+            assertTrue(log.read(this.identifier(100)).isPresent());
+        }
+    }
+
+    @Test
+    void rejectsReadsBeforeHorizon() throws IOException {
+        Instant expired = Instant.now().minus(Duration.ofDays(2));
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            log.append(this.transactions(100, expired));
+            log.append(List.of(this.transaction(100, Instant.now())));
+            assertTrue(log.getHorizon().isEmpty());
+        }
+
+        Instant since = Instant.now().minus(Duration.ofDays(3));
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ofDays(1))) {
+            assertEquals(expired.toEpochMilli(), log.getHorizon().orElseThrow().toEpochMilli());
+            assertThrows(HistoryNotRetained.class, () -> log.readSince(since));
+            assertThrows(HistoryNotRetained.class, () -> log.readSince(expired));
+            assertEquals(1, log.readSince(expired.plusSeconds(1)).size());
+        }
+
+        // the horizon is kept after the segments are gone
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            assertThrows(HistoryNotRetained.class, () -> log.readSince(since));
+        }
+    }
+
+    @Test
+    void readsChangesOfSubject() throws IOException {
+        Instant start = Instant.parse("2022-01-01T00:00:00Z");
+        IRI entity = vf.createIRI(Local.Entities.NAMESPACE, "e0");
+        List<Model> transactions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Model transaction = this.transaction(i, start.plusSeconds(i));
+            // every third transaction also changes the first entity
+            if (i % 3 == 0) transaction.add(entity, RDFS.COMMENT, vf.createLiteral("change " + i), Transactions.GRAPH_DELETED);
+            transactions.add(transaction);
+        }
+        // appended out of order, e.g. after a retry
+        transactions.add(transactions.remove(30));
+
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            log.append(transactions);
+            assertTrue(this.segments() > 1);
+
+            List<Model> changes = log.readChanges(entity, start.plusSeconds(20), start.plusSeconds(50));
+            assertEquals(List.of(21, 24, 27, 30, 33, 36, 39, 42, 45, 48), changes.stream().map(this::numberOf).toList());
+            assertEquals(34, log.readChanges(entity, start, null).size());
+            assertEquals(List.of(7), log.readChanges(vf.createIRI(Local.Entities.NAMESPACE, "e7"), start, null).stream().map(this::numberOf).toList());
+        }
+
+        // the index is rebuilt when the log is opened again
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            assertEquals(34, log.readChanges(entity, start, null).size());
+        }
+    }
+
+    @Test
+    void readsEarliestSnapshotAfter() throws IOException {
+        Instant start = Instant.parse("2022-01-01T00:00:00Z");
+        IRI entity = vf.createIRI(Local.Entities.NAMESPACE, "e0");
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            log.append(this.transactions(50, start));
+            log.appendSnapshots(List.of(this.snapshot(entity, start.plusSeconds(30), "thirty")));
+            log.append(List.of(this.transaction(50, start.plusSeconds(40))));
+            log.appendSnapshots(List.of(this.snapshot(entity, start.plusSeconds(10), "ten"), this.snapshot(entity, start.plusSeconds(30), "again")));
+        }
+
+        try (TransactionLog log = new TransactionLog(this.folder, 4096, 4, Duration.ZERO)) {
+            EntitySnapshot snapshot = log.readSnapshot(entity, start.plusSeconds(5)).orElseThrow();
+            assertEquals(start.plusSeconds(10), snapshot.at());
+            assertTrue(snapshot.statements().contains(entity, RDFS.LABEL, vf.createLiteral("ten")));
+
+            // snapshots of the same time are only kept once
+            snapshot = log.readSnapshot(entity, start.plusSeconds(11)).orElseThrow();
+            assertTrue(snapshot.statements().contains(entity, RDFS.LABEL, vf.createLiteral("thirty")));
+
+            assertTrue(log.readSnapshot(entity, start.plusSeconds(31)).isEmpty());
+            assertTrue(log.readSnapshot(vf.createIRI(Local.Entities.NAMESPACE, "e1"), start).isEmpty());
+
+            // snapshots are no transactions
+            assertEquals(51, log.readSince(start).size());
+            assertTrue(log.readChanges(entity, start.plusSeconds(1), null).isEmpty());
+        }
+    }
+
+    private EntitySnapshot snapshot(IRI subject, Instant at, String label) {
+        Model statements = new LinkedHashModel();
+        statements.add(subject, RDFS.LABEL, vf.createLiteral(label));
+        return new EntitySnapshot(subject, at, statements);
+    }
+
+    private int numberOf(Model transaction) {
+        String identifier = transaction.filter(null, RDF.TYPE, Transactions.TRANSACTION).subjects().iterator().next().stringValue();
+        return Integer.parseInt(identifier.substring(identifier.lastIndexOf('t') + 1));
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(this.folder)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private List<Model> transactions(int count, Instant at) {
+        List<Model> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transactions.add(this.transaction(i, at));
+        }
+        return transactions;
+    }
+
+    private Model transaction(int number, Instant at) {
+        IRI identifier = this.identifier(number);
+        Model model = new LinkedHashModel();
+        model.add(identifier, RDF.TYPE, Transactions.TRANSACTION, Transactions.GRAPH_PROVENANCE);
+        model.add(identifier, Transactions.AT, vf.createLiteral(Date.from(at)), Transactions.GRAPH_PROVENANCE);
+        model.add(vf.createIRI(Local.Entities.NAMESPACE, "e" + number), RDFS.LABEL, vf.createLiteral("entity " + number), Transactions.GRAPH_CREATED);
+        return model;
+    }
+
+    private IRI identifier(int number) {
+        return vf.createIRI(Local.Transactions.NAMESPACE, "t" + number);
+    }
+}
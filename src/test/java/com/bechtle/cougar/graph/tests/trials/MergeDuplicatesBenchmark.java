@@ -0,0 +1,76 @@
+package com.bechtle.cougar.graph.tests.trials;
+
+import com.bechtle.cougar.graph.domain.model.extensions.GeneratedIdentifier;
+import com.bechtle.cougar.graph.domain.model.vocabulary.Local;
+import com.bechtle.cougar.graph.domain.model.wrapper.Incoming;
+import com.bechtle.cougar.graph.domain.transformers.mergeDuplicates.MergeDuplicates;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Merges the embedded terms of payloads with a growing number of videos, half of the terms are duplicates. The time
+ * should grow linear with the size of the payload.
+ */
+@Slf4j
+public class MergeDuplicatesBenchmark {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final IRI VIDEO = vf.createIRI("http://schema.org/", "VideoObject");
+    private static final IRI TERM = vf.createIRI("http://schema.org/", "DefinedTerm");
+    private static final IRI HAS_TERM = vf.createIRI("http://schema.org/", "hasDefinedTerm");
+
+    @Test
+    public void mergeDuplicatesWithinModel() {
+        MergeDuplicates transformer = new MergeDuplicates(true, 100, 0);
+
+        // warm up
+        this.measure(transformer, 2000);
+
+        Map<Integer, Long> timings = new LinkedHashMap<>();
+        for (int size : new int[]{1000, 2000, 4000, 8000}) {
+            timings.put(size, this.measure(transformer, size));
+        }
+        timings.forEach((size, nanos) -> log.info("Merged duplicates of {} embedded terms in {} ms", size, nanos / 1_000_000.0));
+
+        // quadratic behaviour would result in a factor of 64
+        Assertions.assertTrue(timings.get(8000) < 24 * Math.max(timings.get(1000), 1_000_000L), "Merging duplicates doesn't scale linear: " + timings);
+    }
+
+    private long measure(MergeDuplicates transformer, int size) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            Incoming incoming = this.payload(size);
+
+            long start = System.nanoTime();
+            transformer.mergeDuplicatedWithinModel(incoming).block();
+            best = Math.min(best, System.nanoTime() - start);
+
+            Assertions.assertEquals(size / 2, incoming.getModel().filter(null, RDF.TYPE, TERM).size());
+            Assertions.assertEquals(size, incoming.getModel().filter(null, HAS_TERM, null).size());
+        }
+        return best;
+    }
+
+    private Incoming payload(int size) {
+        Incoming incoming = new Incoming();
+        for (int i = 0; i < size; i++) {
+            IRI video = new GeneratedIdentifier(Local.Entities.NS);
+            IRI term = new GeneratedIdentifier(Local.Entities.NS);
+            incoming.getModel().add(video, RDF.TYPE, VIDEO);
+            incoming.getModel().add(video, HAS_TERM, term);
+            incoming.getModel().add(term, RDF.TYPE, TERM);
+            // labels only differ in case and whitespace for the duplicates
+            incoming.getModel().add(term, RDFS.LABEL, vf.createLiteral(i % 2 == 0 ? "Term " + (i / 2) : " term  " + (i / 2)));
+        }
+        return incoming;
+    }
+}